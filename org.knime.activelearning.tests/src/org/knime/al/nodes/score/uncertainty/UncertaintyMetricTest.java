@@ -0,0 +1,103 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.al.nodes.score.uncertainty;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.al.util.MathUtils;
+
+public class UncertaintyMetricTest {
+
+    private static double[] randomDistribution(final Random random, final int numClasses) {
+        final double[] values = new double[numClasses];
+        double sum = 0;
+        for (int i = 0; i < numClasses; i++) {
+            // some equal probabilities to check the ties of margin and least confident
+            values[i] = random.nextInt(4) == 0 ? 0.25 : random.nextDouble();
+            sum += values[i];
+        }
+        for (int i = 0; i < numClasses; i++) {
+            values[i] /= sum;
+        }
+        return values;
+    }
+
+    @Test
+    public void testMetricsMatchSingleScorers() {
+        final Random random = new Random(47);
+        for (int run = 0; run < 200; run++) {
+            final double[] values = randomDistribution(random, 2 + random.nextInt(6));
+            final double[] original = values.clone();
+
+            final double entropy = UncertaintyMetric.ENTROPY.calculate(values);
+            final double margin = UncertaintyMetric.MARGIN.calculate(values);
+            final double leastConfident = UncertaintyMetric.LEAST_CONFIDENT.calculate(values);
+            final double variance = UncertaintyMetric.VARIANCE.calculate(values);
+            // the metrics share the values, so none of them may modify it
+            assertArrayEquals(original, values, 0);
+
+            final double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            assertEquals(MathUtils.entropyWithoutDistributionCheck(values), entropy, 0);
+            assertEquals(1 - (sorted[sorted.length - 1] - sorted[sorted.length - 2]), margin, 0);
+            assertEquals(1 - sorted[sorted.length - 1], leastConfident, 0);
+            assertEquals(1 - MathUtils.varianceWithoutDistributionCheck(values), variance, 0);
+        }
+    }
+
+    @Test
+    public void testEqualProbabilities() {
+        final double[] uniform = {0.5, 0.5};
+        assertEquals(1, UncertaintyMetric.ENTROPY.calculate(uniform), 1e-12);
+        assertEquals(1, UncertaintyMetric.MARGIN.calculate(uniform), 0);
+        assertEquals(0.5, UncertaintyMetric.LEAST_CONFIDENT.calculate(uniform), 0);
+    }
+}
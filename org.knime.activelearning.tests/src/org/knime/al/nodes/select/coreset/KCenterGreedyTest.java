@@ -0,0 +1,172 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.al.nodes.select.coreset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.core.node.ExecutionMonitor;
+
+public class KCenterGreedyTest {
+
+    private static double[] randomValues(final Random random, final int numRows, final int numFeatures) {
+        final double[] values = new double[numRows * numFeatures];
+        for (int i = 0; i < values.length; i++) {
+            // few distinct values to get ties and duplicate rows
+            values[i] = random.nextInt(5);
+        }
+        return values;
+    }
+
+    /** straightforward k-center greedy that recomputes all distances in every step */
+    private static int[] bruteForce(final FeatureMatrix features, final int[] seeds, final int k) {
+        final boolean[] centers = new boolean[features.size()];
+        final int[] allCenters = new int[seeds.length + k];
+        int numCenters = 0;
+        for (final int seed : seeds) {
+            centers[seed] = true;
+            allCenters[numCenters++] = seed;
+        }
+        final int[] selected = new int[Math.min(k, features.size() - seeds.length)];
+        for (int s = 0; s < selected.length; s++) {
+            int farthest = -1;
+            double farthestDistance = -1;
+            for (int row = 0; row < features.size(); row++) {
+                if (centers[row]) {
+                    continue;
+                }
+                double minDistance = Double.POSITIVE_INFINITY;
+                for (int c = 0; c < numCenters; c++) {
+                    minDistance = Math.min(minDistance, features.distance(row, allCenters[c]));
+                }
+                if (minDistance > farthestDistance) {
+                    farthestDistance = minDistance;
+                    farthest = row;
+                }
+            }
+            centers[farthest] = true;
+            allCenters[numCenters++] = farthest;
+            selected[s] = farthest;
+        }
+        return selected;
+    }
+
+    private static int[] select(final FeatureMatrix features, final int[] seeds, final int k,
+        final int parallelism) throws Exception {
+        final KCenterGreedy greedy = new KCenterGreedy(features, parallelism);
+        greedy.addSeeds(seeds, new ExecutionMonitor());
+        final int[] selected = new int[Math.min(k, features.size() - seeds.length)];
+        for (int s = 0; s < selected.length; s++) {
+            selected[s] = greedy.selectNext(new ExecutionMonitor());
+        }
+        if (selected.length < k) {
+            // all rows are centers
+            assertEquals(-1, greedy.selectNext(new ExecutionMonitor()));
+        }
+        return selected;
+    }
+
+    @Test
+    public void testMatchesBruteForce() throws Exception {
+        final Random random = new Random(50);
+        final int numRows = 2 * KCenterGreedy.CHUNK_SIZE + 123;
+        final double[] values = randomValues(random, numRows, 3);
+        final int[] seeds = {17, 4242, numRows - 1};
+        for (final FeatureMatrix features : new FeatureMatrix[]{FeatureMatrix.euclidean(values, numRows, 3),
+            FeatureMatrix.cosine(values.clone(), numRows, 3)}) {
+            final int[] expected = bruteForce(features, seeds, 20);
+            assertArrayEquals(expected, select(features, seeds, 20, 1));
+            assertArrayEquals(expected, select(features, seeds, 20, 4));
+            assertArrayEquals(bruteForce(features, new int[0], 20), select(features, new int[0], 20, 4));
+        }
+    }
+
+    @Test
+    public void testSelectsAllRows() throws Exception {
+        final Random random = new Random(5);
+        final double[] values = randomValues(random, 30, 2);
+        final FeatureMatrix features = FeatureMatrix.euclidean(values, 30, 2);
+        assertArrayEquals(bruteForce(features, new int[]{3}, 100), select(features, new int[]{3}, 100, 2));
+    }
+
+    @Test
+    public void testTanimoto() throws Exception {
+        final Random random = new Random(51);
+        final int numRows = 500;
+        final long[] words = new long[numRows * 2];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = random.nextLong() & random.nextLong();
+        }
+        // an empty vector
+        words[6] = 0;
+        words[7] = 0;
+        final FeatureMatrix features = FeatureMatrix.tanimoto(words, numRows, 2);
+        assertEquals(0, features.distance(3, 3), 0);
+        assertEquals(1, features.distance(3, 4), 0);
+        assertArrayEquals(bruteForce(features, new int[]{0, 1}, 50), select(features, new int[]{0, 1}, 50, 3));
+    }
+
+    @Test
+    public void testDistances() {
+        final double[] values = {3, 4, 0, 0, 6, 8, -3, -4};
+        final FeatureMatrix euclidean = FeatureMatrix.euclidean(values.clone(), 4, 2);
+        assertEquals(5, euclidean.distance(0, 1), 1e-12);
+        assertEquals(15, euclidean.distance(2, 3), 1e-12);
+        final FeatureMatrix cosine = FeatureMatrix.cosine(values.clone(), 4, 2);
+        assertEquals(0, cosine.distance(0, 2), 1e-12);
+        assertEquals(2, cosine.distance(0, 3), 1e-12);
+        assertEquals(1, cosine.distance(0, 1), 1e-12);
+
+        final long[] words = {0b1011, 0b0110, 0, 0};
+        final FeatureMatrix tanimoto = FeatureMatrix.tanimoto(words, 4, 1);
+        assertEquals(1 - 1.0 / 4, tanimoto.distance(0, 1), 1e-12);
+        assertEquals(1, tanimoto.distance(0, 2), 0);
+        assertEquals(0, tanimoto.distance(2, 3), 0);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.al.nodes.select.topk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TopKHeapTest {
+
+    /** indices of the k largest keys, ties broken by the smaller index, in input order */
+    private static long[] bruteForce(final double[] keys, final int k) {
+        final Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer> comparingDouble(i -> -keys[i]).thenComparingInt(i -> i));
+        final long[] indices = new long[Math.min(k, keys.length)];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = order[i];
+        }
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    private static long[] select(final double[] keys, final int k) {
+        final TopKHeap heap = new TopKHeap(k);
+        for (int i = 0; i < keys.length; i++) {
+            heap.offer(keys[i], i, null);
+        }
+        final long[] indices = new long[heap.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = heap.getIndex(i);
+        }
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    @Test
+    public void testMatchesSort() {
+        final Random random = new Random(49);
+        for (int run = 0; run < 300; run++) {
+            final double[] keys = new double[random.nextInt(200)];
+            for (int i = 0; i < keys.length; i++) {
+                // few distinct values to get many ties
+                keys[i] = random.nextInt(10) - 5;
+            }
+            final int k = 1 + random.nextInt(50);
+            assertArrayEquals(bruteForce(keys, k), select(keys, k));
+        }
+    }
+
+    @Test
+    public void testSmallestStrategy() {
+        final double[] scores = {3, 1, 4, 1, 5, 9, 2, 6};
+        final double[] keys = new double[scores.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = SelectionStrategy.SMALLEST.toKey(scores[i]);
+        }
+        assertArrayEquals(new long[]{1, 3, 6}, select(keys, 3));
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = SelectionStrategy.LARGEST.toKey(scores[i]);
+        }
+        assertArrayEquals(new long[]{4, 5, 7}, select(keys, 3));
+    }
+
+    @Test
+    public void testInfiniteKeys() {
+        final double[] keys = {0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, -1};
+        assertArrayEquals(new long[]{0, 2}, select(keys, 2));
+        assertEquals(4, select(keys, 10).length);
+    }
+}
@@ -69,6 +69,18 @@ public void testSum() {
                 ERROR);
     }
 
+    @Test
+    public void testCheckDistribution() {
+        Assert.assertTrue(
+                MathUtils.checkDistribution(new double[] { 0.1d, 0.2d, 0.7d }));
+        Assert.assertTrue(MathUtils
+                .checkDistribution(new double[] { 0.5d, 0.5d + 5e-8d }));
+        Assert.assertFalse(
+                MathUtils.checkDistribution(new double[] { 0.5d, 0.6d }));
+        Assert.assertFalse(
+                MathUtils.checkDistribution(new double[] { 0.5d, 0.4d }));
+    }
+
     @Test
     public void testEntropy() {
         final double[] twodot5 = { 0.5d, 0.5d };
@@ -0,0 +1,145 @@
+package org.knime.al.util.novelty;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.ParallelChunks;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.core.node.ExecutionMonitor;
+
+public class ParallelChunksTest {
+
+    private static List<int[]> boundaries(final int size, final int chunkSize,
+            final int parallelism) throws Exception {
+        return ParallelChunks.map(size, chunkSize, parallelism,
+                new ParallelChunks.ChunkTask<int[]>() {
+                    @Override
+                    public int[] compute(final int start, final int end)
+                            throws InterruptedException {
+                        // later chunks finish first
+                        Thread.sleep(Math.max(0, 20 - start));
+                        return new int[] { start, end };
+                    }
+                }, new ExecutionMonitor(), "Test");
+    }
+
+    @Test
+    public void testChunksAreReturnedInOrder() throws Exception {
+        for (final int parallelism : new int[] { 1, 3, 8 }) {
+            final List<int[]> chunks = boundaries(23, 5, parallelism);
+            assertEquals(5, chunks.size());
+            for (int c = 0; c < chunks.size(); c++) {
+                assertArrayEquals(
+                        new int[] { c * 5, Math.min(23, (c + 1) * 5) },
+                        chunks.get(c));
+            }
+        }
+        assertEquals(0, boundaries(0, 5, 4).size());
+    }
+
+    @Test
+    public void testExceptionOfChunkIsRethrown() throws Exception {
+        try {
+            ParallelChunks.map(100, 10, 4,
+                    new ParallelChunks.ChunkTask<Void>() {
+                        @Override
+                        public Void compute(final int start, final int end) {
+                            if (start == 50) {
+                                throw new IllegalStateException("chunk");
+                            }
+                            return null;
+                        }
+                    }, new ExecutionMonitor(), "Test");
+            fail("Expected exception");
+        } catch (final IllegalStateException e) {
+            assertEquals("chunk", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testKernelMatrixDoesNotDependOnParallelism() throws Exception {
+        final Random random = new Random(4);
+        final double[][] data = new double[150][3];
+        for (final double[] row : data) {
+            for (int c = 0; c < row.length; c++) {
+                row[c] = random.nextGaussian();
+            }
+        }
+        final KernelCalculator kernel =
+                new KernelCalculator(data, new RBFKernel(1.5));
+        kernel.setParallelism(1);
+        final double[][] sequential =
+                kernel.kernelize(new ExecutionMonitor()).getData();
+        kernel.setParallelism(7);
+        final double[][] parallel =
+                kernel.kernelize(new ExecutionMonitor()).getData();
+        for (int r = 0; r < data.length; r++) {
+            assertArrayEquals(sequential[r], parallel[r], 0);
+        }
+    }
+
+    @Test
+    public void testWorkersProcessEveryChunkOnce() throws Exception {
+        for (final int parallelism : new int[] { 1, 3, 8 }) {
+            final int[] visits = new int[103];
+            final AtomicInteger numWorkers = new AtomicInteger();
+            ParallelChunks.forEach(visits.length, 10, parallelism,
+                    new ParallelChunks.ChunkWorkerFactory() {
+                        @Override
+                        public ParallelChunks.ChunkWorker createWorker() {
+                            numWorkers.incrementAndGet();
+                            return new ParallelChunks.ChunkWorker() {
+                                @Override
+                                public void compute(final int start,
+                                        final int end) {
+                                    assertEquals(0, start % 10);
+                                    assertEquals(
+                                            Math.min(visits.length, start + 10),
+                                            end);
+                                    for (int i = start; i < end; i++) {
+                                        visits[i]++;
+                                    }
+                                }
+                            };
+                        }
+                    }, new ExecutionMonitor(), "Test");
+            for (final int v : visits) {
+                assertEquals(1, v);
+            }
+            assertTrue(numWorkers.get() <= parallelism);
+        }
+    }
+
+    @Test
+    public void testExceptionOfWorkerIsRethrown() throws Exception {
+        try {
+            ParallelChunks.forEach(100, 10, 4,
+                    new ParallelChunks.ChunkWorkerFactory() {
+                        @Override
+                        public ParallelChunks.ChunkWorker createWorker() {
+                            return new ParallelChunks.ChunkWorker() {
+                                @Override
+                                public void compute(final int start,
+                                        final int end) {
+                                    if (start == 50) {
+                                        throw new IllegalStateException(
+                                                "worker");
+                                    }
+                                }
+                            };
+                        }
+                    }, new ExecutionMonitor(), "Test");
+            fail("Expected exception");
+        } catch (final IllegalStateException e) {
+            assertEquals("worker", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.knime.al.util.novelty;
+
+import java.util.Random;
+
+/**
+ * Synthetic training and test samples for the novelty detection tests.
+ */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    /**
+     * Creates samples of standard normal noise around class centers. The
+     * samples of class k, i.e. rows k * classSize to (k + 1) * classSize - 1,
+     * are shifted by k * offset in every feature.
+     *
+     * @param random the source of the noise
+     * @param rows the number of samples
+     * @param numFeatures the number of features of each sample
+     * @param classSize the number of consecutive samples of a class
+     * @param offset the distance of neighboring class centers per feature, 0
+     *            for a single blob around the origin
+     * @return the samples, one sample per row
+     */
+    public static double[][] blobs(final Random random, final int rows,
+            final int numFeatures, final int classSize, final double offset) {
+        final double[][] data = new double[rows][numFeatures];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < numFeatures; c++) {
+                data[r][c] = random.nextGaussian() + offset * (r / classSize);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Creates samples of standard normal noise around the origin.
+     *
+     * @param random the source of the noise
+     * @param rows the number of samples
+     * @param numFeatures the number of features of each sample
+     * @return the samples, one sample per row
+     */
+    public static double[][] blobs(final Random random, final int rows,
+            final int numFeatures) {
+        return blobs(random, rows, numFeatures, rows, 0);
+    }
+
+    /**
+     * Repeats every sample, e.g. to test duplicate training samples.
+     *
+     * @param data the samples, one sample per row
+     * @param copies how often each sample occurs in the result
+     * @return the samples, each one copies times in a row
+     */
+    public static double[][] repeatRows(final double[][] data,
+            final int copies) {
+        final double[][] repeated = new double[data.length * copies][];
+        for (int r = 0; r < repeated.length; r++) {
+            repeated[r] = data[r / copies].clone();
+        }
+        return repeated;
+    }
+
+    /**
+     * Creates the labels of samples created by
+     * {@link #blobs(Random, int, int, int, double)}.
+     *
+     * @param rows the number of samples
+     * @param classSize the number of consecutive samples of a class
+     * @return "class0" for the first classSize samples, "class1" for the next
+     *         and so on
+     */
+    public static String[] labels(final int rows, final int classSize) {
+        final String[] labels = new String[rows];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = "class" + i / classSize;
+        }
+        return labels;
+    }
+}
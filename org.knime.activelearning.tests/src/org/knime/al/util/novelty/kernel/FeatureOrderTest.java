@@ -0,0 +1,74 @@
+package org.knime.al.util.novelty.kernel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.InvalidSettingsException;
+
+public class FeatureOrderTest {
+
+    private static DataTableSpec spec(final String... names) {
+        final DataColumnSpec[] columns = new DataColumnSpec[names.length];
+        for (int i = 0; i < names.length; i++) {
+            columns[i] = new DataColumnSpecCreator(names[i], DoubleCell.TYPE)
+                    .createSpec();
+        }
+        return new DataTableSpec(columns);
+    }
+
+    @Test
+    public void testReorderedIncludeList() throws Exception {
+        final DataTableSpec trainingSpec = spec("a", "b", "c", "d");
+        // the include list of a dialog need not follow the table order
+        final List<String> includeList = Arrays.asList("d", "a", "c");
+
+        final List<String> features =
+                KernelCalculator.inTableOrder(trainingSpec, includeList);
+        assertEquals(Arrays.asList("a", "c", "d"), features);
+        final int[] trainingIndices =
+                KernelCalculator.featureIndices(trainingSpec, features);
+        assertArrayEquals(new int[] { 0, 2, 3 }, trainingIndices);
+
+        // the scorer sorts the indices of the stored features into the order
+        // of its table, which must give the same feature order
+        final DataTableSpec testSpec = spec("x", "a", "b", "c", "d");
+        final int[] testIndices = testSpec.columnsToIndices(
+                features.toArray(new String[features.size()]));
+        Arrays.sort(testIndices);
+        final DefaultRow trainingRow = new DefaultRow("r0", new DoubleCell(1),
+                new DoubleCell(2), new DoubleCell(3), new DoubleCell(4));
+        final DefaultRow testRow = new DefaultRow("r1", new DoubleCell(0),
+                new DoubleCell(1), new DoubleCell(2), new DoubleCell(3),
+                new DoubleCell(4));
+        assertArrayEquals(
+                KernelCalculator.readDataRow(trainingRow, trainingIndices),
+                KernelCalculator.readDataRow(testRow, testIndices), 0);
+
+        // a table with the columns in another order is read in the same
+        // feature order as long as the same names are used
+        final DataTableSpec permutedSpec = spec("d", "c", "b", "a");
+        final DefaultRow permutedRow = new DefaultRow("r2", new DoubleCell(4),
+                new DoubleCell(3), new DoubleCell(2), new DoubleCell(1));
+        assertArrayEquals(
+                KernelCalculator.readDataRow(trainingRow, trainingIndices),
+                KernelCalculator.readDataRow(permutedRow, KernelCalculator
+                        .featureIndices(permutedSpec, features)),
+                0);
+    }
+
+    @Test(expected = InvalidSettingsException.class)
+    public void testMissingColumn() throws Exception {
+        KernelCalculator.featureIndices(spec("a", "b"),
+                Arrays.asList("a", "c"));
+    }
+}
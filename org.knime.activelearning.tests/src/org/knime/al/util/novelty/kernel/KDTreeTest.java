@@ -0,0 +1,90 @@
+package org.knime.al.util.novelty.kernel;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.kernel.KDTree;
+
+public class KDTreeTest {
+
+    private static int[] bruteForce(final double[][] samples,
+            final double[] point, final int k) {
+        final double[] distances = new double[samples.length];
+        final Integer[] order = new Integer[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            double distance = 0;
+            for (int d = 0; d < point.length; d++) {
+                final double dif = samples[i][d] - point[d];
+                distance = distance + dif * dif;
+            }
+            distances[i] = distance;
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                final int c = Double.compare(distances[a], distances[b]);
+                return c != 0 ? c : Integer.compare(a, b);
+            }
+        });
+        final int[] result = new int[k];
+        for (int i = 0; i < k; i++) {
+            result[i] = order[i];
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static void assertMatchesBruteForce(final double[][] samples,
+            final double[][] points, final int k) {
+        final KDTree.Query query = new KDTree(samples).createQuery(k);
+        final int[] neighbors = new int[k];
+        for (final double[] point : points) {
+            query.nearest(point, neighbors);
+            assertArrayEquals(bruteForce(samples, point, k), neighbors);
+        }
+    }
+
+    @Test
+    public void testGaussianSamples() {
+        final Random random = new Random(31);
+        final double[][] samples = new double[500][4];
+        final double[][] points = new double[50][4];
+        for (final double[][] data : new double[][][] { samples, points }) {
+            for (final double[] row : data) {
+                for (int d = 0; d < row.length; d++) {
+                    row[d] = random.nextGaussian() * (d + 1);
+                }
+            }
+        }
+        for (final int k : new int[] { 1, 7, 40, samples.length }) {
+            assertMatchesBruteForce(samples, points, k);
+        }
+    }
+
+    @Test
+    public void testTiesAreBrokenByIndex() {
+        // samples on a small integer grid have many equal distances and
+        // duplicates
+        final Random random = new Random(37);
+        final double[][] samples = new double[300][3];
+        final double[][] points = new double[60][3];
+        for (final double[][] data : new double[][][] { samples, points }) {
+            for (final double[] row : data) {
+                for (int d = 0; d < row.length; d++) {
+                    row[d] = random.nextInt(4);
+                }
+            }
+        }
+        for (final int k : new int[] { 1, 5, 33 }) {
+            assertMatchesBruteForce(samples, points, k);
+        }
+
+        final double[][] equal = new double[50][2];
+        assertMatchesBruteForce(equal, new double[][] { { 1, 1 } }, 10);
+    }
+}
@@ -0,0 +1,232 @@
+package org.knime.al.util.novelty.kernel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.knime.al.util.novelty.TestData.blobs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.al.util.noveltydetection.kernel.KernelCache;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+
+public class KernelCacheTest {
+
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    /*
+     * RBF kernel that counts its evaluations
+     */
+    public static class CountingKernel extends RBFKernel {
+        private volatile int m_count;
+
+        public CountingKernel() {
+            super(1.0);
+        }
+
+        @Override
+        public double calculate(final double[] sample1,
+                final double[] sample2) {
+            synchronized (this) {
+                m_count++;
+            }
+            return super.calculate(sample1, sample2);
+        }
+    }
+
+    private static double[][] kernelize(final KernelCache cache,
+            final CountingKernel kernel, final double[][] rows,
+            final double[][] cols) throws IOException {
+        return cache.kernelize(kernel, KernelCache.sampleIds(rows), rows,
+                KernelCache.sampleIds(cols), cols);
+    }
+
+    @Test
+    public void testCachedValues() throws IOException {
+        final Random random = new Random(1);
+        final double[][] rows = blobs(random, 10, 4);
+        final double[][] cols = blobs(random, 20, 4);
+        final KernelCache cache =
+                KernelCache.getInstance(m_folder.newFolder(),
+                        Long.MAX_VALUE);
+        final CountingKernel kernel = new CountingKernel();
+
+        final double[][] first = kernelize(cache, kernel, rows, cols);
+        assertEquals(200, kernel.m_count);
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < cols.length; c++) {
+                assertEquals(kernel.calculate(rows[r], cols[c]), first[r][c],
+                        0);
+            }
+        }
+
+        kernel.m_count = 0;
+        final double[][] second = kernelize(cache, kernel, rows, cols);
+        assertEquals(0, kernel.m_count);
+        for (int r = 0; r < rows.length; r++) {
+            assertArrayEquals(first[r], second[r], 0);
+        }
+    }
+
+    @Test
+    public void testNewColumnsAreMerged() throws IOException {
+        final Random random = new Random(2);
+        final double[][] rows = blobs(random, 5, 4);
+        final double[][] cols = blobs(random, 30, 4);
+        final double[][] firstCols = new double[10][];
+        System.arraycopy(cols, 0, firstCols, 0, 10);
+        final KernelCache cache =
+                KernelCache.getInstance(m_folder.newFolder(),
+                        Long.MAX_VALUE);
+        final CountingKernel kernel = new CountingKernel();
+
+        kernelize(cache, kernel, rows, firstCols);
+        kernel.m_count = 0;
+        final double[][] all = kernelize(cache, kernel, rows, cols);
+        // only the values of the 20 new columns are calculated
+        assertEquals(100, kernel.m_count);
+        final double[][] expected =
+                new KernelCalculator(cols, new RBFKernel(1.0))
+                        .kernelizeBlock(rows);
+        for (int r = 0; r < rows.length; r++) {
+            assertArrayEquals(expected[r], all[r], 1e-15);
+        }
+    }
+
+    @Test
+    public void testReopenAndEviction() throws IOException {
+        final Random random = new Random(3);
+        final double[][] rows = blobs(random, 50, 4);
+        final double[][] cols = blobs(random, 50, 4);
+        final File directory = m_folder.newFolder();
+        final CountingKernel kernel = new CountingKernel();
+
+        final KernelCache cache =
+                KernelCache.getInstance(directory, Long.MAX_VALUE);
+        kernelize(cache, kernel, rows, cols);
+        cache.close();
+        kernel.m_count = 0;
+        final KernelCache reopened =
+                KernelCache.getInstance(directory, Long.MAX_VALUE);
+        kernelize(reopened, kernel, rows, cols);
+        assertEquals(0, kernel.m_count);
+
+        final long size = reopened.getSize();
+        reopened.setMaxBytes(size / 4);
+        assertTrue(reopened.getSize() <= size / 4);
+        kernelize(reopened, kernel, rows, cols);
+        assertTrue(kernel.m_count > 0);
+        assertTrue(reopened.getSize() <= size / 4);
+    }
+
+    @Test
+    public void testRemovedRowOnlyChangesItsTile() throws IOException {
+        final Random random = new Random(4);
+        final double[][] rows = blobs(random, 1000, 4);
+        final double[][] cols = blobs(random, 3, 4);
+        final KernelCache cache =
+                KernelCache.getInstance(m_folder.newFolder(), Long.MAX_VALUE);
+        final CountingKernel kernel = new CountingKernel();
+        kernelize(cache, kernel, rows, cols);
+
+        // e.g. a pool row that got labeled
+        final double[][] pool = new double[rows.length - 1][];
+        System.arraycopy(rows, 0, pool, 0, 500);
+        System.arraycopy(rows, 501, pool, 500, rows.length - 501);
+        kernel.m_count = 0;
+        kernelize(cache, kernel, pool, cols);
+        assertTrue(kernel.m_count > 0);
+        // at most the two tiles around the removed row are new
+        assertTrue(kernel.m_count <= 3 * 2 * 128);
+    }
+
+    @Test
+    public void testConcurrentMerges() throws Exception {
+        final Random random = new Random(5);
+        final double[][] rows = blobs(random, 200, 4);
+        final double[][] cols = blobs(random, 40, 4);
+        final KernelCache cache =
+                KernelCache.getInstance(m_folder.newFolder(), Long.MAX_VALUE);
+        final CountingKernel kernel = new CountingKernel();
+
+        // every thread adds other columns to the same tiles
+        final Thread[] threads = new Thread[4];
+        final Exception[] failure = new Exception[1];
+        for (int t = 0; t < threads.length; t++) {
+            final double[][] part = new double[10][];
+            System.arraycopy(cols, 10 * t, part, 0, 10);
+            threads[t] = new Thread(() -> {
+                try {
+                    kernelize(cache, kernel, rows, part);
+                } catch (final IOException e) {
+                    failure[0] = e;
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(null, failure[0]);
+
+        kernel.m_count = 0;
+        final double[][] all = kernelize(cache, kernel, rows, cols);
+        // no merge got lost
+        assertEquals(0, kernel.m_count);
+        final double[][] expected =
+                new KernelCalculator(cols, new RBFKernel(1.0))
+                        .kernelizeBlock(rows);
+        for (int r = 0; r < rows.length; r++) {
+            assertArrayEquals(expected[r], all[r], 1e-15);
+        }
+    }
+
+    @Test
+    public void testCheapKernelsAreNotCached() throws IOException {
+        final KernelCache cache =
+                KernelCache.getInstance(m_folder.newFolder(), Long.MAX_VALUE);
+        final CountingKernel kernel = new CountingKernel();
+        final KernelCalculator calculator =
+                new KernelCalculator(blobs(new Random(6), 10, 4), kernel);
+        calculator.setCache(cache);
+        calculator.kernelizeBlock(blobs(new Random(7), 5, 4));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testCachedTrainingKernelInBlocks() throws Exception {
+        // more rows than one block and enough features to be cached
+        final double[][] training = blobs(new Random(8), 150,
+                KernelCache.MIN_CACHED_DIMENSION);
+        final KernelCache cache =
+                KernelCache.getInstance(m_folder.newFolder(), Long.MAX_VALUE);
+        final CountingKernel kernel = new CountingKernel();
+        final KernelCalculator calculator =
+                new KernelCalculator(training, kernel);
+        calculator.setCache(cache);
+        calculator.setParallelism(3);
+        final double[][] cached =
+                calculator.kernelizeUncopied(new ExecutionMonitor()).getData();
+        assertTrue(cache.getSize() > 0);
+
+        kernel.m_count = 0;
+        final double[][] again =
+                calculator.kernelize(new ExecutionMonitor()).getData();
+        assertEquals(0, kernel.m_count);
+        final double[][] expected = new KernelCalculator(training,
+                new RBFKernel(1.0)).kernelize(new ExecutionMonitor())
+                        .getData();
+        for (int r = 0; r < training.length; r++) {
+            assertArrayEquals(expected[r], cached[r], 1e-15);
+            assertArrayEquals(expected[r], again[r], 1e-15);
+        }
+    }
+}
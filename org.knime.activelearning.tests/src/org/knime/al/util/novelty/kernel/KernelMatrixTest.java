@@ -0,0 +1,143 @@
+package org.knime.al.util.novelty.kernel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.knime.al.util.novelty.TestData.blobs;
+import static org.knime.al.util.novelty.TestData.labels;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.al.nodes.score.novelty.localnoveltyscorer.LocalNoveltyScorer;
+import org.knime.al.util.noveltydetection.kernel.KDTree;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.KernelMatrix;
+import org.knime.al.util.noveltydetection.kernel.KernelMatrix.Precision;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.core.node.ExecutionMonitor;
+
+public class KernelMatrixTest {
+
+    private static final int NUM_FEATURES = 5;
+
+    private static double[] localNoveltyScores(final double[][] training,
+            final double[][] test, final Precision precision,
+            final long mapThreshold) throws Exception {
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(2.0));
+        try (KernelMatrix globalKernelMatrix = kernel.calculateKernelMatrix(
+                test, training, precision, mapThreshold,
+                new ExecutionMonitor());
+                KernelMatrix trainingKernelMatrix = kernel
+                        .calculateKernelMatrix(training, training, precision,
+                                mapThreshold, new ExecutionMonitor())) {
+            return new LocalNoveltyScorer(new ExecutionMonitor(),
+                    globalKernelMatrix, trainingKernelMatrix,
+                    labels(training.length, 50), 20, true)
+                            .calculateNoveltyScores();
+        }
+    }
+
+    @Test
+    public void testFlatTrainingData() {
+        final double[][] rows = blobs(new Random(12), 30, NUM_FEATURES, 10, 2);
+        final double[] flat = new double[rows.length * NUM_FEATURES];
+        for (int r = 0; r < rows.length; r++) {
+            System.arraycopy(rows[r], 0, flat, r * NUM_FEATURES,
+                    NUM_FEATURES);
+        }
+        assertEquals(new KernelCalculator(rows, new RBFKernel(2.0)),
+                new KernelCalculator(flat, rows.length, new RBFKernel(2.0)));
+    }
+
+    @Test
+    public void testStoragesMatchKernelFunction() throws Exception {
+        final Random random = new Random(11);
+        final double[][] rows = blobs(random, 150, NUM_FEATURES, 50, 2);
+        final double[][] columns = blobs(random, 70, NUM_FEATURES, 35, 2);
+        final RBFKernel kernelFunction = new RBFKernel(2.0);
+        final KernelCalculator kernel =
+                new KernelCalculator(columns, kernelFunction);
+
+        // a threshold of 0 maps every single precision matrix
+        final long[] mapThresholds = { Long.MAX_VALUE, Long.MAX_VALUE, 0 };
+        final Precision[] precisions =
+                { Precision.Double, Precision.Float, Precision.Float };
+        for (int p = 0; p < precisions.length; p++) {
+            try (KernelMatrix matrix = kernel.calculateKernelMatrix(rows,
+                    columns, precisions[p], mapThresholds[p],
+                    new ExecutionMonitor())) {
+                assertEquals(rows.length, matrix.getRowDimension());
+                assertEquals(columns.length, matrix.getColumnDimension());
+                final double delta = precisions[p] == Precision.Double ? 0
+                        : 1e-7;
+                for (int r = 0; r < rows.length; r++) {
+                    final double[] expected = new double[columns.length];
+                    for (int c = 0; c < columns.length; c++) {
+                        expected[c] =
+                                kernelFunction.calculate(rows[r], columns[c]);
+                        assertEquals(expected[c], matrix.getEntry(r, c),
+                                delta);
+                    }
+                    assertArrayEquals(expected, matrix.getRow(r), delta);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSinglePrecisionLocalNoveltyScores() throws Exception {
+        final Random random = new Random(13);
+        final double[][] training = blobs(random, 150, NUM_FEATURES, 50, 2);
+        final double[][] test = blobs(random, 60, NUM_FEATURES, 20, 2);
+
+        final double[] expected = localNoveltyScores(training, test,
+                Precision.Double, Long.MAX_VALUE);
+        assertArrayEquals(expected, localNoveltyScores(training, test,
+                Precision.Float, Long.MAX_VALUE), 1e-3);
+        assertArrayEquals(expected,
+                localNoveltyScores(training, test, Precision.Float, 0), 1e-3);
+    }
+
+    @Test
+    public void testOnTheFlyLocalNoveltyScores() throws Exception {
+        final Random random = new Random(21);
+        final double[][] training = blobs(random, 150, NUM_FEATURES, 50, 2);
+        final double[][] test = blobs(random, 45, NUM_FEATURES, 15, 2);
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(2.0));
+
+        final double[] expected = localNoveltyScores(training, test,
+                Precision.Double, Long.MAX_VALUE);
+        try (KernelMatrix trainingKernelMatrix = kernel.calculateKernelMatrix(
+                training, training, Precision.Double, Long.MAX_VALUE,
+                new ExecutionMonitor())) {
+            assertArrayEquals(expected,
+                    new LocalNoveltyScorer(new ExecutionMonitor(), kernel, test,
+                            trainingKernelMatrix, labels(training.length, 50),
+                            20, true).calculateNoveltyScores(),
+                    0);
+        }
+    }
+
+    @Test
+    public void testNeighborIndexLocalNoveltyScores() throws Exception {
+        final Random random = new Random(23);
+        final double[][] training = blobs(random, 150, NUM_FEATURES, 50, 2);
+        final double[][] test = blobs(random, 45, NUM_FEATURES, 15, 2);
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(2.0));
+
+        final double[] expected = localNoveltyScores(training, test,
+                Precision.Double, Long.MAX_VALUE);
+        try (KernelMatrix trainingKernelMatrix = kernel.calculateKernelMatrix(
+                training, training, Precision.Double, Long.MAX_VALUE,
+                new ExecutionMonitor())) {
+            final LocalNoveltyScorer scorer = new LocalNoveltyScorer(
+                    new ExecutionMonitor(), kernel, test, trainingKernelMatrix,
+                    labels(training.length, 50), 20, true);
+            scorer.setNeighborIndex(new KDTree(training));
+            assertArrayEquals(expected, scorer.calculateNoveltyScores(), 0);
+        }
+    }
+}
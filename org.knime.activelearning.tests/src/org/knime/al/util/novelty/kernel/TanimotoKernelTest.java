@@ -0,0 +1,177 @@
+package org.knime.al.util.novelty.kernel;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.TanimotoKernel;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.vector.bitvector.BitVectorValue;
+import org.knime.core.data.vector.bitvector.DenseBitVector;
+import org.knime.core.data.vector.bitvector.DenseBitVectorCellFactory;
+
+public class TanimotoKernelTest {
+
+    private static boolean[] randomBits(final Random random, final int length,
+            final double density) {
+        final boolean[] bits = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            bits[i] = random.nextDouble() < density;
+        }
+        return bits;
+    }
+
+    private static DataCell cell(final boolean[] bits) {
+        final DenseBitVector vector = new DenseBitVector(bits.length);
+        for (int i = 0; i < bits.length; i++) {
+            if (bits[i]) {
+                vector.set(i);
+            }
+        }
+        return new DenseBitVectorCellFactory(vector).createDataCell();
+    }
+
+    private static double[] read(final boolean[] bits) {
+        return KernelCalculator.readDataRow(new DefaultRow("row", cell(bits)),
+                new int[] { 0 });
+    }
+
+    // Tanimoto similarity computed bit by bit
+    private static double tanimoto(final boolean[] bits1,
+            final boolean[] bits2) {
+        int intersection = 0;
+        int union = 0;
+        for (int i = 0; i < Math.max(bits1.length, bits2.length); i++) {
+            final boolean b1 = i < bits1.length && bits1[i];
+            final boolean b2 = i < bits2.length && bits2[i];
+            intersection += b1 && b2 ? 1 : 0;
+            union += b1 || b2 ? 1 : 0;
+        }
+        return union == 0 ? 1.0 : (double) intersection / union;
+    }
+
+    @Test
+    public void testAgainstBitwiseTanimoto() {
+        final Random random = new Random(7);
+        final TanimotoKernel kernel = new TanimotoKernel();
+        for (final int length : new int[] { 1, 63, 64, 65, 100, 1024 }) {
+            for (int i = 0; i < 20; i++) {
+                final boolean[] bits1 = randomBits(random, length, 0.3);
+                final boolean[] bits2 = randomBits(random, length, 0.3);
+                final double[] packed1 = read(bits1);
+                assertEquals(TanimotoKernel.packedLength(length),
+                        packed1.length);
+                assertEquals(tanimoto(bits1, bits2),
+                        kernel.calculate(packed1, read(bits2)), 1e-15);
+                assertEquals(1.0, kernel.calculate(packed1, packed1), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testAllBitsSet() {
+        // words with all bits set are NaN patterns as doubles
+        final boolean[] full = new boolean[128];
+        Arrays.fill(full, true);
+        final double[] packed = read(full);
+        assertEquals(-1L, Double.doubleToRawLongBits(packed[0]));
+        final TanimotoKernel kernel = new TanimotoKernel();
+        assertEquals(1.0, kernel.calculate(packed, packed), 0);
+        final boolean[] half = randomBits(new Random(10), 128, 0.5);
+        assertEquals(tanimoto(full, half),
+                kernel.calculate(packed, read(half)), 1e-15);
+    }
+
+    @Test
+    public void testSeveralColumnsOfDifferentLengths() {
+        final Random random = new Random(11);
+        final boolean[][] row1 = { randomBits(random, 100, 0.4),
+                randomBits(random, 200, 0.4) };
+        final boolean[][] row2 = { randomBits(random, 200, 0.4),
+                randomBits(random, 100, 0.4) };
+        final double[] packed1 = KernelCalculator.readDataRow(
+                new DefaultRow("row1", cell(row1[0]), cell(row1[1])),
+                new int[] { 0, 1 });
+        final double[] packed2 = KernelCalculator.readDataRow(
+                new DefaultRow("row2", cell(row2[0]), cell(row2[1])),
+                new int[] { 0, 1 });
+        // the words of each column are compared with each other
+        final double expected = tanimoto(concat(row1[0], 200, row1[1]),
+                concat(row2[0], 200, row2[1]));
+        assertEquals(expected,
+                new TanimotoKernel().calculate(packed1, packed2), 1e-15);
+    }
+
+    // the bits of two vectors, the first one padded to the given length
+    private static boolean[] concat(final boolean[] bits1, final int length1,
+            final boolean[] bits2) {
+        final boolean[] bits = new boolean[length1 + bits2.length];
+        System.arraycopy(bits1, 0, bits, 0, bits1.length);
+        System.arraycopy(bits2, 0, bits, length1, bits2.length);
+        return bits;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTrainingVectorsOfDifferentLengths() {
+        new KernelCalculator(
+                new double[][] { read(new boolean[64]), read(new boolean[65]) },
+                new TanimotoKernel());
+    }
+
+    @Test
+    public void testEmptyAndDifferentLengths() {
+        final TanimotoKernel kernel = new TanimotoKernel();
+        final boolean[] empty = new boolean[64];
+        assertEquals(1.0, kernel.calculate(read(empty), read(empty)), 0);
+
+        final Random random = new Random(8);
+        final boolean[] shortBits = randomBits(random, 40, 0.5);
+        final boolean[] longBits = randomBits(random, 200, 0.5);
+        assertEquals(tanimoto(shortBits, longBits),
+                kernel.calculate(read(shortBits), read(longBits)), 1e-15);
+        assertEquals(tanimoto(shortBits, longBits),
+                kernel.calculate(read(longBits), read(shortBits)), 1e-15);
+    }
+
+    @Test
+    public void testLongWords() {
+        final Random random = new Random(9);
+        for (final int length : new int[] { 1, 63, 64, 65, 300 }) {
+            final int numWords = (length + 63) / 64;
+            final boolean[] bits1 = randomBits(random, length, 0.3);
+            final boolean[] bits2 = randomBits(random, length, 0.3);
+            final long[] words = new long[1 + 2 * numWords];
+            TanimotoKernel.pack((BitVectorValue) cell(bits1), words, 1);
+            TanimotoKernel.pack((BitVectorValue) cell(bits2), words,
+                    1 + numWords);
+            final int cardinality1 =
+                    TanimotoKernel.cardinality(words, 1, numWords);
+            final int cardinality2 =
+                    TanimotoKernel.cardinality(words, 1 + numWords, numWords);
+            assertEquals(tanimoto(bits1, bits2),
+                    TanimotoKernel.calculate(words, 1, cardinality1, words,
+                            1 + numWords, cardinality2, numWords),
+                    1e-15);
+        }
+        assertEquals(1.0, TanimotoKernel.calculate(new long[2], 0, 0,
+                new long[2], 0, 0, 2), 0);
+    }
+
+    @Test
+    public void testMixedRow() {
+        final boolean[] bits = new boolean[40];
+        bits[0] = true;
+        bits[33] = true;
+        final double[] data = KernelCalculator.readDataRow(
+                new DefaultRow("row", new DoubleCell(0.5), cell(bits)),
+                new int[] { 0, 1 });
+        assertEquals(2, data.length);
+        assertEquals(0.5, data[0], 0);
+        assertEquals(1L | 1L << 33, Double.doubleToRawLongBits(data[1]));
+    }
+}
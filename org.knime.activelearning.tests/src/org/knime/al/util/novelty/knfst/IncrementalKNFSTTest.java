@@ -0,0 +1,164 @@
+package org.knime.al.util.novelty.knfst;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.knfst.IncrementalKNFST;
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.MultiClassKNFST;
+import org.knime.al.util.noveltydetection.knfst.OneClassKNFST;
+import org.knime.core.node.ExecutionMonitor;
+
+public class IncrementalKNFSTTest {
+
+    private static final int NUM_FEATURES = 3;
+
+    private static final double EPSILON = 1e-6;
+
+    private static final RBFKernel KERNEL = new RBFKernel(1.0);
+
+    private static double[] sample(final Random random, final int clazz) {
+        final double[] sample = new double[NUM_FEATURES];
+        for (int c = 0; c < NUM_FEATURES; c++) {
+            sample[c] = random.nextGaussian() + 3 * clazz;
+        }
+        return sample;
+    }
+
+    private static double[][] testData(final Random random) {
+        final double[][] test = new double[30][];
+        for (int i = 0; i < test.length; i++) {
+            test[i] = sample(random, i % 4);
+        }
+        return test;
+    }
+
+    // exact model of the samples, which must be ordered by class
+    private static KNFST retrain(final double[][] samples,
+            final String[] labels, final boolean oneClass) throws Exception {
+        final KernelCalculator kernel = new KernelCalculator(samples, KERNEL);
+        return oneClass ? new OneClassKNFST(kernel, new ExecutionMonitor())
+                : new MultiClassKNFST(kernel, labels, new ExecutionMonitor());
+    }
+
+    private static double[] scores(final KNFST model, final double[][] test) {
+        return model.scoreKernelBlock(model.getKernel().kernelizeBlock(test))
+                .getScores();
+    }
+
+    private static void assertSameModel(final KNFST expected,
+            final KNFST actual, final double[][] test) {
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getNullspaceDimension(),
+                actual.getNullspaceDimension());
+        assertArrayEquals(expected.getBetweenClassDistances(),
+                actual.getBetweenClassDistances(), EPSILON);
+        assertArrayEquals(scores(expected, test), scores(actual, test),
+                EPSILON);
+    }
+
+    @Test
+    public void testMultiClassUpdateMatchesRetrain() throws Exception {
+        final Random random = new Random(3);
+        final double[][] all = new double[60][];
+        final String[] allLabels = new String[60];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = sample(random, i / 20);
+            allLabels[i] = "class" + i / 20;
+        }
+
+        // previous model learned without the last five samples of each class
+        final double[][] previous = new double[45][];
+        final String[] previousLabels = new String[45];
+        final double[][] added = new double[15][];
+        final String[] addedLabels = new String[15];
+        for (int i = 0, p = 0, a = 0; i < all.length; i++) {
+            if (i % 20 < 15) {
+                previous[p] = all[i];
+                previousLabels[p++] = allLabels[i];
+            } else {
+                added[a] = all[i];
+                addedLabels[a++] = allLabels[i];
+            }
+        }
+        final KNFST previousModel = retrain(previous, previousLabels, false);
+        final double[][] test = testData(random);
+        final double[] previousScores = scores(previousModel, test);
+
+        final KNFST updated = IncrementalKNFST.update(previousModel, added,
+                addedLabels, new ExecutionMonitor());
+        assertSameModel(retrain(all, allLabels, false), updated, test);
+        assertArrayEquals(allLabels, ((MultiClassKNFST) updated).getLabels());
+
+        // the previous model is not changed
+        assertArrayEquals(previousScores, scores(previousModel, test), 0);
+    }
+
+    @Test
+    public void testRepeatedUpdatesAndNewClass() throws Exception {
+        final Random random = new Random(5);
+        final double[][] first = new double[25][];
+        final String[] firstLabels = new String[25];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = sample(random, 0);
+            firstLabels[i] = "a";
+        }
+        final double[][] test = testData(random);
+        KNFST model = retrain(first, firstLabels, true);
+
+        // one-class update
+        final double[][] second = new double[10][];
+        final String[] secondLabels = new String[10];
+        final double[][] firstAndSecond = new double[35][];
+        final String[] firstAndSecondLabels = new String[35];
+        System.arraycopy(first, 0, firstAndSecond, 0, 25);
+        for (int i = 0; i < second.length; i++) {
+            second[i] = sample(random, 0);
+            secondLabels[i] = "a";
+            firstAndSecond[25 + i] = second[i];
+        }
+        Arrays.fill(firstAndSecondLabels, "a");
+        model = IncrementalKNFST.update(model, second, secondLabels,
+                new ExecutionMonitor());
+        assertSameModel(retrain(firstAndSecond, firstAndSecondLabels, true),
+                model, test);
+
+        // a second class turns the model into a multi-class model
+        final double[][] third = new double[20][];
+        final String[] thirdLabels = new String[20];
+        final double[][] all = new double[55][];
+        final String[] allLabels = new String[55];
+        System.arraycopy(firstAndSecond, 0, all, 0, 35);
+        System.arraycopy(firstAndSecondLabels, 0, allLabels, 0, 35);
+        for (int i = 0; i < third.length; i++) {
+            third[i] = sample(random, 1);
+            thirdLabels[i] = "b";
+            all[35 + i] = third[i];
+            allLabels[35 + i] = "b";
+        }
+        model = IncrementalKNFST.update(model, third, thirdLabels,
+                new ExecutionMonitor());
+        assertTrue(model instanceof MultiClassKNFST);
+        assertSameModel(retrain(all, allLabels, false), model, test);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOneClassModelWithOtherClass() throws Exception {
+        final Random random = new Random(7);
+        final double[][] training = new double[10][];
+        for (int i = 0; i < training.length; i++) {
+            training[i] = sample(random, 0);
+        }
+        final KNFST model = retrain(training, null, true);
+        IncrementalKNFST.update(model,
+                new double[][] { sample(random, 0), sample(random, 1) },
+                new String[] { "a", "b" }, new ExecutionMonitor());
+    }
+}
@@ -0,0 +1,123 @@
+package org.knime.al.util.novelty.knfst;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.knime.al.util.novelty.TestData.blobs;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.MultiClassKNFST;
+import org.knime.al.util.noveltydetection.knfst.NoveltyScores;
+import org.knime.al.util.noveltydetection.knfst.OneClassKNFST;
+
+public class KNFSTBlockScoringTest {
+
+    private static final int NUM_FEATURES = 4;
+
+    private static void assertBlockEqualsSingle(final KNFST knfst,
+            final KernelCalculator kernel, final double[][] training,
+            final double[][] test) {
+        final NoveltyScores blockScores =
+                knfst.scoreKernelBlock(kernel.kernelizeBlock(test));
+        final RealMatrix kernelMatrix =
+                kernel.calculateKernelMatrix_singleThread(training, test);
+        for (int i = 0; i < test.length; i++) {
+            // same input as scoreTestData(DataRow)
+            final NoveltyScores single =
+                    knfst.scoreTestData(MatrixUtils
+                            .createColumnRealMatrix(kernelMatrix.getColumn(i)));
+            assertEquals(single.getScores()[0], blockScores.getScores()[i], 0);
+            assertArrayEquals(single.getCoordinates().getRow(0),
+                    blockScores.getCoordinates().getRow(i), 0);
+        }
+    }
+
+    @Test
+    public void testMultiClassBlockScoring() throws Exception {
+        final Random random = new Random(42);
+        final double[][] training = blobs(random, 90, NUM_FEATURES, 30, 1);
+        final String[] labels = new String[training.length];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = "class" + i / 30;
+        }
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(1.0));
+        final KNFST knfst = new MultiClassKNFST(
+                kernel.calculateKernelMatrix_singleThread(training, training),
+                labels);
+
+        assertBlockEqualsSingle(knfst, kernel, training,
+                blobs(random, 25, NUM_FEATURES, 25, 1));
+    }
+
+    @Test
+    public void testMultiClassScoresMatchDirectDistances() throws Exception {
+        final Random random = new Random(5);
+        final double[][] training = blobs(random, 60, NUM_FEATURES, 20, 1);
+        final String[] labels = new String[training.length];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = "class" + i / 20;
+        }
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(1.0));
+        final KNFST knfst = new MultiClassKNFST(
+                kernel.calculateKernelMatrix_singleThread(training, training),
+                labels);
+        final double[][] test = blobs(random, 30, NUM_FEATURES, 10, 1);
+        final RealMatrix kernelMatrix =
+                kernel.calculateKernelMatrix_singleThread(training, test);
+
+        final NoveltyScores scores = knfst.scoreTestData(kernelMatrix);
+        final RealMatrix coordinates =
+                kernelMatrix.transpose().multiply(knfst.getProjection());
+        final double[][] targetPoints = knfst.getTargetPoints();
+        for (int i = 0; i < test.length; i++) {
+            double min = Double.POSITIVE_INFINITY;
+            for (final double[] target : targetPoints) {
+                min = Math.min(min, coordinates.getRowVector(i)
+                        .getDistance(MatrixUtils.createRealVector(target)));
+            }
+            assertEquals(min, scores.getScores()[i], 1e-6);
+            assertArrayEquals(coordinates.getRow(i),
+                    scores.getCoordinates().getRow(i), 1e-12);
+        }
+    }
+
+    @Test
+    public void testOneClassBlockScoring() throws Exception {
+        final Random random = new Random(7);
+        final double[][] training = blobs(random, 40, NUM_FEATURES, 40, 1);
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(2.0));
+        final KNFST knfst = new OneClassKNFST(
+                kernel.calculateKernelMatrix_singleThread(training, training));
+
+        assertBlockEqualsSingle(knfst, kernel, training,
+                blobs(random, 25, NUM_FEATURES, 25, 1));
+    }
+
+    @Test
+    public void testKernelizeBlock() {
+        final Random random = new Random(3);
+        final double[][] training = blobs(random, 600, NUM_FEATURES, 600, 1);
+        final double[][] test = blobs(random, 5, NUM_FEATURES, 5, 1);
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(1.5));
+        final double[][] block = kernel.kernelizeBlock(test);
+        final RealMatrix expected =
+                kernel.calculateKernelMatrix_singleThread(training, test);
+        for (int i = 0; i < test.length; i++) {
+            assertArrayEquals(expected.getColumn(i), block[i], 0);
+        }
+        assertEquals(0, kernel.kernelizeBlock(new double[0][]).length);
+        assertEquals(training.length,
+                Arrays.stream(block).mapToInt(b -> b.length).min().getAsInt());
+    }
+}
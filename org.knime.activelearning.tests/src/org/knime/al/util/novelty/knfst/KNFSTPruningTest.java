@@ -0,0 +1,97 @@
+package org.knime.al.util.novelty.knfst;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.knime.al.util.novelty.TestData.blobs;
+import static org.knime.al.util.novelty.TestData.labels;
+import static org.knime.al.util.novelty.TestData.repeatRows;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.KernelFunction;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.KNFSTPruning;
+import org.knime.al.util.noveltydetection.knfst.MultiClassKNFST;
+import org.knime.al.util.noveltydetection.knfst.OneClassKNFST;
+import org.knime.core.node.ExecutionMonitor;
+
+public class KNFSTPruningTest {
+
+    private static final int NUM_FEATURES = 3;
+
+    // every sample is repeated copies times
+
+    private static KNFST learn(final double[][] training,
+            final String[] labels, final KernelFunction kernelFunction)
+            throws Exception {
+        final KernelCalculator kernel =
+                new KernelCalculator(training, kernelFunction);
+        return labels == null
+                ? new OneClassKNFST(kernel, new ExecutionMonitor())
+                : new MultiClassKNFST(kernel, labels, new ExecutionMonitor());
+    }
+
+    private static double[] scores(final KNFST model, final double[][] test) {
+        return model.scoreKernelBlock(model.getKernel().kernelizeBlock(test))
+                .getScores();
+    }
+
+    private static void assertScoresWithinTolerance(final KNFST model,
+            final KNFST pruned, final double tolerance, final double[][] test) {
+        double minDistance = Double.POSITIVE_INFINITY;
+        for (final double distance : model.getBetweenClassDistances()) {
+            minDistance = Math.min(minDistance, distance);
+        }
+        assertArrayEquals(scores(model, test), scores(pruned, test),
+                tolerance * minDistance);
+    }
+
+    @Test
+    public void testDuplicatesAreRemoved() throws Exception {
+        final Random random = new Random(31);
+        final double[][] training =
+                repeatRows(blobs(random, 30, NUM_FEATURES, 10, 3), 3);
+        final String[] labels = labels(training.length, 30);
+        final KNFST model = learn(training, labels, new RBFKernel(1.0));
+
+        final KNFST pruned =
+                KNFSTPruning.prune(model, 1e-6, new ExecutionMonitor());
+        assertTrue(pruned instanceof MultiClassKNFST);
+        assertEquals(30, pruned.getKernel().getNumTrainingSamples());
+        assertEquals(30, ((MultiClassKNFST) pruned).getLabels().length);
+        assertArrayEquals(model.getBetweenClassDistances(),
+                pruned.getBetweenClassDistances(), 0);
+        assertScoresWithinTolerance(model, pruned, 1e-6,
+                blobs(random, 40, NUM_FEATURES, 10, 3));
+    }
+
+    @Test
+    public void testOneClassDuplicatesAreRemoved() throws Exception {
+        final Random random = new Random(37);
+        final double[][] training =
+                repeatRows(blobs(random, 30, NUM_FEATURES, 30, 3), 2);
+        final KNFST model = learn(training, null, new RBFKernel(1.0));
+
+        final KNFST pruned =
+                KNFSTPruning.prune(model, 1e-6, new ExecutionMonitor());
+        assertTrue(pruned instanceof OneClassKNFST);
+        assertEquals(30, pruned.getKernel().getNumTrainingSamples());
+        assertScoresWithinTolerance(model, pruned, 1e-6,
+                blobs(random, 40, NUM_FEATURES, 10, 3));
+    }
+
+    @Test
+    public void testModelIsKeptIfToleranceCantBeMet() throws Exception {
+        final Random random = new Random(41);
+        final double[][] training = blobs(random, 40, NUM_FEATURES, 20, 3);
+        final KNFST model = learn(training, labels(training.length, 20),
+                new RBFKernel(1.0));
+        assertSame(model,
+                KNFSTPruning.prune(model, 1e-6, new ExecutionMonitor()));
+    }
+}
@@ -0,0 +1,129 @@
+package org.knime.al.util.novelty.knfst;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.kernel.DoubleArrayIO;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.MultiClassKNFST;
+import org.knime.core.node.ExecutionMonitor;
+
+public class KNFSTSerializationTest {
+
+    private static MultiClassKNFST createModel() throws Exception {
+        final Random random = new Random(11);
+        final double[][] training = new double[40][4];
+        final String[] labels = new String[40];
+        for (int r = 0; r < training.length; r++) {
+            for (int c = 0; c < 4; c++) {
+                training[r][c] = random.nextGaussian() + 3 * (r / 20);
+            }
+            labels[r] = "class" + r / 20;
+        }
+        return new MultiClassKNFST(
+                new KernelCalculator(training, new RBFKernel(1.0)), labels,
+                new ExecutionMonitor());
+    }
+
+    private static KNFST read(final byte[] bytes) throws Exception {
+        try (ObjectInputStream in =
+                new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            final KNFST knfst = new MultiClassKNFST();
+            knfst.readExternal(in);
+            return knfst;
+        }
+    }
+
+    // the layout written before the values were written in bulk
+    private static void writeValueByValue(final MultiClassKNFST knfst,
+            final ObjectOutputStream out) throws IOException {
+        final KernelCalculator kernel = knfst.getKernel();
+        out.writeUTF(kernel.getClass().getName());
+        out.writeUTF(kernel.getKernelFunction().getClass().getName());
+        kernel.getKernelFunction().writeExternal(out);
+        writeValueByValue(kernel.getTrainingData(), out);
+        writeValueByValue(knfst.getProjection().getData(), out);
+        writeValueByValue(knfst.getTargetPoints(), out);
+        out.writeInt(knfst.getBetweenClassDistances().length);
+        for (final double dist : knfst.getBetweenClassDistances()) {
+            out.writeDouble(dist);
+        }
+        out.writeInt(knfst.getLabels().length);
+        for (final String label : knfst.getLabels()) {
+            out.writeUTF(label);
+        }
+    }
+
+    private static void writeValueByValue(final double[][] data,
+            final ObjectOutputStream out) throws IOException {
+        out.writeInt(data.length);
+        out.writeInt(data[0].length);
+        for (final double[] row : data) {
+            for (final double value : row) {
+                out.writeDouble(value);
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final MultiClassKNFST knfst = createModel();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            knfst.writeExternal(out);
+        }
+        assertEquals(knfst, read(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testReadsValueByValueLayout() throws Exception {
+        final MultiClassKNFST knfst = createModel();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            writeValueByValue(knfst, out);
+        }
+        assertEquals(knfst, read(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testBulkBytesEqualValueByValue() throws Exception {
+        // rows longer than a chunk and a total that is not a multiple of it
+        final Random random = new Random(13);
+        final double[][] data = new double[3][10001];
+        for (final double[] row : data) {
+            for (int c = 0; c < row.length; c++) {
+                row[c] = random.nextDouble();
+            }
+        }
+
+        final ByteArrayOutputStream bulk = new ByteArrayOutputStream();
+        DoubleArrayIO.writeMatrix(new DataOutputStream(bulk), data);
+        final ByteArrayOutputStream single = new ByteArrayOutputStream();
+        final DataOutputStream singleOut = new DataOutputStream(single);
+        for (final double[] row : data) {
+            for (final double value : row) {
+                singleOut.writeDouble(value);
+            }
+        }
+        assertArrayEquals(single.toByteArray(), bulk.toByteArray());
+
+        final double[][] read = new double[3][10001];
+        DoubleArrayIO.readMatrix(new DataInputStream(
+                new ByteArrayInputStream(bulk.toByteArray())), read);
+        for (int r = 0; r < data.length; r++) {
+            assertArrayEquals(data[r], read[r], 0);
+        }
+    }
+}
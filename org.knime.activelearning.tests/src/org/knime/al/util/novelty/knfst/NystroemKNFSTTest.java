@@ -0,0 +1,125 @@
+package org.knime.al.util.novelty.knfst;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.knime.al.util.novelty.TestData.blobs;
+import static org.knime.al.util.novelty.TestData.labels;
+
+import java.util.Random;
+
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.MultiClassKNFST;
+import org.knime.al.util.noveltydetection.knfst.NystroemKNFST;
+import org.knime.al.util.noveltydetection.knfst.NystroemKNFST.LandmarkSelection;
+import org.knime.al.util.noveltydetection.knfst.OneClassKNFST;
+import org.knime.core.node.ExecutionMonitor;
+
+public class NystroemKNFSTTest {
+
+    private static final int NUM_FEATURES = 3;
+
+    private static final double EPSILON = 1e-6;
+
+    @Test
+    public void testAllLandmarksMatchesExactMultiClass() throws Exception {
+        final Random random = new Random(17);
+        final double[][] training = blobs(random, 60, NUM_FEATURES, 20, 3);
+        final String[] labels = labels(training.length, 20);
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(1.0));
+        final RealMatrix kernelMatrix =
+                kernel.calculateKernelMatrix_singleThread(training, training);
+        final KNFST exact = new MultiClassKNFST(kernelMatrix, labels);
+
+        for (final LandmarkSelection selection : LandmarkSelection.values()) {
+            final KNFST approx = NystroemKNFST.learn(kernel, labels, false,
+                    training.length, selection, 1, new ExecutionMonitor());
+            assertTrue(approx instanceof MultiClassKNFST);
+            assertEquals(exact.getNullspaceDimension(),
+                    approx.getNullspaceDimension());
+            assertArrayEquals(exact.getBetweenClassDistances(),
+                    approx.getBetweenClassDistances(), EPSILON);
+
+            final double[][] test = blobs(random, 20, NUM_FEATURES, 5, 3);
+            assertArrayEquals(
+                    exact.scoreKernelBlock(kernel.kernelizeBlock(test))
+                            .getScores(),
+                    approx.scoreKernelBlock(
+                            approx.getKernel().kernelizeBlock(test))
+                            .getScores(),
+                    EPSILON);
+        }
+    }
+
+    @Test
+    public void testAllLandmarksMatchesExactOneClass() throws Exception {
+        final Random random = new Random(23);
+        final double[][] training = blobs(random, 40, NUM_FEATURES, 40, 3);
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(2.0));
+        final KNFST exact = new OneClassKNFST(
+                kernel.calculateKernelMatrix_singleThread(training, training));
+        final KNFST approx = NystroemKNFST.learn(kernel, null, true,
+                training.length, LandmarkSelection.KMeansPlusPlus, 1,
+                new ExecutionMonitor());
+        assertTrue(approx instanceof OneClassKNFST);
+        assertArrayEquals(exact.getBetweenClassDistances(),
+                approx.getBetweenClassDistances(), EPSILON);
+
+        final double[][] test = blobs(random, 20, NUM_FEATURES, 20, 3);
+        assertArrayEquals(
+                exact.scoreKernelBlock(kernel.kernelizeBlock(test))
+                        .getScores(),
+                approx.scoreKernelBlock(approx.getKernel().kernelizeBlock(test))
+                        .getScores(),
+                EPSILON);
+    }
+
+    @Test
+    public void testLandmarkModel() throws Exception {
+        final Random random = new Random(29);
+        final double[][] training = blobs(random, 300, NUM_FEATURES, 100, 3);
+        final String[] labels = labels(training.length, 100);
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(1.0));
+
+        for (final LandmarkSelection selection : LandmarkSelection.values()) {
+            final KNFST approx = NystroemKNFST.learn(kernel, labels, false, 40,
+                    selection, 7, new ExecutionMonitor());
+            // the model only keeps the landmarks
+            assertEquals(40, approx.getKernel().getNumTrainingSamples());
+            assertEquals(40, approx.getProjection().getRowDimension());
+            assertEquals(2, approx.getNullspaceDimension());
+
+            // training samples are mapped close to their class' target point
+            final double[] trainingScores = approx
+                    .scoreKernelBlock(approx.getKernel().kernelizeBlock(training))
+                    .getScores();
+            final double[][] novel = blobs(random, 20, NUM_FEATURES, 20, 3);
+            for (final double[] sample : novel) {
+                sample[0] += 10;
+            }
+            final double[] novelScores = approx
+                    .scoreKernelBlock(approx.getKernel().kernelizeBlock(novel))
+                    .getScores();
+            double meanTraining = 0;
+            for (final double score : trainingScores) {
+                meanTraining += score / trainingScores.length;
+            }
+            double meanNovel = 0;
+            for (final double score : novelScores) {
+                meanNovel += score / novelScores.length;
+            }
+            assertTrue(meanTraining < meanNovel);
+
+            // same seed, same model
+            assertEquals(approx, NystroemKNFST.learn(kernel, labels, false, 40,
+                    selection, 7, new ExecutionMonitor()));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.knime.al.util.novelty.knfst;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.knime.al.util.novelty.TestData.blobs;
+
+import java.util.Random;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.MatrixFunctions;
+import org.knime.al.util.noveltydetection.knfst.OneClassKNFST;
+
+public class OneClassKNFSTTest {
+
+    // scores of the original formulation, which appends the origin to the
+    // kernel matrix and uses it as second class
+    private static double[] referenceScores(final RealMatrix kernelMatrix,
+            final RealMatrix testKernel) throws Exception {
+        final int n = kernelMatrix.getRowDimension();
+        final RealMatrix k = MatrixFunctions.concatVertically(
+                MatrixFunctions.concatHorizontally(kernelMatrix,
+                        MatrixUtils.createRealMatrix(n, 1)),
+                MatrixUtils.createRealMatrix(1, n + 1));
+        final String[] labels = new String[n + 1];
+        for (int l = 0; l <= n; l++) {
+            labels[l] = (l == n) ? "0" : "1";
+        }
+        final RealMatrix projection = KNFST.projection(k, labels)
+                .getSubMatrix(0, n - 1, 0, 0);
+        final double target = MatrixFunctions
+                .columnMeans(kernelMatrix.multiply(projection)).getEntry(0);
+        final RealMatrix coordinates =
+                testKernel.transpose().multiply(projection);
+        final double[] scores = new double[coordinates.getRowDimension()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = Math.abs(coordinates.getEntry(i, 0) - target);
+        }
+        return scores;
+    }
+
+    private static void assertMatchesReference(final double[][] training,
+            final double[][] test) throws Exception {
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(1.0));
+        final RealMatrix kernelMatrix =
+                kernel.calculateKernelMatrix_singleThread(training, training);
+        final RealMatrix testKernel =
+                kernel.calculateKernelMatrix_singleThread(training, test);
+
+        final double[] expected = referenceScores(kernelMatrix, testKernel);
+        final OneClassKNFST knfst = new OneClassKNFST(
+                new Array2DRowRealMatrix(kernelMatrix.getData(), false));
+        assertArrayEquals(expected,
+                knfst.scoreTestData(testKernel).getScores(), 1e-6);
+    }
+
+    @Test
+    public void testMatchesConcatenatedFormulation() throws Exception {
+        final Random random = new Random(3);
+        assertMatchesReference(blobs(random, 40, 3), blobs(random, 15, 3));
+    }
+
+    @Test
+    public void testMatchesConcatenatedFormulationWithDuplicates()
+            throws Exception {
+        final Random random = new Random(8);
+        final double[][] distinct = blobs(random, 20, 3);
+        final double[][] training = new double[30][];
+        for (int i = 0; i < training.length; i++) {
+            training[i] = distinct[i % distinct.length].clone();
+        }
+        assertMatchesReference(training, blobs(random, 15, 3));
+    }
+
+    @Test
+    public void testKernelMatrixIsRestored() throws Exception {
+        final double[][] training = blobs(new Random(1), 25, 3);
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(2.0));
+        final double[][] values = kernel
+                .calculateKernelMatrix_singleThread(training, training)
+                .getData();
+        final Array2DRowRealMatrix kernelMatrix =
+                new Array2DRowRealMatrix(values, true);
+
+        final OneClassKNFST knfst = new OneClassKNFST(kernelMatrix);
+
+        for (int i = 0; i < values.length; i++) {
+            assertArrayEquals(values[i], kernelMatrix.getDataRef()[i], 0);
+        }
+        // the training samples all lie on the target
+        final double[] scores = knfst.scoreTestData(kernelMatrix).getScores();
+        for (final double score : scores) {
+            assertEquals(0, score, 1e-8);
+        }
+    }
+}
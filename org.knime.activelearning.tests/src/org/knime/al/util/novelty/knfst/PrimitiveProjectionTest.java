@@ -0,0 +1,108 @@
+package org.knime.al.util.novelty.knfst;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.knime.al.util.novelty.TestData.blobs;
+import static org.knime.al.util.novelty.TestData.labels;
+
+import java.util.Random;
+
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.kernel.HIKKernel;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.MultiClassKNFST;
+import org.knime.al.util.noveltydetection.knfst.OneClassKNFST;
+
+public class PrimitiveProjectionTest {
+
+    private static final int NUM_FEATURES = 5;
+
+    private static final double EPSILON = 1e-8;
+
+    // the histogram intersection kernel needs non-negative features
+    private static double[][] nonNegativeData(final Random random,
+            final int rows, final int classSize) {
+        final double[][] data = blobs(random, rows, NUM_FEATURES, classSize, 1);
+        for (final double[] row : data) {
+            for (int c = 0; c < row.length; c++) {
+                row[c] = Math.abs(row[c]);
+            }
+        }
+        return data;
+    }
+
+    // the null space bases of both backends may differ by signs and
+    // rotations, so only quantities that are invariant to those are compared
+    private static void assertSameModel(final KNFST expected,
+            final KNFST actual, final KernelCalculator kernel,
+            final double[][] test) {
+        assertEquals(expected.getNullspaceDimension(),
+                actual.getNullspaceDimension());
+        assertArrayEquals(expected.getBetweenClassDistances(),
+                actual.getBetweenClassDistances(), EPSILON);
+        final double[][] kernelBlock = kernel.kernelizeBlock(test);
+        assertArrayEquals(expected.scoreKernelBlock(kernelBlock).getScores(),
+                actual.scoreKernelBlock(kernelBlock).getScores(), EPSILON);
+    }
+
+    @Test
+    public void testMultiClassProjection() throws Exception {
+        final Random random = new Random(11);
+        final double[][] training = nonNegativeData(random, 120, 40);
+        final String[] labels = labels(training.length, 40);
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(1.0));
+        final RealMatrix kernelMatrix =
+                kernel.calculateKernelMatrix_singleThread(training, training);
+
+        assertSameModel(new MultiClassKNFST(kernelMatrix, labels),
+                new MultiClassKNFST(kernelMatrix, labels, true), kernel,
+                nonNegativeData(random, 30, 10));
+    }
+
+    @Test
+    public void testMultiClassProjectionUnevenClasses() throws Exception {
+        final Random random = new Random(5);
+        final double[][] training = nonNegativeData(random, 70, 10);
+        final String[] labels = new String[training.length];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = i < 10 ? "a" : i < 45 ? "b" : "c";
+        }
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new HIKKernel());
+        final RealMatrix kernelMatrix =
+                kernel.calculateKernelMatrix_singleThread(training, training);
+
+        assertSameModel(new MultiClassKNFST(kernelMatrix, labels),
+                new MultiClassKNFST(kernelMatrix, labels, true), kernel,
+                nonNegativeData(random, 30, 10));
+    }
+
+    @Test
+    public void testOneClassProjection() throws Exception {
+        final Random random = new Random(13);
+        final double[][] training = nonNegativeData(random, 60, 60);
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(2.0));
+        final RealMatrix kernelMatrix =
+                kernel.calculateKernelMatrix_singleThread(training, training);
+
+        assertSameModel(new OneClassKNFST(kernelMatrix),
+                new OneClassKNFST(kernelMatrix, true), kernel,
+                nonNegativeData(random, 30, 10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSingleClass() throws Exception {
+        final Random random = new Random(1);
+        final double[][] training = nonNegativeData(random, 10, 10);
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(1.0));
+        KNFST.projection(
+                kernel.calculateKernelMatrix_singleThread(training, training),
+                labels(training.length, 10), true);
+    }
+}
@@ -0,0 +1,112 @@
+package org.knime.al.util.novelty.knfst;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.knime.al.util.novelty.TestData.blobs;
+import static org.knime.al.util.novelty.TestData.labels;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.MultiClassKNFST;
+import org.knime.al.util.noveltydetection.knfst.OneClassKNFST;
+import org.knime.al.util.noveltydetection.knfst.RBFSigmaSweep;
+import org.knime.core.node.ExecutionMonitor;
+
+public class RBFSigmaSweepTest {
+
+    private static final int NUM_FEATURES = 4;
+
+    private static final double[] SIGMAS = { 0.3, 1.0, 3.0 };
+
+    // classSize samples around the centers 0, offset, 2 * offset, ...
+
+    // the last numNovel validation samples are novel
+    private static boolean[] novel(final int rows, final int numNovel) {
+        final boolean[] novel = new boolean[rows];
+        for (int i = rows - numNovel; i < rows; i++) {
+            novel[i] = true;
+        }
+        return novel;
+    }
+
+    // fraction of (novel, known) pairs in the right order, ties count half
+    private static double pairwiseAuc(final double[] scores,
+            final boolean[] novel) {
+        double correct = 0;
+        int pairs = 0;
+        for (int i = 0; i < scores.length; i++) {
+            for (int j = 0; j < scores.length; j++) {
+                if (novel[i] && !novel[j]) {
+                    pairs++;
+                    if (scores[i] > scores[j]) {
+                        correct++;
+                    } else if (scores[i] == scores[j]) {
+                        correct += 0.5;
+                    }
+                }
+            }
+        }
+        return correct / pairs;
+    }
+
+    private static void assertSameAucAsLearner(final double[][] training,
+            final String[] labels, final double[][] validation,
+            final boolean[] novel) throws Exception {
+        final RBFSigmaSweep sweep = new RBFSigmaSweep(training, labels,
+                validation, novel, new ExecutionMonitor());
+        for (final double sigma : SIGMAS) {
+            final KernelCalculator kernel =
+                    new KernelCalculator(training, new RBFKernel(sigma));
+            final KNFST model = labels[0].equals(labels[labels.length - 1])
+                    ? new OneClassKNFST(kernel, new ExecutionMonitor())
+                    : new MultiClassKNFST(kernel, labels,
+                            new ExecutionMonitor());
+            final double expected = pairwiseAuc(
+                    model.scoreKernelBlock(kernel.kernelizeBlock(validation))
+                            .getScores(),
+                    novel);
+            assertEquals(expected, sweep.auc(sigma, false), 1e-9);
+            assertEquals(expected, sweep.auc(sigma, true), 1e-9);
+        }
+    }
+
+    @Test
+    public void testMultiClassMatchesLearner() throws Exception {
+        final Random random = new Random(3);
+        // two known classes, the validation data has a third class
+        final double[][] training = blobs(random, 60, NUM_FEATURES, 30, 2.0);
+        final double[][] validation = blobs(random, 45, NUM_FEATURES, 15, 2.0);
+        assertSameAucAsLearner(training, labels(60, 30), validation,
+                novel(45, 15));
+    }
+
+    @Test
+    public void testOneClassMatchesLearner() throws Exception {
+        final Random random = new Random(5);
+        final double[][] training = blobs(random, 40, NUM_FEATURES, 40, 2.0);
+        final double[][] validation = blobs(random, 40, NUM_FEATURES, 20, 2.0);
+        assertSameAucAsLearner(training, labels(40, 40), validation,
+                novel(40, 20));
+    }
+
+    @Test
+    public void testSeparatedNoveltyIsDetected() throws Exception {
+        final Random random = new Random(7);
+        final double[][] training = blobs(random, 40, NUM_FEATURES, 20, 3.0);
+        final double[][] validation = blobs(random, 60, NUM_FEATURES, 20, 3.0);
+        // move the novel class far away from the training classes
+        for (int r = 40; r < 60; r++) {
+            for (int c = 0; c < NUM_FEATURES; c++) {
+                validation[r][c] += 20;
+            }
+        }
+        final RBFSigmaSweep sweep = new RBFSigmaSweep(training,
+                labels(40, 20), validation, novel(60, 20),
+                new ExecutionMonitor());
+        assertTrue(sweep.auc(3.0, false) > 0.9);
+    }
+}
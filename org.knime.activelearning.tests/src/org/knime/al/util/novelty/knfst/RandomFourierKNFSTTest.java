@@ -0,0 +1,118 @@
+package org.knime.al.util.novelty.knfst;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.knime.al.util.novelty.TestData.blobs;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.al.util.noveltydetection.kernel.HIKKernel;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.OneClassKNFST;
+import org.knime.al.util.noveltydetection.knfst.RandomFourierKNFST;
+import org.knime.core.node.ExecutionMonitor;
+
+public class RandomFourierKNFSTTest {
+
+    private static final int NUM_FEATURES = 3;
+
+    // the test samples of the models below, far from their training samples
+    private static double[][] novel(final Random random) {
+        final double[][] data = blobs(random, 20, NUM_FEATURES);
+        for (final double[] row : data) {
+            for (int c = 0; c < row.length; c++) {
+                row[c] += 10;
+            }
+        }
+        return data;
+    }
+
+    private static double mean(final double[] values) {
+        double sum = 0;
+        for (final double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    @Test
+    public void testFeaturesApproximateKernel() throws Exception {
+        final Random random = new Random(3);
+        final double[][] training = blobs(random, 50, NUM_FEATURES);
+        final String[] labels = new String[training.length];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = i < 25 ? "a" : "b";
+        }
+        final RBFKernel rbf = new RBFKernel(1.5);
+        final KNFST knfst = RandomFourierKNFST.learn(
+                new KernelCalculator(training, rbf), labels, false, 1000, 5,
+                new ExecutionMonitor());
+
+        // the model's kernel calculates the explicit features
+        final KernelCalculator featureMap = knfst.getKernel();
+        assertEquals(1000, featureMap.getNumTrainingSamples());
+        final double[][] features = featureMap.kernelizeBlock(training);
+        for (int i = 0; i < 10; i++) {
+            double approx = 0;
+            for (int j = 0; j < features[i].length; j++) {
+                approx += features[i][j] * features[i + 1][j];
+            }
+            assertEquals(rbf.calculate(training[i], training[i + 1]), approx,
+                    0.15);
+        }
+    }
+
+    @Test
+    public void testMultiClassModel() throws Exception {
+        final Random random = new Random(31);
+        final double[][] training = blobs(random, 300, NUM_FEATURES, 100, 3);
+        final String[] labels = new String[training.length];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = "class" + i / 100;
+        }
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(1.0));
+        final KNFST knfst = RandomFourierKNFST.learn(kernel, labels, false,
+                200, 11, new ExecutionMonitor());
+        assertEquals(2, knfst.getNullspaceDimension());
+        assertEquals(200, knfst.getProjection().getRowDimension());
+
+        final double[] trainingScores = knfst
+                .scoreKernelBlock(knfst.getKernel().kernelizeBlock(training))
+                .getScores();
+        final double[] novelScores = knfst.scoreKernelBlock(
+                knfst.getKernel().kernelizeBlock(novel(random))).getScores();
+        assertTrue(mean(trainingScores) < mean(novelScores));
+
+        // same seed, same model
+        assertEquals(knfst, RandomFourierKNFST.learn(kernel, labels, false,
+                200, 11, new ExecutionMonitor()));
+    }
+
+    @Test
+    public void testOneClassModel() throws Exception {
+        final Random random = new Random(37);
+        final double[][] training = blobs(random, 200, NUM_FEATURES);
+        final KNFST knfst = RandomFourierKNFST.learn(
+                new KernelCalculator(training, new RBFKernel(1.0)), null, true,
+                300, 13, new ExecutionMonitor());
+        assertTrue(knfst instanceof OneClassKNFST);
+
+        final double[] trainingScores = knfst
+                .scoreKernelBlock(knfst.getKernel().kernelizeBlock(training))
+                .getScores();
+        final double[] novelScores = knfst.scoreKernelBlock(
+                knfst.getKernel().kernelizeBlock(novel(random))).getScores();
+        assertTrue(mean(trainingScores) < mean(novelScores));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOnlyRBF() throws Exception {
+        final double[][] training = blobs(new Random(1), 10, NUM_FEATURES);
+        RandomFourierKNFST.learn(new KernelCalculator(training, new HIKKernel()),
+                null, true, 10, 1, new ExecutionMonitor());
+    }
+}
@@ -0,0 +1,83 @@
+package org.knime.al.util.novelty.nodes.localnoveltyscorer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.junit.Test;
+import org.knime.al.nodes.score.novelty.localnoveltyscorer.LocalModelCache;
+import org.knime.al.nodes.score.novelty.localnoveltyscorer.LocalNoveltyScorer;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.KernelMatrix;
+import org.knime.al.util.noveltydetection.kernel.KernelMatrix.Precision;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.OneClassKNFST;
+import org.knime.core.node.ExecutionMonitor;
+
+public class LocalModelCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedModelIsRemoved() throws Exception {
+        final KNFST model = new OneClassKNFST(
+                MatrixUtils.createRealIdentityMatrix(2));
+        final LocalModelCache cache = new LocalModelCache(2);
+        final int[] a = { 0, 1 };
+        final int[] b = { 0, 2 };
+        final int[] c = { 1, 2 };
+        cache.put(a, model);
+        cache.put(b, model);
+        // a is used more recently than b
+        assertSame(model, cache.get(a));
+        cache.put(c, model);
+
+        assertNull(cache.get(b));
+        assertSame(model, cache.get(new int[] { 0, 1 }));
+        assertSame(model, cache.get(c));
+        assertEquals(3, cache.getHits());
+        assertEquals(4, cache.getRequests());
+    }
+
+    @Test
+    public void testCachedScoresMatchUncached() throws Exception {
+        // few clusters, so that many test samples share their neighbors
+        final Random random = new Random(9);
+        final double[][] training = new double[60][2];
+        final String[] labels = new String[training.length];
+        for (int i = 0; i < training.length; i++) {
+            training[i][0] = 10 * (i / 20) + random.nextGaussian();
+            training[i][1] = random.nextGaussian();
+            labels[i] = "class" + i / 20;
+        }
+        final double[][] test = new double[80][2];
+        for (int i = 0; i < test.length; i++) {
+            test[i][0] = 10 * (i % 3) + 0.1 * random.nextGaussian();
+            test[i][1] = 0.1 * random.nextGaussian();
+        }
+        final KernelCalculator kernel =
+                new KernelCalculator(training, new RBFKernel(1.0));
+
+        try (KernelMatrix trainingKernelMatrix = kernel.calculateKernelMatrix(
+                training, training, Precision.Double, Long.MAX_VALUE,
+                new ExecutionMonitor())) {
+            final LocalNoveltyScorer uncached =
+                    new LocalNoveltyScorer(new ExecutionMonitor(), kernel,
+                            test, trainingKernelMatrix, labels, 20, true);
+            final LocalNoveltyScorer cached =
+                    new LocalNoveltyScorer(new ExecutionMonitor(), kernel,
+                            test, trainingKernelMatrix, labels, 20, true);
+            final LocalModelCache cache = new LocalModelCache(16);
+            cached.setModelCache(cache);
+
+            assertArrayEquals(uncached.calculateNoveltyScores(),
+                    cached.calculateNoveltyScores(), 0);
+            assertEquals(test.length, cache.getRequests());
+            assertTrue(cache.getHits() > test.length / 2);
+        }
+    }
+}
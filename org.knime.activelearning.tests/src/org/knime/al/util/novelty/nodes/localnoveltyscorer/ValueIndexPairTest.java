@@ -1,5 +1,6 @@
 package org.knime.al.util.novelty.nodes.localnoveltyscorer;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -7,6 +8,7 @@
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 import org.knime.al.nodes.score.novelty.localnoveltyscorer.ValueIndexPair;
@@ -131,4 +133,42 @@ public void testExceptionKTooLarge() {
         final ArrayList<ValueIndexPair> result = new ArrayList<ValueIndexPair>(
                 Arrays.asList(ValueIndexPair.getK(testArray, 230, comparator)));
     }
+
+    @Test
+    public void testGetKLargestIndicesMatchesSorting() {
+        final Random random = new Random(17);
+        final double[] array = new double[200];
+        for (int i = 0; i < array.length; i++) {
+            // few distinct values to have many ties
+            array[i] = random.nextInt(30);
+        }
+        final Integer[] order = new Integer[array.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // stable sort in descending order of the values
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer o1, final Integer o2) {
+                return Double.compare(array[o2], array[o1]);
+            }
+        });
+
+        for (final int k : new int[] { 1, 7, 50, 200 }) {
+            final int[] expected = new int[k];
+            for (int i = 0; i < k; i++) {
+                expected[i] = order[i];
+            }
+            Arrays.sort(expected);
+            final int[] result = new int[k + 3];
+            ValueIndexPair.getKLargestIndices(array, k, result);
+            assertArrayEquals(expected, Arrays.copyOf(result, k));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetKLargestIndicesKTooLarge() {
+        ValueIndexPair.getKLargestIndices(new double[] { 1, 2 }, 3,
+                new int[3]);
+    }
 }
@@ -0,0 +1,191 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+
+package org.knime.al.nodes.score.novelty;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.swing.JFileChooser;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.knime.al.util.NodeUtils;
+import org.knime.al.util.noveltydetection.kernel.KernelCache;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.DialogComponent;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentFileChooser;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+/**
+ * Settings of the optional disk-backed kernel cache shared by the KNFST
+ * Learner, the KNFST Novelty Scorer and the Local Novelty Scorer. Nodes that
+ * use the same cache directory share the cached kernel values.
+ */
+public final class KernelCacheSettings {
+
+    static final String CFG_KEY_USE_CACHE = "useKernelCache";
+    static final String CFG_KEY_DIRECTORY = "kernelCacheDirectory";
+    static final String CFG_KEY_SIZE = "kernelCacheSize";
+
+    static final boolean DEFAULT_USE_CACHE = false;
+    static final String DEFAULT_DIRECTORY = "";
+    static final int DEFAULT_SIZE = 1024;
+
+    private static final String DEFAULT_DIRECTORY_NAME = "kernel-cache";
+
+    static SettingsModelBoolean createUseCacheModel() {
+        return new SettingsModelBoolean(CFG_KEY_USE_CACHE, DEFAULT_USE_CACHE);
+    }
+
+    static SettingsModelString createDirectoryModel() {
+        final SettingsModelString sm =
+                new SettingsModelString(CFG_KEY_DIRECTORY, DEFAULT_DIRECTORY);
+        sm.setEnabled(false);
+        return sm;
+    }
+
+    // in MB
+    static SettingsModelIntegerBounded createSizeModel() {
+        final SettingsModelIntegerBounded sm = new SettingsModelIntegerBounded(
+                CFG_KEY_SIZE, DEFAULT_SIZE, 1, Integer.MAX_VALUE);
+        sm.setEnabled(false);
+        return sm;
+    }
+
+    /**
+     * Creates the dialog components of the settings, the directory and the
+     * size are only enabled if the cache is used.
+     *
+     * @return the components in the order they should be added
+     */
+    public static DialogComponent[] createDialogComponents() {
+        final SettingsModelBoolean useCache = createUseCacheModel();
+        final SettingsModelString directory = createDirectoryModel();
+        final SettingsModelIntegerBounded size = createSizeModel();
+        useCache.addChangeListener(new ChangeListener() {
+
+            @Override
+            public void stateChanged(final ChangeEvent e) {
+                directory.setEnabled(useCache.getBooleanValue());
+                size.setEnabled(useCache.getBooleanValue());
+            }
+        });
+        return new DialogComponent[] {
+                new DialogComponentBoolean(useCache, "Cache kernel values"),
+                new DialogComponentFileChooser(directory,
+                        "kernelCacheDirectoryHistory",
+                        JFileChooser.OPEN_DIALOG, true),
+                new DialogComponentNumber(size, "Maximal cache size (MB): ",
+                        256) };
+    }
+
+    private final SettingsModelBoolean m_useCache = createUseCacheModel();
+    private final SettingsModelString m_directory = createDirectoryModel();
+    private final SettingsModelIntegerBounded m_size = createSizeModel();
+
+    /**
+     * Opens the configured cache.
+     *
+     * @return the cache or <code>null</code> if no cache should be used
+     * @throws IOException if the cache directory can't be created
+     */
+    public KernelCache getCache() throws IOException {
+        if (!m_useCache.getBooleanValue()) {
+            return null;
+        }
+        final String directory = m_directory.getStringValue().trim();
+        return KernelCache.getInstance(
+                directory.isEmpty()
+                        ? new File(KNIMEConstants.getKNIMETempDir(),
+                                DEFAULT_DIRECTORY_NAME)
+                        : new File(directory),
+                m_size.getIntValue() * 1024L * 1024L);
+    }
+
+    /**
+     * Loads the settings, workflows created before the cache existed keep
+     * the defaults.
+     *
+     * @param settings the node settings
+     * @throws InvalidSettingsException if the settings are invalid
+     */
+    public void loadSettingsFrom(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        NodeUtils.loadOptionalSettings(settings, CFG_KEY_USE_CACHE, m_useCache);
+        NodeUtils.loadOptionalSettings(settings, CFG_KEY_DIRECTORY, m_directory);
+        NodeUtils.loadOptionalSettings(settings, CFG_KEY_SIZE, m_size);
+    }
+
+    /**
+     * @param settings the node settings
+     * @throws InvalidSettingsException if the settings are invalid
+     */
+    public void validateSettings(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        NodeUtils.validateOptionalSettings(settings, CFG_KEY_USE_CACHE, m_useCache);
+        NodeUtils.validateOptionalSettings(settings, CFG_KEY_DIRECTORY, m_directory);
+        NodeUtils.validateOptionalSettings(settings, CFG_KEY_SIZE, m_size);
+    }
+
+    /**
+     * @param settings the node settings
+     */
+    public void saveSettingsTo(final NodeSettingsWO settings) {
+        m_useCache.saveSettingsTo(settings);
+        m_directory.saveSettingsTo(settings);
+        m_size.saveSettingsTo(settings);
+    }
+}
@@ -52,6 +52,8 @@
 
 import org.knime.al.nodes.score.novelty.knfstlearner.KNFSTLearnerNodeFactory;
 import org.knime.al.nodes.score.novelty.knfstnoveltyscorer.KNFSTNoveltyScorerNodeFactory;
+import org.knime.al.nodes.score.novelty.knfstsigmasweep.KNFSTSigmaSweepNodeFactory;
+import org.knime.al.nodes.score.novelty.knfstupdater.KNFSTUpdaterNodeFactory;
 import org.knime.al.nodes.score.novelty.localnoveltyscorer.LocalNoveltyScorerNodeFactory;
 import org.knime.core.node.NodeFactory;
 import org.knime.core.node.NodeLogger;
@@ -123,6 +125,11 @@ public Collection<String> getNodeFactoryIds() {
                 CATEGORY);
         m_nodeFactories.put(KNFSTLearnerNodeFactory.class.getCanonicalName(),
                 CATEGORY);
+        m_nodeFactories.put(KNFSTUpdaterNodeFactory.class.getCanonicalName(),
+                CATEGORY);
+        m_nodeFactories.put(
+                KNFSTSigmaSweepNodeFactory.class.getCanonicalName(),
+                CATEGORY);
         m_nodeFactories.put(
                 LocalNoveltyScorerNodeFactory.class.getCanonicalName(),
                 CATEGORY);
@@ -50,16 +50,26 @@
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
+import org.knime.al.nodes.score.novelty.KernelCacheSettings;
+import org.knime.al.nodes.score.novelty.knfstlearner.KNFSTLearnerNodeModel.Approximation;
 import org.knime.al.util.noveltydetection.kernel.KernelCalculator.KernelType;
+import org.knime.al.util.noveltydetection.knfst.NystroemKNFST.LandmarkSelection;
 import org.knime.core.data.DoubleValue;
 import org.knime.core.data.StringValue;
+import org.knime.core.data.vector.bitvector.BitVectorValue;
 import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponent;
 import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
 import org.knime.core.node.defaultnodesettings.DialogComponentColumnFilter;
 import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
 import org.knime.core.node.defaultnodesettings.DialogComponentNumberEdit;
 import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelDouble;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelInteger;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 
 public class KNFSTLearnerNodeDialog extends DefaultNodeSettingsPane {
@@ -71,7 +81,8 @@ public class KNFSTLearnerNodeDialog extends DefaultNodeSettingsPane {
     public KNFSTLearnerNodeDialog() {
         addDialogComponent(new DialogComponentColumnFilter(
                 KNFSTLearnerNodeModel.createColumnSelectionModel(),
-                KNFSTLearnerNodeModel.DATA_INPORT, false, DoubleValue.class));
+                KNFSTLearnerNodeModel.DATA_INPORT, false, DoubleValue.class,
+                BitVectorValue.class));
 
         addDialogComponent(new DialogComponentColumnNameSelection(
                 KNFSTLearnerNodeModel.createClassColumnSelectionModel(),
@@ -135,6 +146,88 @@ public void stateChanged(final ChangeEvent e) {
 
         addDialogComponent(new DialogComponentBoolean(
                 KNFSTLearnerNodeModel.createSortTableModel(),
-                "Sort Table (select only if table is not already sorted by class)"));
+                "Sort Table (order classes by name)"));
+
+        addDialogComponent(new DialogComponentBoolean(
+                KNFSTLearnerNodeModel.createPrimitiveBackendModel(),
+                "Use primitive linear algebra backend (faster for large tables)"));
+
+        addDialogComponent(new DialogComponentBoolean(
+                KNFSTLearnerNodeModel.createCompressModelModel(),
+                "Compress model"));
+
+        final SettingsModelBoolean pruneTrainingSamples =
+                KNFSTLearnerNodeModel.createPruneTrainingSamplesModel();
+        final SettingsModelDoubleBounded pruningTolerance =
+                KNFSTLearnerNodeModel.createPruningToleranceModel();
+        pruneTrainingSamples.addChangeListener(new ChangeListener() {
+
+            @Override
+            public void stateChanged(final ChangeEvent e) {
+                pruningTolerance
+                        .setEnabled(pruneTrainingSamples.getBooleanValue());
+            }
+        });
+        addDialogComponent(new DialogComponentBoolean(pruneTrainingSamples,
+                "Prune training samples"));
+        addDialogComponent(new DialogComponentNumberEdit(pruningTolerance,
+                "Pruning tolerance: "));
+
+        final SettingsModelString approximation =
+                KNFSTLearnerNodeModel.createApproximationModel();
+        final SettingsModelIntegerBounded numLandmarks =
+                KNFSTLearnerNodeModel.createNumLandmarksModel();
+        final SettingsModelString landmarkSelection =
+                KNFSTLearnerNodeModel.createLandmarkSelectionModel();
+        final SettingsModelIntegerBounded numFourierFeatures =
+                KNFSTLearnerNodeModel.createNumFourierFeaturesModel();
+        final SettingsModelInteger seed =
+                KNFSTLearnerNodeModel.createSeedModel();
+
+        approximation.addChangeListener(new ChangeListener() {
+
+            @Override
+            public void stateChanged(final ChangeEvent e) {
+                final Approximation selected =
+                        Approximation.valueOf(approximation.getStringValue());
+                numLandmarks.setEnabled(selected == Approximation.Nystroem);
+                landmarkSelection
+                        .setEnabled(selected == Approximation.Nystroem);
+                numFourierFeatures.setEnabled(
+                        selected == Approximation.RandomFourierFeatures);
+                seed.setEnabled(selected != Approximation.None);
+            }
+        });
+
+        final Approximation[] approximations = Approximation.values();
+        final String[] approximationNames = new String[approximations.length];
+        for (int i = 0; i < approximations.length; i++) {
+            approximationNames[i] = approximations[i].toString();
+        }
+
+        final LandmarkSelection[] selections = LandmarkSelection.values();
+        final String[] selectionNames = new String[selections.length];
+        for (int i = 0; i < selections.length; i++) {
+            selectionNames[i] = selections[i].toString();
+        }
+
+        createNewGroup("Approximation");
+        addDialogComponent(new DialogComponentStringSelection(approximation,
+                "Approximation", approximationNames));
+        addDialogComponent(new DialogComponentNumber(numLandmarks,
+                "Number of landmarks: ", 100));
+        addDialogComponent(new DialogComponentStringSelection(
+                landmarkSelection, "Landmark selection", selectionNames));
+        addDialogComponent(new DialogComponentNumber(numFourierFeatures,
+                "Number of random Fourier features: ", 100));
+        addDialogComponent(new DialogComponentNumber(seed, "Seed: ", 1));
+        closeCurrentGroup();
+
+        createNewGroup("Kernel cache");
+        for (final DialogComponent component : KernelCacheSettings
+                .createDialogComponents()) {
+            addDialogComponent(component);
+        }
+        closeCurrentGroup();
     }
 }
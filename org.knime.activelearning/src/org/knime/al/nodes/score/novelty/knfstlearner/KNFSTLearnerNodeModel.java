@@ -48,11 +48,14 @@
 
 import java.io.File;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+import org.knime.al.nodes.score.novelty.KernelCacheSettings;
+import org.knime.al.util.NodeUtils;
 import org.knime.al.util.noveltydetection.kernel.EXPHIKKernel;
 import org.knime.al.util.noveltydetection.kernel.HIKKernel;
 import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
@@ -60,9 +63,14 @@
 import org.knime.al.util.noveltydetection.kernel.KernelFunction;
 import org.knime.al.util.noveltydetection.kernel.PolynomialKernel;
 import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.kernel.TanimotoKernel;
 import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.KNFSTPruning;
 import org.knime.al.util.noveltydetection.knfst.MultiClassKNFST;
+import org.knime.al.util.noveltydetection.knfst.NystroemKNFST;
+import org.knime.al.util.noveltydetection.knfst.NystroemKNFST.LandmarkSelection;
 import org.knime.al.util.noveltydetection.knfst.OneClassKNFST;
+import org.knime.al.util.noveltydetection.knfst.RandomFourierKNFST;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
@@ -72,11 +80,10 @@
 import org.knime.core.data.NominalValue;
 import org.knime.core.data.RowKey;
 import org.knime.core.data.StringValue;
-import org.knime.core.data.container.ColumnRearranger;
 import org.knime.core.data.def.DefaultRow;
 import org.knime.core.data.def.DoubleCell;
 import org.knime.core.data.def.StringCell;
-import org.knime.core.data.sort.BufferedDataTableSorter;
+import org.knime.core.data.vector.bitvector.BitVectorValue;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.ExecutionContext;
@@ -87,7 +94,10 @@
 import org.knime.core.node.NodeSettingsWO;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelDouble;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelFilterString;
+import org.knime.core.node.defaultnodesettings.SettingsModelInteger;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
@@ -103,6 +113,16 @@
 public class KNFSTLearnerNodeModel extends NodeModel {
 
     public static final String CFG_KEY_POWER = "powerPolynomial";
+    static final String CFG_KEY_PRIMITIVE_BACKEND = "primitiveBackend";
+    static final String CFG_KEY_APPROXIMATION = "approximation";
+    static final String CFG_KEY_NUM_LANDMARKS = "numLandmarks";
+    static final String CFG_KEY_LANDMARK_SELECTION = "landmarkSelection";
+    static final String CFG_KEY_NUM_FOURIER_FEATURES = "numFourierFeatures";
+    static final String CFG_KEY_SEED = "seed";
+    static final String CFG_KEY_COMPRESS_MODEL = "compressModel";
+    static final String CFG_KEY_PRUNE_TRAINING_SAMPLES =
+            "pruneTrainingSamples";
+    static final String CFG_KEY_PRUNING_TOLERANCE = "pruningTolerance";
 
     static final int DATA_INPORT = 0;
     static final String DEFAULT_KERNEL = KernelType.RBF.toString();
@@ -111,6 +131,35 @@ public class KNFSTLearnerNodeModel extends NodeModel {
     static final double DEFAULT_GAMMA = 1.0;
     static final double DEFAULT_BIAS = 2.0;
     static final double DEFAULT_POWER = 3.0;
+    static final boolean DEFAULT_PRIMITIVE_BACKEND = false;
+    static final String DEFAULT_APPROXIMATION = Approximation.None.toString();
+    static final int DEFAULT_NUM_LANDMARKS = 1000;
+    static final String DEFAULT_LANDMARK_SELECTION =
+            LandmarkSelection.KMeansPlusPlus.toString();
+    static final int DEFAULT_NUM_FOURIER_FEATURES = 1000;
+    static final int DEFAULT_SEED = 42;
+    static final boolean DEFAULT_COMPRESS_MODEL = false;
+    static final boolean DEFAULT_PRUNE_TRAINING_SAMPLES = false;
+    static final double DEFAULT_PRUNING_TOLERANCE = 0.01;
+
+    /**
+     * Approximations of the kernel that allow to learn from large tables
+     */
+    enum Approximation {
+        None("None"), Nystroem("Nystroem"),
+        RandomFourierFeatures("RandomFourierFeatures");
+
+        private final String m_name;
+
+        private Approximation(final String name) {
+            m_name = name;
+        }
+
+        @Override
+        public String toString() {
+            return m_name;
+        }
+    }
 
     /**
      * Helper
@@ -161,6 +210,64 @@ static SettingsModelDouble createPolynomialPower() {
         return sm;
     }
 
+    static SettingsModelBoolean createPrimitiveBackendModel() {
+        return new SettingsModelBoolean(CFG_KEY_PRIMITIVE_BACKEND,
+                DEFAULT_PRIMITIVE_BACKEND);
+    }
+
+    static SettingsModelString createApproximationModel() {
+        return new SettingsModelString(CFG_KEY_APPROXIMATION,
+                DEFAULT_APPROXIMATION);
+    }
+
+    static SettingsModelIntegerBounded createNumLandmarksModel() {
+        final SettingsModelIntegerBounded sm = new SettingsModelIntegerBounded(
+                CFG_KEY_NUM_LANDMARKS, DEFAULT_NUM_LANDMARKS, 1,
+                Integer.MAX_VALUE);
+        sm.setEnabled(false);
+        return sm;
+    }
+
+    static SettingsModelString createLandmarkSelectionModel() {
+        final SettingsModelString sm = new SettingsModelString(
+                CFG_KEY_LANDMARK_SELECTION, DEFAULT_LANDMARK_SELECTION);
+        sm.setEnabled(false);
+        return sm;
+    }
+
+    static SettingsModelIntegerBounded createNumFourierFeaturesModel() {
+        final SettingsModelIntegerBounded sm = new SettingsModelIntegerBounded(
+                CFG_KEY_NUM_FOURIER_FEATURES, DEFAULT_NUM_FOURIER_FEATURES, 1,
+                Integer.MAX_VALUE);
+        sm.setEnabled(false);
+        return sm;
+    }
+
+    static SettingsModelInteger createSeedModel() {
+        final SettingsModelInteger sm =
+                new SettingsModelInteger(CFG_KEY_SEED, DEFAULT_SEED);
+        sm.setEnabled(false);
+        return sm;
+    }
+
+    static SettingsModelBoolean createCompressModelModel() {
+        return new SettingsModelBoolean(CFG_KEY_COMPRESS_MODEL,
+                DEFAULT_COMPRESS_MODEL);
+    }
+
+    static SettingsModelBoolean createPruneTrainingSamplesModel() {
+        return new SettingsModelBoolean(CFG_KEY_PRUNE_TRAINING_SAMPLES,
+                DEFAULT_PRUNE_TRAINING_SAMPLES);
+    }
+
+    static SettingsModelDoubleBounded createPruningToleranceModel() {
+        final SettingsModelDoubleBounded sm = new SettingsModelDoubleBounded(
+                CFG_KEY_PRUNING_TOLERANCE, DEFAULT_PRUNING_TOLERANCE, 0,
+                Double.MAX_VALUE);
+        sm.setEnabled(false);
+        return sm;
+    }
+
     /* SettingsModels */
     private final SettingsModelString m_kernelFunctionModel =
             createKernelFunctionSelectionModel();
@@ -173,6 +280,25 @@ static SettingsModelDouble createPolynomialPower() {
     private final SettingsModelDouble m_gamma = createPolynomialGammaModel();
     private final SettingsModelDouble m_bias = createPolynomialBiasModel();
     private final SettingsModelDouble m_power = createPolynomialPower();
+    private final SettingsModelBoolean m_primitiveBackend =
+            createPrimitiveBackendModel();
+    private final SettingsModelString m_approximation =
+            createApproximationModel();
+    private final SettingsModelIntegerBounded m_numLandmarks =
+            createNumLandmarksModel();
+    private final SettingsModelString m_landmarkSelection =
+            createLandmarkSelectionModel();
+    private final SettingsModelIntegerBounded m_numFourierFeatures =
+            createNumFourierFeaturesModel();
+    private final SettingsModelInteger m_seed = createSeedModel();
+    private final SettingsModelBoolean m_compressModel =
+            createCompressModelModel();
+    private final SettingsModelBoolean m_pruneTrainingSamples =
+            createPruneTrainingSamplesModel();
+    private final SettingsModelDoubleBounded m_pruningTolerance =
+            createPruningToleranceModel();
+    private final KernelCacheSettings m_kernelCache =
+            new KernelCacheSettings();
 
     // private List<String> m_compatibleFeatures;
 
@@ -196,6 +322,20 @@ protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs)
 
         final DataTableSpec dataSpec = (DataTableSpec) inSpecs[DATA_INPORT];
 
+        if (Approximation.valueOf(m_approximation
+                .getStringValue()) == Approximation.RandomFourierFeatures
+                && KernelType.valueOf(m_kernelFunctionModel
+                        .getStringValue()) != KernelType.RBF) {
+            throw new InvalidSettingsException(
+                    "Random Fourier features are only available for the RBF kernel.");
+        }
+        if (m_pruneTrainingSamples.getBooleanValue()
+                && Approximation.valueOf(m_approximation
+                        .getStringValue()) == Approximation.RandomFourierFeatures) {
+            throw new InvalidSettingsException(
+                    "Models with random Fourier features contain no training samples that could be pruned.");
+        }
+
         // Check class
         final DataColumnSpec colSpec =
                 dataSpec.getColumnSpec(m_classColumn.getStringValue());
@@ -225,17 +365,30 @@ protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs)
          * { throw new InvalidSettingsException(
          * "The features used for training need to be numeric"); } }
          */
+        // the Tanimoto kernel works on bit vectors, all others on numbers
+        final boolean bitVectors = KernelType.valueOf(m_kernelFunctionModel
+                .getStringValue()) == KernelType.Tanimoto;
         final List<String> featureNameList = m_columnSelection.getIncludeList();
         final List<String> compatibleFeatures = new LinkedList<String>();
         for (final String feature : featureNameList) {
             final DataColumnSpec featureSpec = dataSpec.getColumnSpec(feature);
-            if (featureSpec.getType().isCompatible(DoubleValue.class)) {
+            if (featureSpec == null) {
+                continue;
+            }
+            if (featureSpec.getType().isCompatible(bitVectors
+                    ? BitVectorValue.class : DoubleValue.class)) {
                 compatibleFeatures.add(feature);
+            } else if (bitVectors || featureSpec.getType()
+                    .isCompatible(BitVectorValue.class)) {
+                throw new InvalidSettingsException("The column " + feature
+                        + (bitVectors ? " is not a bit vector column,"
+                                : " is a bit vector column,")
+                        + " bit vectors are only supported by the Tanimoto kernel.");
             }
         }
 
-        return new PortObjectSpec[] { null,
-                new KNFSTPortObjectSpec(compatibleFeatures) };
+        return new PortObjectSpec[] { null, new KNFSTPortObjectSpec(
+                KernelCalculator.inTableOrder(dataSpec, compatibleFeatures)) };
     }
 
     /**
@@ -246,7 +399,7 @@ protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs)
     protected PortObject[] execute(final PortObject[] inData,
             final ExecutionContext exec) throws Exception {
 
-        BufferedDataTable data = (BufferedDataTable) inData[0];
+        final BufferedDataTable data = (BufferedDataTable) inData[0];
         final String kernelFunctionName =
                 m_kernelFunctionModel.getStringValue();
         final boolean sortTable = m_sortTable.getBooleanValue();
@@ -265,41 +418,34 @@ protected PortObject[] execute(final PortObject[] inData,
 
         final int size = (int) longSize;
 
+        final boolean prune = m_pruneTrainingSamples.getBooleanValue();
+        final ExecutionMonitor readExec = exec.createSubProgress(0.2);
         final ExecutionMonitor knfstExec =
-                exec.createSubProgress(sortTable ? 0.7 : 0.9);
+                exec.createSubProgress(prune ? 0.56 : 0.7);
+        final ExecutionMonitor pruneExec =
+                exec.createSubProgress(prune ? 0.14 : 0);
         final ExecutionMonitor tableExec = exec.createSubProgress(0.1);
 
+        final DataTableSpec tableSpec = data.getDataTableSpec();
         final int classColIdx =
-                data.getSpec().findColumnIndex(m_classColumn.getStringValue());
-
-        // sort table if necessary
-        if (m_sortTable.getBooleanValue()) {
-            final ExecutionContext sortExec =
-                    exec.createSubExecutionContext(0.2);
-            final BufferedDataTableSorter sorter = new BufferedDataTableSorter(
-                    data, new Comparator<DataRow>() {
-
-                        @Override
-                        public int compare(final DataRow arg0,
-                                final DataRow arg1) {
-                            final String c1 =
-                                    ((StringCell) arg0.getCell(classColIdx))
-                                            .getStringValue();
-                            final String c2 =
-                                    ((StringCell) arg1.getCell(classColIdx))
-                                            .getStringValue();
-                            return c1.compareTo(c2);
-                        }
-
-                    });
-            data = sorter.sort(sortExec);
-        }
-
-        final String[] labels = new String[size];
-        int l = 0;
-        boolean oneClass = true;
-        String currentClass = null;
+                tableSpec.findColumnIndex(m_classColumn.getStringValue());
+        // the scorer and the updater read the features in table order, so
+        // the model is learned and described in the same order
+        final List<String> includedColumns = KernelCalculator
+                .inTableOrder(tableSpec, m_columnSelection.getIncludeList());
+        final int[] featureIndices =
+                KernelCalculator.featureIndices(tableSpec, includedColumns);
+
+        // group the samples by class in a single pass, the classes are
+        // either ordered by name or by their first occurrence
+        final Map<String, ClassBuffer> classes = sortTable
+                ? new TreeMap<String, ClassBuffer>()
+                : new LinkedHashMap<String, ClassBuffer>();
+        // number of values per sample, set by the first row
+        int width = -1;
+        long rowIdx = 0;
         for (final DataRow row : data) {
+            readExec.checkCanceled();
             final DataCell classCell = row.getCell(classColIdx);
             if (classCell.isMissing()) {
                 throw new IllegalArgumentException(
@@ -308,24 +454,46 @@ public int compare(final DataRow arg0,
                 throw new IllegalArgumentException(
                         "The class column must be nominal.");
             }
-            final StringValue label = (StringValue) row.getCell(classColIdx);
-            if (currentClass == null) {
-                currentClass = label.getStringValue();
-            } else if (!currentClass.equals(label.getStringValue())) {
-                oneClass = false;
+            final String label = ((StringValue) classCell).getStringValue();
+            final int length =
+                    KernelCalculator.sampleLength(row, featureIndices);
+            if (width < 0) {
+                width = length;
+                if ((long) width * size > Integer.MAX_VALUE) {
+                    throw new InvalidSettingsException(
+                            "The input table is too large.");
+                }
+            } else if (length != width) {
+                throw new IllegalArgumentException(
+                        "The bit vectors of a training column must all have "
+                                + "the same length.");
+            }
+            ClassBuffer buffer = classes.get(label);
+            if (buffer == null) {
+                buffer = new ClassBuffer();
+                classes.put(label, buffer);
             }
-            labels[l++] = label.getStringValue();
+            KernelCalculator.readDataRow(row, featureIndices,
+                    buffer.m_values, buffer.add(width));
+            readExec.setProgress(((double) ++rowIdx) / size);
         }
 
-        final List<String> includedColumns = m_columnSelection.getIncludeList();
-        final DataTableSpec tableSpec = data.getDataTableSpec();
-
-        final ColumnRearranger cr = new ColumnRearranger(tableSpec);
-        cr.keepOnly(
-                includedColumns.toArray(new String[includedColumns.size()]));
-
-        final BufferedDataTable training =
-                exec.createColumnRearrangeTable(data, cr, exec);
+        // one flat row-major matrix with the samples grouped by class
+        final double[] trainingData = new double[size * width];
+        final String[] labels = new String[size];
+        final String[] uniqueLabels = new String[classes.size()];
+        int l = 0;
+        int c = 0;
+        for (final Map.Entry<String, ClassBuffer> entry : classes.entrySet()) {
+            final ClassBuffer buffer = entry.getValue();
+            System.arraycopy(buffer.m_values, 0, trainingData, l * width,
+                    buffer.m_size * width);
+            buffer.m_values = null;
+            Arrays.fill(labels, l, l + buffer.m_size, entry.getKey());
+            l += buffer.m_size;
+            uniqueLabels[c++] = entry.getKey();
+        }
+        final boolean oneClass = uniqueLabels.length == 1;
 
         KNFST knfst = null;
         KernelFunction kernelFunction = null;
@@ -344,34 +512,54 @@ public int compare(final DataRow arg0,
             kernelFunction = new PolynomialKernel(m_gamma.getDoubleValue(),
                     m_bias.getDoubleValue(), m_power.getDoubleValue());
             break;
+        case Tanimoto:
+            kernelFunction = new TanimotoKernel();
+            break;
         default:
             kernelFunction = new RBFKernel(m_sigma.getDoubleValue());
         }
 
         final KernelCalculator kernelCalculator =
-                new KernelCalculator(training, kernelFunction);
-
-        if (oneClass) {
-            knfst = new OneClassKNFST(kernelCalculator, knfstExec);
+                new KernelCalculator(trainingData, size, kernelFunction);
+        kernelCalculator.setCache(m_kernelCache.getCache());
+
+        final Approximation approximation =
+                Approximation.valueOf(m_approximation.getStringValue());
+        if (approximation == Approximation.RandomFourierFeatures) {
+            knfst = RandomFourierKNFST.learn(kernelCalculator, labels,
+                    oneClass, m_numFourierFeatures.getIntValue(),
+                    m_seed.getIntValue(), knfstExec);
+        } else if (approximation == Approximation.Nystroem
+                && m_numLandmarks.getIntValue() < size) {
+            knfst = NystroemKNFST.learn(kernelCalculator, labels, oneClass,
+                    m_numLandmarks.getIntValue(),
+                    LandmarkSelection
+                            .valueOf(m_landmarkSelection.getStringValue()),
+                    m_seed.getIntValue(), knfstExec);
+        } else if (oneClass) {
+            knfst = new OneClassKNFST(kernelCalculator, knfstExec,
+                    m_primitiveBackend.getBooleanValue());
         } else {
-            knfst = new MultiClassKNFST(kernelCalculator, labels, knfstExec);
+            knfst = new MultiClassKNFST(kernelCalculator, labels, knfstExec,
+                    m_primitiveBackend.getBooleanValue());
+        }
+        // the cache is only used while learning
+        kernelCalculator.setCache(null);
+
+        if (prune) {
+            knfst = KNFSTPruning.prune(knfst,
+                    m_pruningTolerance.getDoubleValue(), pruneExec);
+            pruneExec.setProgress(1.0);
         }
 
         final KNFSTPortObjectSpec knfstSpec =
                 new KNFSTPortObjectSpec(includedColumns);
-        m_knfstPortObject = new KNFSTPortObject(knfst, knfstSpec);
+        m_knfstPortObject = new KNFSTPortObject(knfst, knfstSpec,
+                m_compressModel.getBooleanValue());
 
         knfstExec.setProgress(1.0);
 
-        // Write target points into table
-        final String[] uniqueLabels = new HashSet<String>(Arrays.asList(labels))
-                .toArray(new String[0]);
-        Arrays.sort(uniqueLabels, new Comparator<String>() {
-            @Override
-            public int compare(final String s1, final String s2) {
-                return s1.compareTo(s2);
-            }
-        });
+        // Write target points into table, in the order of the classes
         final double[][] targetPoints = knfst.getTargetPoints();
         final DataColumnSpec[] colSpecs =
                 new DataColumnSpec[targetPoints[0].length + 1];
@@ -431,6 +619,24 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
         m_bias.loadSettingsFrom(settings);
         m_gamma.loadSettingsFrom(settings);
         m_power.loadSettingsFrom(settings);
+        NodeUtils.loadOptionalSettings(settings,
+                CFG_KEY_PRIMITIVE_BACKEND, m_primitiveBackend);
+        NodeUtils.loadOptionalSettings(settings,
+                CFG_KEY_APPROXIMATION, m_approximation);
+        NodeUtils.loadOptionalSettings(settings,
+                CFG_KEY_NUM_LANDMARKS, m_numLandmarks);
+        NodeUtils.loadOptionalSettings(settings,
+                CFG_KEY_LANDMARK_SELECTION, m_landmarkSelection);
+        NodeUtils.loadOptionalSettings(settings,
+                CFG_KEY_NUM_FOURIER_FEATURES, m_numFourierFeatures);
+        NodeUtils.loadOptionalSettings(settings, CFG_KEY_SEED, m_seed);
+        NodeUtils.loadOptionalSettings(settings,
+                CFG_KEY_COMPRESS_MODEL, m_compressModel);
+        NodeUtils.loadOptionalSettings(settings,
+                CFG_KEY_PRUNE_TRAINING_SAMPLES, m_pruneTrainingSamples);
+        NodeUtils.loadOptionalSettings(settings,
+                CFG_KEY_PRUNING_TOLERANCE, m_pruningTolerance);
+        m_kernelCache.loadSettingsFrom(settings);
     }
 
     /**
@@ -463,6 +669,16 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
         m_gamma.saveSettingsTo(settings);
         m_bias.saveSettingsTo(settings);
         m_power.saveSettingsTo(settings);
+        m_primitiveBackend.saveSettingsTo(settings);
+        m_approximation.saveSettingsTo(settings);
+        m_numLandmarks.saveSettingsTo(settings);
+        m_landmarkSelection.saveSettingsTo(settings);
+        m_numFourierFeatures.saveSettingsTo(settings);
+        m_seed.saveSettingsTo(settings);
+        m_compressModel.saveSettingsTo(settings);
+        m_pruneTrainingSamples.saveSettingsTo(settings);
+        m_pruningTolerance.saveSettingsTo(settings);
+        m_kernelCache.saveSettingsTo(settings);
     }
 
     /**
@@ -479,6 +695,49 @@ protected void validateSettings(final NodeSettingsRO settings)
         m_gamma.validateSettings(settings);
         m_bias.validateSettings(settings);
         m_power.validateSettings(settings);
+        NodeUtils.validateOptionalSettings(settings,
+                CFG_KEY_PRIMITIVE_BACKEND, m_primitiveBackend);
+        NodeUtils.validateOptionalSettings(settings,
+                CFG_KEY_APPROXIMATION, m_approximation);
+        NodeUtils.validateOptionalSettings(settings,
+                CFG_KEY_NUM_LANDMARKS, m_numLandmarks);
+        NodeUtils.validateOptionalSettings(settings,
+                CFG_KEY_LANDMARK_SELECTION, m_landmarkSelection);
+        NodeUtils.validateOptionalSettings(settings,
+                CFG_KEY_NUM_FOURIER_FEATURES, m_numFourierFeatures);
+        NodeUtils.validateOptionalSettings(settings, CFG_KEY_SEED, m_seed);
+        NodeUtils.validateOptionalSettings(settings,
+                CFG_KEY_COMPRESS_MODEL, m_compressModel);
+        NodeUtils.validateOptionalSettings(settings,
+                CFG_KEY_PRUNE_TRAINING_SAMPLES, m_pruneTrainingSamples);
+        NodeUtils.validateOptionalSettings(settings,
+                CFG_KEY_PRUNING_TOLERANCE, m_pruningTolerance);
+        m_kernelCache.validateSettings(settings);
     }
 
+
+    /*
+     * Growable buffer of the samples of one class, the values of the samples
+     * one after another
+     */
+    private static final class ClassBuffer {
+        private double[] m_values = new double[0];
+        private int m_size;
+
+        /*
+         * Makes room for a sample with the given number of values and returns
+         * the index of its first value in m_values
+         */
+        int add(final int width) {
+            final int offset = m_size * width;
+            if (offset + width > m_values.length) {
+                final long capacity = Math.max(16L * width,
+                        2L * m_values.length);
+                m_values = Arrays.copyOf(m_values,
+                        (int) Math.min(capacity, Integer.MAX_VALUE - 8));
+            }
+            m_size++;
+            return offset;
+        }
+    }
 }
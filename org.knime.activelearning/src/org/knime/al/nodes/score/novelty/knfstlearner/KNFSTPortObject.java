@@ -47,9 +47,15 @@
 
 package org.knime.al.nodes.score.novelty.knfstlearner;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipEntry;
 
 import javax.swing.JComponent;
@@ -81,15 +87,40 @@ public class KNFSTPortObject extends AbstractPortObject {
     private static final String SUMMARY =
             "Kernel Null Foley Sammon Transformation Object for novelty scoring";
 
+    // entry of the model before the format was versioned
+    private static final String LEGACY_MODEL_ENTRY = "knfst.objectout";
+
+    private static final String MODEL_ENTRY = "knfst.model";
+
+    /*
+     * Version of the format of MODEL_ENTRY: a header with the version and a
+     * compression flag, followed by the (optionally deflated) class name and
+     * external form of the model. Increase it if the layout changes.
+     */
+    private static final int FORMAT_VERSION = 1;
+
     private KNFST m_knfstModel;
     private KNFSTPortObjectSpec m_spec;
+    private boolean m_compressed;
 
     public KNFSTPortObject() {
     }
 
     public KNFSTPortObject(final KNFST knfst, final KNFSTPortObjectSpec spec) {
+        this(knfst, spec, false);
+    }
+
+    /**
+     * @param knfst the model
+     * @param spec the spec of the model
+     * @param compressed whether the model should be stored compressed, which
+     *            mainly pays off for the training data of large models
+     */
+    public KNFSTPortObject(final KNFST knfst, final KNFSTPortObjectSpec spec,
+            final boolean compressed) {
         m_knfstModel = knfst;
         m_spec = spec;
+        m_compressed = compressed;
     }
 
     public KNFST getKNFST() {
@@ -126,58 +157,72 @@ public KNFST getKNFST() {
     protected void save(final PortObjectZipOutputStream out,
             final ExecutionMonitor exec)
                     throws IOException, CanceledExecutionException {
-        ObjectOutputStream oo = null;
-        try {
-            out.putNextEntry(new ZipEntry("knfst.objectout"));
-            oo = new ObjectOutputStream(new NonClosableOutputStream.Zip(out));
-            oo.writeUTF(m_knfstModel.getClass().getName());
-            m_knfstModel.writeExternal(oo);
-        } catch (final IOException ioe) {
+        out.putNextEntry(new ZipEntry(MODEL_ENTRY));
+        final OutputStream entry = new NonClosableOutputStream.Zip(out);
 
-        } finally {
-            if (oo != null) {
-                try {
-                    oo.close();
-                } catch (final Exception e) {
+        // header (never compressed)
+        final DataOutputStream header = new DataOutputStream(entry);
+        header.writeInt(FORMAT_VERSION);
+        header.writeBoolean(m_compressed);
+        header.flush();
 
-                }
-            }
+        try (ObjectOutputStream oo = new ObjectOutputStream(
+                m_compressed ? new DeflaterOutputStream(entry) : entry)) {
+            oo.writeUTF(m_knfstModel.getClass().getName());
+            m_knfstModel.writeExternal(oo);
         }
-
     }
 
     @Override
     protected void load(final PortObjectZipInputStream in,
             final PortObjectSpec spec, final ExecutionMonitor exec)
                     throws IOException, CanceledExecutionException {
-        ObjectInputStream oi = null;
-        KNFST knfst = null;
-        try {
-            // load classifier
-            final ZipEntry zentry = in.getNextEntry();
-            assert zentry.getName().equals("knfst.objectout");
-            oi = new ObjectInputStream(new NonClosableInputStream.Zip(in));
-            knfst = (KNFST) Class.forName(oi.readUTF()).newInstance();
-            knfst.readExternal(oi);
-        } catch (final IOException ioe) {
-
-        } catch (final ClassNotFoundException cnf) {
-
-        } catch (final InstantiationException | IllegalAccessException e) {
-            e.printStackTrace();
-        } finally {
-            if (oi != null) {
-                try {
-                    oi.close();
-                } catch (final Exception e) {
+        final ZipEntry zentry = in.getNextEntry();
+        if (zentry == null) {
+            throw new IOException("The KNFST model is missing.");
+        }
+        final InputStream entry = new NonClosableInputStream.Zip(in);
 
-                }
+        InputStream body = entry;
+        if (zentry.getName().equals(MODEL_ENTRY)) {
+            final DataInputStream header = new DataInputStream(entry);
+            final int version = header.readInt();
+            if (version > FORMAT_VERSION) {
+                throw new IOException("The KNFST model has format version "
+                        + version + ", only versions up to " + FORMAT_VERSION
+                        + " are supported. Please update the extension.");
             }
+            m_compressed = header.readBoolean();
+            if (m_compressed) {
+                body = new InflaterInputStream(entry);
+            }
+        } else if (zentry.getName().equals(LEGACY_MODEL_ENTRY)) {
+            // uncompressed model of the first version without a header
+            m_compressed = false;
+        } else {
+            throw new IOException(
+                    "Unknown KNFST model entry: " + zentry.getName());
+        }
+
+        try (ObjectInputStream oi = new ObjectInputStream(body)) {
+            final KNFST knfst =
+                    (KNFST) Class.forName(oi.readUTF()).newInstance();
+            knfst.readExternal(oi);
+            m_knfstModel = knfst;
+        } catch (final ClassNotFoundException | InstantiationException
+                | IllegalAccessException | ClassCastException e) {
+            throw new IOException("The KNFST model can't be read.", e);
         }
-        m_knfstModel = knfst;
         m_spec = (KNFSTPortObjectSpec) spec;
     }
 
+    /**
+     * @return whether the model is stored compressed
+     */
+    public boolean isCompressed() {
+        return m_compressed;
+    }
+
     @Override
     public String getSummary() {
         return SUMMARY;
@@ -47,8 +47,7 @@
 
 package org.knime.al.nodes.score.novelty.knfstnoveltyscorer;
 
-import java.util.ArrayList;
-
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
 import org.knime.al.util.noveltydetection.knfst.KNFST;
 import org.knime.al.util.noveltydetection.knfst.NoveltyScores;
 import org.knime.core.data.DataCell;
@@ -57,48 +56,92 @@
 import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.def.DoubleCell;
 
+/**
+ * Creates the novelty score and null space coordinate cells for rows of a test
+ * table. Rows should be scored in blocks via {@link #getCells(DataRow[], int)}
+ * so that the kernel values and projections of a whole block are computed at
+ * once.
+ */
 public class KNFSTNoveltyScorerCellFactory extends AbstractCellFactory {
 
+    /** Default number of rows scored together. */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
     private final KNFST m_model;
+    private final KernelCalculator m_kernel;
+    private final int[] m_featureIndices;
     private final boolean m_appendNoveltyScore;
     private final boolean m_appendNullspaceCoordinates;
     private final double m_normalizer;
+    private final int m_numCells;
+
+    public KNFSTNoveltyScorerCellFactory(final DataColumnSpec[] newColSpecs,
+            final KNFST knfstModel, final int[] featureIndices,
+            final boolean appendNoveltyScore,
+            final boolean appendNullspaceCoordinates, final double normalizer) {
+        this(newColSpecs, knfstModel, null, featureIndices, appendNoveltyScore,
+                appendNullspaceCoordinates, normalizer);
+    }
 
+    /**
+     * @param kernel calculates the kernel values of the test rows with the
+     *            training samples of the model, e.g. a copy of the model
+     *            kernel that uses a cache, or <code>null</code> to use the
+     *            kernel of the model
+     */
     public KNFSTNoveltyScorerCellFactory(final DataColumnSpec[] newColSpecs,
-            final KNFST knfstModel, final boolean appendNoveltyScore,
+            final KNFST knfstModel, final KernelCalculator kernel,
+            final int[] featureIndices, final boolean appendNoveltyScore,
             final boolean appendNullspaceCoordinates, final double normalizer) {
         super(newColSpecs);
         m_model = knfstModel;
+        m_kernel = kernel;
+        m_featureIndices = featureIndices;
         m_appendNoveltyScore = appendNoveltyScore;
         m_appendNullspaceCoordinates = appendNullspaceCoordinates;
         m_normalizer = normalizer;
+        m_numCells = newColSpecs.length;
         setParallelProcessing(true);
     }
 
     @Override
     public DataCell[] getCells(final DataRow row) {
+        return getCells(new DataRow[] { row }, 1)[0];
+    }
 
-        final NoveltyScores noveltyScores = m_model.scoreTestData(row);
-        final double score = noveltyScores.getScores()[0] / m_normalizer;
-        final double[] nullspaceCoordinates =
-                noveltyScores.getCoordinates().getRow(0);
-
-        final ArrayList<DataCell> cells = new ArrayList<DataCell>();
-        if (m_appendNoveltyScore) {
-            cells.add(new DoubleCell(score));
-        }
-        if (m_appendNullspaceCoordinates) {
-            for (final double coord : nullspaceCoordinates) {
-                cells.add(new DoubleCell(coord));
-            }
-        }
-
-        if (cells.isEmpty()) {
-            return new DataCell[] {};
+    /**
+     * Scores the first <code>count</code> rows of the given block.
+     *
+     * @param rows the block of rows
+     * @param count the number of valid rows in the block
+     * @return the cells to append, one array per row
+     */
+    public DataCell[][] getCells(final DataRow[] rows, final int count) {
+        final double[][] testData = new double[count][];
+        for (int i = 0; i < count; i++) {
+            testData[i] =
+                    KernelCalculator.readDataRow(rows[i], m_featureIndices);
         }
 
-        return cells.toArray(new DataCell[cells.size()]);
+        final NoveltyScores noveltyScores = m_kernel == null
+                ? m_model.scoreTestData(testData)
+                : m_model.scoreKernelBlock(m_kernel.kernelizeBlock(testData));
+        final double[] scores = noveltyScores.getScores();
 
+        final DataCell[][] cells = new DataCell[count][m_numCells];
+        for (int i = 0; i < count; i++) {
+            int c = 0;
+            if (m_appendNoveltyScore) {
+                cells[i][c++] = new DoubleCell(scores[i] / m_normalizer);
+            }
+            if (m_appendNullspaceCoordinates) {
+                for (final double coord : noveltyScores.getCoordinates()
+                        .getRow(i)) {
+                    cells[i][c++] = new DoubleCell(coord);
+                }
+            }
+        }
+        return cells;
     }
 
 }
@@ -47,7 +47,9 @@
 
 package org.knime.al.nodes.score.novelty.knfstnoveltyscorer;
 
+import org.knime.al.nodes.score.novelty.KernelCacheSettings;
 import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponent;
 import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
 
 public class KNFSTNoveltyScorerNodeDialog extends DefaultNodeSettingsPane {
@@ -71,5 +73,11 @@ public KNFSTNoveltyScorerNodeDialog() {
                 KNFSTNoveltyScorerNodeModel.createAppendNullspaceCoordinates(),
                 "Append Nullspace Coordinates"));
 
+        createNewGroup("Kernel cache");
+        for (final DialogComponent component : KernelCacheSettings
+                .createDialogComponents()) {
+            addDialogComponent(component);
+        }
+        closeCurrentGroup();
     }
 }
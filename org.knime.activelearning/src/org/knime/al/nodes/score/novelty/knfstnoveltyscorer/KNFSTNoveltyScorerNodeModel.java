@@ -47,22 +47,36 @@
 package org.knime.al.nodes.score.novelty.knfstnoveltyscorer;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import org.knime.al.nodes.score.novelty.KernelCacheSettings;
 import org.knime.al.nodes.score.novelty.knfstlearner.KNFSTPortObject;
 import org.knime.al.nodes.score.novelty.knfstlearner.KNFSTPortObjectSpec;
+import org.knime.al.util.noveltydetection.kernel.KernelCache;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
 import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
-import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.append.AppendedColumnRow;
 import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.BufferedDataTableHolder;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.KNIMEConstants;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
@@ -70,6 +84,7 @@
 import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.port.PortType;
+import org.knime.core.util.ThreadPool;
 
 /**
  * Calculates novelty scores for test data based on a KNFST model from a
@@ -113,6 +128,8 @@ static SettingsModelBoolean createNormalizeModel() {
     private final SettingsModelBoolean m_appendNullspaceCoordinates =
             createAppendNullspaceCoordinates();
     private final SettingsModelBoolean m_normalize = createNormalizeModel();
+    private final KernelCacheSettings m_kernelCache =
+            new KernelCacheSettings();
 
     /* Resulting BufferedDataTable */
     private BufferedDataTable m_data;
@@ -190,12 +207,10 @@ protected BufferedDataTable[] execute(final PortObject[] inData,
                 ((KNFSTPortObject) inData[0]).getSpec();
         final List<String> includedFeatures = knfstSpec.getCompatibleFeatures();
 
-        // Only use columns that are needed for testing
-        final ColumnRearranger cr = new ColumnRearranger(tableSpec);
-        cr.keepOnly(
+        // Only use columns that are needed for testing (in table order)
+        final int[] featureIndices = tableSpec.columnsToIndices(
                 includedFeatures.toArray(new String[includedFeatures.size()]));
-        final BufferedDataTable testData =
-                exec.createColumnRearrangeTable(data, cr, exec);
+        Arrays.sort(featureIndices);
 
         final boolean appendNoveltyScore =
                 m_appendNoveltyScore.getBooleanValue();
@@ -225,29 +240,28 @@ protected BufferedDataTable[] execute(final PortObject[] inData,
                     "At least one option must be selected.");
         }
 
-        final ColumnRearranger outColRearranger =
-                new ColumnRearranger(testData.getDataTableSpec());
-        outColRearranger
-                .append(new KNFSTNoveltyScorerCellFactory(
-                        outColSpecs.toArray(
-                                new DataColumnSpec[outColSpecs.size()]),
-                        knfst, appendNoveltyScore, appendNullspaceCoordinates,
-                        normalizer));
-
-        final BufferedDataTable result = exec.createColumnRearrangeTable(
-                testData, outColRearranger, exec.createSubProgress(0.8));
-
-        final ColumnRearranger resRearranger =
-                new ColumnRearranger(result.getSpec());
-        final String[] colNames = new String[outColSpecs.size()];
-        for (int i = 0; i < colNames.length; i++) {
-            colNames[i] = outColSpecs.get(i).getName();
+        final DataColumnSpec[] outColSpecArray =
+                outColSpecs.toArray(new DataColumnSpec[outColSpecs.size()]);
+        // the model kernel is left untouched, the cache is only attached to
+        // a copy
+        final KernelCache cache = m_kernelCache.getCache();
+        KernelCalculator kernel = null;
+        if (cache != null) {
+            kernel = new KernelCalculator(knfst.getKernel().getTrainingData(),
+                    knfst.getKernel().getKernelFunction());
+            kernel.setCache(cache);
         }
-        resRearranger.keepOnly(colNames);
-        m_data = exec.createJoinedTable(data,
-                exec.createColumnRearrangeTable(result, resRearranger,
-                        exec.createSubProgress(0)),
-                exec.createSubProgress(0.1));
+        final KNFSTNoveltyScorerCellFactory cellFactory =
+                new KNFSTNoveltyScorerCellFactory(outColSpecArray, knfst,
+                        kernel, featureIndices, appendNoveltyScore,
+                        appendNullspaceCoordinates, normalizer);
+
+        final BufferedDataContainer container =
+                exec.createDataContainer(new DataTableSpec(tableSpec,
+                        new DataTableSpec(outColSpecArray)));
+        scoreInBlocks(data, cellFactory, container, exec);
+        container.close();
+        m_data = container.getTable();
 
         return new BufferedDataTable[] { m_data };
     }
@@ -278,6 +292,7 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
         m_appendNoveltyScore.loadSettingsFrom(settings);
         m_appendNullspaceCoordinates.loadSettingsFrom(settings);
         m_normalize.loadSettingsFrom(settings);
+        m_kernelCache.loadSettingsFrom(settings);
     }
 
     /**
@@ -305,6 +320,7 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
         m_appendNoveltyScore.saveSettingsTo(settings);
         m_appendNullspaceCoordinates.saveSettingsTo(settings);
         m_normalize.saveSettingsTo(settings);
+        m_kernelCache.saveSettingsTo(settings);
     }
 
     /**
@@ -324,12 +340,121 @@ protected void validateSettings(final NodeSettingsRO settings)
         m_appendNoveltyScore.validateSettings(settings);
         m_appendNullspaceCoordinates.validateSettings(settings);
         m_normalize.validateSettings(settings);
+        m_kernelCache.validateSettings(settings);
     }
 
     /******************
      * Private helper methods
      *************************************************/
 
+    /*
+     * Scores the table in blocks of KNFSTNoveltyScorerCellFactory
+     * .DEFAULT_BLOCK_SIZE rows. Blocks are scored in parallel, the results are
+     * written in the original row order.
+     */
+    private static void scoreInBlocks(final BufferedDataTable data,
+            final KNFSTNoveltyScorerCellFactory cellFactory,
+            final BufferedDataContainer container, final ExecutionContext exec)
+            throws Exception {
+        final ThreadPool pool = KNIMEConstants.GLOBAL_THREAD_POOL;
+        final int maxPendingBlocks =
+                Math.max(1, Runtime.getRuntime().availableProcessors());
+        final int blockSize = KNFSTNoveltyScorerCellFactory.DEFAULT_BLOCK_SIZE;
+        final double rowCount = data.size();
+
+        try {
+            pool.runInvisible(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    final Deque<Future<DataRow[]>> pending =
+                            new ArrayDeque<Future<DataRow[]>>();
+                    final Iterator<DataRow> iterator = data.iterator();
+                    long written = 0;
+                    try {
+                        while (iterator.hasNext()) {
+                            exec.checkCanceled();
+                            final DataRow[] block = new DataRow[blockSize];
+                            int count = 0;
+                            while (count < blockSize && iterator.hasNext()) {
+                                block[count++] = iterator.next();
+                            }
+                            pending.add(pool.enqueue(
+                                    new ScoreBlockCallable(cellFactory, block,
+                                            count)));
+                            if (pending.size() >= maxPendingBlocks) {
+                                written += writeBlock(pending.poll().get(),
+                                        container);
+                                exec.setProgress(written / rowCount,
+                                        "Scored " + written + " rows");
+                            }
+                        }
+                        while (!pending.isEmpty()) {
+                            exec.checkCanceled();
+                            written += writeBlock(pending.poll().get(),
+                                    container);
+                            exec.setProgress(written / rowCount,
+                                    "Scored " + written + " rows");
+                        }
+                    } catch (final Exception e) {
+                        for (final Future<DataRow[]> future : pending) {
+                            future.cancel(true);
+                        }
+                        throw e;
+                    }
+                    return null;
+                }
+            });
+        } catch (final ExecutionException e) {
+            // unwrap the exceptions of the pool and the block futures
+            Throwable cause = e;
+            while (cause instanceof ExecutionException
+                    && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static int writeBlock(final DataRow[] rows,
+            final BufferedDataContainer container) {
+        for (final DataRow row : rows) {
+            container.addRowToTable(row);
+        }
+        return rows.length;
+    }
+
+    /*
+     * Scores a single block of rows and appends the resulting cells.
+     */
+    private static final class ScoreBlockCallable
+            implements Callable<DataRow[]> {
+
+        private final KNFSTNoveltyScorerCellFactory m_cellFactory;
+        private final DataRow[] m_block;
+        private final int m_count;
+
+        ScoreBlockCallable(final KNFSTNoveltyScorerCellFactory cellFactory,
+                final DataRow[] block, final int count) {
+            m_cellFactory = cellFactory;
+            m_block = block;
+            m_count = count;
+        }
+
+        @Override
+        public DataRow[] call() throws Exception {
+            final DataCell[][] cells = m_cellFactory.getCells(m_block, m_count);
+            final DataRow[] result = new DataRow[m_count];
+            for (int i = 0; i < m_count; i++) {
+                result[i] = new AppendedColumnRow(m_block[i], cells[i]);
+            }
+            return result;
+        }
+    }
+
     private static double getMin(final double[] array) {
         if (array.length == 0) {
             throw new IllegalArgumentException(
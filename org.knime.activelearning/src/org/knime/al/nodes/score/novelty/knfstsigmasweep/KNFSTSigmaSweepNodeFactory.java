@@ -45,70 +45,57 @@
  *
  */
 
-package org.knime.al.nodes.score.novelty.localnoveltyscorer;
+package org.knime.al.nodes.score.novelty.knfstsigmasweep;
 
-import org.apache.commons.math3.linear.RealMatrix;
-import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
 
-public class ThreadController {
-    private final ExecutionContext m_exec;
-    private final RealMatrix m_globalKernelMatrix;
-    private final RealMatrix m_trainingKernelMatrix;
-    private final String[] m_labels;
-    private final int m_numNeighbors;
-    private final boolean m_normalize;
-
-    private final double[] m_noveltyScores;
-    private int m_currentIndex;
-
-    public ThreadController(final ExecutionContext exec,
-            final RealMatrix globalKernelMatrix,
-            final RealMatrix trainingKernelMatrix, final String[] labels,
-            final int numNeighbors, final boolean normalize) {
-        m_exec = exec;
-        m_globalKernelMatrix = globalKernelMatrix;
-        m_trainingKernelMatrix = trainingKernelMatrix;
-        m_labels = labels;
-        m_numNeighbors = numNeighbors;
-        m_normalize = normalize;
+/**
+ * {@link NodeFactory} for {@link KNFSTSigmaSweepNodeModel}
+ */
+public class KNFSTSigmaSweepNodeFactory
+        extends NodeFactory<KNFSTSigmaSweepNodeModel> {
 
-        m_noveltyScores = new double[globalKernelMatrix.getColumnDimension()];
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NodeDialogPane createNodeDialogPane() {
+        return new KNFSTSigmaSweepNodeDialog();
     }
 
-    public double[] process() {
-        // get number of available cores
-        final int numCores = Runtime.getRuntime().availableProcessors();
-
-        final Thread[] threads = new Thread[numCores];
-        for (int i = 0; i < threads.length; i++) {
-            threads[i] = new Thread(new ExecutionThread(this,
-                    m_globalKernelMatrix, m_trainingKernelMatrix, m_labels,
-                    m_numNeighbors, m_normalize));
-            threads[i].start();
-        }
-        for (int i = 0; i < threads.length; i++) {
-            try {
-                threads[i].join();
-            } catch (final InterruptedException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
-        }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KNFSTSigmaSweepNodeModel createNodeModel() {
+        return new KNFSTSigmaSweepNodeModel();
+    }
 
-        return m_noveltyScores;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NodeView<KNFSTSigmaSweepNodeModel> createNodeView(final int viewIndex,
+            final KNFSTSigmaSweepNodeModel nodeModel) {
+        return null;
     }
 
-    public synchronized void saveNoveltyScore(final int index,
-            final double score) {
-        m_noveltyScores[index] = score;
-        m_exec.setProgress((double) index / m_noveltyScores.length);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNrNodeViews() {
+        return 0;
     }
 
-    public synchronized int getNextIndex() {
-        if (m_currentIndex < m_globalKernelMatrix.getColumnDimension()) {
-            return m_currentIndex++;
-        } else {
-            return -1;
-        }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasDialog() {
+        return true;
     }
+
 }
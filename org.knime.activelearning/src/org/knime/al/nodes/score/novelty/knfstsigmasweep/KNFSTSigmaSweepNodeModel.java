@@ -0,0 +1,403 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+
+package org.knime.al.nodes.score.novelty.knfstsigmasweep;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.knfst.RBFSigmaSweep;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.NominalValue;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelFilterString;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.port.PortObject;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortType;
+
+/**
+ * Evaluates several values of sigma of the RBF kernel for the KNFST Learner.
+ * The pairwise squared distances of the samples are calculated once and the
+ * kernel matrix of each sigma is derived from them. The quality of each sigma
+ * is the AUC of the novelty scores of a labeled validation table.
+ */
+public class KNFSTSigmaSweepNodeModel extends NodeModel {
+
+    static final String CFG_KEY_SIGMAS = "sigmas";
+    static final String CFG_KEY_PRIMITIVE_BACKEND = "primitiveBackend";
+
+    static final int TRAINING_INPORT = 0;
+    static final int VALIDATION_INPORT = 1;
+    static final String DEFAULT_SIGMAS = "0.1, 0.25, 0.5, 1.0, 2.5, 5.0";
+    static final boolean DEFAULT_PRIMITIVE_BACKEND = false;
+
+    static SettingsModelFilterString createColumnSelectionModel() {
+        return new SettingsModelFilterString("Column Filter");
+    }
+
+    static SettingsModelString createClassColumnSelectionModel() {
+        return new SettingsModelString("Class", "");
+    }
+
+    static SettingsModelString createSigmasModel() {
+        return new SettingsModelString(CFG_KEY_SIGMAS, DEFAULT_SIGMAS);
+    }
+
+    static SettingsModelBoolean createPrimitiveBackendModel() {
+        return new SettingsModelBoolean(CFG_KEY_PRIMITIVE_BACKEND,
+                DEFAULT_PRIMITIVE_BACKEND);
+    }
+
+    /* SettingsModels */
+    private final SettingsModelFilterString m_columnSelection =
+            createColumnSelectionModel();
+    private final SettingsModelString m_classColumn =
+            createClassColumnSelectionModel();
+    private final SettingsModelString m_sigmas = createSigmasModel();
+    private final SettingsModelBoolean m_primitiveBackend =
+            createPrimitiveBackendModel();
+
+    /**
+     * Constructor KNFSTSigmaSweepNodeModel
+     */
+    public KNFSTSigmaSweepNodeModel() {
+        super(new PortType[] { BufferedDataTable.TYPE, BufferedDataTable.TYPE },
+                new PortType[] { BufferedDataTable.TYPE });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs)
+            throws InvalidSettingsException {
+        final DataTableSpec trainingSpec =
+                (DataTableSpec) inSpecs[TRAINING_INPORT];
+        final DataTableSpec validationSpec =
+                (DataTableSpec) inSpecs[VALIDATION_INPORT];
+
+        // Check class
+        final DataColumnSpec colSpec =
+                trainingSpec.getColumnSpec(m_classColumn.getStringValue());
+        if (colSpec == null
+                || !colSpec.getType().isCompatible(NominalValue.class)) {
+            for (int i = trainingSpec.getNumColumns() - 1; i >= 0; i--) {
+                if (trainingSpec.getColumnSpec(i).getType()
+                        .isCompatible(NominalValue.class)) {
+                    m_classColumn.setStringValue(
+                            trainingSpec.getColumnSpec(i).getName());
+                    break;
+                } else if (i == 0) {
+                    throw new InvalidSettingsException(
+                            "Table contains no nominal"
+                                    + " attribute for classification.");
+                }
+            }
+        }
+
+        final List<String> columns = new ArrayList<String>(
+                m_columnSelection.getIncludeList());
+        columns.add(m_classColumn.getStringValue());
+        for (final String column : columns) {
+            if (!validationSpec.containsName(column)) {
+                throw new InvalidSettingsException("The validation table "
+                        + "does not contain the column " + column + ".");
+            }
+        }
+        parseSigmas(m_sigmas.getStringValue());
+
+        return new PortObjectSpec[] { createOutputSpec() };
+    }
+
+    private static DataTableSpec createOutputSpec() {
+        return new DataTableSpec(
+                new DataColumnSpecCreator("Sigma", DoubleCell.TYPE)
+                        .createSpec(),
+                new DataColumnSpecCreator("AUC", DoubleCell.TYPE)
+                        .createSpec());
+    }
+
+    /*
+     * Parses the comma separated list of sigmas
+     */
+    static double[] parseSigmas(final String sigmas)
+            throws InvalidSettingsException {
+        final String[] values = sigmas.split(",");
+        final double[] result = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            try {
+                result[i] = Double.parseDouble(values[i].trim());
+            } catch (final NumberFormatException e) {
+                throw new InvalidSettingsException(
+                        "Sigma '" + values[i].trim() + "' is not a number.");
+            }
+            if (!(result[i] > 0)) {
+                throw new InvalidSettingsException(
+                        "Sigma must be positive, but is " + result[i] + ".");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected PortObject[] execute(final PortObject[] inData,
+            final ExecutionContext exec) throws Exception {
+        final BufferedDataTable training =
+                (BufferedDataTable) inData[TRAINING_INPORT];
+        final BufferedDataTable validation =
+                (BufferedDataTable) inData[VALIDATION_INPORT];
+        if (training.size() == 0 || validation.size() == 0) {
+            throw new InvalidSettingsException("The input table is empty");
+        }
+        if (training.size() > Integer.MAX_VALUE
+                || validation.size() > Integer.MAX_VALUE) {
+            throw new InvalidSettingsException("The input table is too large.");
+        }
+        final double[] sigmas = parseSigmas(m_sigmas.getStringValue());
+
+        // the training samples need to be grouped by class
+        final Map<String, List<double[]>> classes =
+                new TreeMap<String, List<double[]>>();
+        final ExecutionMonitor readExec = exec.createSubProgress(0.05);
+        for (final Sample sample : read(training, readExec)) {
+            List<double[]> samples = classes.get(sample.m_label);
+            if (samples == null) {
+                samples = new ArrayList<double[]>();
+                classes.put(sample.m_label, samples);
+            }
+            samples.add(sample.m_data);
+        }
+        final int numTraining = (int) training.size();
+        final double[][] trainingData = new double[numTraining][];
+        final String[] labels = new String[numTraining];
+        int r = 0;
+        for (final Map.Entry<String, List<double[]>> entry : classes
+                .entrySet()) {
+            for (final double[] sample : entry.getValue()) {
+                trainingData[r] = sample;
+                labels[r++] = entry.getKey();
+            }
+        }
+
+        // validation samples of unknown classes are novel
+        final List<Sample> validationSamples =
+                read(validation, exec.createSubProgress(0.05));
+        final double[][] validationData =
+                new double[validationSamples.size()][];
+        final boolean[] novel = new boolean[validationSamples.size()];
+        boolean hasNovel = false;
+        boolean hasKnown = false;
+        for (int i = 0; i < validationData.length; i++) {
+            final Sample sample = validationSamples.get(i);
+            validationData[i] = sample.m_data;
+            novel[i] = !classes.containsKey(sample.m_label);
+            hasNovel |= novel[i];
+            hasKnown |= !novel[i];
+        }
+        if (!hasNovel || !hasKnown) {
+            throw new InvalidSettingsException("The validation table must "
+                    + "contain samples of the training classes and of "
+                    + "classes that are not part of the training table.");
+        }
+
+        final RBFSigmaSweep sweep = new RBFSigmaSweep(trainingData, labels,
+                validationData, novel, exec.createSubProgress(0.2));
+
+        final BufferedDataContainer container =
+                exec.createDataContainer(createOutputSpec());
+        final ExecutionMonitor sweepExec = exec.createSubProgress(0.7);
+        for (int s = 0; s < sigmas.length; s++) {
+            sweepExec.checkCanceled();
+            sweepExec.setProgress(((double) s) / sigmas.length,
+                    "Learning model for sigma " + sigmas[s]);
+            final double auc =
+                    sweep.auc(sigmas[s], m_primitiveBackend.getBooleanValue());
+            container.addRowToTable(new DefaultRow(new RowKey("sigma_" + s),
+                    new DoubleCell(sigmas[s]), new DoubleCell(auc)));
+        }
+        container.close();
+
+        return new PortObject[] { container.getTable() };
+    }
+
+    /*
+     * A labeled sample of an input table
+     */
+    private static final class Sample {
+        private final String m_label;
+        private final double[] m_data;
+
+        Sample(final String label, final double[] data) {
+            m_label = label;
+            m_data = data;
+        }
+    }
+
+    private List<Sample> read(final BufferedDataTable table,
+            final ExecutionMonitor progMon) throws Exception {
+        final DataTableSpec spec = table.getDataTableSpec();
+        final List<String> includedColumns = m_columnSelection.getIncludeList();
+        final int[] featureIndices = new int[includedColumns.size()];
+        for (int i = 0; i < featureIndices.length; i++) {
+            featureIndices[i] = spec.findColumnIndex(includedColumns.get(i));
+            if (featureIndices[i] < 0 || !spec.getColumnSpec(featureIndices[i])
+                    .getType().isCompatible(DoubleValue.class)) {
+                throw new InvalidSettingsException("The column "
+                        + includedColumns.get(i) + " is not numeric.");
+            }
+        }
+        final int classColIdx =
+                spec.findColumnIndex(m_classColumn.getStringValue());
+
+        final List<Sample> samples = new ArrayList<Sample>();
+        final long size = table.size();
+        for (final DataRow row : table) {
+            progMon.checkCanceled();
+            final DataCell classCell = row.getCell(classColIdx);
+            if (classCell.isMissing()) {
+                throw new IllegalArgumentException(
+                        "Missing values are not supported.");
+            } else if (!classCell.getType().isCompatible(StringValue.class)) {
+                throw new IllegalArgumentException(
+                        "The class column must be nominal.");
+            }
+            samples.add(new Sample(((StringValue) classCell).getStringValue(),
+                    KernelCalculator.readDataRow(row, featureIndices)));
+            progMon.setProgress(((double) samples.size()) / size);
+        }
+        return samples;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void loadInternals(final File nodeInternDir,
+            final ExecutionMonitor exec) {
+        //
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        m_columnSelection.loadSettingsFrom(settings);
+        m_classColumn.loadSettingsFrom(settings);
+        m_sigmas.loadSettingsFrom(settings);
+        m_primitiveBackend.loadSettingsFrom(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void reset() {
+        //
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void saveInternals(final File nodeInternDir,
+            final ExecutionMonitor exec) {
+        //
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_columnSelection.saveSettingsTo(settings);
+        m_classColumn.saveSettingsTo(settings);
+        m_sigmas.saveSettingsTo(settings);
+        m_primitiveBackend.saveSettingsTo(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validateSettings(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        m_columnSelection.validateSettings(settings);
+        m_classColumn.validateSettings(settings);
+        m_sigmas.validateSettings(settings);
+        m_primitiveBackend.validateSettings(settings);
+        parseSigmas(settings.getString(CFG_KEY_SIGMAS));
+    }
+
+}
@@ -0,0 +1,304 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.nodes.score.novelty.knfstupdater;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.knime.al.nodes.score.novelty.knfstlearner.KNFSTPortObject;
+import org.knime.al.nodes.score.novelty.knfstlearner.KNFSTPortObjectSpec;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.knfst.IncrementalKNFST;
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.MultiClassKNFST;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.NominalValue;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.port.PortObject;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortType;
+
+/**
+ * Updates a KNFST model from a KNFST Learner (or a previous KNFST Updater)
+ * with additional labeled training samples. Only the kernel values of the new
+ * samples are calculated and the null space is updated incrementally, the
+ * result is the same model a KNFST Learner would learn from all samples.
+ */
+public class KNFSTUpdaterNodeModel extends NodeModel {
+
+    static final int MODEL_INPORT = 0;
+    static final int DATA_INPORT = 1;
+
+    /**
+     * Helper
+     *
+     * @return SettingsModel
+     */
+    static SettingsModelString createClassColumnSelectionModel() {
+        return new SettingsModelString("Class", "");
+    }
+
+    /* SettingsModels */
+    private final SettingsModelString m_classColumn =
+            createClassColumnSelectionModel();
+
+    /**
+     * Constructor KNFSTUpdaterNodeModel
+     */
+    public KNFSTUpdaterNodeModel() {
+        super(new PortType[] { KNFSTPortObject.TYPE, BufferedDataTable.TYPE },
+                new PortType[] { BufferedDataTable.TYPE,
+                        KNFSTPortObject.TYPE });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs)
+            throws InvalidSettingsException {
+        final KNFSTPortObjectSpec knfstSpec =
+                (KNFSTPortObjectSpec) inSpecs[MODEL_INPORT];
+        final DataTableSpec dataSpec = (DataTableSpec) inSpecs[DATA_INPORT];
+
+        for (final String feature : knfstSpec.getCompatibleFeatures()) {
+            if (!dataSpec.containsName(feature)) {
+                throw new InvalidSettingsException(
+                        "The input table does not contain the necessary columns needed by the KNFST model.");
+            }
+        }
+
+        // Check class
+        final DataColumnSpec colSpec =
+                dataSpec.getColumnSpec(m_classColumn.getStringValue());
+        if (colSpec == null
+                || !colSpec.getType().isCompatible(NominalValue.class)) {
+            for (int i = dataSpec.getNumColumns() - 1; i >= 0; i--) {
+                if (dataSpec.getColumnSpec(i).getType()
+                        .isCompatible(NominalValue.class)) {
+                    m_classColumn.setStringValue(
+                            dataSpec.getColumnSpec(i).getName());
+                    break;
+                } else if (i == 0) {
+                    throw new InvalidSettingsException(
+                            "Table contains no nominal"
+                                    + " attribute for classification.");
+                }
+            }
+        }
+
+        return new PortObjectSpec[] { null, knfstSpec };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected PortObject[] execute(final PortObject[] inData,
+            final ExecutionContext exec) throws Exception {
+        final KNFSTPortObject knfstPortObject =
+                (KNFSTPortObject) inData[MODEL_INPORT];
+        final BufferedDataTable data = (BufferedDataTable) inData[DATA_INPORT];
+
+        final long longSize = data.size();
+        if (longSize == 0) {
+            throw new InvalidSettingsException("The input table is empty");
+        }
+        if (longSize > Integer.MAX_VALUE) {
+            throw new InvalidSettingsException("The input table is too large.");
+        }
+        final int size = (int) longSize;
+
+        // Only use the columns of the model, in the order of its features
+        final DataTableSpec tableSpec = data.getDataTableSpec();
+        final int[] featureIndices = KernelCalculator.featureIndices(tableSpec,
+                knfstPortObject.getSpec().getCompatibleFeatures());
+        final int classColIdx =
+                tableSpec.findColumnIndex(m_classColumn.getStringValue());
+
+        final ExecutionMonitor readExec = exec.createSubProgress(0.1);
+        final double[][] samples = new double[size][];
+        final String[] labels = new String[size];
+        int r = 0;
+        for (final DataRow row : data) {
+            final DataCell classCell = row.getCell(classColIdx);
+            if (classCell.isMissing()) {
+                throw new IllegalArgumentException(
+                        "Missing values are not supported.");
+            } else if (!classCell.getType().isCompatible(StringValue.class)) {
+                throw new IllegalArgumentException(
+                        "The class column must be nominal.");
+            }
+            labels[r] = ((StringValue) classCell).getStringValue();
+            samples[r] = KernelCalculator.readDataRow(row, featureIndices);
+            r++;
+            readExec.checkCanceled();
+            readExec.setProgress((double) r / size, "Reading new samples");
+        }
+
+        final KNFST knfst = IncrementalKNFST.update(
+                knfstPortObject.getKNFST(), samples, labels,
+                exec.createSubProgress(0.85));
+        final KNFSTPortObject updatedPortObject =
+                new KNFSTPortObject(knfst, knfstPortObject.getSpec(),
+                        knfstPortObject.isCompressed());
+
+        // one-class models don't keep their class, all new samples belong to
+        // it in that case
+        final String[] classes = knfst instanceof MultiClassKNFST
+                ? new TreeSet<String>(
+                        Arrays.asList(((MultiClassKNFST) knfst).getLabels()))
+                                .toArray(new String[0])
+                : new String[] { labels[0] };
+
+        return new PortObject[] {
+                createTargetPointsTable(knfst.getTargetPoints(), classes,
+                        exec.createSubExecutionContext(0.05)),
+                updatedPortObject };
+    }
+
+    // one row per class with the coordinates of its target point
+    private static BufferedDataTable createTargetPointsTable(
+            final double[][] targetPoints, final String[] classes,
+            final ExecutionContext exec) {
+        final int nullspaceDim = targetPoints[0].length;
+        final DataColumnSpec[] colSpecs = new DataColumnSpec[nullspaceDim + 1];
+        for (int i = 0; i < nullspaceDim; i++) {
+            colSpecs[i] = new DataColumnSpecCreator("Dim" + i, DoubleCell.TYPE)
+                    .createSpec();
+        }
+        colSpecs[nullspaceDim] =
+                new DataColumnSpecCreator("Class", StringCell.TYPE)
+                        .createSpec();
+
+        final BufferedDataContainer container =
+                exec.createDataContainer(new DataTableSpec(colSpecs));
+        for (int c = 0; c < targetPoints.length; c++) {
+            final DataCell[] cells = new DataCell[nullspaceDim + 1];
+            for (int d = 0; d < nullspaceDim; d++) {
+                cells[d] = new DoubleCell(targetPoints[c][d]);
+            }
+            cells[nullspaceDim] = new StringCell(classes[c]);
+            container.addRowToTable(
+                    new DefaultRow(new RowKey("tar_" + c), cells));
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void loadInternals(final File nodeInternDir,
+            final ExecutionMonitor exec) {
+        //
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        m_classColumn.loadSettingsFrom(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void reset() {
+        //
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void saveInternals(final File nodeInternDir,
+            final ExecutionMonitor exec) {
+        //
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_classColumn.saveSettingsTo(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validateSettings(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        m_classColumn.validateSettings(settings);
+    }
+
+}
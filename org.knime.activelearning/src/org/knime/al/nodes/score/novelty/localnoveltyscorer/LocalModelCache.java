@@ -0,0 +1,138 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.nodes.score.novelty.localnoveltyscorer;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+
+/*
+ * Bounded cache of local models, keyed by the sorted indices of the training
+ * samples a model was learned on. Nearby test samples often have the same
+ * neighbors and can share their local model. When the cache is full, the
+ * least recently used model is removed. Learning a model is deterministic,
+ * so a cached model yields the same scores as a newly learned one.
+ */
+public final class LocalModelCache {
+
+    private final LinkedHashMap<NeighborSet, KNFST> m_models;
+    private long m_hits;
+    private long m_requests;
+
+    /*
+     * Parameters: capacity: maximal number of cached models
+     */
+    public LocalModelCache(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "The capacity must be positive.");
+        }
+        m_models = new LinkedHashMap<NeighborSet, KNFST>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<NeighborSet, KNFST> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /*
+     * Returns the model learned on the given neighbors or null if it is not
+     * cached. Parameters: neighbors: sorted indices of the neighbors
+     */
+    public synchronized KNFST get(final int[] neighbors) {
+        m_requests++;
+        final KNFST model = m_models.get(new NeighborSet(neighbors));
+        if (model != null) {
+            m_hits++;
+        }
+        return model;
+    }
+
+    /*
+     * Adds a model learned on the given neighbors, the indices are copied.
+     * Parameters: neighbors: sorted indices of the neighbors model: the
+     * local model
+     */
+    public synchronized void put(final int[] neighbors, final KNFST model) {
+        m_models.put(new NeighborSet(neighbors.clone()), model);
+    }
+
+    public synchronized long getHits() {
+        return m_hits;
+    }
+
+    public synchronized long getRequests() {
+        return m_requests;
+    }
+
+    private static final class NeighborSet {
+        private final int[] m_indices;
+        private final int m_hash;
+
+        NeighborSet(final int[] indices) {
+            m_indices = indices;
+            m_hash = Arrays.hashCode(indices);
+        }
+
+        @Override
+        public int hashCode() {
+            return m_hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof NeighborSet
+                    && Arrays.equals(m_indices, ((NeighborSet) obj).m_indices);
+        }
+    }
+}
@@ -47,119 +47,217 @@
 
 package org.knime.al.nodes.score.novelty.localnoveltyscorer;
 
-import java.util.TimerTask;
-import java.util.concurrent.Future;
-import java.util.concurrent.Semaphore;
-
-import org.apache.commons.math3.linear.RealMatrix;
-import org.knime.core.node.CanceledExecutionException;
+import org.knime.al.util.noveltydetection.ParallelChunks;
+import org.knime.al.util.noveltydetection.kernel.KDTree;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.KernelFunction;
+import org.knime.al.util.noveltydetection.kernel.KernelMatrix;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
 import org.knime.core.node.ExecutionMonitor;
-import org.knime.core.node.KNIMEConstants;
-import org.knime.core.util.KNIMETimer;
-import org.knime.core.util.ThreadPool;
 
 public class LocalNoveltyScorer {
 
+    // number of test samples scored per task, fixed so that the scores do
+    // not depend on the number of threads
+    private static final int SCORE_CHUNK_SIZE = 16;
+
     private final ExecutionMonitor m_exec;
-    private final RealMatrix m_globalKernelMatrix;
-    private final RealMatrix m_trainingKernelMatrix;
+    private final KernelMatrix m_globalKernelMatrix;
+    private final KernelCalculator m_kernelCalculator;
+    private final double[][] m_testData;
+    private final KernelMatrix m_trainingKernelMatrix;
     private final String[] m_labels;
     private final int m_numNeighbors;
     private final boolean m_normalize;
+    private int m_parallelism = ParallelChunks.defaultParallelism();
+    private LocalModelCache m_modelCache;
+    private KDTree m_neighborIndex;
 
     public LocalNoveltyScorer(final ExecutionMonitor executionMonitor,
-            final RealMatrix m_globalKernelMatrix,
-            final RealMatrix m_trainingKernelMatrix, final String[] m_labels,
+            final KernelMatrix m_globalKernelMatrix,
+            final KernelMatrix m_trainingKernelMatrix, final String[] m_labels,
             final int m_numNeighbors, final boolean m_normalize) {
         super();
         m_exec = executionMonitor;
         this.m_globalKernelMatrix = m_globalKernelMatrix;
+        m_kernelCalculator = null;
+        m_testData = null;
         this.m_trainingKernelMatrix = m_trainingKernelMatrix;
         this.m_labels = m_labels;
         this.m_numNeighbors = m_numNeighbors;
         this.m_normalize = m_normalize;
     }
 
-    public double[] calculateNoveltyScores() throws Exception {
+    /*
+     * Creates a scorer that calculates the kernel values of the test samples
+     * with the training samples while scoring them. Only the kernel rows of
+     * the chunks that are currently scored are held in memory instead of the
+     * whole test x training kernel matrix. Parameters: kernelCalculator:
+     * kernel over the training samples testData: the test samples
+     */
+    public LocalNoveltyScorer(final ExecutionMonitor executionMonitor,
+            final KernelCalculator kernelCalculator, final double[][] testData,
+            final KernelMatrix trainingKernelMatrix, final String[] labels,
+            final int numNeighbors, final boolean normalize) {
+        m_exec = executionMonitor;
+        m_globalKernelMatrix = null;
+        m_kernelCalculator = kernelCalculator;
+        m_testData = testData;
+        m_trainingKernelMatrix = trainingKernelMatrix;
+        m_labels = labels;
+        m_numNeighbors = numNeighbors;
+        m_normalize = normalize;
+    }
+
+    /*
+     * Sets the number of chunks of test samples that are scored at the same
+     * time. The scores do not depend on it. Parameters: parallelism: number
+     * of chunks, 1 scores in the calling thread
+     */
+    public void setParallelism(final int parallelism) {
+        m_parallelism = Math.max(1, parallelism);
+    }
+
+    /*
+     * Sets a cache that shares local models between test samples with the
+     * same neighbors. Parameters: modelCache: the cache or null to learn a
+     * model for every test sample
+     */
+    public void setModelCache(final LocalModelCache modelCache) {
+        m_modelCache = modelCache;
+    }
 
-        final ThreadPool pool = KNIMEConstants.GLOBAL_THREAD_POOL;
-        final int procCount =
-                (int) (Runtime.getRuntime().availableProcessors() * (2.0 / 3));
-        final Semaphore semaphore = new Semaphore(procCount);
-
-        final int numTestSamples = m_globalKernelMatrix.getColumnDimension();
-        final NoveltyScoreCalculationCallable[] nct =
-                new NoveltyScoreCalculationCallable[numTestSamples];
-        for (int i = 0; i < numTestSamples; i++) {
-            nct[i] = new NoveltyScoreCalculationCallable(i, semaphore,
-                    m_numNeighbors, m_trainingKernelMatrix,
-                    m_globalKernelMatrix, m_labels, m_normalize);
+    /*
+     * Sets a KD-tree over the training samples that finds the nearest
+     * neighbors of the test samples for the RBF kernel, whose kernel values
+     * decrease with the Euclidean distance. Only the kernel values with the
+     * neighbors are calculated then instead of whole kernel rows. Test
+     * samples whose kernel values with several training samples are rounded
+     * to the same value may get different neighbors among these than with
+     * the full scan, e.g. if the values underflow to 0. Parameters:
+     * neighborIndex: tree over the training data of the kernel calculator
+     * or null to scan all training samples
+     */
+    public void setNeighborIndex(final KDTree neighborIndex) {
+        if (neighborIndex != null && (m_kernelCalculator == null
+                || !(m_kernelCalculator
+                        .getKernelFunction() instanceof RBFKernel))) {
+            throw new IllegalArgumentException(
+                    "A neighbor index can only be used with the RBF kernel "
+                            + "on test data.");
         }
-        final Future<?>[] scores = new Future<?>[numTestSamples];
-        final KNIMETimer timer = KNIMETimer.getInstance();
-        final TimerTask timerTask = new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    m_exec.checkCanceled();
-                } catch (final CanceledExecutionException ce) {
-                    for (int i = 0; i < scores.length; i++) {
-                        if (scores[i] != null) {
-                            scores[i].cancel(true);
+        m_neighborIndex = neighborIndex;
+    }
+
+    public double[] calculateNoveltyScores() throws Exception {
+        final int numTestSamples = m_globalKernelMatrix != null
+                ? m_globalKernelMatrix.getRowDimension() : m_testData.length;
+        final double[] result = new double[numTestSamples];
+        ParallelChunks.forEach(numTestSamples, SCORE_CHUNK_SIZE, m_parallelism,
+                new ParallelChunks.ChunkWorkerFactory() {
+                    @Override
+                    public ParallelChunks.ChunkWorker createWorker() {
+                        if (m_globalKernelMatrix != null) {
+                            return new MatrixChunkWorker(result);
                         }
+                        return m_neighborIndex != null
+                                ? new IndexedChunkWorker(result)
+                                : new OnTheFlyChunkWorker(result);
                     }
-                    super.cancel();
-                }
+                }, m_exec, "Local novelty scores calculated");
+        return result;
+    }
 
-            }
-        };
-        timer.scheduleAtFixedRate(timerTask, 0, 3000);
-        double progCounter = 0;
-        for (int i = 0; i < numTestSamples; i++) {
-            try {
-                m_exec.checkCanceled();
-            } catch (final Exception e) {
-                for (int j = 0; j < i; j++) {
-                    if (scores[j] != null) {
-                        scores[j].cancel(true);
-                    }
-                }
-                timerTask.cancel();
-                throw e;
-            }
-            semaphore.acquire();
-            scores[i] = pool.enqueue(nct[i]);
-            m_exec.setProgress(progCounter / (2 * numTestSamples),
-                    "Local novelty score calculation started (" + i + "/"
-                            + numTestSamples + ")");
-            progCounter += 1;
-        }
-        final double[] result = new double[numTestSamples];
+    /*
+     * Scores chunks of test samples with the rows of the global kernel matrix
+     */
+    private final class MatrixChunkWorker
+            implements ParallelChunks.ChunkWorker {
+        private final double[] m_result;
+        private final NoveltyScoreWorker m_worker;
 
-        for (int i = 0; i < numTestSamples; i++) {
-            semaphore.acquire();
-            try {
-                m_exec.checkCanceled();
-                result[i] = (Double) scores[i].get();
-                nct[i].ok();
-            } catch (final Exception e) {
-                for (int j = 0; j < scores.length; j++) {
-                    scores[j].cancel(true);
-                }
-                timerTask.cancel();
-                throw e;
+        MatrixChunkWorker(final double[] result) {
+            m_result = result;
+            m_worker = new NoveltyScoreWorker(m_numNeighbors,
+                    m_trainingKernelMatrix, m_labels, m_normalize,
+                    m_modelCache);
+        }
 
-            }
-            m_exec.setProgress(progCounter / (2 * numTestSamples),
-                    "Local novelty score calculated (" + i + "/"
-                            + numTestSamples + ")");
-            progCounter += 1;
-            semaphore.release();
+        @Override
+        public void compute(final int start, final int end) throws Exception {
+            m_worker.score(m_globalKernelMatrix, start, end, m_result, start);
         }
+    }
 
-        timerTask.cancel();
+    /*
+     * Scores chunks of test samples whose kernel rows are calculated into a
+     * buffer of the worker
+     */
+    private final class OnTheFlyChunkWorker
+            implements ParallelChunks.ChunkWorker {
+        private final double[] m_result;
+        private final NoveltyScoreWorker m_worker;
+        private final double[][] m_kernelRows;
+        private final KernelMatrix m_chunkKernelMatrix;
 
-        return result;
+        OnTheFlyChunkWorker(final double[] result) {
+            m_result = result;
+            m_worker = new NoveltyScoreWorker(m_numNeighbors,
+                    m_trainingKernelMatrix, m_labels, m_normalize,
+                    m_modelCache);
+            m_kernelRows = new double[SCORE_CHUNK_SIZE][m_kernelCalculator
+                    .getNumTrainingSamples()];
+            m_chunkKernelMatrix = KernelMatrix.wrap(m_kernelRows);
+        }
+
+        @Override
+        public void compute(final int start, final int end) throws Exception {
+            m_kernelCalculator.kernelizeBlock(m_testData, start, end,
+                    m_kernelRows);
+            m_worker.score(m_chunkKernelMatrix, 0, end - start, m_result,
+                    start);
+        }
     }
 
+    /*
+     * Scores chunks of test samples whose neighbors are found with the
+     * neighbor index, only the kernel values with the neighbors are
+     * calculated
+     */
+    private final class IndexedChunkWorker
+            implements ParallelChunks.ChunkWorker {
+        private final double[] m_result;
+        private final NoveltyScoreWorker m_worker;
+        private final KDTree.Query m_query;
+        private final int[] m_neighbors;
+        private final double[] m_localKernelValues;
+
+        IndexedChunkWorker(final double[] result) {
+            m_result = result;
+            m_worker = new NoveltyScoreWorker(m_numNeighbors,
+                    m_trainingKernelMatrix, m_labels, m_normalize,
+                    m_modelCache);
+            m_query = m_neighborIndex.createQuery(m_numNeighbors);
+            m_neighbors = new int[m_numNeighbors];
+            m_localKernelValues = new double[m_numNeighbors];
+        }
+
+        @Override
+        public void compute(final int start, final int end) throws Exception {
+            final KernelFunction kernelFunction =
+                    m_kernelCalculator.getKernelFunction();
+            final double[][] trainingData =
+                    m_kernelCalculator.getTrainingData();
+            for (int index = start; index < end; index++) {
+                final double[] testSample = m_testData[index];
+                m_query.nearest(testSample, m_neighbors);
+                for (int i = 0; i < m_numNeighbors; i++) {
+                    m_localKernelValues[i] = kernelFunction.calculate(
+                            trainingData[m_neighbors[i]], testSample);
+                }
+                m_result[index] =
+                        m_worker.score(m_neighbors, m_localKernelValues);
+            }
+        }
+    }
 }
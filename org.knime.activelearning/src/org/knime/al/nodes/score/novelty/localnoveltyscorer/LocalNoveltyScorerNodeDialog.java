@@ -50,10 +50,14 @@
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
+import org.knime.al.nodes.score.novelty.KernelCacheSettings;
 import org.knime.al.util.noveltydetection.kernel.KernelCalculator.KernelType;
+import org.knime.al.util.noveltydetection.kernel.KernelMatrix.Precision;
 import org.knime.core.data.DoubleValue;
 import org.knime.core.data.StringValue;
+import org.knime.core.data.vector.bitvector.BitVectorValue;
 import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponent;
 import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
 import org.knime.core.node.defaultnodesettings.DialogComponentColumnFilter;
 import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
@@ -61,6 +65,7 @@
 import org.knime.core.node.defaultnodesettings.DialogComponentNumberEdit;
 import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
 import org.knime.core.node.defaultnodesettings.SettingsModelDouble;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 
 public class LocalNoveltyScorerNodeDialog extends DefaultNodeSettingsPane {
@@ -73,7 +78,7 @@ public LocalNoveltyScorerNodeDialog() {
 
         addDialogComponent(new DialogComponentColumnFilter(
                 LocalNoveltyScorerNodeModel.createColumnSelectionModel(), 0,
-                true, DoubleValue.class));
+                true, DoubleValue.class, BitVectorValue.class));
 
         addDialogComponent(new DialogComponentColumnNameSelection(
                 LocalNoveltyScorerNodeModel.createClassColumnSelectionModel(),
@@ -146,5 +151,46 @@ public void stateChanged(final ChangeEvent e) {
         addDialogComponent(new DialogComponentBoolean(
                 LocalNoveltyScorerNodeModel.createSortTableModel(),
                 "Sort Training Table (only select if not already sorted by class)"));
+
+        addDialogComponent(new DialogComponentNumber(
+                LocalNoveltyScorerNodeModel.createModelCacheSizeModel(),
+                "Cached local models (0 = no cache)", 256));
+
+        addDialogComponent(new DialogComponentBoolean(
+                LocalNoveltyScorerNodeModel.createNeighborIndexModel(),
+                "Find neighbors with a KD-tree (RBF kernel only)"));
+
+        final SettingsModelString kernelPrecision =
+                LocalNoveltyScorerNodeModel.createKernelPrecisionModel();
+        final SettingsModelIntegerBounded mapThreshold =
+                LocalNoveltyScorerNodeModel.createMapThresholdModel();
+        kernelPrecision.addChangeListener(new ChangeListener() {
+
+            @Override
+            public void stateChanged(final ChangeEvent e) {
+                mapThreshold.setEnabled(Precision.valueOf(
+                        kernelPrecision.getStringValue()) == Precision.Float);
+            }
+        });
+
+        final Precision[] precisions = Precision.values();
+        final String[] precisionNames = new String[precisions.length];
+        for (int i = 0; i < precisions.length; i++) {
+            precisionNames[i] = precisions[i].toString();
+        }
+
+        createNewGroup("Kernel matrices");
+        addDialogComponent(new DialogComponentStringSelection(kernelPrecision,
+                "Precision", precisionNames));
+        addDialogComponent(new DialogComponentNumber(mapThreshold,
+                "Memory-map matrices larger than (MB): ", 256));
+        closeCurrentGroup();
+
+        createNewGroup("Kernel cache");
+        for (final DialogComponent component : KernelCacheSettings
+                .createDialogComponents()) {
+            addDialogComponent(component);
+        }
+        closeCurrentGroup();
     }
 }
@@ -46,18 +46,25 @@
  */
 package org.knime.al.nodes.score.novelty.localnoveltyscorer;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.util.Comparator;
 import java.util.List;
 
-import org.apache.commons.math3.linear.RealMatrix;
+import org.knime.al.nodes.score.novelty.KernelCacheSettings;
+import org.knime.al.util.NodeUtils;
 import org.knime.al.util.noveltydetection.kernel.EXPHIKKernel;
 import org.knime.al.util.noveltydetection.kernel.HIKKernel;
+import org.knime.al.util.noveltydetection.kernel.KDTree;
 import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
 import org.knime.al.util.noveltydetection.kernel.KernelCalculator.KernelType;
 import org.knime.al.util.noveltydetection.kernel.KernelFunction;
+import org.knime.al.util.noveltydetection.kernel.KernelMatrix;
+import org.knime.al.util.noveltydetection.kernel.KernelMatrix.Precision;
 import org.knime.al.util.noveltydetection.kernel.PolynomialKernel;
 import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.kernel.TanimotoKernel;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
@@ -66,16 +73,17 @@
 import org.knime.core.data.DoubleValue;
 import org.knime.core.data.NominalValue;
 import org.knime.core.data.StringValue;
-import org.knime.core.data.container.ColumnRearranger;
-import org.knime.core.data.container.SingleCellFactory;
+import org.knime.core.data.append.AppendedColumnRow;
 import org.knime.core.data.def.DoubleCell;
 import org.knime.core.data.def.StringCell;
 import org.knime.core.data.sort.BufferedDataTableSorter;
+import org.knime.core.data.vector.bitvector.BitVectorValue;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.BufferedDataTableHolder;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
@@ -85,6 +93,18 @@
 import org.knime.core.node.defaultnodesettings.SettingsModelInteger;
 import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.streamable.BufferedDataTableRowOutput;
+import org.knime.core.node.streamable.DataTableRowInput;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.OutputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortObjectInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
 
 /**
  * Crop BitMasks or parts of images according to a Labeling
@@ -104,6 +124,21 @@ public class LocalNoveltyScorerNodeModel extends NodeModel
     static final double DEFAULT_GAMMA = 1.0;
     static final double DEFAULT_BIAS = 2.0;
     static final double DEFAULT_POWER = 3.0;
+    static final String DEFAULT_KERNEL_PRECISION = Precision.Double.toString();
+    static final int DEFAULT_MAP_THRESHOLD = 1024;
+    static final int DEFAULT_MODEL_CACHE_SIZE = 1024;
+    static final boolean DEFAULT_NEIGHBOR_INDEX = true;
+
+    // number of test rows that are read and scored together
+    private static final int TEST_CHUNK_SIZE = 1024;
+
+    static final String CFG_KEY_KERNEL_PRECISION = "kernelPrecision";
+    static final String CFG_KEY_MAP_THRESHOLD = "mapThreshold";
+    static final String CFG_KEY_MODEL_CACHE_SIZE = "localModelCacheSize";
+    static final String CFG_KEY_NEIGHBOR_INDEX = "rbfNeighborIndex";
+
+    private static final NodeLogger LOGGER =
+            NodeLogger.getLogger(LocalNoveltyScorerNodeModel.class);
 
     /**
      * Helper
@@ -167,6 +202,32 @@ static SettingsModelDouble createPolynomialPower() {
         return sm;
     }
 
+    static SettingsModelString createKernelPrecisionModel() {
+        return new SettingsModelString(CFG_KEY_KERNEL_PRECISION,
+                DEFAULT_KERNEL_PRECISION);
+    }
+
+    // in MB
+    static SettingsModelIntegerBounded createMapThresholdModel() {
+        final SettingsModelIntegerBounded sm = new SettingsModelIntegerBounded(
+                CFG_KEY_MAP_THRESHOLD, DEFAULT_MAP_THRESHOLD, 0,
+                Integer.MAX_VALUE);
+        sm.setEnabled(false);
+        return sm;
+    }
+
+    // number of cached local models, 0 disables the cache
+    static SettingsModelIntegerBounded createModelCacheSizeModel() {
+        return new SettingsModelIntegerBounded(CFG_KEY_MODEL_CACHE_SIZE,
+                DEFAULT_MODEL_CACHE_SIZE, 0, Integer.MAX_VALUE);
+    }
+
+    // only used with the RBF kernel
+    static SettingsModelBoolean createNeighborIndexModel() {
+        return new SettingsModelBoolean(CFG_KEY_NEIGHBOR_INDEX,
+                DEFAULT_NEIGHBOR_INDEX);
+    }
+
     /* SettingsModels */
     private final SettingsModelInteger m_numberOfNeighbors =
             createNumberOfNeighborsModel();
@@ -182,6 +243,16 @@ static SettingsModelDouble createPolynomialPower() {
     private final SettingsModelDouble m_gamma = createPolynomialGammaModel();
     private final SettingsModelDouble m_bias = createPolynomialBiasModel();
     private final SettingsModelDouble m_power = createPolynomialPower();
+    private final SettingsModelString m_kernelPrecision =
+            createKernelPrecisionModel();
+    private final SettingsModelIntegerBounded m_mapThreshold =
+            createMapThresholdModel();
+    private final SettingsModelIntegerBounded m_modelCacheSize =
+            createModelCacheSizeModel();
+    private final SettingsModelBoolean m_neighborIndex =
+            createNeighborIndexModel();
+    private final KernelCacheSettings m_kernelCache =
+            new KernelCacheSettings();
 
     /* Resulting BufferedDataTable */
     private BufferedDataTable m_data;
@@ -225,9 +296,17 @@ protected DataTableSpec[] configure(final DataTableSpec[] inSpecs)
         // test table
         // Also check compatibility of selected columns
 
+        // the Tanimoto kernel works on bit vectors, all others on numbers
+        final boolean bitVectors = KernelType.valueOf(m_kernelFunction
+                .getStringValue()) == KernelType.Tanimoto;
         final List<String> includedCols = m_columnSelection.getIncludeList();
         for (final String col : includedCols) {
-            if (!trainingTableSpec.getColumnSpec(col).getType()
+            if (bitVectors && !trainingTableSpec.getColumnSpec(col).getType()
+                    .isCompatible(BitVectorValue.class)) {
+                throw new InvalidSettingsException(
+                        "Selected columns must be compatible with BitVectorValue for the Tanimoto kernel!");
+            }
+            if (!bitVectors && !trainingTableSpec.getColumnSpec(col).getType()
                     .isCompatible(DoubleValue.class)) {
                 throw new InvalidSettingsException(
                         "Selected columns must be compatible with DoubleValue!");
@@ -254,17 +333,166 @@ private DataTableSpec[] createOutSpec(final DataTableSpec inTableSpec) {
      * {@inheritDoc}
      */
     @Override
-    @SuppressWarnings({})
     protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
             final ExecutionContext exec) throws Exception {
+        if (inData[1].size() == 0) {
+            throw new InvalidSettingsException(
+                    "One of the input tables is empty");
+        }
+        final BufferedDataTableRowOutput output =
+                new BufferedDataTableRowOutput(exec.createDataContainer(
+                        createOutSpec(inData[1].getDataTableSpec())[0]));
+        score(inData[0], new DataTableRowInput(inData[1]), output,
+                inData[1].size(), exec);
+        m_data = output.getDataTable();
+        return new BufferedDataTable[] { m_data };
+    }
 
-        BufferedDataTable trainingIn = inData[0];
-        final BufferedDataTable testIn = inData[1];
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputPortRole[] getInputPortRoles() {
+        // the training table is needed as a whole for the local models, the
+        // test rows are streamed through a single operator so that the
+        // training side is only prepared once, the chunks of test rows are
+        // scored in parallel
+        return new InputPortRole[] { InputPortRole.NONDISTRIBUTED_NONSTREAMABLE,
+                InputPortRole.NONDISTRIBUTED_STREAMABLE };
+    }
 
-        final long longTrainingSize = trainingIn.size();
-        final long longTestSize = testIn.size();
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OutputPortRole[] getOutputPortRoles() {
+        return new OutputPortRole[] { OutputPortRole.NONDISTRIBUTED };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamableOperator createStreamableOperator(
+            final PartitionInfo partitionInfo,
+            final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+        return new StreamableOperator() {
+
+            @Override
+            public void runFinal(final PortInput[] inputs,
+                    final PortOutput[] outputs, final ExecutionContext exec)
+                    throws Exception {
+                final BufferedDataTable trainingIn =
+                        (BufferedDataTable) ((PortObjectInput) inputs[0])
+                                .getPortObject();
+                score(trainingIn, (RowInput) inputs[1],
+                        (RowOutput) outputs[0], -1, exec);
+            }
+        };
+    }
+
+    /*
+     * Prepares the training data once and scores the test rows in chunks of
+     * TEST_CHUNK_SIZE rows, which are appended to the output in their
+     * original order. Parameters: testSize: number of test rows or -1 if
+     * unknown
+     */
+    private void score(final BufferedDataTable trainingIn,
+            final RowInput testIn, final RowOutput output,
+            final long testSize, final ExecutionContext exec)
+            throws Exception {
+        final ExecutionMonitor scoreProgMon = exec.createSubProgress(0.7);
+        try (PreparedTraining training =
+                prepare(trainingIn, exec.createSubExecutionContext(0.3))) {
+            final DataTableSpec testSpec = testIn.getDataTableSpec();
+            // the same order of the features as for the training samples
+            final int[] testColumnIndices = KernelCalculator.featureIndices(
+                    testSpec, m_columnSelection.getIncludeList());
+
+            final DataRow[] chunk = new DataRow[TEST_CHUNK_SIZE];
+            long scored = 0;
+            int count = 0;
+            DataRow row;
+            while ((row = testIn.poll()) != null) {
+                chunk[count++] = row;
+                if (count == TEST_CHUNK_SIZE) {
+                    scored += scoreChunk(training, chunk, count,
+                            testColumnIndices, output, scoreProgMon);
+                    count = 0;
+                    reportProgress(scoreProgMon, scored, testSize);
+                }
+            }
+            if (count > 0) {
+                scored += scoreChunk(training, chunk, count,
+                        testColumnIndices, output, scoreProgMon);
+                reportProgress(scoreProgMon, scored, testSize);
+            }
 
-        if (longTrainingSize == 0 || longTestSize == 0) {
+            final LocalModelCache modelCache = training.m_modelCache;
+            if (modelCache != null) {
+                final long requests = Math.max(1, modelCache.getRequests());
+                LOGGER.info(String.format(
+                        "Local model cache: %d of %d local models reused "
+                                + "(hit rate %.1f%%).",
+                        modelCache.getHits(), modelCache.getRequests(),
+                        100.0 * modelCache.getHits() / requests));
+            }
+        } finally {
+            testIn.close();
+        }
+        output.close();
+    }
+
+    private int scoreChunk(final PreparedTraining training,
+            final DataRow[] chunk, final int count,
+            final int[] testColumnIndices, final RowOutput output,
+            final ExecutionMonitor exec) throws Exception {
+        exec.checkCanceled();
+        final double[][] testData = new double[count][];
+        for (int i = 0; i < count; i++) {
+            testData[i] =
+                    KernelCalculator.readDataRow(chunk[i], testColumnIndices);
+        }
+
+        // progress is reported per chunk of test rows, the monitor of the
+        // scorer is only used for cancellation
+        final LocalNoveltyScorer localNoveltyScorer = new LocalNoveltyScorer(
+                exec.createSubProgress(0.0), training.m_kernelCalculator,
+                testData,
+                training.m_trainingKernelMatrix, training.m_labels,
+                training.m_numberOfNeighbors, m_normalize.getBooleanValue());
+        localNoveltyScorer.setModelCache(training.m_modelCache);
+        localNoveltyScorer.setNeighborIndex(training.m_neighborIndex);
+        final double[] noveltyScores =
+                localNoveltyScorer.calculateNoveltyScores();
+
+        for (int i = 0; i < count; i++) {
+            output.push(new AppendedColumnRow(chunk[i],
+                    new DoubleCell(noveltyScores[i])));
+            chunk[i] = null;
+        }
+        return count;
+    }
+
+    private static void reportProgress(final ExecutionMonitor exec,
+            final long scored, final long testSize) {
+        if (testSize > 0) {
+            exec.setProgress(((double) scored) / testSize,
+                    "Scored " + scored + " rows");
+        } else {
+            exec.setMessage("Scored " + scored + " rows");
+        }
+    }
+
+    /*
+     * Reads and sorts the training data and calculates the training kernel
+     * matrix, which are shared by all test rows.
+     */
+    private PreparedTraining prepare(final BufferedDataTable trainingTable,
+            final ExecutionContext exec) throws Exception {
+        BufferedDataTable trainingIn = trainingTable;
+        final long longTrainingSize = trainingIn.size();
+        if (longTrainingSize == 0) {
             throw new InvalidSettingsException(
                     "One of the input tables is empty");
         } else if (longTrainingSize > Integer.MAX_VALUE) {
@@ -274,27 +502,21 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
 
         final int trainingSize = (int) longTrainingSize;
 
-        final ColumnRearranger trainingRearranger =
-                new ColumnRearranger(trainingIn.getDataTableSpec());
-        final ColumnRearranger testRearranger =
-                new ColumnRearranger(testIn.getDataTableSpec());
-        final List<String> includedCols = m_columnSelection.getIncludeList();
+        // the features of the training and the test samples are read in the
+        // order of the include list
+        final int[] trainingColumnIndices = KernelCalculator.featureIndices(
+                trainingIn.getDataTableSpec(),
+                m_columnSelection.getIncludeList());
         int numberOfNeighbors = m_numberOfNeighbors.getIntValue();
         final int classColIdx = trainingIn.getDataTableSpec()
                 .findColumnIndex(m_classColumn.getStringValue());
 
-        ExecutionMonitor calcProgMon = null;
-        ExecutionMonitor globalKernelProgMon = exec.createSubProgress(0.2);
-        ExecutionMonitor trainingKernelProgMon = exec.createSubProgress(0.2);
-        final ExecutionContext appendNoveltyExec =
-                exec.createSubExecutionContext(0.1);
+        ExecutionMonitor trainingKernelProgMon = exec.createSubProgress(0.9);
 
         if (m_sortTable.getBooleanValue()) {
             final ExecutionContext sortExec =
-                    exec.createSubExecutionContext(0.1);
-            calcProgMon = exec.createSubProgress(0.4);
-            globalKernelProgMon = exec.createSubProgress(0.2);
-            trainingKernelProgMon = exec.createSubProgress(0.2);
+                    exec.createSubExecutionContext(0.3);
+            trainingKernelProgMon = exec.createSubProgress(0.6);
             final BufferedDataTableSorter sorter = new BufferedDataTableSorter(
                     trainingIn, new Comparator<DataRow>() {
 
@@ -313,29 +535,19 @@ public int compare(final DataRow arg0,
                     });
             trainingIn = sorter.sort(sortExec);
             sortExec.setProgress(1.0);
-        } else {
-            calcProgMon = exec.createSubProgress(0.5);
         }
 
         if (numberOfNeighbors > trainingSize) {
             numberOfNeighbors = trainingSize;
         }
 
-        trainingRearranger.keepOnly(
-                includedCols.toArray(new String[includedCols.size()]));
-        testRearranger.keepOnly(
-                includedCols.toArray(new String[includedCols.size()]));
-
-        final double[][] trainingData = KernelCalculator.readBufferedDataTable(
-                exec.createColumnRearrangeTable(trainingIn, trainingRearranger,
-                        exec));
-        final double[][] testData = KernelCalculator.readBufferedDataTable(
-                exec.createColumnRearrangeTable(testIn, testRearranger, exec));
-
-        // Get labels for training Data
+        // Get features and labels for training Data
+        final double[][] trainingData = new double[trainingSize][];
         final String[] labels = new String[trainingSize];
         int l = 0;
         for (final DataRow row : trainingIn) {
+            trainingData[l] =
+                    KernelCalculator.readDataRow(row, trainingColumnIndices);
             final DataCell classCell = row.getCell(classColIdx);
             if (classCell.isMissing()) {
                 throw new IllegalArgumentException(
@@ -367,6 +579,9 @@ public int compare(final DataRow arg0,
             kernelFunction = new PolynomialKernel(m_gamma.getDoubleValue(),
                     m_bias.getDoubleValue(), m_power.getDoubleValue());
             break;
+        case Tanimoto:
+            kernelFunction = new TanimotoKernel();
+            break;
         default:
             kernelFunction = new RBFKernel(m_sigma.getDoubleValue());
         }
@@ -376,64 +591,63 @@ public int compare(final DataRow arg0,
         // Create KernelCalculator
         final KernelCalculator kernelCalculator =
                 new KernelCalculator(trainingData, kernelFunction);
+        kernelCalculator.setCache(m_kernelCache.getCache());
 
         exec.checkCanceled();
 
-        // Get global KernelMatrix
-        final RealMatrix globalKernelMatrix = kernelCalculator
-                .kernelize(trainingData, testData, globalKernelProgMon);
-        globalKernelProgMon.setProgress(1.0);
-
-        exec.checkCanceled();
-
-        // Get training KernelMatrix
-        final RealMatrix trainingKernelMatrix = kernelCalculator
-                .kernelize(trainingData, trainingData, trainingKernelProgMon);
+        // the kernel values of the test samples are calculated chunk by
+        // chunk while scoring, only the training kernel matrix is stored
+        final Precision precision =
+                Precision.valueOf(m_kernelPrecision.getStringValue());
+        final long mapThreshold = m_mapThreshold.getIntValue() * 1024L * 1024L;
+        final KernelMatrix trainingKernelMatrix =
+                kernelCalculator.calculateKernelMatrix(trainingData,
+                        trainingData, precision, mapThreshold,
+                        trainingKernelProgMon);
         trainingKernelProgMon.setProgress(1.0);
 
-        exec.checkCanceled();
-
-        // Keep thread approach for possible use later
-        // ThreadController threadController = new ThreadController(exec,
-        // globalKernelMatrix, trainingKernelMatrix, labels, numberOfNeighbors,
-        // m_normalize.getBooleanValue());
-        // double[] noveltyScores = threadController.process();
-
-        final LocalNoveltyScorer localNoveltyScorer = new LocalNoveltyScorer(
-                calcProgMon, globalKernelMatrix, trainingKernelMatrix, labels,
-                numberOfNeighbors, m_normalize.getBooleanValue());
-        final double[] noveltyScores =
-                localNoveltyScorer.calculateNoveltyScores();
-        exec.checkCanceled();
-
-        final ColumnRearranger appendNoveltyRearranger =
-                new ColumnRearranger(testIn.getDataTableSpec());
-        appendNoveltyRearranger.append(new appendNoveltyScoreCellFactory(
-                new DataColumnSpecCreator("Novelty Score", DoubleCell.TYPE)
-                        .createSpec(),
-                noveltyScores));
-        m_data = exec.createColumnRearrangeTable(testIn,
-                appendNoveltyRearranger, appendNoveltyExec);
-
-        return new BufferedDataTable[] { m_data };
+        final int modelCacheSize = m_modelCacheSize.getIntValue();
+        final LocalModelCache modelCache = modelCacheSize > 0
+                ? new LocalModelCache(modelCacheSize) : null;
+
+        // the k largest RBF kernel values belong to the k nearest training
+        // samples, so they can be found without calculating whole kernel
+        // rows
+        final KDTree neighborIndex =
+                kernelFunction instanceof RBFKernel
+                        && m_neighborIndex.getBooleanValue()
+                                ? new KDTree(trainingData) : null;
+        return new PreparedTraining(kernelCalculator, trainingKernelMatrix,
+                labels, numberOfNeighbors, modelCache, neighborIndex);
     }
 
-    private class appendNoveltyScoreCellFactory extends SingleCellFactory {
-
-        private final double[] m_noveltyScores;
-        private int m_index;
-
-        public appendNoveltyScoreCellFactory(final DataColumnSpec newColSpec,
-                final double[] noveltyScores) {
-            super(newColSpec);
-            m_noveltyScores = noveltyScores;
-            m_index = 0;
-            this.setParallelProcessing(false);
+    /*
+     * Training side of the local novelty scores, shared by all chunks of
+     * test rows
+     */
+    private static final class PreparedTraining implements Closeable {
+        private final KernelCalculator m_kernelCalculator;
+        private final KernelMatrix m_trainingKernelMatrix;
+        private final String[] m_labels;
+        private final int m_numberOfNeighbors;
+        private final LocalModelCache m_modelCache;
+        private final KDTree m_neighborIndex;
+
+        PreparedTraining(final KernelCalculator kernelCalculator,
+                final KernelMatrix trainingKernelMatrix, final String[] labels,
+                final int numberOfNeighbors, final LocalModelCache modelCache,
+                final KDTree neighborIndex) {
+            m_kernelCalculator = kernelCalculator;
+            m_trainingKernelMatrix = trainingKernelMatrix;
+            m_labels = labels;
+            m_numberOfNeighbors = numberOfNeighbors;
+            m_modelCache = modelCache;
+            m_neighborIndex = neighborIndex;
         }
 
         @Override
-        public DataCell getCell(final DataRow row) {
-            return new DoubleCell(m_noveltyScores[m_index++]);
+        public void close() throws IOException {
+            m_trainingKernelMatrix.close();
         }
     }
 
@@ -470,6 +684,21 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
         m_bias.loadSettingsFrom(settings);
         m_power.loadSettingsFrom(settings);
         m_normalize.loadSettingsFrom(settings);
+        NodeUtils.loadOptionalSettings(settings,
+                CFG_KEY_KERNEL_PRECISION, m_kernelPrecision);
+        NodeUtils.loadOptionalSettings(settings,
+                CFG_KEY_MAP_THRESHOLD, m_mapThreshold);
+        // workflows created before the model cache calculate every local
+        // model, new nodes use DEFAULT_MODEL_CACHE_SIZE
+        m_modelCacheSize.setIntValue(0);
+        NodeUtils.loadOptionalSettings(settings,
+                CFG_KEY_MODEL_CACHE_SIZE, m_modelCacheSize);
+        // workflows created before the neighbor index calculate whole kernel
+        // rows, new nodes use DEFAULT_NEIGHBOR_INDEX
+        m_neighborIndex.setBooleanValue(false);
+        NodeUtils.loadOptionalSettings(settings,
+                CFG_KEY_NEIGHBOR_INDEX, m_neighborIndex);
+        m_kernelCache.loadSettingsFrom(settings);
     }
 
     /**
@@ -504,6 +733,11 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
         m_bias.saveSettingsTo(settings);
         m_power.saveSettingsTo(settings);
         m_normalize.saveSettingsTo(settings);
+        m_kernelPrecision.saveSettingsTo(settings);
+        m_mapThreshold.saveSettingsTo(settings);
+        m_modelCacheSize.saveSettingsTo(settings);
+        m_neighborIndex.saveSettingsTo(settings);
+        m_kernelCache.saveSettingsTo(settings);
     }
 
     /**
@@ -530,5 +764,14 @@ protected void validateSettings(final NodeSettingsRO settings)
         m_bias.validateSettings(settings);
         m_power.validateSettings(settings);
         m_normalize.validateSettings(settings);
+        NodeUtils.validateOptionalSettings(settings,
+                CFG_KEY_KERNEL_PRECISION, m_kernelPrecision);
+        NodeUtils.validateOptionalSettings(settings,
+                CFG_KEY_MAP_THRESHOLD, m_mapThreshold);
+        NodeUtils.validateOptionalSettings(settings,
+                CFG_KEY_MODEL_CACHE_SIZE, m_modelCacheSize);
+        NodeUtils.validateOptionalSettings(settings,
+                CFG_KEY_NEIGHBOR_INDEX, m_neighborIndex);
+        m_kernelCache.validateSettings(settings);
     }
 }
@@ -0,0 +1,169 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.nodes.score.novelty.localnoveltyscorer;
+
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.knime.al.util.noveltydetection.kernel.KernelMatrix;
+import org.knime.al.util.noveltydetection.knfst.KNFST;
+import org.knime.al.util.noveltydetection.knfst.MultiClassKNFST;
+import org.knime.al.util.noveltydetection.knfst.OneClassKNFST;
+
+/*
+ * Calculates local novelty scores of test samples. The buffers for the kernel
+ * values and the neighbors are allocated once and reused for all test
+ * samples, so a worker must only be used by a single thread at a time.
+ */
+public class NoveltyScoreWorker {
+
+    private final int m_numNeighbors;
+    private final KernelMatrix m_trainingKernelMatrix;
+    private final String[] m_labels;
+    private final boolean m_normalize;
+    private final LocalModelCache m_modelCache;
+
+    private final double[] m_globalKernelValues;
+    private final int[] m_neighbors;
+    private final String[] m_localLabels;
+    private final double[] m_localKernelValues;
+
+    /*
+     * Parameters: modelCache: cache of the local models, may be null
+     */
+    public NoveltyScoreWorker(final int numNeighbors,
+            final KernelMatrix trainingKernelMatrix, final String[] labels,
+            final boolean normalize, final LocalModelCache modelCache) {
+        m_numNeighbors = numNeighbors;
+        m_trainingKernelMatrix = trainingKernelMatrix;
+        m_labels = labels;
+        m_normalize = normalize;
+        m_modelCache = modelCache;
+
+        m_globalKernelValues =
+                new double[trainingKernelMatrix.getColumnDimension()];
+        m_neighbors = new int[numNeighbors];
+        m_localLabels = new String[numNeighbors];
+        m_localKernelValues = new double[numNeighbors];
+    }
+
+    /*
+     * Scores the test samples whose kernel values with the training samples
+     * are in the rows start (inclusive) to end (exclusive) of the global
+     * kernel matrix. Parameters: scores: receives the score of row i at
+     * scores[offset + i - start]
+     */
+    public void score(final KernelMatrix globalKernelMatrix, final int start,
+            final int end, final double[] scores, final int offset)
+            throws Exception {
+        for (int index = start; index < end; index++) {
+            // the rows of the global kernel matrix are the test samples
+            globalKernelMatrix.getRow(index, m_globalKernelValues);
+
+            // nearest neighbors in kernel feature space, sorted by index
+            // NOTE: Since the instances are ordered by class in the original
+            // table sorting by indices is equivalent to sorting by class
+            ValueIndexPair.getKLargestIndices(m_globalKernelValues,
+                    m_numNeighbors, m_neighbors);
+            for (int i = 0; i < m_numNeighbors; i++) {
+                m_localKernelValues[i] = m_globalKernelValues[m_neighbors[i]];
+            }
+
+            scores[offset + index - start] =
+                    score(m_neighbors, m_localKernelValues);
+        }
+    }
+
+    /*
+     * Scores a single test sample whose nearest neighbors are already known.
+     * Parameters: neighbors: indices of the numNeighbors nearest training
+     * samples in ascending order localKernelValues: kernel values of the
+     * test sample with these neighbors
+     */
+    public double score(final int[] neighbors,
+            final double[] localKernelValues) throws Exception {
+        // get local labels and check for one class setting
+        boolean oneClass = true;
+        final String[] localLabels = m_localLabels;
+        final String currentLabel = m_labels[neighbors[0]];
+        for (int i = 0; i < localLabels.length; i++) {
+            final String label = m_labels[neighbors[i]];
+            if (!currentLabel.equals(label)) {
+                oneClass = false;
+            }
+            localLabels[i] = label;
+        }
+        KNFST localModel =
+                m_modelCache == null ? null : m_modelCache.get(neighbors);
+        if (localModel == null) {
+            final RealMatrix localTrainingKernelMatrix =
+                    m_trainingKernelMatrix.getSubMatrix(neighbors, neighbors);
+            if (oneClass) {
+                localModel = new OneClassKNFST(localTrainingKernelMatrix);
+            } else {
+                localModel = new MultiClassKNFST(localTrainingKernelMatrix,
+                        localLabels.clone());
+            }
+            if (m_modelCache != null) {
+                m_modelCache.put(neighbors, localModel);
+            }
+        }
+
+        double score = localModel
+                .scoreTestData(
+                        MatrixUtils.createColumnRealMatrix(localKernelValues))
+                .getScores()[0];
+
+        // normalize novelty score
+        if (m_normalize) {
+            final double normalizer =
+                    Tools.getMin(localModel.getBetweenClassDistances());
+            score = score / normalizer;
+        }
+        return score;
+    }
+}
@@ -47,6 +47,7 @@
 
 package org.knime.al.nodes.score.novelty.localnoveltyscorer;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.PriorityQueue;
 
@@ -153,4 +154,69 @@ public int compare(final ValueIndexPair o1,
 
     }
 
+    /*
+     * Selects the indices of the k largest values without allocating
+     * objects. Ties are resolved in favor of the smaller index. Parameters:
+     * values: the values to select from k: number of indices to be selected
+     * indices: receives the selected indices in its first k elements, in
+     * ascending order of the indices
+     */
+    public static void getKLargestIndices(final double[] values, final int k,
+            final int[] indices) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be greater than zero!");
+        }
+        if (k > values.length || k > indices.length) {
+            throw new IllegalArgumentException(
+                    "k must be smaller or equal to the length of the array!");
+        }
+
+        // bounded heap whose root is the smallest of the selected values
+        for (int i = 0; i < k; i++) {
+            indices[i] = i;
+            int child = i;
+            while (child > 0) {
+                final int parent = (child - 1) / 2;
+                if (!precedes(values, indices[parent], indices[child])) {
+                    break;
+                }
+                swap(indices, parent, child);
+                child = parent;
+            }
+        }
+        for (int i = k; i < values.length; i++) {
+            if (precedes(values, i, indices[0])) {
+                // replace head and restore heap structure
+                indices[0] = i;
+                int parent = 0;
+                int child;
+                while ((child = 2 * parent + 1) < k) {
+                    if (child + 1 < k && precedes(values, indices[child],
+                            indices[child + 1])) {
+                        child++;
+                    }
+                    if (!precedes(values, indices[parent], indices[child])) {
+                        break;
+                    }
+                    swap(indices, parent, child);
+                    parent = child;
+                }
+            }
+        }
+        Arrays.sort(indices, 0, k);
+    }
+
+    // true if the value at index a comes before the value at index b in
+    // descending order
+    private static boolean precedes(final double[] values, final int a,
+            final int b) {
+        return values[a] > values[b] || (values[a] == values[b] && a < b);
+    }
+
+    private static void swap(final int[] array, final int i, final int j) {
+        final int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
 }
@@ -93,12 +93,20 @@ public NodeView<T> createNodeView(final int viewIndex, final T nodeModel) {
         return null;
     }
 
+    /**
+     * @return true if the node appends the scores of the chosen {@link UncertaintyMetric metrics} instead of a single
+     *         score column
+     */
+    protected boolean isMultiMetric() {
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected NodeDialogPane createNodeDialogPane() {
-        return new UncertaintyNodeDialog();
+        return new UncertaintyNodeDialog(isMultiMetric());
     }
 
 }
@@ -49,19 +49,18 @@
 package org.knime.al.nodes.score.uncertainty;
 
 import java.util.Arrays;
-import java.util.Set;
+import java.util.function.BiConsumer;
 
 import org.knime.al.nodes.score.ExceptionHandling;
 import org.knime.al.util.MathUtils;
-import org.knime.al.util.NodeTools;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DoubleValue;
 import org.knime.core.data.MissingCell;
+import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.container.ColumnRearranger;
-import org.knime.core.data.container.SingleCellFactory;
 import org.knime.core.data.def.DoubleCell;
 import org.knime.core.data.probability.nominal.NominalDistributionValue;
 import org.knime.core.data.probability.nominal.NominalDistributionValueMetaData;
@@ -69,17 +68,19 @@
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
 import org.knime.core.node.NotConfigurableException;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelColumnFilter2;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.streamable.simple.SimpleStreamableFunctionNodeModel;
 import org.knime.core.node.util.CheckUtils;
 import org.knime.core.node.util.filter.NameFilterConfiguration.FilterResult;
-import org.knime.core.util.UniqueNameGenerator;
 
 /**
  * Abstract Superclass for the node models of the Uncertainty scorers. Houses all the common methods, subclasses only
- * need to implement the {@link #createColumnRearranger(DataTableSpec)} method.
+ * need to implement the {@link #createUncertaintyScores(DataTableSpec)} method. The probabilities of a row are read and
+ * validated once for all scores. Scorers that append a single score extend
+ * {@link AbstractSingleUncertaintyNodeModel}.
  *
  * @author gabriel
  * @author Simon Schmid, KNIME GmbH, Konstanz, Germany
@@ -96,6 +97,9 @@ public abstract class AbstractUncertaintyNodeModel extends SimpleStreamableFunct
     /** The config key used for the exception handling setting. */
     private static final String CFG_EXCEPTION_HANDLING = "exception_handling";
 
+    /** The config key used for the skip validation setting. */
+    private static final String CFG_SKIP_VALIDATION = "skip_validation";
+
     /** The config key used for the column name setting. */
     protected static final String CFG_KEY_COLUMN_NAME = "column_name";
 
@@ -114,6 +118,9 @@ public abstract class AbstractUncertaintyNodeModel extends SimpleStreamableFunct
     /** Single probability distribution column filter. */
     protected final SettingsModelString m_singleColumnFilterModel = createSingleColumnFilterModel();
 
+    /** Whether the check that the probabilities sum up to 1 is skipped. */
+    protected final SettingsModelBoolean m_skipValidationModel = createSkipValidationModel();
+
     /**
      * @return Settings Model to store the Column Filter Model
      */
@@ -230,32 +237,64 @@ protected void loadSettingsForModel(final NodeSettingsRO settings) throws Invali
         };
     }
 
+    /**
+     * @return Settings Model to store whether the check of the distributions is skipped
+     */
+    static SettingsModelBoolean createSkipValidationModel() {
+        // we have to override the validation and loading methods in order to ensure backwards compatibility
+        return new SettingsModelBoolean(CFG_SKIP_VALIDATION, false) {
+            @Override
+            protected void validateSettingsForModel(final NodeSettingsRO settings) throws InvalidSettingsException {
+                settings.getBoolean(CFG_SKIP_VALIDATION, false);
+            }
+
+            @Override
+            protected void loadSettingsForModel(final NodeSettingsRO settings) throws InvalidSettingsException {
+                // use the default value, if no value is stored in the settings
+                setBooleanValue(settings.getBoolean(CFG_SKIP_VALIDATION, false));
+            }
+        };
+    }
+
+    /**
+     * @param metric the metric to create the model for
+     * @return Settings Model to store whether the score of the metric is appended
+     */
+    protected static SettingsModelBoolean createMetricModel(final UncertaintyMetric metric) {
+        return new SettingsModelBoolean("metric_" + metric.name().toLowerCase(), true);
+    }
+
     /**
      * @return the default output column name
      */
     protected abstract String getDefaultColumnName();
 
+    /**
+     * Creates the uncertainty scores appended to the input table.
+     *
+     * @param inSpec the spec of the input table
+     * @return the appended columns and the calculation of their values
+     * @throws InvalidSettingsException if the settings are invalid
+     */
+    protected abstract UncertaintyScores createUncertaintyScores(final DataTableSpec inSpec)
+        throws InvalidSettingsException;
+
     @Override
     protected ColumnRearranger createColumnRearranger(final DataTableSpec inSpec) throws InvalidSettingsException {
-        if (m_columnNameModel.getStringValue().trim().isEmpty()) {
-            throw new InvalidSettingsException("The column name must not be empty.");
-        }
-
         final String exceptionHandlingStrategy = m_exceptionHandlingModel.getStringValue();
         CheckUtils.checkSetting(
             Arrays.stream(ExceptionHandling.values()).map(ExceptionHandling::name)
                 .anyMatch(exceptionHandlingStrategy::equals),
             "Unknown option to handle exceptions: '%s'", exceptionHandlingStrategy);
         final boolean failHandling = m_exceptionHandlingModel.getStringValue().equals(ExceptionHandling.FAIL.name());
-        final DataColumnSpec newColSpec =
-            new UniqueNameGenerator(inSpec).newColumn(m_columnNameModel.getStringValue(), DoubleCell.TYPE);
+        final UncertaintyScores scores = createUncertaintyScores(inSpec);
 
         final String columnType = m_columnTypeModel.getStringValue();
         if (Arrays.stream(ColumnType.values()).map(ColumnType::name).noneMatch(columnType::equals)) {
             throw new InvalidSettingsException(String.format("Unknown column type: '%s'.", columnType));
         }
         final ColumnRearranger rearranger = new ColumnRearranger(inSpec);
-        rearranger.append(getSingleCellFactory(inSpec, newColSpec, failHandling));
+        rearranger.append(getCellFactory(inSpec, scores, failHandling));
         return rearranger;
     }
 
@@ -268,53 +307,54 @@ private boolean isSingleColumnSelected() {
     }
 
     /**
-     * @return a {@link SingleCellFactory} created by a single {@link NominalDistributionValue} column, or by
+     * @return a {@link AbstractCellFactory} created by a single {@link NominalDistributionValue} column, or by
      *         muliple columns which represent a probability distribution.
      */
-    private SingleCellFactory getSingleCellFactory(final DataTableSpec inSpec, final DataColumnSpec newColSpec,
+    private AbstractCellFactory getCellFactory(final DataTableSpec inSpec, final UncertaintyScores scores,
         final boolean failHandling) throws InvalidSettingsException {
         if (isSingleColumnSelected()) {
-            return getProbabilityColumnFactory(inSpec, newColSpec, failHandling);
+            return getProbabilityColumnFactory(inSpec, scores, failHandling);
         } else {
-            return getNumericColumnFactory(inSpec, newColSpec, failHandling);
+            return getNumericColumnFactory(inSpec, scores, failHandling);
         }
     }
 
     /**
-     * @return a {@link SingleCellFactory} which holds the uncertainty score of a single
+     * @return a {@link AbstractCellFactory} which holds the uncertainty scores of a single
      *         {@link NominalDistributionValue} column.
      */
-    private SingleCellFactory getProbabilityColumnFactory(final DataTableSpec inSpec, final DataColumnSpec newColSpec,
-        final boolean failHandling) throws InvalidSettingsException {
+    private AbstractCellFactory getProbabilityColumnFactory(final DataTableSpec inSpec,
+        final UncertaintyScores scores, final boolean failHandling) throws InvalidSettingsException {
         final String chosenColumn = m_singleColumnFilterModel.getStringValue();
         final int columnIndex = inSpec.findColumnIndex(chosenColumn);
         CheckUtils.checkSetting(columnIndex != -1,
             "The selected probability distribution column '%s' is not contained in the input table.", chosenColumn);
-        return new ProbabilityColumnCellCreator(inSpec, newColSpec, columnIndex, failHandling);
+        return new ProbabilityColumnCellCreator(inSpec, scores, columnIndex, failHandling);
     }
 
     /**
-     * @return a {@link SingleCellFactory} which holds the uncertainty score calculated over multiple column which
+     * @return a {@link AbstractCellFactory} which holds the uncertainty scores calculated over multiple column which
      *         represent a probability distribution.
      */
-    private SingleCellFactory getNumericColumnFactory(final DataTableSpec inSpec, final DataColumnSpec newColSpec,
-        final boolean failHandling) throws InvalidSettingsException {
+    private AbstractCellFactory getNumericColumnFactory(final DataTableSpec inSpec,
+        final UncertaintyScores scores, final boolean failHandling) throws InvalidSettingsException {
         final FilterResult filterResult = m_columnFilterModel.applyTo(inSpec);
         final int[] columnIndices = inSpec.columnsToIndices(filterResult.getIncludes());
         // check configuration
         if (columnIndices.length < 2) {
             throw new InvalidSettingsException("At least two columns must be included.");
         }
-        return new NumericColumnCellCreator(newColSpec, columnIndices, failHandling);
+        return new NumericColumnCellCreator(scores, columnIndices, failHandling,
+            !m_skipValidationModel.getBooleanValue());
     }
 
     /**
-     * The class creates the {@link DataCell} containting the uncertainty score for each row in the table when a single
-     * probability column is picked.
+     * The class creates the {@link DataCell DataCells} containting the uncertainty scores for each row in the table
+     * when a single probability column is picked.
      *
      * @author Perla Gjoka, KNIME GmbH, Konstanz, Germany
      */
-    private final class ProbabilityColumnCellCreator extends SingleCellFactory {
+    private final class ProbabilityColumnCellCreator extends AbstractCellFactory {
 
         private boolean m_hasMissing = false;
 
@@ -322,31 +362,40 @@ private final class ProbabilityColumnCellCreator extends SingleCellFactory {
 
         private final boolean m_failHandling;
 
-        private final Set<String> m_classes;
+        private final String[] m_classes;
 
         private final String m_columnName;
 
+        private final UncertaintyScores m_scores;
+
+        private final int m_numScores;
+
+        private final ThreadLocal<RowBuffers> m_buffers;
+
         /**
          * @param inSpec holds the {@link DataTableSpec} of the input table.
-         * @param newColSpec holds the new {@link DataColumnSpec} created for the uncertainty scores.
+         * @param scores holds the uncertainty scores that are appended.
          * @param columnIndex holds the index of the picked probability column.
          * @param failHandling holds the picked invalid handling strategy picked.
          */
-        private ProbabilityColumnCellCreator(final DataTableSpec inSpec, final DataColumnSpec newColSpec,
+        private ProbabilityColumnCellCreator(final DataTableSpec inSpec, final UncertaintyScores scores,
             final int columnIndex, final boolean failHandling) {
-            super(newColSpec);
+            super(scores.m_columnSpecs);
+            m_scores = scores;
+            m_numScores = scores.m_columnSpecs.length;
             m_columnIndex = columnIndex;
             final DataColumnSpec colSpec = inSpec.getColumnSpec(m_columnIndex);
             m_columnName = colSpec.getName();
-            m_classes = NominalDistributionValueMetaData.extractFromSpec(colSpec).getValues();
+            m_classes = NominalDistributionValueMetaData.extractFromSpec(colSpec).getValues().toArray(new String[0]);
             m_failHandling = failHandling;
+            m_buffers = ThreadLocal.withInitial(() -> new RowBuffers(m_classes.length, m_numScores));
         }
 
         /**
          * {@inheritDoc}
          */
         @Override
-        public DataCell getCell(final DataRow row) {
+        public DataCell[] getCells(final DataRow row) {
             final DataCell rowCell = row.getCell(m_columnIndex);
             if (rowCell.isMissing()) {
                 if (m_failHandling) {
@@ -358,22 +407,26 @@ public DataCell getCell(final DataRow row) {
                         + "' contains a missing values. Missing values will be in the output.");
                     m_hasMissing = true;
                 }
-                return new MissingCell(m_columnName + " contains missing values.");
+                return missingCells(m_numScores, m_columnName + " contains missing values.");
             }
             final NominalDistributionValue value = (NominalDistributionValue)rowCell;
-            final double[] probabilityValues = m_classes.stream().mapToDouble(value::getProbability).toArray();
-            return new DoubleCell(calculateUncertainty(probabilityValues));
+            final RowBuffers buffers = m_buffers.get();
+            final double[] probabilityValues = buffers.m_values;
+            for (int i = 0; i < m_classes.length; i++) {
+                probabilityValues[i] = value.getProbability(m_classes[i]);
+            }
+            return scoreCells(buffers, m_scores);
         }
 
     }
 
     /**
-     * This class creates the {@link DataCell} containing the uncertainty score for each row in the table when a
-     * multiple numeric columns are selected.
+     * This class creates the {@link DataCell DataCells} containing the uncertainty scores for each row in the table
+     * when a multiple numeric columns are selected.
      *
      * @author Perla Gjoka, KNIME GmbH, Konstanz, Germany
      */
-    private final class NumericColumnCellCreator extends SingleCellFactory {
+    private final class NumericColumnCellCreator extends AbstractCellFactory {
 
         boolean m_hasMissing = false;
 
@@ -383,26 +436,40 @@ private final class NumericColumnCellCreator extends SingleCellFactory {
 
         final boolean m_failHandling;
 
+        final UncertaintyScores m_scores;
+
+        final int m_numScores;
+
+        final boolean m_validate;
+
+        final ThreadLocal<RowBuffers> m_buffers;
+
         /**
-         * @param newColSpec holds the new {@link DataColumnSpec} created for the uncertainty scores.
+         * @param scores holds the uncertainty scores that are appended.
          * @param columnIndices holds the indices of all numeric columns picked.
          * @param failHandling holds the picked invalid handling strategy picked.
+         * @param validate whether it is checked that the values of a row sum up to 1.
          */
-        public NumericColumnCellCreator(final DataColumnSpec newColSpec, final int[] columnIndices,
-            final boolean failHandling) {
-            super(newColSpec);
+        public NumericColumnCellCreator(final UncertaintyScores scores, final int[] columnIndices,
+            final boolean failHandling, final boolean validate) {
+            super(scores.m_columnSpecs);
+            m_scores = scores;
+            m_numScores = scores.m_columnSpecs.length;
             m_columnIndices = columnIndices;
             m_failHandling = failHandling;
+            m_validate = validate;
+            m_buffers = ThreadLocal.withInitial(() -> new RowBuffers(m_columnIndices.length, m_numScores));
         }
 
         /**
          * {@inheritDoc}
          */
         @Override
-        public DataCell getCell(final DataRow row) {
+        public DataCell[] getCells(final DataRow row) {
 
-            final double[] values = NodeTools.toDoubleArray(row, m_columnIndices);
-            if (values == null) {
+            final RowBuffers buffers = m_buffers.get();
+            final double[] values = buffers.m_values;
+            if (!readValues(row, values)) {
                 if (m_failHandling) {
                     throw new IllegalArgumentException("The row '" + row.getKey() + "' contains missing values.");
                 }
@@ -412,9 +479,9 @@ public DataCell getCell(final DataRow row) {
                         "At least one row contains a missing value. Missing values will be in the output.");
                     m_hasMissing = true;
                 }
-                return new MissingCell("Input row contains missing values.");
+                return missingCells(m_numScores, "Input row contains missing values.");
             }
-            if (!MathUtils.checkDistribution(values)) {
+            if (m_validate && !MathUtils.checkDistribution(values)) {
                 if (m_failHandling) {
                     throw new IllegalArgumentException("The distribution of row '" + row.getKey().getString()
                         + "' is invalid as it does not sum up to 1.");
@@ -426,20 +493,82 @@ public DataCell getCell(final DataRow row) {
                             + "values will be in the output.");
                     m_hasInvalidDistribution = true;
                 }
-                return new MissingCell("The distribution is invalid as it does not sum up to 1.");
+                return missingCells(m_numScores, "The distribution is invalid as it does not sum up to 1.");
+            }
+            return scoreCells(buffers, m_scores);
+        }
+
+        /**
+         * @return false if one of the picked columns contains a missing value
+         */
+        private boolean readValues(final DataRow row, final double[] values) {
+            for (int i = 0; i < m_columnIndices.length; i++) {
+                final DataCell cell = row.getCell(m_columnIndices[i]);
+                if (cell.isMissing()) {
+                    return false;
+                }
+                values[i] = ((DoubleValue)cell).getDoubleValue();
             }
-            return new DoubleCell(calculateUncertainty(values));
+            return true;
         }
 
     }
 
     /**
-     * Calculates the uncertainty which is the actual output.
-     *
-     * @param values the distribution values
-     * @return the calculated uncertainty
+     * The arrays a cell creator needs per row. They are only used until the cells of the row are created, so every
+     * thread reuses its own buffers for all rows instead of allocating new arrays.
      */
-    protected abstract double calculateUncertainty(final double[] values);
+    private static final class RowBuffers {
+
+        private final double[] m_values;
+
+        private final double[] m_uncertainties;
+
+        private RowBuffers(final int numValues, final int numScores) {
+            m_values = new double[numValues];
+            m_uncertainties = new double[numScores];
+        }
+    }
+
+    private static DataCell[] missingCells(final int numScores, final String error) {
+        final DataCell[] cells = new DataCell[numScores];
+        Arrays.fill(cells, new MissingCell(error));
+        return cells;
+    }
+
+    private static DataCell[] scoreCells(final RowBuffers buffers, final UncertaintyScores scores) {
+        final double[] uncertainties = buffers.m_uncertainties;
+        scores.m_calculator.accept(buffers.m_values, uncertainties);
+        final DataCell[] cells = new DataCell[uncertainties.length];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new DoubleCell(uncertainties[i]);
+        }
+        return cells;
+    }
+
+    /**
+     * The uncertainty scores appended to each row, the specs of the appended columns together with the calculation of
+     * their values. Created anew for every configuration, so the calculation can rely on the settings it was created
+     * with.
+     */
+    protected static final class UncertaintyScores {
+
+        private final DataColumnSpec[] m_columnSpecs;
+
+        private final BiConsumer<double[], double[]> m_calculator;
+
+        /**
+         * @param columnSpecs the specs of the appended columns, one per score
+         * @param calculator receives the distribution values of a row, which must not be modified as the same array is
+         *            used for all scores and reused for the next row, and fills the second array with the scores in
+         *            the order of the columns
+         */
+        public UncertaintyScores(final DataColumnSpec[] columnSpecs,
+            final BiConsumer<double[], double[]> calculator) {
+            m_columnSpecs = columnSpecs.clone();
+            m_calculator = calculator;
+        }
+    }
 
     /**
      * {@inheritDoc}
@@ -451,6 +580,7 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
         m_exceptionHandlingModel.saveSettingsTo(settings);
         m_columnTypeModel.saveSettingsTo(settings);
         m_singleColumnFilterModel.saveSettingsTo(settings);
+        m_skipValidationModel.saveSettingsTo(settings);
     }
 
     /**
@@ -463,6 +593,7 @@ protected void validateSettings(final NodeSettingsRO settings) throws InvalidSet
         m_exceptionHandlingModel.validateSettings(settings);
         m_columnTypeModel.validateSettings(settings);
         m_singleColumnFilterModel.validateSettings(settings);
+        m_skipValidationModel.validateSettings(settings);
     }
 
     /**
@@ -475,6 +606,7 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws I
         m_exceptionHandlingModel.loadSettingsFrom(settings);
         m_columnTypeModel.loadSettingsFrom(settings);
         m_singleColumnFilterModel.loadSettingsFrom(settings);
+        m_skipValidationModel.loadSettingsFrom(settings);
     }
 
 }
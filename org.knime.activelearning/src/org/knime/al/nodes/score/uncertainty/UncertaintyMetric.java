@@ -0,0 +1,134 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.al.nodes.score.uncertainty;
+
+import org.knime.al.util.MathUtils;
+
+/**
+ * The uncertainty scores of a class probability distribution. None of the metrics modifies the distribution, so
+ * several metrics can be calculated on the same values one after another.
+ */
+public enum UncertaintyMetric {
+
+        /** The normalized Shannon entropy. */
+        ENTROPY("Entropy", "Entropy Score") {
+            @Override
+            public double calculate(final double[] values) {
+                return MathUtils.entropyWithoutDistributionCheck(values);
+            }
+        },
+
+        /** One minus the difference between the two largest probabilities. */
+        MARGIN("Margin", "Margin Score") {
+            @Override
+            public double calculate(final double[] values) {
+                double largest = Double.NEGATIVE_INFINITY;
+                double secondLargest = Double.NEGATIVE_INFINITY;
+                for (final double value : values) {
+                    if (value > largest) {
+                        secondLargest = largest;
+                        largest = value;
+                    } else if (value > secondLargest) {
+                        secondLargest = value;
+                    }
+                }
+                return 1 - (largest - secondLargest);
+            }
+        },
+
+        /** One minus the largest probability. */
+        LEAST_CONFIDENT("Least Confident", "Least Confident Score") {
+            @Override
+            public double calculate(final double[] values) {
+                double largest = Double.NEGATIVE_INFINITY;
+                for (final double value : values) {
+                    largest = Math.max(largest, value);
+                }
+                // to make this score compatible with the other uncertainty scores we invert the value.
+                return 1 - largest;
+            }
+        },
+
+        /** One minus the variance of the probabilities. */
+        VARIANCE("Variance", "Variance Score") {
+            @Override
+            public double calculate(final double[] values) {
+                return 1 - MathUtils.varianceWithoutDistributionCheck(values);
+            }
+        };
+
+    private final String m_text;
+
+    private final String m_defaultColumnName;
+
+    private UncertaintyMetric(final String text, final String defaultColumnName) {
+        m_text = text;
+        m_defaultColumnName = defaultColumnName;
+    }
+
+    /**
+     * @return the name of the metric shown to the user
+     */
+    public String getText() {
+        return m_text;
+    }
+
+    /**
+     * @return the default name of the output column of the metric
+     */
+    public String getDefaultColumnName() {
+        return m_defaultColumnName;
+    }
+
+    /**
+     * Calculates the uncertainty score of a distribution without checking it.
+     *
+     * @param values the distribution values, at least two, they are not modified
+     * @return the uncertainty score
+     */
+    public abstract double calculate(final double[] values);
+
+}
@@ -51,6 +51,7 @@
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.util.Arrays;
 
 import javax.swing.BorderFactory;
 import javax.swing.JPanel;
@@ -64,9 +65,11 @@
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
 import org.knime.core.node.NotConfigurableException;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
 import org.knime.core.node.defaultnodesettings.DialogComponentButtonGroup;
 import org.knime.core.node.defaultnodesettings.DialogComponentColumnFilter2;
 import org.knime.core.node.defaultnodesettings.DialogComponentString;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelColumnFilter2;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 import org.knime.core.node.util.ColumnSelectionComboxBox;
@@ -96,11 +99,31 @@ final class UncertaintyNodeDialog extends NodeDialogPane {
     private final DialogComponentButtonGroup m_exceptionHandling = new DialogComponentButtonGroup(
         AbstractUncertaintyNodeModel.createExceptionHandlingModel(), null, true, ExceptionHandling.values());
 
+    private final DialogComponentBoolean m_skipValidation = new DialogComponentBoolean(
+        AbstractUncertaintyNodeModel.createSkipValidationModel(), "Skip distribution check (trusted input)");
+
     @SuppressWarnings("unchecked")
     private final ColumnSelectionComboxBox m_singleColumnSelection =
         new ColumnSelectionComboxBox((Border)null, NominalDistributionValue.class);
 
+    /** One check box per metric if several metrics can be chosen, empty otherwise. */
+    private final DialogComponentBoolean[] m_metrics;
+
     public UncertaintyNodeDialog() {
+        this(false);
+    }
+
+    /**
+     * @param multiMetric true if the user chooses the {@link UncertaintyMetric metrics} that are appended instead of
+     *            the name of a single output column
+     */
+    UncertaintyNodeDialog(final boolean multiMetric) {
+        final UncertaintyMetric[] metrics = multiMetric ? UncertaintyMetric.values() : new UncertaintyMetric[0];
+        m_metrics = new DialogComponentBoolean[metrics.length];
+        for (int i = 0; i < metrics.length; i++) {
+            m_metrics[i] = new DialogComponentBoolean(AbstractUncertaintyNodeModel.createMetricModel(metrics[i]),
+                metrics[i].getText());
+        }
         m_columnTypeModel.getModel().addChangeListener(e -> updateColumnNumber());
         JPanel panel = new JPanel(new GridBagLayout());
         final GridBagConstraints c = new GridBagConstraints();
@@ -113,7 +136,7 @@ public UncertaintyNodeDialog() {
         panel.add(createColumnSelectionPanel(), c);
         c.gridy++;
         c.weighty = 0;
-        panel.add(createOutputSettingsPanel(), c);
+        panel.add(multiMetric ? createMetricsPanel() : createOutputSettingsPanel(), c);
         c.gridy++;
         panel.add(createInvalidHandlingPanel(), c);
         addTab("Default Settings", panel);
@@ -153,16 +176,28 @@ private JPanel createOutputSettingsPanel() {
         return outputPanel;
     }
 
+    private JPanel createMetricsPanel() {
+        JPanel metricsPanel = new JPanel();
+        metricsPanel.setBorder(BorderFactory.createTitledBorder("Metrics"));
+        for (final DialogComponentBoolean metric : m_metrics) {
+            metricsPanel.add(metric.getComponentPanel());
+        }
+        return metricsPanel;
+    }
+
     private JPanel createInvalidHandlingPanel() {
         JPanel invalidHandling = new JPanel();
         invalidHandling.setBorder(BorderFactory.createTitledBorder("Invalid Handling"));
         invalidHandling.add(m_exceptionHandling.getComponentPanel());
+        invalidHandling.add(m_skipValidation.getComponentPanel());
         return invalidHandling;
     }
 
     private void updateColumnNumber() {
         final boolean isMultiple = !isSingleColumn();
         m_numericColumnsFilterComponent.getModel().setEnabled(isMultiple);
+        // only the numeric columns are checked to sum up to 1
+        m_skipValidation.getModel().setEnabled(isMultiple);
         if (m_spec.containsCompatibleType(NominalDistributionValue.class)) {
             m_singleColumnSelection.setEnabled(!isMultiple);
         } else {
@@ -183,6 +218,10 @@ protected void loadSettingsFrom(final NodeSettingsRO settings, final DataTableSp
         m_columnTypeModel.loadSettingsFrom(settings, specs);
         m_outputName.loadSettingsFrom(settings, specs);
         m_exceptionHandling.loadSettingsFrom(settings, specs);
+        m_skipValidation.loadSettingsFrom(settings, specs);
+        for (final DialogComponentBoolean metric : m_metrics) {
+            metric.loadSettingsFrom(settings, specs);
+        }
         try {
             m_probabilityColumnSettingsModel.loadSettingsFrom(settings);
             updateSelectionPanel(m_probabilityColumnSettingsModel.getStringValue());
@@ -213,12 +252,20 @@ protected void saveSettingsTo(final NodeSettingsWO settings) throws InvalidSetti
                 throw new InvalidSettingsException("At least one probability distribution column must be selected.");
             }
         }
+        if (m_metrics.length > 0 && Arrays.stream(m_metrics)
+            .noneMatch(metric -> ((SettingsModelBoolean)metric.getModel()).getBooleanValue())) {
+            throw new InvalidSettingsException("At least one metric must be selected.");
+        }
         m_numericColumnsFilterComponent.saveSettingsTo(settings);
         m_probabilityColumnSettingsModel.setStringValue(m_singleColumnSelection.getSelectedColumn());
         m_probabilityColumnSettingsModel.saveSettingsTo(settings);
         m_columnTypeModel.saveSettingsTo(settings);
         m_outputName.saveSettingsTo(settings);
         m_exceptionHandling.saveSettingsTo(settings);
+        m_skipValidation.saveSettingsTo(settings);
+        for (final DialogComponentBoolean metric : m_metrics) {
+            metric.saveSettingsTo(settings);
+        }
 
     }
 
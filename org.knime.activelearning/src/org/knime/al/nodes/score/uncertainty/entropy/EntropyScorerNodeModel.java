@@ -45,8 +45,8 @@
  */
 package org.knime.al.nodes.score.uncertainty.entropy;
 
-import org.knime.al.nodes.score.uncertainty.AbstractUncertaintyNodeModel;
-import org.knime.al.util.MathUtils;
+import org.knime.al.nodes.score.uncertainty.AbstractSingleUncertaintyNodeModel;
+import org.knime.al.nodes.score.uncertainty.UncertaintyMetric;
 
 /**
  * @author dietzc, University of Konstanz
@@ -57,7 +57,7 @@
  * @author gabriel
  * @author Simon Schmid, KNIME GmbH, Konstanz, Germany
  */
-final class EntropyScorerNodeModel extends AbstractUncertaintyNodeModel {
+final class EntropyScorerNodeModel extends AbstractSingleUncertaintyNodeModel {
 
     private static final String DEF_COLUMN_NAME = "Entropy Score";
 
@@ -66,7 +66,7 @@ final class EntropyScorerNodeModel extends AbstractUncertaintyNodeModel {
      */
     @Override
     protected double calculateUncertainty(final double[] values) {
-        return MathUtils.entropyWithoutDistributionCheck(values);
+        return UncertaintyMetric.ENTROPY.calculate(values);
     }
 
     /**
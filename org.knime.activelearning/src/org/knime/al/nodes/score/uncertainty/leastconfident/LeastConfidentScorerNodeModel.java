@@ -47,15 +47,14 @@
  */
 package org.knime.al.nodes.score.uncertainty.leastconfident;
 
-import java.util.Arrays;
-
-import org.knime.al.nodes.score.uncertainty.AbstractUncertaintyNodeModel;
+import org.knime.al.nodes.score.uncertainty.AbstractSingleUncertaintyNodeModel;
+import org.knime.al.nodes.score.uncertainty.UncertaintyMetric;
 
 /**
  * @author <a href="mailto:gabriel.einsdorf@uni.kn">Gabriel Einsdorf</a>
  * @author Simon Schmid, KNIME GmbH, Konstanz, Germany
  */
-final class LeastConfidentScorerNodeModel extends AbstractUncertaintyNodeModel {
+final class LeastConfidentScorerNodeModel extends AbstractSingleUncertaintyNodeModel {
 
     private static final String DEF_COLUMN_NAME = "Least Confident Score";
 
@@ -64,10 +63,7 @@ final class LeastConfidentScorerNodeModel extends AbstractUncertaintyNodeModel {
      */
     @Override
     protected double calculateUncertainty(final double[] values) {
-        final double maxValue = Arrays.stream(values).max().getAsDouble();
-        // to make this node compatible with the other uncertainty
-        // scorers we invert the value.
-        return 1 - maxValue;
+        return UncertaintyMetric.LEAST_CONFIDENT.calculate(values);
     }
 
     /**
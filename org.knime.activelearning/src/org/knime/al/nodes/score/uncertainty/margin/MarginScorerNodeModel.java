@@ -47,15 +47,14 @@
  */
 package org.knime.al.nodes.score.uncertainty.margin;
 
-import java.util.Arrays;
-
-import org.knime.al.nodes.score.uncertainty.AbstractUncertaintyNodeModel;
+import org.knime.al.nodes.score.uncertainty.AbstractSingleUncertaintyNodeModel;
+import org.knime.al.nodes.score.uncertainty.UncertaintyMetric;
 
 /**
  * @author <a href="mailto:gabriel.einsdorf@uni.kn">Gabriel Einsdorf</a>
  * @author Simon Schmid, KNIME GmbH, Konstanz, Germany
  */
-final class MarginScorerNodeModel extends AbstractUncertaintyNodeModel {
+final class MarginScorerNodeModel extends AbstractSingleUncertaintyNodeModel {
 
     private static final String DEF_COLUMN_NAME = "Margin Score";
 
@@ -64,8 +63,7 @@ final class MarginScorerNodeModel extends AbstractUncertaintyNodeModel {
      */
     @Override
     protected double calculateUncertainty(final double[] values) {
-        Arrays.sort(values);
-        return 1 - (values[values.length - 1] - values[values.length - 2]);
+        return UncertaintyMetric.MARGIN.calculate(values);
     }
 
     /**
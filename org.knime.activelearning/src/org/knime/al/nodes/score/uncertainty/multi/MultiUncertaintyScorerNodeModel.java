@@ -0,0 +1,149 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.al.nodes.score.uncertainty.multi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.knime.al.nodes.score.uncertainty.AbstractUncertaintyNodeModel;
+import org.knime.al.nodes.score.uncertainty.UncertaintyMetric;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.util.UniqueNameGenerator;
+
+/**
+ * Appends the scores of several uncertainty metrics. The probabilities of a row are read and validated once and all
+ * chosen metrics are calculated on them.
+ */
+final class MultiUncertaintyScorerNodeModel extends AbstractUncertaintyNodeModel {
+
+    private static final String DEF_COLUMN_NAME = "Uncertainty Score";
+
+    private static final UncertaintyMetric[] METRICS = UncertaintyMetric.values();
+
+    private final SettingsModelBoolean[] m_metricModels = new SettingsModelBoolean[METRICS.length];
+
+    MultiUncertaintyScorerNodeModel() {
+        for (int i = 0; i < METRICS.length; i++) {
+            m_metricModels[i] = createMetricModel(METRICS[i]);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected UncertaintyScores createUncertaintyScores(final DataTableSpec inSpec) throws InvalidSettingsException {
+        final List<UncertaintyMetric> chosenMetrics = new ArrayList<>();
+        for (int i = 0; i < METRICS.length; i++) {
+            if (m_metricModels[i].getBooleanValue()) {
+                chosenMetrics.add(METRICS[i]);
+            }
+        }
+        if (chosenMetrics.isEmpty()) {
+            throw new InvalidSettingsException("At least one metric must be selected.");
+        }
+        final UncertaintyMetric[] metrics = chosenMetrics.toArray(new UncertaintyMetric[chosenMetrics.size()]);
+
+        final UniqueNameGenerator nameGenerator = new UniqueNameGenerator(inSpec);
+        final DataColumnSpec[] specs = new DataColumnSpec[metrics.length];
+        for (int i = 0; i < specs.length; i++) {
+            specs[i] = nameGenerator.newColumn(metrics[i].getDefaultColumnName(), DoubleCell.TYPE);
+        }
+        return new UncertaintyScores(specs, (values, uncertainties) -> {
+            for (int i = 0; i < metrics.length; i++) {
+                uncertainties[i] = metrics[i].calculate(values);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getDefaultColumnName() {
+        return DEF_COLUMN_NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void saveSettingsTo(final NodeSettingsWO settings) {
+        super.saveSettingsTo(settings);
+        for (final SettingsModelBoolean metricModel : m_metricModels) {
+            metricModel.saveSettingsTo(settings);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+        super.validateSettings(settings);
+        for (final SettingsModelBoolean metricModel : m_metricModels) {
+            metricModel.validateSettings(settings);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+        super.loadValidatedSettingsFrom(settings);
+        for (final SettingsModelBoolean metricModel : m_metricModels) {
+            metricModel.loadSettingsFrom(settings);
+        }
+    }
+
+}
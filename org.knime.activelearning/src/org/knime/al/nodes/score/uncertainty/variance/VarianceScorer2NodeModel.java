@@ -45,14 +45,14 @@
  */
 package org.knime.al.nodes.score.uncertainty.variance;
 
-import org.knime.al.nodes.score.uncertainty.AbstractUncertaintyNodeModel;
-import org.knime.al.util.MathUtils;
+import org.knime.al.nodes.score.uncertainty.AbstractSingleUncertaintyNodeModel;
+import org.knime.al.nodes.score.uncertainty.UncertaintyMetric;
 
 /**
  * @author <a href="mailto:gabriel.einsdorf@uni.kn">Gabriel Einsdorf</a>
  * @author Simon Schmid, KNIME GmbH, Konstanz, Germany
  */
-final class VarianceScorer2NodeModel extends AbstractUncertaintyNodeModel {
+final class VarianceScorer2NodeModel extends AbstractSingleUncertaintyNodeModel {
 
     private static final String DEF_COLUMN_NAME = "Variance Score";
 
@@ -61,7 +61,7 @@ final class VarianceScorer2NodeModel extends AbstractUncertaintyNodeModel {
      */
     @Override
     protected double calculateUncertainty(final double[] values) {
-        return 1 - MathUtils.varianceWithoutDistributionCheck(values);
+        return UncertaintyMetric.VARIANCE.calculate(values);
     }
 
     /**
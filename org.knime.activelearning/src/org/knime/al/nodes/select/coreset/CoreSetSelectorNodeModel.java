@@ -0,0 +1,416 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.al.nodes.select.coreset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.knime.al.nodes.AbstractALNodeModel;
+import org.knime.al.nodes.score.ExceptionHandling;
+import org.knime.al.util.noveltydetection.ParallelChunks;
+import org.knime.al.util.noveltydetection.kernel.TanimotoKernel;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.append.AppendedColumnRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.vector.bitvector.BitVectorValue;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.defaultnodesettings.SettingsModel;
+import org.knime.core.node.defaultnodesettings.SettingsModelColumnFilter2;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.util.CheckUtils;
+import org.knime.core.util.UniqueNameGenerator;
+
+/**
+ * Node model for the Core-set Selector node. It selects a diverse batch of unlabeled rows with the greedy k-center
+ * algorithm of {@link KCenterGreedy}: the labeled rows are the initial centers and every step selects the unlabeled
+ * row that is farthest from all centers. The features of all rows are held in a flat array, see
+ * {@link FeatureMatrix}.
+ */
+final class CoreSetSelectorNodeModel extends AbstractALNodeModel {
+
+    static final int DEFAULT_K = 100;
+
+    static final String DISTANCE_COLUMN_NAME = "Core-set Distance";
+
+    @SuppressWarnings("unchecked")
+    static SettingsModelColumnFilter2 createFeatureColumnsModel() {
+        return new SettingsModelColumnFilter2("featureColumns", DoubleValue.class, BitVectorValue.class);
+    }
+
+    static SettingsModelString createDistanceMeasureModel() {
+        return new SettingsModelString("distanceMeasure", DistanceMeasure.EUCLIDEAN.name());
+    }
+
+    // empty or null if no row is labeled
+    static SettingsModelString createLabelColumnModel() {
+        return new SettingsModelString("labelColumn", "");
+    }
+
+    static SettingsModelIntegerBounded createKModel() {
+        return new SettingsModelIntegerBounded("k", DEFAULT_K, 1, Integer.MAX_VALUE);
+    }
+
+    static SettingsModelString createMissingValueHandlingModel() {
+        return new SettingsModelString("missingValueHandling", ExceptionHandling.FAIL.name());
+    }
+
+    private final SettingsModelColumnFilter2 m_featureColumns = createFeatureColumnsModel();
+
+    private final SettingsModelString m_distanceMeasure = createDistanceMeasureModel();
+
+    private final SettingsModelString m_labelColumn = createLabelColumnModel();
+
+    private final SettingsModelIntegerBounded m_k = createKModel();
+
+    private final SettingsModelString m_missingValueHandling = createMissingValueHandlingModel();
+
+    /**
+     */
+    CoreSetSelectorNodeModel() {
+        super(1, 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
+        getFeatureIndices(inSpecs[0], getDistanceMeasure());
+        getLabelColumnIndex(inSpecs[0]);
+        getMissingValueHandling();
+        return new DataTableSpec[]{createOutputSpec(inSpecs[0])};
+    }
+
+    private static DataTableSpec createOutputSpec(final DataTableSpec inSpec) {
+        final DataColumnSpec distanceSpec =
+            new UniqueNameGenerator(inSpec).newColumn(DISTANCE_COLUMN_NAME, DoubleCell.TYPE);
+        return new DataTableSpec(inSpec, new DataTableSpec(distanceSpec));
+    }
+
+    private DistanceMeasure getDistanceMeasure() throws InvalidSettingsException {
+        try {
+            return DistanceMeasure.valueOf(m_distanceMeasure.getStringValue());
+        } catch (final IllegalArgumentException e) {
+            throw new InvalidSettingsException(
+                String.format("Unknown distance measure: '%s'.", m_distanceMeasure.getStringValue()), e);
+        }
+    }
+
+    private ExceptionHandling getMissingValueHandling() throws InvalidSettingsException {
+        try {
+            return ExceptionHandling.valueOf(m_missingValueHandling.getStringValue());
+        } catch (final IllegalArgumentException e) {
+            throw new InvalidSettingsException(
+                String.format("Unknown missing value handling: '%s'.", m_missingValueHandling.getStringValue()), e);
+        }
+    }
+
+    private int[] getFeatureIndices(final DataTableSpec spec, final DistanceMeasure distance)
+        throws InvalidSettingsException {
+        final List<Integer> indices = new ArrayList<>();
+        for (final String column : m_featureColumns.applyTo(spec).getIncludes()) {
+            final DataColumnSpec columnSpec = spec.getColumnSpec(column);
+            if (columnSpec == null) {
+                continue;
+            }
+            if (columnSpec.getType().isCompatible(distance.getFeatureType())) {
+                indices.add(spec.findColumnIndex(column));
+            } else {
+                throw new InvalidSettingsException("The column '" + column + "' can't be used with the "
+                    + distance.getText() + " distance, bit vectors are only supported by the Tanimoto distance.");
+            }
+        }
+        CheckUtils.checkSetting(!indices.isEmpty(), "No %s feature columns are selected.",
+            distance == DistanceMeasure.TANIMOTO ? "bit vector" : "numeric");
+        return indices.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int getLabelColumnIndex(final DataTableSpec spec) throws InvalidSettingsException {
+        final String labelColumn = m_labelColumn.getStringValue();
+        if (labelColumn == null || labelColumn.isEmpty()) {
+            return -1;
+        }
+        final int index = spec.findColumnIndex(labelColumn);
+        if (index < 0) {
+            throw new InvalidSettingsException(
+                "The label column '" + labelColumn + "' is not contained in the input table.");
+        }
+        return index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
+        throws Exception {
+        final BufferedDataTable table = inData[0];
+        final DataTableSpec spec = table.getDataTableSpec();
+        CheckUtils.checkSetting(table.size() <= Integer.MAX_VALUE, "The input table has too many rows.");
+
+        exec.setMessage("Reading features");
+        final Features features = readFeatures(table, exec.createSubProgress(0.2));
+
+        exec.setMessage("Selecting rows");
+        final ExecutionMonitor selectExec = exec.createSubProgress(0.7);
+        final KCenterGreedy greedy = new KCenterGreedy(features.m_matrix, ParallelChunks.defaultParallelism());
+        greedy.addSeeds(features.m_seeds, selectExec.createSilentSubProgress(0));
+        final int k = m_k.getIntValue();
+        final int[] selected = new int[k];
+        final double[] distances = new double[k];
+        int numSelected = 0;
+        while (numSelected < k) {
+            selectExec.checkCanceled();
+            distances[numSelected] = greedy.getNextDistance();
+            final int row = greedy.selectNext(selectExec.createSilentSubProgress(0));
+            if (row < 0) {
+                break;
+            }
+            selected[numSelected++] = features.m_tableRows[row];
+            selectExec.setProgress(((double)numSelected) / k, "Selected " + numSelected + " of " + k + " rows");
+        }
+        if (numSelected < k) {
+            setWarningMessage("Only " + numSelected + " unlabeled rows could be selected.");
+        }
+
+        exec.setMessage("Writing selected rows");
+        final DataRow[] rows = collectRows(table, Arrays.copyOf(selected, numSelected), exec.createSubProgress(0.1));
+        final BufferedDataContainer container = exec.createDataContainer(createOutputSpec(spec));
+        for (int i = 0; i < numSelected; i++) {
+            // the first row has no distance if there are no labeled rows
+            final DataCell distanceCell = Double.isInfinite(distances[i]) ? new MissingCell("No labeled rows.")
+                : new DoubleCell(distances[i]);
+            container.addRowToTable(new AppendedColumnRow(rows[i], distanceCell));
+        }
+        container.close();
+        return new BufferedDataTable[]{container.getTable()};
+    }
+
+    /**
+     * The features of the rows that are considered, together with their position in the input table.
+     */
+    private static final class Features {
+
+        private final FeatureMatrix m_matrix;
+
+        // the index in the input table of every row of the matrix
+        private final int[] m_tableRows;
+
+        // the rows of the matrix that are labeled
+        private final int[] m_seeds;
+
+        private Features(final FeatureMatrix matrix, final int[] tableRows, final int[] seeds) {
+            m_matrix = matrix;
+            m_tableRows = tableRows;
+            m_seeds = seeds;
+        }
+    }
+
+    private Features readFeatures(final BufferedDataTable table, final ExecutionMonitor exec) throws Exception {
+        final DataTableSpec spec = table.getDataTableSpec();
+        final DistanceMeasure distance = getDistanceMeasure();
+        final int[] featureIndices = getFeatureIndices(spec, distance);
+        final int labelIndex = getLabelColumnIndex(spec);
+        final ExceptionHandling missingValueHandling = getMissingValueHandling();
+        final int size = (int)table.size();
+
+        // bit vectors are packed into 64 bit words, every column gets the words of its longest vector
+        final int[] offsets = new int[featureIndices.length + 1];
+        if (distance == DistanceMeasure.TANIMOTO) {
+            final long[] maxLengths = new long[featureIndices.length];
+            for (final DataRow row : table) {
+                for (int c = 0; c < featureIndices.length; c++) {
+                    final DataCell cell = row.getCell(featureIndices[c]);
+                    if (!cell.isMissing()) {
+                        maxLengths[c] = Math.max(maxLengths[c], ((BitVectorValue)cell).length());
+                    }
+                }
+            }
+            for (int c = 0; c < featureIndices.length; c++) {
+                offsets[c + 1] = Math.toIntExact(offsets[c] + (maxLengths[c] + Long.SIZE - 1) / Long.SIZE);
+            }
+        } else {
+            for (int c = 0; c < featureIndices.length; c++) {
+                offsets[c + 1] = c + 1;
+            }
+        }
+        final int width = offsets[featureIndices.length];
+        CheckUtils.checkSetting((long)size * width <= Integer.MAX_VALUE,
+            "The features of %s rows don't fit into a single array, please select fewer rows or features.", size);
+
+        final double[] values = distance == DistanceMeasure.TANIMOTO ? null : new double[size * width];
+        final long[] words = distance == DistanceMeasure.TANIMOTO ? new long[size * width] : null;
+        final int[] tableRows = new int[size];
+        final int[] seeds = new int[size];
+        int numRows = 0;
+        int numSeeds = 0;
+        int ignored = 0;
+        int tableRow = 0;
+        for (final DataRow row : table) {
+            if (tableRow % 1024 == 0) {
+                exec.checkCanceled();
+                exec.setProgress(((double)tableRow) / size, "Reading row " + tableRow + " of " + size);
+            }
+            if (hasMissingFeature(row, featureIndices)) {
+                if (missingValueHandling == ExceptionHandling.FAIL) {
+                    throw new IllegalArgumentException(
+                        String.format("Missing value in row %s detected.", row.getKey()));
+                }
+                ignored++;
+            } else {
+                for (int c = 0; c < featureIndices.length; c++) {
+                    final DataCell cell = row.getCell(featureIndices[c]);
+                    if (values != null) {
+                        values[numRows * width + c] = ((DoubleValue)cell).getDoubleValue();
+                    } else {
+                        TanimotoKernel.pack((BitVectorValue)cell, words, numRows * width + offsets[c]);
+                    }
+                }
+                if (labelIndex >= 0 && !row.getCell(labelIndex).isMissing()) {
+                    seeds[numSeeds++] = numRows;
+                }
+                tableRows[numRows++] = tableRow;
+            }
+            tableRow++;
+        }
+        if (ignored > 0) {
+            setWarningMessage(
+                String.format("%s row%s ignored due to missing values.", ignored, ignored == 1 ? " is" : "s are"));
+        }
+
+        final FeatureMatrix matrix;
+        switch (distance) {
+            case EUCLIDEAN:
+                matrix = FeatureMatrix.euclidean(values, numRows, width);
+                break;
+            case COSINE:
+                matrix = FeatureMatrix.cosine(values, numRows, width);
+                break;
+            case TANIMOTO:
+                matrix = FeatureMatrix.tanimoto(words, numRows, width);
+                break;
+            default:
+                throw new IllegalStateException("Unknown distance measure: " + distance);
+        }
+        return new Features(matrix, tableRows, Arrays.copyOf(seeds, numSeeds));
+    }
+
+    private static boolean hasMissingFeature(final DataRow row, final int[] featureIndices) {
+        for (final int index : featureIndices) {
+            if (row.getCell(index).isMissing()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects the selected rows in selection order.
+     *
+     * @param selected the indices of the selected rows in the input table
+     */
+    private static DataRow[] collectRows(final BufferedDataTable table, final int[] selected,
+        final ExecutionMonitor exec) throws Exception {
+        final int[] order = sortedOrder(selected);
+        final DataRow[] rows = new DataRow[selected.length];
+        int next = 0;
+        int tableRow = 0;
+        for (final DataRow row : table) {
+            if (next == order.length) {
+                break;
+            }
+            if (tableRow == selected[order[next]]) {
+                rows[order[next++]] = row;
+                exec.checkCanceled();
+                exec.setProgress(((double)next) / order.length);
+            }
+            tableRow++;
+        }
+        return rows;
+    }
+
+    /** positions of the values in ascending order of the values */
+    private static int[] sortedOrder(final int[] values) {
+        final long[] keyed = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            keyed[i] = ((long)values[i] << Integer.SIZE) | i;
+        }
+        Arrays.sort(keyed);
+        final int[] order = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            order[i] = (int)keyed[i];
+        }
+        return order;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void reset() {
+        // nothing to reset
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SettingsModel> collectSettingsModels() {
+        return Arrays.asList(m_featureColumns, m_distanceMeasure, m_labelColumn, m_k, m_missingValueHandling);
+    }
+
+}
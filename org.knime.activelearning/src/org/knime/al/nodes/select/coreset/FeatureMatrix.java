@@ -0,0 +1,209 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.al.nodes.select.coreset;
+
+import org.knime.al.util.noveltydetection.kernel.TanimotoKernel;
+
+/**
+ * The features of all rows in flat arrays, so that the distance of a row to a center can be computed without
+ * following a reference per row. Implementations must allow concurrent calls of {@link #distance(int, int)}.
+ */
+abstract class FeatureMatrix {
+
+    /**
+     * @return the number of rows
+     */
+    abstract int size();
+
+    /**
+     * @param row a row
+     * @param center another row
+     * @return the distance of the two rows, a non-negative number
+     */
+    abstract double distance(int row, int center);
+
+    /**
+     * Creates a matrix with the Euclidean distance of numeric features.
+     *
+     * @param values the features of the rows one after another, not copied
+     * @param numRows the number of rows
+     * @param numFeatures the number of features of every row
+     * @return the matrix
+     */
+    static FeatureMatrix euclidean(final double[] values, final int numRows, final int numFeatures) {
+        return new Euclidean(values, numRows, numFeatures);
+    }
+
+    /**
+     * Creates a matrix with the cosine distance, 1 - cos, of numeric features. The rows are normalized in place. A
+     * row whose features are all zero has distance 1 to every other row.
+     *
+     * @param values the features of the rows one after another, not copied
+     * @param numRows the number of rows
+     * @param numFeatures the number of features of every row
+     * @return the matrix
+     */
+    static FeatureMatrix cosine(final double[] values, final int numRows, final int numFeatures) {
+        for (int r = 0; r < numRows; r++) {
+            final int offset = r * numFeatures;
+            double squaredNorm = 0;
+            for (int f = 0; f < numFeatures; f++) {
+                squaredNorm += values[offset + f] * values[offset + f];
+            }
+            if (squaredNorm > 0) {
+                final double norm = Math.sqrt(squaredNorm);
+                for (int f = 0; f < numFeatures; f++) {
+                    values[offset + f] /= norm;
+                }
+            }
+        }
+        return new Cosine(values, numRows, numFeatures);
+    }
+
+    /**
+     * Creates a matrix with the Tanimoto distance, 1 - |a AND b| / |a OR b|, of bit vectors. Two empty bit vectors
+     * have distance 0.
+     *
+     * @param words the bits of the rows packed into 64 bit words by {@code TanimotoKernel.pack}, the words of the rows
+     *            one after another, not copied
+     * @param numRows the number of rows
+     * @param wordsPerRow the number of words of every row
+     * @return the matrix
+     */
+    static FeatureMatrix tanimoto(final long[] words, final int numRows, final int wordsPerRow) {
+        return new Tanimoto(words, numRows, wordsPerRow);
+    }
+
+    private abstract static class Numeric extends FeatureMatrix {
+
+        final double[] m_values;
+
+        final int m_numRows;
+
+        final int m_numFeatures;
+
+        Numeric(final double[] values, final int numRows, final int numFeatures) {
+            m_values = values;
+            m_numRows = numRows;
+            m_numFeatures = numFeatures;
+        }
+
+        @Override
+        int size() {
+            return m_numRows;
+        }
+    }
+
+    private static final class Euclidean extends Numeric {
+
+        Euclidean(final double[] values, final int numRows, final int numFeatures) {
+            super(values, numRows, numFeatures);
+        }
+
+        @Override
+        double distance(final int row, final int center) {
+            final int rowOffset = row * m_numFeatures;
+            final int centerOffset = center * m_numFeatures;
+            double sum = 0;
+            for (int f = 0; f < m_numFeatures; f++) {
+                final double diff = m_values[rowOffset + f] - m_values[centerOffset + f];
+                sum += diff * diff;
+            }
+            return Math.sqrt(sum);
+        }
+    }
+
+    private static final class Cosine extends Numeric {
+
+        Cosine(final double[] values, final int numRows, final int numFeatures) {
+            super(values, numRows, numFeatures);
+        }
+
+        @Override
+        double distance(final int row, final int center) {
+            final int rowOffset = row * m_numFeatures;
+            final int centerOffset = center * m_numFeatures;
+            double dot = 0;
+            for (int f = 0; f < m_numFeatures; f++) {
+                dot += m_values[rowOffset + f] * m_values[centerOffset + f];
+            }
+            // rounding can push the dot product of parallel rows slightly above 1
+            return Math.max(0, 1 - dot);
+        }
+    }
+
+    private static final class Tanimoto extends FeatureMatrix {
+
+        private final long[] m_words;
+
+        private final int m_numRows;
+
+        private final int m_wordsPerRow;
+
+        private final int[] m_cardinalities;
+
+        Tanimoto(final long[] words, final int numRows, final int wordsPerRow) {
+            m_words = words;
+            m_numRows = numRows;
+            m_wordsPerRow = wordsPerRow;
+            m_cardinalities = new int[numRows];
+            for (int r = 0; r < numRows; r++) {
+                m_cardinalities[r] = TanimotoKernel.cardinality(words, r * wordsPerRow, wordsPerRow);
+            }
+        }
+
+        @Override
+        int size() {
+            return m_numRows;
+        }
+
+        @Override
+        double distance(final int row, final int center) {
+            return 1 - TanimotoKernel.calculate(m_words, row * m_wordsPerRow, m_cardinalities[row], m_words,
+                center * m_wordsPerRow, m_cardinalities[center], m_wordsPerRow);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.al.nodes.select.coreset;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.knime.al.util.noveltydetection.ParallelChunks;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Greedy k-center selection of a core-set: every step selects the row that is farthest from its nearest center and
+ * makes it a center. Every row keeps the distance to its nearest center, so a step only computes the distances of
+ * all rows to the new center and costs O(n d) for n rows with d features. The rows are updated in chunks in parallel
+ * and the farthest row is found in the same pass.
+ * <p>
+ * Ties are broken by the smaller row index, independent of the number of threads.
+ */
+final class KCenterGreedy {
+
+    /** Number of rows updated by one task. */
+    static final int CHUNK_SIZE = 4096;
+
+    // marks the rows that are centers in m_minDistances, they are never selected again
+    private static final double CENTER = -1;
+
+    private final FeatureMatrix m_features;
+
+    private final int m_parallelism;
+
+    // the distance of every row to its nearest center, infinite as long as there is no center
+    private final double[] m_minDistances;
+
+    // the row farthest from all centers or -1 if all rows are centers
+    private int m_farthest;
+
+    /**
+     * @param features the features of the rows
+     * @param parallelism the maximal number of chunks that are updated at the same time
+     */
+    KCenterGreedy(final FeatureMatrix features, final int parallelism) {
+        m_features = features;
+        m_parallelism = parallelism;
+        m_minDistances = new double[features.size()];
+        Arrays.fill(m_minDistances, Double.POSITIVE_INFINITY);
+        m_farthest = features.size() > 0 ? 0 : -1;
+    }
+
+    /**
+     * Makes rows centers without selecting them, e.g. the rows that are already labeled. All seeds are processed in a
+     * single pass over the rows.
+     *
+     * @param seeds the rows
+     * @param exec the monitor to check for cancellation
+     * @throws Exception if the computation is canceled or fails
+     */
+    void addSeeds(final int[] seeds, final ExecutionMonitor exec) throws Exception {
+        if (seeds.length == 0) {
+            return;
+        }
+        for (final int seed : seeds) {
+            m_minDistances[seed] = CENTER;
+        }
+        update(seeds, exec);
+    }
+
+    /**
+     * Selects the next row and makes it a center.
+     *
+     * @param exec the monitor to check for cancellation
+     * @return the selected row or -1 if all rows are centers
+     * @throws Exception if the computation is canceled or fails
+     */
+    int selectNext(final ExecutionMonitor exec) throws Exception {
+        final int selected = m_farthest;
+        if (selected >= 0) {
+            m_minDistances[selected] = CENTER;
+            update(new int[]{selected}, exec);
+        }
+        return selected;
+    }
+
+    /**
+     * @return the distance of the row that is selected next to its nearest center, infinite if there is no center
+     *         and -1 if all rows are centers
+     */
+    double getNextDistance() {
+        return m_farthest < 0 ? CENTER : m_minDistances[m_farthest];
+    }
+
+    private void update(final int[] centers, final ExecutionMonitor exec) throws Exception {
+        final List<Integer> farthestPerChunk = ParallelChunks.map(m_minDistances.length, CHUNK_SIZE, m_parallelism,
+            (start, end) -> updateChunk(centers, start, end), exec, "Updating distances");
+        // the chunks are reduced in order, so a tie goes to the smaller row independent of the scheduling
+        int farthest = -1;
+        for (final Integer row : farthestPerChunk) {
+            if (row >= 0 && (farthest < 0 || m_minDistances[row] > m_minDistances[farthest])) {
+                farthest = row;
+            }
+        }
+        m_farthest = farthest;
+    }
+
+    /** Updates the rows start to end and returns the farthest of them or -1 if all are centers. */
+    private Integer updateChunk(final int[] centers, final int start, final int end) {
+        int farthest = -1;
+        double farthestDistance = CENTER;
+        for (int row = start; row < end; row++) {
+            double minDistance = m_minDistances[row];
+            if (minDistance == CENTER) {
+                continue;
+            }
+            for (final int center : centers) {
+                minDistance = Math.min(minDistance, m_features.distance(row, center));
+            }
+            m_minDistances[row] = minDistance;
+            if (minDistance > farthestDistance) {
+                farthestDistance = minDistance;
+                farthest = row;
+            }
+        }
+        return farthest;
+    }
+}
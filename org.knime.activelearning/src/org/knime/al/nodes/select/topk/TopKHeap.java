@@ -0,0 +1,177 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.al.nodes.select.topk;
+
+import java.util.Arrays;
+
+import org.knime.core.data.DataRow;
+
+/**
+ * Keeps the k rows with the largest keys of all offered rows. Rows with equal keys are ordered by their index, the
+ * row with the smaller index is kept. The rows are held in a min-heap whose top is the worst kept row, so offering a
+ * row takes O(log k) time and the heap never holds more than k rows.
+ */
+final class TopKHeap {
+
+    private final int m_k;
+
+    private double[] m_keys;
+
+    private long[] m_indices;
+
+    private DataRow[] m_rows;
+
+    private int m_size;
+
+    /**
+     * @param k the maximum number of kept rows, at least 1
+     */
+    TopKHeap(final int k) {
+        m_k = k;
+        // grow on demand, so that small groups do not allocate k entries
+        final int capacity = Math.min(k, 16);
+        m_keys = new double[capacity];
+        m_indices = new long[capacity];
+        m_rows = new DataRow[capacity];
+    }
+
+    /**
+     * Offers a row to the heap.
+     *
+     * @param key the key of the row, must not be NaN
+     * @param index the index of the row in the input
+     * @param row the row
+     */
+    void offer(final double key, final long index, final DataRow row) {
+        if (m_size < m_k) {
+            if (m_size == m_keys.length) {
+                final int capacity = (int)Math.min(m_k, 2L * m_keys.length);
+                m_keys = Arrays.copyOf(m_keys, capacity);
+                m_indices = Arrays.copyOf(m_indices, capacity);
+                m_rows = Arrays.copyOf(m_rows, capacity);
+            }
+            m_keys[m_size] = key;
+            m_indices[m_size] = index;
+            m_rows[m_size] = row;
+            siftUp(m_size++);
+        } else if (isWorse(m_keys[0], m_indices[0], key, index)) {
+            m_keys[0] = key;
+            m_indices[0] = index;
+            m_rows[0] = row;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * @return the number of kept rows
+     */
+    int size() {
+        return m_size;
+    }
+
+    /**
+     * @param i the position in the heap, between 0 and {@link #size()}
+     * @return the index of the kept row at the position
+     */
+    long getIndex(final int i) {
+        return m_indices[i];
+    }
+
+    /**
+     * @param i the position in the heap, between 0 and {@link #size()}
+     * @return the kept row at the position
+     */
+    DataRow getRow(final int i) {
+        return m_rows[i];
+    }
+
+    /** true if row a comes after row b in the selection order */
+    private static boolean isWorse(final double keyA, final long indexA, final double keyB, final long indexB) {
+        return keyA < keyB || (keyA == keyB && indexA > indexB);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (!isWorse(m_keys[i], m_indices[i], m_keys[parent], m_indices[parent])) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            final int left = 2 * i + 1;
+            if (left >= m_size) {
+                return;
+            }
+            int worst = left;
+            final int right = left + 1;
+            if (right < m_size && isWorse(m_keys[right], m_indices[right], m_keys[left], m_indices[left])) {
+                worst = right;
+            }
+            if (!isWorse(m_keys[worst], m_indices[worst], m_keys[i], m_indices[i])) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(final int i, final int j) {
+        final double key = m_keys[i];
+        m_keys[i] = m_keys[j];
+        m_keys[j] = key;
+        final long index = m_indices[i];
+        m_indices[i] = m_indices[j];
+        m_indices[j] = index;
+        final DataRow row = m_rows[i];
+        m_rows[i] = m_rows[j];
+        m_rows[j] = row;
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.al.nodes.select.topk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.al.nodes.AbstractALNodeModel;
+import org.knime.al.util.NodeUtils;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.defaultnodesettings.SettingsModel;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.streamable.BufferedDataTableRowOutput;
+import org.knime.core.node.streamable.DataTableRowInput;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.OutputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
+
+/**
+ * Node model for the Top-k Selector node. It selects the k rows with the largest or smallest scores, optionally per
+ * group, without sorting the table. Every group keeps its k best rows in a {@link TopKHeap}, so a table of n rows is
+ * processed in O(n log k) time with O(k) rows per group in memory. The selected rows are output in their input order.
+ */
+final class TopKSelectorNodeModel extends AbstractALNodeModel {
+
+    static final int DEFAULT_K = 100;
+
+    static SettingsModelString createScoreColumnModel() {
+        return new SettingsModelString("scoreColumn", "");
+    }
+
+    static SettingsModelIntegerBounded createKModel() {
+        return new SettingsModelIntegerBounded("k", DEFAULT_K, 1, Integer.MAX_VALUE);
+    }
+
+    static SettingsModelString createSelectionStrategyModel() {
+        return new SettingsModelString("selectionStrategy", SelectionStrategy.LARGEST.name());
+    }
+
+    // empty or null if the rows are not grouped
+    static SettingsModelString createGroupColumnModel() {
+        return new SettingsModelString("groupColumn", "");
+    }
+
+    private final SettingsModelString m_scoreColumn = createScoreColumnModel();
+
+    private final SettingsModelIntegerBounded m_k = createKModel();
+
+    private final SettingsModelString m_selectionStrategy = createSelectionStrategyModel();
+
+    private final SettingsModelString m_groupColumn = createGroupColumnModel();
+
+    /**
+     */
+    TopKSelectorNodeModel() {
+        super(1, 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
+        NodeUtils.autoColumnSelection(inSpecs[0], m_scoreColumn, DoubleValue.class, TopKSelectorNodeModel.class);
+        getGroupColumnIndex(inSpecs[0]);
+        getSelectionStrategy();
+        return new DataTableSpec[]{inSpecs[0]};
+    }
+
+    private int getGroupColumnIndex(final DataTableSpec spec) throws InvalidSettingsException {
+        final String groupColumn = m_groupColumn.getStringValue();
+        if (groupColumn == null || groupColumn.isEmpty()) {
+            return -1;
+        }
+        final int index = spec.findColumnIndex(groupColumn);
+        if (index < 0) {
+            throw new InvalidSettingsException(
+                "The group column '" + groupColumn + "' is not contained in the input table.");
+        }
+        return index;
+    }
+
+    private SelectionStrategy getSelectionStrategy() throws InvalidSettingsException {
+        try {
+            return SelectionStrategy.valueOf(m_selectionStrategy.getStringValue());
+        } catch (final IllegalArgumentException e) {
+            throw new InvalidSettingsException(
+                String.format("Unknown selection strategy: '%s'.", m_selectionStrategy.getStringValue()), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
+        throws Exception {
+        final BufferedDataTableRowOutput output =
+            new BufferedDataTableRowOutput(exec.createDataContainer(inData[0].getDataTableSpec()));
+        select(new DataTableRowInput(inData[0]), output, inData[0].size(), exec);
+        return new BufferedDataTable[]{output.getDataTable()};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputPortRole[] getInputPortRoles() {
+        // the rows are selected over the whole table, so it must not be distributed
+        return new InputPortRole[]{InputPortRole.NONDISTRIBUTED_STREAMABLE};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OutputPortRole[] getOutputPortRoles() {
+        return new OutputPortRole[]{OutputPortRole.NONDISTRIBUTED};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamableOperator createStreamableOperator(final PartitionInfo partitionInfo,
+        final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+        return new StreamableOperator() {
+
+            @Override
+            public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
+                throws Exception {
+                select((RowInput)inputs[0], (RowOutput)outputs[0], -1, exec);
+            }
+        };
+    }
+
+    /**
+     * Offers every row to the heap of its group and pushes the kept rows in their input order once all rows are
+     * read.
+     *
+     * @param size the number of input rows or -1 if unknown
+     */
+    private void select(final RowInput input, final RowOutput output, final long size, final ExecutionContext exec)
+        throws Exception {
+        final DataTableSpec spec = input.getDataTableSpec();
+        final int scoreIndex = spec.findColumnIndex(m_scoreColumn.getStringValue());
+        final int groupIndex = getGroupColumnIndex(spec);
+        final SelectionStrategy strategy = getSelectionStrategy();
+        final int k = m_k.getIntValue();
+
+        final Map<DataCell, TopKHeap> heaps = new HashMap<>();
+        // without groups all rows are offered to the same heap
+        final TopKHeap ungrouped = groupIndex < 0 ? new TopKHeap(k) : null;
+        long index = 0;
+        long skipped = 0;
+        DataRow row;
+        try {
+            while ((row = input.poll()) != null) {
+                final DataCell scoreCell = row.getCell(scoreIndex);
+                final double score = scoreCell.isMissing() ? Double.NaN : ((DoubleValue)scoreCell).getDoubleValue();
+                if (Double.isNaN(score)) {
+                    skipped++;
+                } else {
+                    final TopKHeap heap = ungrouped != null ? ungrouped
+                        : heaps.computeIfAbsent(row.getCell(groupIndex), g -> new TopKHeap(k));
+                    heap.offer(strategy.toKey(score), index, row);
+                }
+                index++;
+                if (index % 1024 == 0) {
+                    exec.checkCanceled();
+                    if (size > 0) {
+                        exec.setProgress(((double)index) / size, "Read " + index + " rows");
+                    } else {
+                        exec.setMessage("Read " + index + " rows");
+                    }
+                }
+            }
+        } finally {
+            input.close();
+        }
+        if (skipped > 0) {
+            setWarningMessage(skipped + " rows with a missing or NaN score were skipped.");
+        }
+
+        final List<TopKHeap> selected = ungrouped != null ? Arrays.asList(ungrouped) : new ArrayList<>(heaps.values());
+        pushInInputOrder(selected, output);
+        output.close();
+    }
+
+    private static void pushInInputOrder(final List<TopKHeap> heaps, final RowOutput output)
+        throws InterruptedException {
+        int numSelected = 0;
+        for (final TopKHeap heap : heaps) {
+            numSelected += heap.size();
+        }
+        final long[] indices = new long[numSelected];
+        final DataRow[] rows = new DataRow[numSelected];
+        int i = 0;
+        for (final TopKHeap heap : heaps) {
+            for (int j = 0; j < heap.size(); j++) {
+                indices[i] = heap.getIndex(j);
+                rows[i++] = heap.getRow(j);
+            }
+        }
+        final Integer[] order = new Integer[numSelected];
+        for (int j = 0; j < numSelected; j++) {
+            order[j] = j;
+        }
+        Arrays.sort(order, Comparator.comparingLong(j -> indices[j]));
+        for (final Integer j : order) {
+            output.push(rows[j]);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void reset() {
+        // nothing to reset
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SettingsModel> collectSettingsModels() {
+        return Arrays.asList(m_scoreColumn, m_k, m_selectionStrategy, m_groupColumn);
+    }
+
+}
@@ -49,7 +49,6 @@
 package org.knime.al.util;
 
 import org.apache.commons.math3.stat.descriptive.moment.Variance;
-import org.apache.commons.math3.stat.descriptive.summary.Sum;
 import org.apache.commons.math3.util.FastMath;
 
 /**
@@ -66,8 +65,6 @@ public final class MathUtils {
 
     private static final Variance VAR = new Variance();
 
-    private static final Sum SUM = new Sum();
-
     private MathUtils() {
         // NB: Utility Class
     }
@@ -79,7 +76,7 @@ private MathUtils() {
      * @return if the given distribution is valid.
      */
     public static final boolean checkDistribution(final double[] distribution) {
-        if (Math.abs(1d - SUM.evaluate(distribution)) > TOLERANCE) {
+        if (Math.abs(1d - sumOfArray(distribution)) > TOLERANCE) {
             return false;
         }
         return true;
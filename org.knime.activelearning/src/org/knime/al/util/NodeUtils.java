@@ -56,6 +56,8 @@
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.defaultnodesettings.SettingsModel;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 
 /**
@@ -227,4 +229,47 @@ public static final int silentOptionalAutoColumnSelection(
         return i;
 
     }
+
+    /**
+     * Loads a setting that was added after the first release of a node. Older
+     * workflows don't contain it, the model then keeps its current value, so
+     * callers that need another value for old workflows set it before.
+     *
+     * @param settings
+     *            the node settings
+     * @param key
+     *            the key of the setting
+     * @param model
+     *            the model of the setting
+     * @throws InvalidSettingsException
+     *             if the setting is invalid
+     */
+    public static void loadOptionalSettings(final NodeSettingsRO settings,
+            final String key, final SettingsModel model)
+            throws InvalidSettingsException {
+        if (settings.containsKey(key)) {
+            model.loadSettingsFrom(settings);
+        }
+    }
+
+    /**
+     * Validates a setting that was added after the first release of a node,
+     * see {@link #loadOptionalSettings(NodeSettingsRO, String, SettingsModel)}.
+     *
+     * @param settings
+     *            the node settings
+     * @param key
+     *            the key of the setting
+     * @param model
+     *            the model of the setting
+     * @throws InvalidSettingsException
+     *             if the setting is invalid
+     */
+    public static void validateOptionalSettings(final NodeSettingsRO settings,
+            final String key, final SettingsModel model)
+            throws InvalidSettingsException {
+        if (settings.containsKey(key)) {
+            model.validateSettings(settings);
+        }
+    }
 }
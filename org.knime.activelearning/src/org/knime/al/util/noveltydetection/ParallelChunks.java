@@ -0,0 +1,303 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.util.noveltydetection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.ThreadPool;
+
+/*
+ * Executes work on a range of indices in parallel such that the result does
+ * not depend on the number of threads:
+ *
+ * - the range is split into chunks whose boundaries only depend on the size
+ *   of the range and the chunk size
+ * - every chunk is processed by a single task in index order
+ * - the results of the chunks are returned in chunk order, so reductions
+ *   over them are always done in the same order
+ *
+ * At most parallelism chunks are processed at the same time on the KNIME
+ * global thread pool. With a parallelism of 1 the chunks are processed in
+ * the calling thread. map collects a result per chunk, forEach lets a fixed
+ * set of workers take the chunks one by one.
+ */
+public final class ParallelChunks {
+
+    /*
+     * Task that processes the indices start (inclusive) to end (exclusive).
+     */
+    public interface ChunkTask<R> {
+        R compute(int start, int end) throws Exception;
+    }
+
+    /*
+     * Processes chunks one after another in a single thread, e.g. with
+     * scratch buffers that are reused for all of its chunks.
+     */
+    public interface ChunkWorker {
+        void compute(int start, int end) throws Exception;
+    }
+
+    public interface ChunkWorkerFactory {
+        ChunkWorker createWorker();
+    }
+
+    private ParallelChunks() {
+        // utility class
+    }
+
+    /*
+     * Returns the default number of chunks processed at the same time, two
+     * thirds of the available processors but at least one.
+     */
+    public static int defaultParallelism() {
+        return Math.max(1,
+                Runtime.getRuntime().availableProcessors() * 2 / 3);
+    }
+
+    /*
+     * Returns the number of chunks a range is split into. Parameters: size:
+     * number of indices chunkSize: maximal number of indices per chunk
+     */
+    public static int numChunks(final int size, final int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException(
+                    "The chunk size must be positive.");
+        }
+        return (int) (((long) size + chunkSize - 1) / chunkSize);
+    }
+
+    /*
+     * Applies the task to all chunks of the range 0 to size. Parameters:
+     * size: number of indices chunkSize: maximal number of indices per chunk
+     * parallelism: maximal number of chunks processed at the same time task:
+     * task applied to each chunk progMon: progress monitor, checked for
+     * cancellation before each chunk progressMessage: message shown with the
+     * number of finished chunks Output: results of the chunks in chunk order
+     */
+    public static <R> List<R> map(final int size, final int chunkSize,
+            final int parallelism, final ChunkTask<R> task,
+            final ExecutionMonitor progMon, final String progressMessage)
+            throws Exception {
+        final int numChunks = numChunks(size, chunkSize);
+        final List<R> results = new ArrayList<R>(numChunks);
+        if (numChunks <= 1 || parallelism <= 1) {
+            for (int c = 0; c < numChunks; c++) {
+                progMon.checkCanceled();
+                results.add(task.compute(c * chunkSize,
+                        Math.min(size, (c + 1) * chunkSize)));
+                reportProgress(progMon, progressMessage, c + 1, numChunks);
+            }
+            return results;
+        }
+
+        final ThreadPool pool = KNIMEConstants.GLOBAL_THREAD_POOL;
+        try {
+            pool.runInvisible(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    final Deque<Future<R>> pending =
+                            new ArrayDeque<Future<R>>();
+                    int next = 0;
+                    try {
+                        while (results.size() < numChunks) {
+                            while (next < numChunks
+                                    && pending.size() < parallelism) {
+                                progMon.checkCanceled();
+                                final int start = next * chunkSize;
+                                final int end =
+                                        Math.min(size, start + chunkSize);
+                                pending.add(pool.enqueue(new Callable<R>() {
+                                    @Override
+                                    public R call() throws Exception {
+                                        return task.compute(start, end);
+                                    }
+                                }));
+                                next++;
+                            }
+                            results.add(pending.poll().get());
+                            reportProgress(progMon, progressMessage,
+                                    results.size(), numChunks);
+                        }
+                    } catch (final Exception e) {
+                        for (final Future<R> future : pending) {
+                            future.cancel(true);
+                        }
+                        throw e;
+                    }
+                    return null;
+                }
+            });
+        } catch (final ExecutionException e) {
+            throw unwrap(e);
+        }
+        return results;
+    }
+
+    /*
+     * Processes all chunks of the range 0 to size with at most parallelism
+     * workers. A worker takes the next unprocessed chunk as soon as it has
+     * finished its previous one, so slow chunks do not hold up the others.
+     * The chunk boundaries are the same as for map, a worker must write the
+     * results of a chunk to locations that only depend on the chunk.
+     * Parameters: size: number of indices chunkSize: maximal number of
+     * indices per chunk parallelism: maximal number of workers factory:
+     * creates the workers progMon: progress monitor, checked for
+     * cancellation before each chunk progressMessage: message shown with the
+     * number of finished chunks
+     */
+    public static void forEach(final int size, final int chunkSize,
+            final int parallelism, final ChunkWorkerFactory factory,
+            final ExecutionMonitor progMon, final String progressMessage)
+            throws Exception {
+        final int numChunks = numChunks(size, chunkSize);
+        if (numChunks == 0) {
+            return;
+        }
+        final int numWorkers = Math.min(Math.max(1, parallelism), numChunks);
+        if (numWorkers == 1) {
+            final ChunkWorker worker = factory.createWorker();
+            for (int c = 0; c < numChunks; c++) {
+                progMon.checkCanceled();
+                worker.compute(c * chunkSize,
+                        Math.min(size, (c + 1) * chunkSize));
+                reportProgress(progMon, progressMessage, c + 1, numChunks);
+            }
+            return;
+        }
+
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final AtomicInteger finishedChunks = new AtomicInteger();
+        final ThreadPool pool = KNIMEConstants.GLOBAL_THREAD_POOL;
+        try {
+            pool.runInvisible(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    final Future<?>[] workers = new Future<?>[numWorkers];
+                    for (int w = 0; w < numWorkers; w++) {
+                        workers[w] = pool.enqueue(new Callable<Void>() {
+                            @Override
+                            public Void call() throws Exception {
+                                runWorker(factory.createWorker(), size,
+                                        chunkSize, nextChunk, finishedChunks,
+                                        progMon, progressMessage);
+                                return null;
+                            }
+                        });
+                    }
+                    try {
+                        for (final Future<?> worker : workers) {
+                            worker.get();
+                        }
+                    } catch (final Exception e) {
+                        nextChunk.set(numChunks);
+                        for (final Future<?> worker : workers) {
+                            worker.cancel(true);
+                        }
+                        throw e;
+                    }
+                    return null;
+                }
+            });
+        } catch (final ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static void runWorker(final ChunkWorker worker, final int size,
+            final int chunkSize, final AtomicInteger nextChunk,
+            final AtomicInteger finishedChunks, final ExecutionMonitor progMon,
+            final String progressMessage) throws Exception {
+        final int numChunks = numChunks(size, chunkSize);
+        try {
+            int c;
+            while ((c = nextChunk.getAndIncrement()) < numChunks) {
+                progMon.checkCanceled();
+                worker.compute(c * chunkSize,
+                        Math.min(size, (c + 1) * chunkSize));
+                reportProgress(progMon, progressMessage,
+                        finishedChunks.incrementAndGet(), numChunks);
+            }
+        } catch (final Exception e) {
+            // stop the other workers
+            nextChunk.set(numChunks);
+            throw e;
+        }
+    }
+
+    // unwraps the exceptions of the pool and the chunk futures
+    private static Exception unwrap(final ExecutionException e) {
+        Throwable cause = e;
+        while (cause instanceof ExecutionException
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        return e;
+    }
+
+    private static void reportProgress(final ExecutionMonitor progMon,
+            final String progressMessage, final int finished,
+            final int numChunks) {
+        progMon.setProgress(((double) finished) / numChunks,
+                progressMessage + " (" + finished + "/" + numChunks + ")");
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.util.noveltydetection.kernel;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+
+/*
+ * Reads and writes double arrays in bulk. The values are converted in chunks
+ * through a DoubleBuffer view of a ByteBuffer and each chunk is written with a
+ * single call. ByteBuffers are big-endian like DataOutput.writeDouble, so the
+ * bytes are the same as writing the values one by one and models written by
+ * earlier versions can be read with these methods as well.
+ */
+public final class DoubleArrayIO {
+
+    // 64KB per chunk
+    private static final int CHUNK_SIZE = 8192;
+
+    private DoubleArrayIO() {
+        // utility class
+    }
+
+    /*
+     * Writes the values of all rows, without the dimensions
+     */
+    public static void writeMatrix(final DataOutput out, final double[][] data)
+            throws IOException {
+        long total = 0;
+        for (final double[] row : data) {
+            total += row.length;
+        }
+        final ByteBuffer bytes = allocate(total);
+        final DoubleBuffer doubles = bytes.asDoubleBuffer();
+        for (final double[] row : data) {
+            int offset = 0;
+            while (offset < row.length) {
+                final int count =
+                        Math.min(doubles.remaining(), row.length - offset);
+                doubles.put(row, offset, count);
+                offset += count;
+                if (!doubles.hasRemaining()) {
+                    out.write(bytes.array(), 0, doubles.position() * 8);
+                    doubles.clear();
+                }
+            }
+        }
+        if (doubles.position() > 0) {
+            out.write(bytes.array(), 0, doubles.position() * 8);
+        }
+    }
+
+    /*
+     * Reads values written by writeMatrix (or one by one with writeDouble)
+     * into the rows of data, which determine how many values are read
+     */
+    public static void readMatrix(final DataInput in, final double[][] data)
+            throws IOException {
+        long remaining = 0;
+        for (final double[] row : data) {
+            remaining += row.length;
+        }
+        final ByteBuffer bytes = allocate(remaining);
+        final DoubleBuffer doubles = bytes.asDoubleBuffer();
+        doubles.limit(0);
+        for (final double[] row : data) {
+            int offset = 0;
+            while (offset < row.length) {
+                if (!doubles.hasRemaining()) {
+                    final int count =
+                            (int) Math.min(doubles.capacity(), remaining);
+                    in.readFully(bytes.array(), 0, count * 8);
+                    doubles.clear();
+                    doubles.limit(count);
+                    remaining -= count;
+                }
+                final int count =
+                        Math.min(doubles.remaining(), row.length - offset);
+                doubles.get(row, offset, count);
+                offset += count;
+            }
+        }
+    }
+
+    public static void writeArray(final DataOutput out, final double[] data)
+            throws IOException {
+        writeMatrix(out, new double[][] { data });
+    }
+
+    public static void readArray(final DataInput in, final double[] data)
+            throws IOException {
+        readMatrix(in, new double[][] { data });
+    }
+
+    private static ByteBuffer allocate(final long numValues) {
+        return ByteBuffer
+                .allocate((int) Math.max(1, Math.min(CHUNK_SIZE, numValues))
+                        * 8);
+    }
+}
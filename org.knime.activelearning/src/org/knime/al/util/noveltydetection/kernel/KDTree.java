@@ -0,0 +1,345 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.util.noveltydetection.kernel;
+
+import java.util.Arrays;
+
+/*
+ * KD-tree over samples for exact k nearest neighbor queries with the
+ * squared Euclidean distance. The distances are summed up in the same order
+ * as in the RBFKernel, so the k nearest neighbors are exactly the k training
+ * samples with the largest RBF kernel values. Samples with the same
+ * distance are ordered by their index, the smaller index comes first.
+ *
+ * The tree is immutable after construction and can be queried from several
+ * threads, every thread needs its own Query.
+ */
+public final class KDTree {
+
+    // maximum number of samples in a leaf
+    private static final int LEAF_SIZE = 16;
+
+    private final double[][] m_samples;
+    private final int m_dimensions;
+
+    // permutation of the sample indices, every node covers a range of it
+    private final int[] m_order;
+
+    // nodes in preorder, leaves have a split dimension of -1
+    private int[] m_start;
+    private int[] m_end;
+    private int[] m_splitDimension;
+    private double[] m_splitValue;
+    private int[] m_right;
+    private int m_numNodes;
+
+    /*
+     * Builds the tree. Parameters: samples: the samples as rows, all of the
+     * same length, they are referenced and must not be modified afterwards
+     */
+    public KDTree(final double[][] samples) {
+        if (samples.length == 0) {
+            throw new IllegalArgumentException(
+                    "A KD-tree needs at least one sample.");
+        }
+        m_samples = samples;
+        m_dimensions = samples[0].length;
+        m_order = new int[samples.length];
+        for (int i = 0; i < m_order.length; i++) {
+            m_order[i] = i;
+        }
+        final int capacity = 2 * (samples.length / LEAF_SIZE + 1);
+        m_start = new int[capacity];
+        m_end = new int[capacity];
+        m_splitDimension = new int[capacity];
+        m_splitValue = new double[capacity];
+        m_right = new int[capacity];
+        build(0, samples.length);
+    }
+
+    public int size() {
+        return m_samples.length;
+    }
+
+    /*
+     * Creates the buffers for queries of k neighbors, k must not be larger
+     * than the number of samples
+     */
+    public Query createQuery(final int k) {
+        if (k < 1 || k > m_samples.length) {
+            throw new IllegalArgumentException("k must be between 1 and "
+                    + m_samples.length + " but is " + k + ".");
+        }
+        return new Query(k);
+    }
+
+    private int build(final int start, final int end) {
+        final int node = m_numNodes++;
+        ensureCapacity(m_numNodes);
+        m_start[node] = start;
+        m_end[node] = end;
+        m_splitDimension[node] = -1;
+        if (end - start <= LEAF_SIZE) {
+            return node;
+        }
+
+        // split at the median of the dimension with the largest spread
+        int splitDimension = -1;
+        double maxSpread = 0;
+        for (int d = 0; d < m_dimensions; d++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = start; i < end; i++) {
+                final double value = m_samples[m_order[i]][d];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > maxSpread) {
+                maxSpread = max - min;
+                splitDimension = d;
+            }
+        }
+        if (splitDimension < 0) {
+            // all samples are equal
+            return node;
+        }
+
+        final int median = (start + end) >>> 1;
+        select(start, end - 1, median, splitDimension);
+        m_splitDimension[node] = splitDimension;
+        m_splitValue[node] = m_samples[m_order[median]][splitDimension];
+        // the left child directly follows its parent
+        build(start, median);
+        // the arrays may be reallocated while the right child is built
+        final int right = build(median, end);
+        m_right[node] = right;
+        return node;
+    }
+
+    private void ensureCapacity(final int numNodes) {
+        if (numNodes > m_start.length) {
+            final int capacity = 2 * m_start.length;
+            m_start = Arrays.copyOf(m_start, capacity);
+            m_end = Arrays.copyOf(m_end, capacity);
+            m_splitDimension = Arrays.copyOf(m_splitDimension, capacity);
+            m_splitValue = Arrays.copyOf(m_splitValue, capacity);
+            m_right = Arrays.copyOf(m_right, capacity);
+        }
+    }
+
+    /*
+     * Quickselect on m_order[left..right] such that the element at position
+     * k has all smaller or equal values of the dimension before it and all
+     * larger or equal values after it
+     */
+    private void select(int left, int right, final int k,
+            final int dimension) {
+        while (left < right) {
+            final double pivot =
+                    m_samples[m_order[(left + right) >>> 1]][dimension];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (m_samples[m_order[i]][dimension] < pivot) {
+                    i++;
+                }
+                while (m_samples[m_order[j]][dimension] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    final int tmp = m_order[i];
+                    m_order[i] = m_order[j];
+                    m_order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /*
+     * Buffers of a k nearest neighbor query, a query must only be used by a
+     * single thread at a time.
+     */
+    public final class Query {
+        private final int m_k;
+
+        // max heap of the current neighbors, the worst neighbor is at the top
+        private final double[] m_heapDistances;
+        private final int[] m_heapIndices;
+        private int m_heapSize;
+
+        private double[] m_point;
+
+        private Query(final int k) {
+            m_k = k;
+            m_heapDistances = new double[k];
+            m_heapIndices = new int[k];
+        }
+
+        /*
+         * Finds the k nearest samples of the point. Parameters: neighbors:
+         * receives the indices of the neighbors in ascending order, must
+         * have length k
+         */
+        public void nearest(final double[] point, final int[] neighbors) {
+            if (point.length != m_dimensions) {
+                throw new IllegalArgumentException(
+                        "The arrays (vectors) must be of the same length.");
+            }
+            m_point = point;
+            m_heapSize = 0;
+            search(0);
+            m_point = null;
+
+            System.arraycopy(m_heapIndices, 0, neighbors, 0, m_k);
+            Arrays.sort(neighbors, 0, m_k);
+        }
+
+        private void search(final int node) {
+            final int splitDimension = m_splitDimension[node];
+            if (splitDimension < 0) {
+                for (int i = m_start[node]; i < m_end[node]; i++) {
+                    offer(m_order[i]);
+                }
+                return;
+            }
+            final double diff = m_point[splitDimension] - m_splitValue[node];
+            final int left = node + 1;
+            final int right = m_right[node];
+            search(diff < 0 ? left : right);
+            // samples on the other side are at least diff away, the subtree
+            // is still searched at equal distance because of the index order
+            if (m_heapSize < m_k || diff * diff <= m_heapDistances[0]) {
+                search(diff < 0 ? right : left);
+            }
+        }
+
+        private void offer(final int index) {
+            final double[] sample = m_samples[index];
+            final boolean full = m_heapSize == m_k;
+            final double bound =
+                    full ? m_heapDistances[0] : Double.POSITIVE_INFINITY;
+            double distance = 0;
+            for (int d = 0; d < m_dimensions; d++) {
+                final double dif = sample[d] - m_point[d];
+                distance = distance + dif * dif;
+                if (distance > bound) {
+                    return;
+                }
+            }
+            if (!full) {
+                m_heapDistances[m_heapSize] = distance;
+                m_heapIndices[m_heapSize] = index;
+                siftUp(m_heapSize++);
+            } else if (isWorse(m_heapDistances[0], m_heapIndices[0], distance,
+                    index)) {
+                m_heapDistances[0] = distance;
+                m_heapIndices[0] = index;
+                siftDown(0);
+            }
+        }
+
+        // true if neighbor a is further away than neighbor b
+        private boolean isWorse(final double distanceA, final int indexA,
+                final double distanceB, final int indexB) {
+            return distanceA > distanceB
+                    || (distanceA == distanceB && indexA > indexB);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (!isWorse(m_heapDistances[i], m_heapIndices[i],
+                        m_heapDistances[parent], m_heapIndices[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                final int left = 2 * i + 1;
+                if (left >= m_heapSize) {
+                    return;
+                }
+                int worst = left;
+                final int right = left + 1;
+                if (right < m_heapSize && isWorse(m_heapDistances[right],
+                        m_heapIndices[right], m_heapDistances[left],
+                        m_heapIndices[left])) {
+                    worst = right;
+                }
+                if (!isWorse(m_heapDistances[worst], m_heapIndices[worst],
+                        m_heapDistances[i], m_heapIndices[i])) {
+                    return;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(final int i, final int j) {
+            final double distance = m_heapDistances[i];
+            m_heapDistances[i] = m_heapDistances[j];
+            m_heapDistances[j] = distance;
+            final int index = m_heapIndices[i];
+            m_heapIndices[i] = m_heapIndices[j];
+            m_heapIndices[j] = index;
+        }
+    }
+}
@@ -0,0 +1,537 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+
+
+
+package org.knime.al.util.noveltydetection.kernel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.core.node.NodeLogger;
+
+/*
+ * Disk-backed cache of kernel values that survives between the iterations of
+ * an active learning loop (and restarts of KNIME). The training and pool
+ * samples of such a loop are mostly the same in every iteration, so most
+ * kernel values only have to be calculated once.
+ *
+ * The values are cached per kernel function (type and parameters) in tiles:
+ * a file holds the kernel values of a tile of up to MAX_TILE_ROWS row
+ * samples with all column samples they were kernelized with, so a block of
+ * rows needs a few file accesses instead of one per row. The tiles are cut
+ * where the id of a row has its low TILE_BITS bits cleared, so removing a row
+ * from a table (e.g. a pool row that got labeled) only changes the tile that
+ * contained it. Samples are identified by a 64 bit hash of their feature
+ * values rather than by their row key, so the same cache can be used by nodes
+ * that don't know the row keys (e.g. for the training samples of a KNFST
+ * model) and entries don't become stale if the features of a row change.
+ *
+ * A tile is locked while it is read, completed with the values of new column
+ * samples and written, with a fixed number of locks shared by all tiles, so
+ * blocks of different tiles are processed in parallel. The total size of the
+ * files is bounded, the least recently used tiles are evicted first.
+ *
+ * Reading a cached value costs more than calculating a kernel of a few
+ * features, see isWorthCaching.
+ */
+public final class KernelCache {
+
+    private static final NodeLogger LOGGER =
+            NodeLogger.getLogger(KernelCache.class);
+
+    private static final String FILE_SUFFIX = ".kc";
+
+    // a tile ends after a row whose id has these bits cleared, so tiles have
+    // 2^TILE_BITS rows on average
+    private static final int TILE_BITS = 5;
+    private static final long TILE_MASK = (1L << TILE_BITS) - 1;
+    private static final int MAX_TILE_ROWS = 4 << TILE_BITS;
+
+    private static final int NUM_LOCKS = 64;
+
+    /*
+     * Minimal number of values of a sample for which the kernel values are
+     * cached
+     */
+    public static final int MIN_CACHED_DIMENSION = 128;
+
+    // one instance per directory so that the size bound holds for all nodes
+    // that share a directory
+    private static final Map<File, KernelCache> INSTANCES =
+            new HashMap<File, KernelCache>();
+
+    private final File m_directory;
+
+    // locks of the tiles, a tile is locked while it is read and written
+    private final Object[] m_locks = new Object[NUM_LOCKS];
+
+    // cached tile files in least recently used order with their sizes, the
+    // map also guards m_totalBytes and m_maxBytes
+    private final LinkedHashMap<File, Long> m_files =
+            new LinkedHashMap<File, Long>(16, 0.75f, true);
+    private long m_totalBytes;
+    private long m_maxBytes;
+
+    /*
+     * Returns the cache of the directory, which is shared by all callers.
+     * Parameters: directory: the cache directory, created if necessary
+     * maxBytes: maximal size of the cached files
+     */
+    public static KernelCache getInstance(final File directory,
+            final long maxBytes) throws IOException {
+        final File canonical = directory.getCanonicalFile();
+        synchronized (INSTANCES) {
+            KernelCache cache = INSTANCES.get(canonical);
+            if (cache == null) {
+                cache = new KernelCache(canonical, maxBytes);
+                INSTANCES.put(canonical, cache);
+            } else {
+                cache.setMaxBytes(maxBytes);
+            }
+            return cache;
+        }
+    }
+
+    /*
+     * Returns whether the kernel values of samples with the given number of
+     * values are worth caching. Below MIN_CACHED_DIMENSION calculating a
+     * value, e.g. of an RBF or HIK kernel, is cheaper than reading it.
+     */
+    public static boolean isWorthCaching(final int dimension) {
+        return dimension >= MIN_CACHED_DIMENSION;
+    }
+
+    // opens a cache directory, the files of previous runs are reused
+    private KernelCache(final File directory, final long maxBytes)
+            throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException(
+                    "Can't create the kernel cache directory " + directory);
+        }
+        m_directory = directory;
+        for (int i = 0; i < NUM_LOCKS; i++) {
+            m_locks[i] = new Object();
+        }
+
+        // restore the order of use from the modification times
+        final List<File> files = new ArrayList<File>();
+        final File[] namespaces = directory.listFiles();
+        if (namespaces != null) {
+            for (final File namespace : namespaces) {
+                final File[] tiles = namespace.listFiles();
+                if (namespace.isDirectory() && tiles != null) {
+                    for (final File tile : tiles) {
+                        if (tile.getName().endsWith(FILE_SUFFIX)) {
+                            files.add(tile);
+                        }
+                    }
+                }
+            }
+        }
+        final File[] sorted = files.toArray(new File[files.size()]);
+        final long[] modified = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            modified[i] = sorted[i].lastModified();
+        }
+        final Integer[] order = new Integer[sorted.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer i1, final Integer i2) {
+                return Long.compare(modified[i1], modified[i2]);
+            }
+        });
+        for (final Integer i : order) {
+            final long length = sorted[i].length();
+            m_files.put(sorted[i], length);
+            m_totalBytes += length;
+        }
+        setMaxBytes(maxBytes);
+    }
+
+    /*
+     * Closes the cache of a directory, the next call of getInstance opens
+     * the files of the directory again
+     */
+    public void close() {
+        synchronized (INSTANCES) {
+            INSTANCES.remove(m_directory);
+        }
+    }
+
+    public void setMaxBytes(final long maxBytes) {
+        synchronized (m_files) {
+            m_maxBytes = maxBytes;
+            evict(null);
+        }
+    }
+
+    public long getSize() {
+        synchronized (m_files) {
+            return m_totalBytes;
+        }
+    }
+
+    /*
+     * Returns an identifier of a sample that only depends on its feature
+     * values
+     */
+    public static long sampleId(final double[] sample) {
+        long hash = 0xcbf29ce484222325L ^ sample.length;
+        for (final double value : sample) {
+            hash = mix(hash ^ Double.doubleToLongBits(value));
+        }
+        return hash;
+    }
+
+    public static long[] sampleIds(final double[][] samples) {
+        final long[] ids = new long[samples.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = sampleId(samples[i]);
+        }
+        return ids;
+    }
+
+    // finalizer of splitmix64, spreads the bits of the hash
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /*
+     * Returns the kernel values of all pairs of row and column samples, only
+     * values that are not cached yet are calculated. Can be called by several
+     * threads at the same time. Parameters: kernelFunction: the kernel
+     * rowIds, colIds: ids of the samples, see sampleId rows, cols: the
+     * samples Output: rows.length x cols.length kernel values
+     */
+    public double[][] kernelize(final KernelFunction kernelFunction,
+            final long[] rowIds, final double[][] rows, final long[] colIds,
+            final double[][] cols) throws IOException {
+        final File namespace = new File(m_directory, namespace(kernelFunction));
+
+        // the tiles store the columns sorted by id without duplicates
+        final Integer[] order = new Integer[cols.length];
+        for (int c = 0; c < order.length; c++) {
+            order[c] = c;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer i1, final Integer i2) {
+                return Long.compare(colIds[i1], colIds[i2]);
+            }
+        });
+        final long[] uniqueIds = new long[cols.length];
+        final int[] uniqueCols = new int[cols.length];
+        final int[] positions = new int[cols.length];
+        int numUnique = 0;
+        for (final Integer c : order) {
+            if (numUnique == 0 || uniqueIds[numUnique - 1] != colIds[c]) {
+                uniqueIds[numUnique] = colIds[c];
+                uniqueCols[numUnique++] = c;
+            }
+            positions[c] = numUnique - 1;
+        }
+        final long[] ids = Arrays.copyOf(uniqueIds, numUnique);
+
+        final double[][] result = new double[rows.length][cols.length];
+        for (int start = 0; start < rows.length;) {
+            final int end = tileEnd(rowIds, start);
+            final double[][] tile = kernelizeTile(kernelFunction, namespace,
+                    Arrays.copyOfRange(rowIds, start, end), rows, start, ids,
+                    uniqueCols, cols);
+            for (int r = start; r < end; r++) {
+                final double[] values = tile[r - start];
+                for (int c = 0; c < cols.length; c++) {
+                    result[r][c] = values[positions[c]];
+                }
+            }
+            start = end;
+        }
+        return result;
+    }
+
+    // the end (exclusive) of the tile that starts at the given row
+    private static int tileEnd(final long[] rowIds, final int start) {
+        int end = start;
+        while (end < rowIds.length && end - start < MAX_TILE_ROWS) {
+            if ((rowIds[end++] & TILE_MASK) == 0) {
+                break;
+            }
+        }
+        return end;
+    }
+
+    // the kernel values of the rows of a tile with the unique columns
+    private double[][] kernelizeTile(final KernelFunction kernelFunction,
+            final File namespace, final long[] tileIds, final double[][] rows,
+            final int start, final long[] colIds, final int[] cols,
+            final double[][] colSamples) throws IOException {
+        long key = sampleId(new double[0]) ^ tileIds.length;
+        for (final long id : tileIds) {
+            key = mix(key ^ id);
+        }
+        final File file =
+                new File(namespace, Long.toHexString(key) + FILE_SUFFIX);
+        final double[][] values = new double[tileIds.length][colIds.length];
+        synchronized (m_locks[(int) (key & (NUM_LOCKS - 1))]) {
+            Tile tile = read(file);
+            if (tile != null && !Arrays.equals(tile.m_rowIds, tileIds)) {
+                // hash collision of two tiles
+                tile = null;
+            }
+            final int[] newCols = new int[colIds.length];
+            int numNew = 0;
+            int p = 0;
+            for (int c = 0; c < colIds.length; c++) {
+                while (tile != null && p < tile.m_colIds.length
+                        && tile.m_colIds[p] < colIds[c]) {
+                    p++;
+                }
+                if (tile != null && p < tile.m_colIds.length
+                        && tile.m_colIds[p] == colIds[c]) {
+                    for (int r = 0; r < tileIds.length; r++) {
+                        values[r][c] = tile.get(r, p);
+                    }
+                } else {
+                    for (int r = 0; r < tileIds.length; r++) {
+                        values[r][c] = kernelFunction.calculate(
+                                rows[start + r], colSamples[cols[c]]);
+                    }
+                    newCols[numNew++] = c;
+                }
+            }
+            if (numNew > 0) {
+                write(file, Tile.merge(tile, tileIds, colIds, values, newCols,
+                        numNew));
+            }
+        }
+        return values;
+    }
+
+    // directory name of a kernel function and its parameters
+    private static String namespace(final KernelFunction kernelFunction) {
+        long hash = sampleId(new double[0]);
+        for (final char c : kernelFunction.getClass().getName()
+                .toCharArray()) {
+            hash = mix(hash ^ c);
+        }
+        for (int p = 0; p < kernelFunction.numParameters(); p++) {
+            hash = mix(hash ^ Double
+                    .doubleToLongBits(kernelFunction.getParameter(p)));
+        }
+        return kernelFunction.getClass().getSimpleName() + "_"
+                + Long.toHexString(hash);
+    }
+
+    // called with the lock of the tile
+    private Tile read(final File file) {
+        synchronized (m_files) {
+            if (m_files.get(file) == null) {
+                return null;
+            }
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            final long[] rowIds = new long[in.readInt()];
+            for (int i = 0; i < rowIds.length; i++) {
+                rowIds[i] = in.readLong();
+            }
+            final long[] colIds = new long[in.readInt()];
+            for (int i = 0; i < colIds.length; i++) {
+                colIds[i] = in.readLong();
+            }
+            final double[] values = new double[rowIds.length * colIds.length];
+            DoubleArrayIO.readArray(in, values);
+            file.setLastModified(System.currentTimeMillis());
+            return new Tile(rowIds, colIds, values);
+        } catch (final IOException e) {
+            // e.g. evicted or deleted by hand, the values are calculated again
+            LOGGER.debug("Could not read kernel cache file " + file, e);
+            synchronized (m_files) {
+                remove(file);
+            }
+            return null;
+        }
+    }
+
+    // called with the lock of the tile
+    private void write(final File file, final Tile tile) throws IOException {
+        final long length = 8 + 8L * tile.m_rowIds.length
+                + 8L * tile.m_colIds.length + 8L * tile.m_values.length;
+        synchronized (m_files) {
+            if (length > m_maxBytes) {
+                return;
+            }
+        }
+        file.getParentFile().mkdirs();
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(tile.m_rowIds.length);
+            for (final long id : tile.m_rowIds) {
+                out.writeLong(id);
+            }
+            out.writeInt(tile.m_colIds.length);
+            for (final long id : tile.m_colIds) {
+                out.writeLong(id);
+            }
+            DoubleArrayIO.writeArray(out, tile.m_values);
+        }
+        synchronized (m_files) {
+            remove(file);
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("Can't write kernel cache file " + file);
+            }
+            m_files.put(file, length);
+            m_totalBytes += length;
+            evict(file);
+        }
+    }
+
+    // called with the lock of m_files
+    private void remove(final File file) {
+        final Long length = m_files.remove(file);
+        if (length != null) {
+            m_totalBytes -= length;
+        }
+        file.delete();
+    }
+
+    // deletes the least recently used files, except keep, until the cache
+    // fits into its bound, called with the lock of m_files
+    private void evict(final File keep) {
+        final Iterator<Map.Entry<File, Long>> it =
+                m_files.entrySet().iterator();
+        while (m_totalBytes > m_maxBytes && it.hasNext()) {
+            final Map.Entry<File, Long> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            it.remove();
+            m_totalBytes -= eldest.getValue();
+            eldest.getKey().delete();
+        }
+    }
+
+    /*
+     * Cached kernel values of the row samples of a tile with column samples
+     * sorted by their ids, stored row by row
+     */
+    private static final class Tile {
+        private final long[] m_rowIds;
+        private final long[] m_colIds;
+        private final double[] m_values;
+
+        Tile(final long[] rowIds, final long[] colIds, final double[] values) {
+            m_rowIds = rowIds;
+            m_colIds = colIds;
+            m_values = values;
+        }
+
+        double get(final int row, final int col) {
+            return m_values[row * m_colIds.length + col];
+        }
+
+        /*
+         * Adds the new columns to a tile. Parameters: tile: the cached tile
+         * or null colIds: the sorted ids of the kernelized columns values:
+         * the kernel values of the rows with the kernelized columns newCols:
+         * the kernelized columns that are not in the tile
+         */
+        static Tile merge(final Tile tile, final long[] rowIds,
+                final long[] colIds, final double[][] values,
+                final int[] newCols, final int numNew) {
+            final int numOld = tile == null ? 0 : tile.m_colIds.length;
+            final long[] ids = new long[numOld + numNew];
+            // the column of every merged id, old columns are negative
+            final int[] source = new int[numOld + numNew];
+            int o = 0;
+            int n = 0;
+            int k = 0;
+            while (o < numOld || n < numNew) {
+                if (n == numNew || (o < numOld
+                        && tile.m_colIds[o] < colIds[newCols[n]])) {
+                    ids[k] = tile.m_colIds[o];
+                    source[k++] = -1 - o++;
+                } else {
+                    ids[k] = colIds[newCols[n]];
+                    source[k++] = newCols[n++];
+                }
+            }
+            final double[] merged = new double[rowIds.length * ids.length];
+            for (int r = 0; r < rowIds.length; r++) {
+                for (int c = 0; c < ids.length; c++) {
+                    merged[r * ids.length + c] = source[c] < 0
+                            ? tile.get(r, -1 - source[c])
+                            : values[r][source[c]];
+                }
+            }
+            return new Tile(rowIds, ids, merged);
+        }
+    }
+}
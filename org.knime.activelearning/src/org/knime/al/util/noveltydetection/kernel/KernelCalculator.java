@@ -51,27 +51,39 @@
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
-import java.util.concurrent.Semaphore;
+import java.util.List;
 
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.MatrixUtils;
 import org.apache.commons.math3.linear.RealMatrix;
+import org.knime.al.util.noveltydetection.ParallelChunks;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DoubleValue;
+import org.knime.core.data.vector.bitvector.BitVectorValue;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.ExecutionMonitor;
-import org.knime.core.node.KNIMEConstants;
-import org.knime.core.util.ThreadPool;
+import org.knime.core.node.InvalidSettingsException;
 
 public class KernelCalculator implements Externalizable {
     static final int DEFAULT_NUM_CORES = 4;
 
+    // number of training samples processed per tile in kernelizeBlock
+    private static final int KERNEL_TILE_SIZE = 256;
+
+    // number of rows calculated per task of a kernel matrix calculation, the
+    // blocks are fixed so that the results do not depend on the thread count
+    private static final int KERNEL_ROW_BLOCK_SIZE = 64;
+
     public enum KernelType {
-        RBF("RBF"), HIK("HIK"), EXPHIK("EXPHIK"), Polynomial("Polynomial");
+        RBF("RBF"), HIK("HIK"), EXPHIK("EXPHIK"), Polynomial("Polynomial"),
+        Tanimoto("Tanimoto");
 
         private final String m_name;
 
@@ -92,6 +104,14 @@ public String toString() {
 
     private KernelFunction m_kernelFunction;
 
+    // optional cache of kernel values, not part of the external form
+    private KernelCache m_cache;
+    private long[] m_trainingIds;
+
+    // number of row blocks calculated at the same time, not part of the
+    // external form
+    private int m_parallelism = ParallelChunks.defaultParallelism();
+
     public KernelCalculator() {
 
     }
@@ -104,7 +124,7 @@ public KernelCalculator(final BufferedDataTable trainingData,
             throw new IllegalStateException("The input table is too large.");
         }
         m_rowCount = (int) size;
-        m_colCount = trainingData.getDataTableSpec().getNumColumns();
+        m_colCount = sampleLength(m_trainingData);
         m_kernelFunction = kernelFunction;
     }
 
@@ -112,10 +132,47 @@ public KernelCalculator(final double[][] trainingData,
             final KernelFunction kernelFunction) {
         m_trainingData = trainingData;
         m_rowCount = trainingData.length;
-        m_colCount = trainingData[0].length;
+        m_colCount = sampleLength(trainingData);
+        m_kernelFunction = kernelFunction;
+    }
+
+    /*
+     * Creates a calculator for training samples in a flat row-major matrix.
+     * The kernel functions work on one array per sample, so the matrix is cut
+     * into rows once, one after another. Parameters: trainingData: the values
+     * of the samples one after another numSamples: the number of samples
+     * kernelFunction: the kernel
+     */
+    public KernelCalculator(final double[] trainingData, final int numSamples,
+            final KernelFunction kernelFunction) {
+        m_rowCount = numSamples;
+        m_colCount = numSamples == 0 ? 0 : trainingData.length / numSamples;
+        m_trainingData = new double[numSamples][];
+        for (int r = 0; r < numSamples; r++) {
+            m_trainingData[r] = Arrays.copyOfRange(trainingData,
+                    r * m_colCount, (r + 1) * m_colCount);
+        }
         m_kernelFunction = kernelFunction;
     }
 
+    /*
+     * Returns the number of values of the training samples, which must be the
+     * same for all samples. They differ only if the bit vectors of a column
+     * have different lengths.
+     */
+    private static int sampleLength(final double[][] trainingData) {
+        final int length = trainingData.length == 0 ? 0
+                : trainingData[0].length;
+        for (final double[] sample : trainingData) {
+            if (sample.length != length) {
+                throw new IllegalArgumentException(
+                        "The bit vectors of a training column must all have "
+                                + "the same length.");
+            }
+        }
+        return length;
+    }
+
     // public KernelCalculator(KernelFunction kernelFunction) {
     // m_kernelFunction = kernelFunction;
     // }
@@ -126,9 +183,91 @@ public KernelCalculator(final double[][] trainingData,
      */
     public RealMatrix kernelize(final ExecutionMonitor progMon)
             throws Exception {
+        if (m_cache != null) {
+            return new Array2DRowRealMatrix(cachedTrainingKernel(progMon),
+                    false);
+        }
         return calculateKernelMatrix(m_trainingData, m_trainingData, progMon);
     }
 
+    /*
+     * Returns the kernel matrix of the training data like
+     * kernelize(ExecutionMonitor), but the returned matrix is backed by the
+     * calculated array instead of a copy of it. Output: mxm matrix
+     * containing similarities of the training data
+     */
+    public Array2DRowRealMatrix kernelizeUncopied(
+            final ExecutionMonitor progMon) throws Exception {
+        if (m_cache != null) {
+            return new Array2DRowRealMatrix(cachedTrainingKernel(progMon),
+                    false);
+        }
+        return new Array2DRowRealMatrix(calculateKernelArray(m_trainingData,
+                m_trainingData, progMon), false);
+    }
+
+    /*
+     * Looks up the kernel matrix of the training data in the cache. Blocks of
+     * rows are looked up in parallel like in calculateKernelArray, so the
+     * progress is reported and the lookup can be canceled between blocks.
+     * Parameters: progMon: progress monitor Output: mxm array of the kernel
+     * values of the training data
+     */
+    private double[][] cachedTrainingKernel(final ExecutionMonitor progMon)
+            throws Exception {
+        final KernelCache cache = m_cache;
+        final long[] ids = getTrainingIds();
+        final double[][] result = new double[m_trainingData.length][];
+        ParallelChunks.map(m_trainingData.length, KERNEL_ROW_BLOCK_SIZE,
+                m_parallelism, new ParallelChunks.ChunkTask<Void>() {
+                    @Override
+                    public Void compute(final int start, final int end)
+                            throws IOException {
+                        final double[][] values = cache.kernelize(
+                                m_kernelFunction,
+                                Arrays.copyOfRange(ids, start, end),
+                                Arrays.copyOfRange(m_trainingData, start, end),
+                                ids, m_trainingData);
+                        System.arraycopy(values, 0, result, start,
+                                end - start);
+                        return null;
+                    }
+                }, progMon, "Kernel calculation finished");
+        return result;
+    }
+
+    /*
+     * Sets a cache that is used for the kernel values of the training samples
+     * with each other and with test samples by kernelize(ExecutionMonitor),
+     * kernelizeBlock and the KernelMatrix variant of calculateKernelMatrix.
+     * The cache is not used if the samples have too few values to be worth
+     * caching, see KernelCache.isWorthCaching. Parameters: cache: the cache
+     * or null to calculate all values
+     */
+    public void setCache(final KernelCache cache) {
+        final int dimension =
+                m_trainingData == null || m_trainingData.length == 0 ? 0
+                        : m_trainingData[0].length;
+        m_cache = cache != null && KernelCache.isWorthCaching(dimension)
+                ? cache : null;
+    }
+
+    /*
+     * Sets the number of row blocks of a kernel matrix that are calculated at
+     * the same time. The calculated values do not depend on it. Parameters:
+     * parallelism: number of blocks, 1 calculates in the calling thread
+     */
+    public void setParallelism(final int parallelism) {
+        m_parallelism = Math.max(1, parallelism);
+    }
+
+    private long[] getTrainingIds() {
+        if (m_trainingIds == null) {
+            m_trainingIds = KernelCache.sampleIds(m_trainingData);
+        }
+        return m_trainingIds;
+    }
+
     public RealMatrix kernelize(final BufferedDataTable trainingData,
             final BufferedDataTable testData, final ExecutionMonitor progMon)
                     throws Exception {
@@ -153,21 +292,205 @@ public RealMatrix kernelize(final DataRow testInstance) {
                 m_kernelFunction);
     }
 
-    private double[] readDataRow(final DataRow row) {
-        final double[] data = new double[row.getNumCells()];
-        for (int i = 0; i < row.getNumCells(); i++) {
-            final DataCell cell = row.getCell(i);
+    /*
+     * Returns the kernel values of a block of test samples with all training
+     * samples. The training data is processed in tiles so that a tile stays in
+     * cache while it is evaluated against every sample of the block.
+     * Parameters: testData: b test samples Output: bxn array where row i holds
+     * the similarities of test sample i with the n training samples
+     */
+    public double[][] kernelizeBlock(final double[][] testData) {
+        final double[][] result =
+                new double[testData.length][m_trainingData.length];
+        kernelizeBlock(testData, 0, testData.length, result);
+        return result;
+    }
+
+    /*
+     * Like kernelizeBlock(double[][]) for the test samples start (inclusive)
+     * to end (exclusive), but writes the kernel values into rows 0 to
+     * end - start of an existing array. Parameters: result: array with at
+     * least end - start rows of n values
+     */
+    public void kernelizeBlock(final double[][] testData, final int start,
+            final int end, final double[][] result) {
+        if (m_cache != null) {
+            final double[][] block = Arrays.copyOfRange(testData, start, end);
+            final double[][] values;
+            try {
+                values = m_cache.kernelize(m_kernelFunction,
+                        KernelCache.sampleIds(block), block, getTrainingIds(),
+                        m_trainingData);
+            } catch (final IOException e) {
+                throw new IllegalStateException(
+                        "Kernel cache not accessible: " + e.getMessage(), e);
+            }
+            for (int i = 0; i < values.length; i++) {
+                System.arraycopy(values[i], 0, result[i], 0, values[i].length);
+            }
+            return;
+        }
+        final int numTraining = m_trainingData.length;
+        for (int tileStart = 0; tileStart < numTraining;
+                tileStart += KERNEL_TILE_SIZE) {
+            final int tileEnd =
+                    Math.min(tileStart + KERNEL_TILE_SIZE, numTraining);
+            for (int i = start; i < end; i++) {
+                final double[] test = testData[i];
+                final double[] kernelValues = result[i - start];
+                for (int r = tileStart; r < tileEnd; r++) {
+                    kernelValues[r] =
+                            m_kernelFunction.calculate(m_trainingData[r], test);
+                }
+            }
+        }
+    }
+
+    /*
+     * Returns the indices of feature columns in a table in the order of the
+     * names. Samples of all tables must be read with the indices of the same
+     * list of names, otherwise their features are permuted. Parameters:
+     * spec: spec of the table features: names of the feature columns Output:
+     * the index of each feature column
+     */
+    public static int[] featureIndices(final DataTableSpec spec,
+            final List<String> features) throws InvalidSettingsException {
+        final int[] indices = new int[features.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = spec.findColumnIndex(features.get(i));
+            if (indices[i] < 0) {
+                throw new InvalidSettingsException("The column "
+                        + features.get(i) + " is not in the table.");
+            }
+        }
+        return indices;
+    }
+
+    /*
+     * Returns the names of feature columns ordered like the columns of a
+     * table, names that are not in the table come first. Parameters: spec:
+     * spec of the table features: names of the feature columns in any order
+     * Output: the names in table order
+     */
+    public static List<String> inTableOrder(final DataTableSpec spec,
+            final List<String> features) {
+        final List<String> ordered = new ArrayList<String>(features);
+        Collections.sort(ordered, new Comparator<String>() {
+            @Override
+            public int compare(final String a, final String b) {
+                return Integer.compare(spec.findColumnIndex(a),
+                        spec.findColumnIndex(b));
+            }
+        });
+        return ordered;
+    }
+
+    /*
+     * Reads the values of the given columns of a row. The numeric values come
+     * first, in the order of their columns. The bit vectors follow, packed
+     * into TanimotoKernel.BITS_PER_VALUE bit words (see TanimotoKernel.pack)
+     * and interleaved: word w of the k-th bit vector is stored at
+     * numNumeric + w * numBitVectors + k. The shorter vectors of a row are
+     * padded with zero words, so every word keeps its position in rows with
+     * vectors of other lengths and the Tanimoto kernel compares the words of
+     * the same column.
+     *
+     * Parameters:
+     * row: the row to read
+     * columnIndices: indices of the numeric or bit vector columns to read
+     * Output: the values of the selected cells
+     */
+    public static double[] readDataRow(final DataRow row,
+            final int[] columnIndices) {
+        final double[] data = new double[sampleLength(row, columnIndices)];
+        readDataRow(row, columnIndices, data, 0);
+        return data;
+    }
+
+    /*
+     * Returns the number of values readDataRow reads from a row.
+     *
+     * Parameters:
+     * row: the row to read
+     * columnIndices: indices of the numeric or bit vector columns to read
+     * Output: the number of values of the sample
+     */
+    public static int sampleLength(final DataRow row,
+            final int[] columnIndices) {
+        int numNumeric = 0;
+        int numBitVectors = 0;
+        int maxWords = 0;
+        for (int i = 0; i < columnIndices.length; i++) {
+            final DataCell cell = row.getCell(columnIndices[i]);
             if (cell.isMissing()) {
                 throw new IllegalArgumentException(
                         "Missing values are not supported.");
-            } else if (!cell.getType().isCompatible(DoubleValue.class)) {
+            } else if (cell.getType().isCompatible(DoubleValue.class)) {
+                numNumeric++;
+            } else if (cell.getType().isCompatible(BitVectorValue.class)) {
+                numBitVectors++;
+                maxWords = Math.max(maxWords, TanimotoKernel
+                        .packedLength(((BitVectorValue) cell).length()));
+            } else {
+                throw new IllegalArgumentException(
+                        "Only numerical and bit vector data types are currently supported.");
+            }
+        }
+        return Math.addExact(numNumeric,
+                Math.multiplyExact(numBitVectors, maxWords));
+    }
+
+    /*
+     * Reads the values of a row like readDataRow(DataRow, int[]) into a
+     * larger array, e.g. a flat matrix of samples.
+     *
+     * Parameters:
+     * row: the row to read
+     * columnIndices: indices of the numeric or bit vector columns to read
+     * destination: array with at least offset + sampleLength(row,
+     * columnIndices) values, which must be zero
+     * offset: index of the first value to write
+     */
+    public static void readDataRow(final DataRow row,
+            final int[] columnIndices, final double[] destination,
+            final int offset) {
+        int numNumeric = 0;
+        int numBitVectors = 0;
+        for (int i = 0; i < columnIndices.length; i++) {
+            final DataCell cell = row.getCell(columnIndices[i]);
+            if (cell.isMissing()) {
                 throw new IllegalArgumentException(
-                        "Only numerical data types are currently supported.");
+                        "Missing values are not supported.");
+            } else if (cell.getType().isCompatible(DoubleValue.class)) {
+                numNumeric++;
             } else {
-                data[i] = ((DoubleValue) cell).getDoubleValue();
+                numBitVectors++;
             }
         }
-        return data;
+
+        int d = offset;
+        int k = offset + numNumeric;
+        for (int i = 0; i < columnIndices.length; i++) {
+            final DataCell cell = row.getCell(columnIndices[i]);
+            if (cell.getType().isCompatible(DoubleValue.class)) {
+                destination[d++] = ((DoubleValue) cell).getDoubleValue();
+            } else {
+                TanimotoKernel.pack((BitVectorValue) cell, destination, k++,
+                        numBitVectors);
+            }
+        }
+    }
+
+    private static int[] allColumns(final int numColumns) {
+        final int[] columnIndices = new int[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            columnIndices[i] = i;
+        }
+        return columnIndices;
+    }
+
+    private double[] readDataRow(final DataRow row) {
+        return readDataRow(row, allColumns(row.getNumCells()));
     }
 
     public RealMatrix kernelize(final double[][] testData,
@@ -186,80 +509,95 @@ public int getNumTrainingSamples() {
         return m_rowCount;
     }
 
+    public double[][] getTrainingData() {
+        return m_trainingData;
+    }
+
+    public KernelFunction getKernelFunction() {
+        return m_kernelFunction;
+    }
+
     public RealMatrix calculateKernelMatrix(final double[][] training,
             final double[][] test, final ExecutionMonitor progMon)
                     throws Exception {
+        return MatrixUtils.createRealMatrix(
+                calculateKernelArray(training, test, progMon));
+    }
+
+    private double[][] calculateKernelArray(final double[][] training,
+            final double[][] test, final ExecutionMonitor progMon)
+                    throws Exception {
+        final double[][] result = new double[training.length][];
+        ParallelChunks.map(training.length, KERNEL_ROW_BLOCK_SIZE,
+                m_parallelism, new ParallelChunks.ChunkTask<Void>() {
+                    @Override
+                    public Void compute(final int start, final int end) {
+                        for (int r = start; r < end; r++) {
+                            final double[] row = new double[test.length];
+                            for (int c = 0; c < test.length; c++) {
+                                row[c] = m_kernelFunction
+                                        .calculate(training[r], test[c]);
+                            }
+                            result[r] = row;
+                        }
+                        return null;
+                    }
+                }, progMon, "Kernel calculation finished");
+        return result;
+    }
 
-        final ThreadPool pool = KNIMEConstants.GLOBAL_THREAD_POOL;
-        final int procCount =
-                (int) (Runtime.getRuntime().availableProcessors() * (2.0 / 3));
-        final Semaphore semaphore = new Semaphore(procCount);
-        RealMatrix result = null;
+    /*
+     * Calculates the kernel values of all pairs of samples into a
+     * KernelMatrix, which can hold the values in single precision or in a
+     * memory-mapped file. Blocks of rows are calculated in parallel.
+     * Parameters: rows: the samples of the rows columns: the samples of the
+     * columns precision, mapThreshold: storage of the matrix, see
+     * KernelMatrix.create progMon: progress monitor Output: rows.length x
+     * columns.length kernel matrix
+     */
+    public KernelMatrix calculateKernelMatrix(final double[][] rows,
+            final double[][] columns, final KernelMatrix.Precision precision,
+            final long mapThreshold, final ExecutionMonitor progMon)
+            throws Exception {
+        final KernelMatrix result = KernelMatrix.create(rows.length,
+                columns.length, precision, mapThreshold);
+        final KernelCache cache = m_cache;
+        final long[] rowIds =
+                cache == null ? null : KernelCache.sampleIds(rows);
+        final long[] columnIds =
+                cache == null ? null : KernelCache.sampleIds(columns);
         try {
-            result = pool.runInvisible(new Callable<RealMatrix>() {
-
-                @Override
-                public RealMatrix call() throws Exception {
-                    final double[][] resultArrayMatrix =
-                            new double[training.length][test.length];
-                    final CalculateKernelValuesRunnable[] kct =
-                            new CalculateKernelValuesRunnable[test.length];
-                    final int numberOfRunnables = kct.length;
-                    for (int i = 0; i < numberOfRunnables; i++) {
-                        kct[i] = new CalculateKernelValuesRunnable(0,
-                                training.length, i, i + 1, training, test,
-                                resultArrayMatrix, m_kernelFunction, semaphore);
-                    }
-                    final Future<?>[] threads =
-                            new Future<?>[numberOfRunnables];
-                    double progCounter = 0;
-                    for (int i = 0; i < numberOfRunnables; i++) {
-                        try {
-                            progMon.checkCanceled();
-                        } catch (final Exception e) {
-                            for (int j = 0; j < i; j++) {
-                                if (threads[j] != null) {
-                                    threads[j].cancel(true);
+            ParallelChunks.map(rows.length, KERNEL_ROW_BLOCK_SIZE,
+                    m_parallelism, new ParallelChunks.ChunkTask<Void>() {
+                        @Override
+                        public Void compute(final int start, final int end)
+                                throws IOException {
+                            if (cache != null) {
+                                final double[][] values = cache.kernelize(
+                                        m_kernelFunction,
+                                        Arrays.copyOfRange(rowIds, start, end),
+                                        Arrays.copyOfRange(rows, start, end),
+                                        columnIds, columns);
+                                for (int r = start; r < end; r++) {
+                                    result.setRow(r, values[r - start]);
                                 }
+                                return null;
                             }
-                            throw e;
-                        }
-                        semaphore.acquire();
-                        threads[i] = pool.enqueue(kct[i]);
-                        progMon.setProgress(
-                                progCounter / (2 * numberOfRunnables),
-                                "Kernel calculation started (" + i + "/"
-                                        + numberOfRunnables + ")");
-                        progCounter += 1;
-                    }
-                    for (int i = 0; i < numberOfRunnables; i++) {
-                        try {
-                            progMon.checkCanceled();
-                        } catch (final Exception e) {
-                            for (int j = 0; j < numberOfRunnables; j++) {
-                                if (threads[j] != null) {
-                                    threads[j].cancel(true);
+                            final double[] values = new double[columns.length];
+                            for (int r = start; r < end; r++) {
+                                for (int c = 0; c < columns.length; c++) {
+                                    values[c] = m_kernelFunction
+                                            .calculate(rows[r], columns[c]);
                                 }
+                                result.setRow(r, values);
                             }
-                            throw e;
+                            return null;
                         }
-                        semaphore.acquire();
-                        threads[i].get();
-                        semaphore.release();
-                        progMon.setProgress(
-                                progCounter / (2 * numberOfRunnables),
-                                "Kernel calculation finished (" + i + "/"
-                                        + numberOfRunnables + ")");
-                        progCounter += 1;
-                    }
-                    return MatrixUtils.createRealMatrix(resultArrayMatrix);
-                }
-
-            });
+                    }, progMon, "Kernel calculation finished");
         } catch (final Exception e) {
+            result.close();
             throw e;
         }
-
         return result;
     }
 
@@ -273,48 +611,6 @@ private RealMatrix calculateKernelVector(final double[][] training,
         return MatrixUtils.createColumnRealMatrix(result);
     }
 
-    private class CalculateKernelValuesRunnable implements Runnable {
-
-        private final int m_trainingStart;
-        private final int m_trainingEnd;
-        private final int m_testStart;
-        private final int m_testEnd;
-        private final double[][] m_training;
-        private final double[][] m_test;
-        private final double[][] m_result;
-        private final KernelFunction m_kernelFunction;
-        private final Semaphore m_semaphore;
-
-        public CalculateKernelValuesRunnable(final int trainingStart,
-                final int trainingEnd, final int testStart, final int testEnd,
-                final double[][] training, final double[][] test,
-                final double[][] result, final KernelFunction kernelFunction,
-                final Semaphore semaphore) {
-            m_trainingStart = trainingStart;
-            m_trainingEnd = trainingEnd;
-            m_testStart = testStart;
-            m_testEnd = testEnd;
-            m_training = training;
-            m_test = test;
-            m_result = result;
-            m_kernelFunction = kernelFunction;
-            m_semaphore = semaphore;
-        }
-
-        @Override
-        public void run() {
-            for (int r = m_trainingStart; r < m_trainingEnd; r++) {
-                for (int c = m_testStart; c < m_testEnd; c++) {
-                    m_result[r][c] = m_kernelFunction.calculate(m_training[r],
-                            m_test[c]);
-                }
-            }
-            m_semaphore.release();
-
-        }
-
-    }
-
     public RealMatrix calculateKernelMatrix_singleThread(
             final double[][] training, final double[][] test) {
         final double[][] result = new double[training.length][test.length];
@@ -351,25 +647,14 @@ public RealMatrix calculateKernelMatrix_singleThread(
         if (size > Integer.MAX_VALUE) {
             throw new IllegalStateException("The input table is too large.");
         }
-        final double[][] data = new double[(int) size][table.getDataTableSpec()
-                .getNumColumns()];
+        final double[][] data = new double[(int) size][];
+        final int[] columnIndices =
+                allColumns(table.getDataTableSpec().getNumColumns());
 
         final Iterator<DataRow> iterator = table.iterator();
 
         for (int r = 0; iterator.hasNext(); r++) {
-            final DataRow next = iterator.next();
-            for (int c = 0; c < table.getDataTableSpec().getNumColumns(); c++) {
-                final DataCell cell = next.getCell(c);
-                if (cell.isMissing()) {
-                    throw new IllegalArgumentException(
-                            "Missing values are not supported.");
-                } else if (!cell.getType().isCompatible(DoubleValue.class)) {
-                    throw new IllegalArgumentException(
-                            "Only numerical data types are currently supported.");
-                } else {
-                    data[r][c] = ((DoubleValue) cell).getDoubleValue();
-                }
-            }
+            data[r] = readDataRow(iterator.next(), columnIndices);
         }
 
         return data;
@@ -392,11 +677,7 @@ public void readExternal(final ObjectInput in)
             m_colCount = in.readInt();
             // data
             m_trainingData = new double[m_rowCount][m_colCount];
-            for (int r = 0; r < m_rowCount; r++) {
-                for (int c = 0; c < m_colCount; c++) {
-                    m_trainingData[r][c] = in.readDouble();
-                }
-            }
+            DoubleArrayIO.readMatrix(in, m_trainingData);
 
         } catch (InstantiationException | IllegalAccessException e) {
             throw new IOException(e);
@@ -416,11 +697,7 @@ public void writeExternal(final ObjectOutput out) throws IOException {
         // columns
         out.writeInt(m_colCount);
         // data
-        for (final double[] row : m_trainingData) {
-            for (final double col : row) {
-                out.writeDouble(col);
-            }
-        }
+        DoubleArrayIO.writeMatrix(out, m_trainingData);
 
     }
 
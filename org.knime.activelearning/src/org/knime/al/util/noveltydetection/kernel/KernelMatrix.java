@@ -0,0 +1,309 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+
+package org.knime.al.util.noveltydetection.kernel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.knime.core.util.FileUtil;
+
+/*
+ * Kernel matrix that is only accessed row-wise or by small sub matrices, e.g.
+ * by the Local Novelty Scorer. The values are either held on the heap in
+ * double or single precision or, for large matrices in single precision, in a
+ * memory-mapped scratch file so that only the rows currently in use need to
+ * be in memory. Single precision halves the memory, the kernel values then
+ * have a relative error of about 6e-8.
+ */
+public abstract class KernelMatrix implements Closeable {
+
+    /**
+     * Precision of the stored kernel values
+     */
+    public enum Precision {
+        Double("Double"), Float("Float");
+
+        private final String m_name;
+
+        private Precision(final String name) {
+            m_name = name;
+        }
+
+        @Override
+        public String toString() {
+            return m_name;
+        }
+    }
+
+    protected final int m_rowCount;
+    protected final int m_colCount;
+
+    protected KernelMatrix(final int rowCount, final int colCount) {
+        m_rowCount = rowCount;
+        m_colCount = colCount;
+    }
+
+    /*
+     * Creates an empty kernel matrix. Parameters: rowCount, colCount: size of
+     * the matrix precision: precision of the stored values mapThreshold:
+     * matrices in single precision that need more bytes than this are stored
+     * in a memory-mapped scratch file Output: the matrix, which must be
+     * closed to delete the scratch file
+     */
+    public static KernelMatrix create(final int rowCount, final int colCount,
+            final Precision precision, final long mapThreshold)
+            throws IOException {
+        if (precision == Precision.Double) {
+            return new DoubleKernelMatrix(rowCount, colCount);
+        }
+        if ((long) rowCount * colCount * 4 > mapThreshold) {
+            return new MappedKernelMatrix(rowCount, colCount);
+        }
+        return new FloatKernelMatrix(rowCount, colCount);
+    }
+
+    /*
+     * Wraps kernel values that are already calculated, e.g. by
+     * KernelCalculator.kernelizeBlock, without copying them. Parameters:
+     * values: rows of the matrix, all of the same length Output: the matrix
+     * in double precision
+     */
+    public static KernelMatrix wrap(final double[][] values) {
+        return new DoubleKernelMatrix(values);
+    }
+
+    public int getRowDimension() {
+        return m_rowCount;
+    }
+
+    public int getColumnDimension() {
+        return m_colCount;
+    }
+
+    public abstract double getEntry(int row, int col);
+
+    /*
+     * Copies a row into values, which must have one element per column
+     */
+    public abstract void getRow(int row, double[] values);
+
+    /*
+     * Sets a row, different rows may be set concurrently
+     */
+    public abstract void setRow(int row, double[] values);
+
+    public double[] getRow(final int row) {
+        final double[] values = new double[m_colCount];
+        getRow(row, values);
+        return values;
+    }
+
+    /*
+     * Returns the kernel values of the given rows and columns as a (small)
+     * matrix in double precision
+     */
+    public RealMatrix getSubMatrix(final int[] rows, final int[] cols) {
+        final double[][] data = new double[rows.length][cols.length];
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < cols.length; c++) {
+                data[r][c] = getEntry(rows[r], cols[c]);
+            }
+        }
+        return new Array2DRowRealMatrix(data, false);
+    }
+
+    /*
+     * Releases the storage of the matrix
+     */
+    @Override
+    public void close() throws IOException {
+        // nothing to release on the heap
+    }
+
+    private static final class DoubleKernelMatrix extends KernelMatrix {
+        private final double[][] m_data;
+
+        DoubleKernelMatrix(final int rowCount, final int colCount) {
+            super(rowCount, colCount);
+            m_data = new double[rowCount][colCount];
+        }
+
+        DoubleKernelMatrix(final double[][] data) {
+            super(data.length, data.length == 0 ? 0 : data[0].length);
+            m_data = data;
+        }
+
+        @Override
+        public double getEntry(final int row, final int col) {
+            return m_data[row][col];
+        }
+
+        @Override
+        public void getRow(final int row, final double[] values) {
+            System.arraycopy(m_data[row], 0, values, 0, m_colCount);
+        }
+
+        @Override
+        public void setRow(final int row, final double[] values) {
+            System.arraycopy(values, 0, m_data[row], 0, m_colCount);
+        }
+    }
+
+    private static final class FloatKernelMatrix extends KernelMatrix {
+        private final float[][] m_data;
+
+        FloatKernelMatrix(final int rowCount, final int colCount) {
+            super(rowCount, colCount);
+            m_data = new float[rowCount][colCount];
+        }
+
+        @Override
+        public double getEntry(final int row, final int col) {
+            return m_data[row][col];
+        }
+
+        @Override
+        public void getRow(final int row, final double[] values) {
+            final float[] data = m_data[row];
+            for (int c = 0; c < m_colCount; c++) {
+                values[c] = data[c];
+            }
+        }
+
+        @Override
+        public void setRow(final int row, final double[] values) {
+            final float[] data = m_data[row];
+            for (int c = 0; c < m_colCount; c++) {
+                data[c] = (float) values[c];
+            }
+        }
+    }
+
+    /*
+     * Single precision values in a file in the workflow temp directory,
+     * mapped in chunks of whole rows because a single mapping is limited to
+     * 2GB. The operating system pages the rows in and out as needed. Only absolute positions of the
+     * buffers are used, so the rows can be accessed concurrently.
+     */
+    private static final class MappedKernelMatrix extends KernelMatrix {
+        private final File m_file;
+        private final RandomAccessFile m_randomAccessFile;
+        private final int m_rowsPerChunk;
+        private final FloatBuffer[] m_chunks;
+
+        MappedKernelMatrix(final int rowCount, final int colCount)
+                throws IOException {
+            super(rowCount, colCount);
+            m_rowsPerChunk = Math.max(1, Integer.MAX_VALUE / 4 / colCount);
+            m_chunks = new FloatBuffer[(rowCount + m_rowsPerChunk - 1)
+                    / m_rowsPerChunk];
+
+            m_file = FileUtil.createTempFile("kernelmatrix", ".bin");
+            m_randomAccessFile = new RandomAccessFile(m_file, "rw");
+            try {
+                final long rowBytes = 4L * colCount;
+                m_randomAccessFile.setLength(rowBytes * rowCount);
+                final FileChannel channel = m_randomAccessFile.getChannel();
+                for (int c = 0; c < m_chunks.length; c++) {
+                    final int rows = Math.min(m_rowsPerChunk,
+                            rowCount - c * m_rowsPerChunk);
+                    m_chunks[c] = channel
+                            .map(MapMode.READ_WRITE,
+                                    rowBytes * c * m_rowsPerChunk,
+                                    rowBytes * rows)
+                            .order(ByteOrder.nativeOrder()).asFloatBuffer();
+                }
+            } catch (final IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public double getEntry(final int row, final int col) {
+            return m_chunks[row / m_rowsPerChunk]
+                    .get((row % m_rowsPerChunk) * m_colCount + col);
+        }
+
+        @Override
+        public void getRow(final int row, final double[] values) {
+            final FloatBuffer chunk = m_chunks[row / m_rowsPerChunk];
+            final int offset = (row % m_rowsPerChunk) * m_colCount;
+            for (int c = 0; c < m_colCount; c++) {
+                values[c] = chunk.get(offset + c);
+            }
+        }
+
+        @Override
+        public void setRow(final int row, final double[] values) {
+            final FloatBuffer chunk = m_chunks[row / m_rowsPerChunk];
+            final int offset = (row % m_rowsPerChunk) * m_colCount;
+            for (int c = 0; c < m_colCount; c++) {
+                chunk.put(offset + c, (float) values[c]);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the mappings stay valid until they are garbage collected, on
+            // some platforms the file can only be deleted after that, it is
+            // then removed together with the workflow temp directory
+            m_randomAccessFile.close();
+            m_file.delete();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+
+package org.knime.al.util.noveltydetection.kernel;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.knime.core.data.vector.bitvector.BitVectorValue;
+
+/*
+ * Tanimoto kernel of bit vectors, |a AND b| / |a OR b|, which coincides with
+ * the MinMax kernel for binary data. Two empty vectors have similarity 1.
+ *
+ * The bit vectors are packed into the double[] samples used by the rest of
+ * the KNFST code, each value holds the raw bits of a 64 bit word (see pack),
+ * so the values are not meant to be used as numbers. Vectors of different
+ * length are compared as if the shorter one was padded with zeros.
+ */
+public class TanimotoKernel implements KernelFunction {
+
+    /*
+     * Number of bits packed into one value of a sample, the bits of a long
+     * word are stored with Double.longBitsToDouble
+     */
+    public static final int BITS_PER_VALUE = Long.SIZE;
+
+    @Override
+    public double calculate(final double[] sample1, final double[] sample2) {
+        return calculate(sample1, 0, sample1.length, sample2, 0,
+                sample2.length);
+    }
+
+    /*
+     * Returns the Tanimoto kernel of two packed bit vectors that are stored in
+     * larger arrays, e.g. in a flat matrix of samples.
+     *
+     * Parameters:
+     * values1, values2: the arrays that hold the vectors
+     * offset1, offset2: the index of the first value of each vector
+     * length1, length2: the number of values of each vector
+     */
+    public static double calculate(final double[] values1, final int offset1,
+            final int length1, final double[] values2, final int offset2,
+            final int length2) {
+        final int common = Math.min(length1, length2);
+        long intersection = 0;
+        long union = 0;
+        for (int i = 0; i < common; i++) {
+            final long word1 =
+                    Double.doubleToRawLongBits(values1[offset1 + i]);
+            final long word2 =
+                    Double.doubleToRawLongBits(values2[offset2 + i]);
+            intersection += Long.bitCount(word1 & word2);
+            union += Long.bitCount(word1 | word2);
+        }
+        for (int i = common; i < length1; i++) {
+            union += Long.bitCount(
+                    Double.doubleToRawLongBits(values1[offset1 + i]));
+        }
+        for (int i = common; i < length2; i++) {
+            union += Long.bitCount(
+                    Double.doubleToRawLongBits(values2[offset2 + i]));
+        }
+        return union == 0 ? 1.0 : (double) intersection / union;
+    }
+
+    /*
+     * Returns the number of values that pack returns for a bit vector of the
+     * given length
+     */
+    public static int packedLength(final long length) {
+        final long values = (length + BITS_PER_VALUE - 1) / BITS_PER_VALUE;
+        if (values > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The bit vector is too long.");
+        }
+        return (int) values;
+    }
+
+    /*
+     * Packs the bits of a bit vector into BITS_PER_VALUE bit words. Bit i of
+     * the vector is bit i % BITS_PER_VALUE of word i / BITS_PER_VALUE, word w
+     * is stored at offset + w * stride, so the words of several vectors can be
+     * interleaved.
+     *
+     * Parameters:
+     * bitVector: the vector to pack
+     * destination: array that holds the words, the positions of the words
+     * must be zero
+     * offset: index of the first word
+     * stride: distance of consecutive words, 1 to store them one after another
+     */
+    public static void pack(final BitVectorValue bitVector,
+            final double[] destination, final int offset, final int stride) {
+        // accumulate each word as long before it is stored
+        long word = 0;
+        long wordIdx = -1;
+        for (long bit = bitVector.nextSetBit(0); bit >= 0; bit =
+                bitVector.nextSetBit(bit + 1)) {
+            final long idx = bit / BITS_PER_VALUE;
+            if (idx != wordIdx) {
+                if (wordIdx >= 0) {
+                    destination[offset + (int) wordIdx * stride] =
+                            Double.longBitsToDouble(word);
+                }
+                word = 0;
+                wordIdx = idx;
+            }
+            word |= 1L << (bit % BITS_PER_VALUE);
+        }
+        if (wordIdx >= 0) {
+            destination[offset + (int) wordIdx * stride] =
+                    Double.longBitsToDouble(word);
+        }
+    }
+
+    /*
+     * Packs the bits of a bit vector into 64 bit words for a flat long[]
+     * matrix of bit vectors. Bit i of the vector is bit i % 64 of word i / 64.
+     *
+     * Parameters:
+     * bitVector: the vector to pack
+     * words: array with at least offset + (bitVector.length() + 63) / 64
+     * words, which must be zero
+     * offset: index of the first word to write
+     */
+    public static void pack(final BitVectorValue bitVector, final long[] words,
+            final int offset) {
+        for (long bit = bitVector.nextSetBit(0); bit >= 0; bit =
+                bitVector.nextSetBit(bit + 1)) {
+            words[offset + (int) (bit / Long.SIZE)] |= 1L << (bit % Long.SIZE);
+        }
+    }
+
+    /*
+     * Returns the number of set bits of a vector packed by
+     * pack(BitVectorValue, long[], int).
+     *
+     * Parameters:
+     * words: the array that holds the vector
+     * offset: the index of the first word of the vector
+     * length: the number of words of the vector
+     */
+    public static int cardinality(final long[] words, final int offset,
+            final int length) {
+        int cardinality = 0;
+        for (int w = offset; w < offset + length; w++) {
+            cardinality += Long.bitCount(words[w]);
+        }
+        return cardinality;
+    }
+
+    /*
+     * Returns the Tanimoto kernel of two vectors packed by
+     * pack(BitVectorValue, long[], int) with the same number of words, given
+     * their cardinalities. Only the intersection has to be counted, the union
+     * is the sum of the cardinalities minus the intersection.
+     *
+     * Parameters:
+     * words1, words2: the arrays that hold the vectors
+     * offset1, offset2: the index of the first word of each vector
+     * cardinality1, cardinality2: the number of set bits of each vector
+     * length: the number of words of each vector
+     */
+    public static double calculate(final long[] words1, final int offset1,
+            final int cardinality1, final long[] words2, final int offset2,
+            final int cardinality2, final int length) {
+        long intersection = 0;
+        for (int w = 0; w < length; w++) {
+            intersection +=
+                    Long.bitCount(words1[offset1 + w] & words2[offset2 + w]);
+        }
+        final long union = (long) cardinality1 + cardinality2 - intersection;
+        return union == 0 ? 1.0 : (double) intersection / union;
+    }
+
+    /******* Externalizable methods ******************/
+    @Override
+    public void readExternal(final ObjectInput arg0)
+            throws IOException, ClassNotFoundException {
+        // nothing to do here
+    }
+
+    @Override
+    public void writeExternal(final ObjectOutput arg0) throws IOException {
+        // nothing to do here
+    }
+
+    @Override
+    public String toString() {
+        return "TanimotoKernel []";
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (object == null) {
+            return false;
+        }
+        if (object instanceof TanimotoKernel) {
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return TanimotoKernel.class.hashCode();
+    }
+
+    @Override
+    public int numParameters() {
+        return 0;
+    }
+
+    @Override
+    public double getParameter(final int index) {
+        throw new IndexOutOfBoundsException("This kernel has no parameters");
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.util.noveltydetection.knfst;
+
+/*
+ * Null Foley-Sammon transform of samples given as explicit feature vectors,
+ * used by the approximate KNFST variants. The null space is calculated from
+ * the r x r total and within-class scatter matrices of the r dimensional
+ * features, so the cost is linear in the number of samples.
+ *
+ * In contrast to the kernel case the within-class scatter usually has full
+ * rank if there are more samples than features. The directions with the
+ * smallest ratio of within-class to total scatter then take the place of the
+ * exact null space, which has numClasses - 1 dimensions.
+ */
+final class FeatureSpaceNullspace {
+
+    // same threshold as KNFST.projection for the basis of the scatter
+    private static final double BASIS_EIGENVALUE_THRESHOLD = 1e-12;
+
+    private final double[][] m_directions;
+
+    private final double[][] m_targetPoints;
+
+    /*
+     * Parameters: features: n x r feature vectors ordered by class classes:
+     * class sizes in the order of the features oneClass: whether the origin
+     * should be added as a second class, as done by OneClassKNFST
+     */
+    FeatureSpaceNullspace(final double[][] features,
+            final ClassWrapper[] classes, final boolean oneClass)
+            throws KNFSTException {
+        final double[][] classMeans = classMeans(features, classes);
+        m_directions =
+                nullspaceDirections(features, classes, classMeans, oneClass);
+
+        // target points are the projected class means, the origin of the
+        // one-class case is not a target
+        final int d = m_directions.length;
+        m_targetPoints = new double[classes.length][d];
+        for (int cl = 0; cl < classes.length; cl++) {
+            for (int c = 0; c < d; c++) {
+                m_targetPoints[cl][c] = dot(classMeans[cl], m_directions[c]);
+            }
+        }
+    }
+
+    /*
+     * Returns the orthonormal null space directions, row c is direction c
+     */
+    double[][] getDirections() {
+        return m_directions;
+    }
+
+    /*
+     * Returns the target point of each class in null space coordinates
+     */
+    double[][] getTargetPoints() {
+        return m_targetPoints;
+    }
+
+    /*
+     * Returns the class sizes of the labels (ordered by class) or a single
+     * class of n samples in the one-class case
+     */
+    static ClassWrapper[] classes(final String[] labels,
+            final boolean oneClass, final int n) {
+        if (oneClass) {
+            return new ClassWrapper[] { new ClassWrapper("1", n) };
+        }
+        final ClassWrapper[] classes = ClassWrapper.classes(labels);
+        if (classes.length == 1) {
+            throw new IllegalArgumentException(
+                    "not able to calculate a nullspace from data of a single class using KNFST (input variable \"labels\" only contains a single value)");
+        }
+        return classes;
+    }
+
+    // mean feature vector of each class
+    private static double[][] classMeans(final double[][] features,
+            final ClassWrapper[] classes) {
+        final int r = features[0].length;
+        final double[][] means = new double[classes.length][r];
+        int start = 0;
+        for (int cl = 0; cl < classes.length; cl++) {
+            final int end = start + classes[cl].getCount();
+            for (int i = start; i < end; i++) {
+                final double[] f = features[i];
+                for (int q = 0; q < r; q++) {
+                    means[cl][q] += f[q];
+                }
+            }
+            for (int q = 0; q < r; q++) {
+                means[cl][q] /= classes[cl].getCount();
+            }
+            start = end;
+        }
+        return means;
+    }
+
+    /*
+     * Calculates the null space directions (rows of the result) of the linear
+     * Foley-Sammon transform of the given features. In the one-class case the
+     * origin is added as a second class, as done by OneClassKNFST.
+     */
+    private static double[][] nullspaceDirections(final double[][] features,
+            final ClassWrapper[] classes, final double[][] means,
+            final boolean oneClass) throws KNFSTException {
+        final int n = features.length;
+        final int r = features[0].length;
+
+        // overall mean (including the origin)
+        final double[] mean = new double[r];
+        for (int cl = 0; cl < classes.length; cl++) {
+            for (int q = 0; q < r; q++) {
+                mean[q] += means[cl][q] * classes[cl].getCount();
+            }
+        }
+        final int total = oneClass ? n + 1 : n;
+        for (int q = 0; q < r; q++) {
+            mean[q] /= total;
+        }
+
+        // total scatter and within-class scatter
+        final double[] totalScatter = new double[r * r];
+        final double[] withinScatter = new double[r * r];
+        final double[] centered = new double[r];
+        final double[] classCentered = new double[r];
+        int start = 0;
+        for (int cl = 0; cl < classes.length; cl++) {
+            final int end = start + classes[cl].getCount();
+            for (int i = start; i < end; i++) {
+                final double[] f = features[i];
+                for (int q = 0; q < r; q++) {
+                    centered[q] = f[q] - mean[q];
+                    classCentered[q] = f[q] - means[cl][q];
+                }
+                addOuterProduct(totalScatter, centered);
+                addOuterProduct(withinScatter, classCentered);
+            }
+            start = end;
+        }
+        if (oneClass) {
+            // the origin forms a class of its own and only adds to the total
+            // scatter
+            addOuterProduct(totalScatter, mean);
+        }
+        mirrorUpperTriangle(totalScatter, r);
+        mirrorUpperTriangle(withinScatter, r);
+
+        // basis of the span of the centered features, whitened with respect
+        // to the total scatter
+        final SymmetricEigenDecomposition eig =
+                new SymmetricEigenDecomposition(totalScatter, r);
+        final double[] eigVals = eig.getEigenvalues();
+        final double[] eigVecs = eig.getEigenvectors();
+        int first = r;
+        while (first > 0 && eigVals[first - 1] > BASIS_EIGENVALUE_THRESHOLD) {
+            first--;
+        }
+        if (first == r) {
+            throw new KNFSTException(
+                    "Something went wrong. Try different parameters or a different kernel.");
+        }
+        final int s = r - first;
+        final double[][] basis = new double[s][r];
+        for (int a = 0; a < s; a++) {
+            final int offset = (first + a) * r;
+            final double normalizer = 1 / Math.sqrt(eigVals[first + a]);
+            for (int q = 0; q < r; q++) {
+                basis[a][q] = eigVecs[offset + q] * normalizer;
+            }
+        }
+
+        // within-class scatter in that basis: T = B' * Sw * B
+        final double[][] swq = new double[s][];
+        for (int a = 0; a < s; a++) {
+            swq[a] = multiplySymmetric(withinScatter, r, basis[a]);
+        }
+        final double[] t = new double[s * s];
+        for (int a = 0; a < s; a++) {
+            for (int b = a; b < s; b++) {
+                final double value = dot(basis[a], swq[b]);
+                t[a * s + b] = value;
+                t[b * s + a] = value;
+            }
+        }
+
+        // the origin counts as class in the one-class case
+        final int numClasses = oneClass ? 2 : classes.length;
+        final double[][] nullspace =
+                PrimitiveProjection.nullspace(t, s, numClasses - 1);
+        final double[][] directions = new double[nullspace.length][r];
+        for (int c = 0; c < nullspace.length; c++) {
+            for (int a = 0; a < s; a++) {
+                final double weight = nullspace[c][a];
+                final double[] basisVec = basis[a];
+                for (int q = 0; q < r; q++) {
+                    directions[c][q] += weight * basisVec[q];
+                }
+            }
+        }
+
+        // the whitened basis is not orthonormal, as in the exact KNFST the
+        // projection must however preserve distances within the null space
+        orthonormalize(directions);
+        return directions;
+    }
+
+    // modified Gram-Schmidt orthonormalization of the rows
+    private static void orthonormalize(final double[][] vectors) {
+        for (int c = 0; c < vectors.length; c++) {
+            final double[] v = vectors[c];
+            for (int p = 0; p < c; p++) {
+                final double projection = dot(vectors[p], v);
+                for (int q = 0; q < v.length; q++) {
+                    v[q] -= projection * vectors[p][q];
+                }
+            }
+            final double norm = Math.sqrt(dot(v, v));
+            for (int q = 0; q < v.length; q++) {
+                v[q] /= norm;
+            }
+        }
+    }
+
+    // adds v * v' to the upper triangle of the flat r x r matrix
+    private static void addOuterProduct(final double[] matrix,
+            final double[] v) {
+        final int r = v.length;
+        for (int a = 0; a < r; a++) {
+            final double va = v[a];
+            if (va == 0.0) {
+                continue;
+            }
+            final int row = a * r;
+            for (int b = a; b < r; b++) {
+                matrix[row + b] += va * v[b];
+            }
+        }
+    }
+
+    private static void mirrorUpperTriangle(final double[] matrix,
+            final int r) {
+        for (int a = 0; a < r; a++) {
+            for (int b = a + 1; b < r; b++) {
+                matrix[b * r + a] = matrix[a * r + b];
+            }
+        }
+    }
+
+    private static double[] multiplySymmetric(final double[] matrix,
+            final int r, final double[] v) {
+        final double[] result = new double[r];
+        for (int a = 0; a < r; a++) {
+            double sum = 0;
+            final int row = a * r;
+            for (int b = 0; b < r; b++) {
+                sum += matrix[row + b] * v[b];
+            }
+            result[a] = sum;
+        }
+        return result;
+    }
+
+    static double dot(final double[] a, final double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.util.noveltydetection.knfst;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.KernelFunction;
+import org.knime.al.util.noveltydetection.kernel.RandomFourierFeature;
+import org.knime.core.node.ExecutionMonitor;
+
+/*
+ * Updates a KNFST model with additional training samples without
+ * recalculating it from scratch.
+ *
+ * The null space of KNFST consists of the directions in the span of the
+ * centered training samples that are orthogonal to the within-class scatter.
+ * Since the centered span is the within-class span plus the span of the
+ * differences mu_c - mu between the class means and the overall mean, the
+ * null space is spanned by the parts of these differences that are
+ * orthogonal to the within-class span. This class keeps an orthonormal basis
+ * of the within-class span (as coefficients of the training samples, built
+ * by a kernel Gram-Schmidt with reorthogonalization) together with the
+ * kernel matrix. Adding k samples extends the kernel matrix by the new rows
+ * and the basis by at most k vectors, which costs O(n^2) per sample, i.e.
+ * O(n^2 * k) instead of the O(n^3) of a full retrain. The resulting null
+ * space is the same as the one of the exact KNFST, the null space
+ * coordinates may differ by a rotation which doesn't change the novelty
+ * scores.
+ *
+ * The state is attached to the updated model and only kept in memory, so
+ * that a model that is passed along an active learning loop can be updated
+ * again cheaply. Models without state (e.g. models learned by the KNFST
+ * Learner or loaded from disk) are rebuilt once in O(n^3).
+ */
+public final class IncrementalKNFST {
+
+    // a within-class difference is added to the basis if the squared norm
+    // of its residual is above this fraction of its squared norm
+    private static final double RESIDUAL_THRESHOLD = 1e-10;
+
+    // eigenvalues of the gram matrix of the between-class residuals below
+    // this fraction of the largest eigenvalue span no null space direction
+    private static final double NULLSPACE_EIGENVALUE_THRESHOLD = 1e-10;
+
+    private final KernelFunction m_kernelFunction;
+
+    private final List<double[]> m_samples;
+
+    private final List<String> m_labels;
+
+    // row i holds the kernel values k(x_i, x_j) for j <= i, rows are never
+    // changed once added and are shared between states
+    private final List<double[]> m_kernelRows;
+
+    // orthonormal basis of the within-class span, basis vector a is
+    // sum_i m_basis.get(a)[i] * phi(x_i) where missing trailing coefficients
+    // are zero, rows are shared between states as well
+    private final List<double[]> m_basis;
+
+    // index of the first sample of each class
+    private final Map<String, Integer> m_representatives;
+
+    private IncrementalKNFST(final KernelFunction kernelFunction) {
+        m_kernelFunction = kernelFunction;
+        m_samples = new ArrayList<double[]>();
+        m_labels = new ArrayList<String>();
+        m_kernelRows = new ArrayList<double[]>();
+        m_basis = new ArrayList<double[]>();
+        m_representatives = new HashMap<String, Integer>();
+    }
+
+    private IncrementalKNFST(final IncrementalKNFST other) {
+        m_kernelFunction = other.m_kernelFunction;
+        m_samples = new ArrayList<double[]>(other.m_samples);
+        m_labels = new ArrayList<String>(other.m_labels);
+        m_kernelRows = new ArrayList<double[]>(other.m_kernelRows);
+        m_basis = new ArrayList<double[]>(other.m_basis);
+        m_representatives =
+                new HashMap<String, Integer>(other.m_representatives);
+    }
+
+    /*
+     * Updates a model with new training samples. The previous model is not
+     * changed. Parameters: model: exact KNFST model (models learned with
+     * random Fourier features can't be updated, Nystroem models are updated
+     * as if their landmarks were the training samples) samples: the new
+     * training samples, one sample per row labels: labels of the new samples
+     * (in any order) progMon: progress monitor Output: MultiClassKNFST or
+     * OneClassKNFST over the previous and the new samples, OneClassKNFST if
+     * all samples belong to a single class
+     */
+    public static KNFST update(final KNFST model, final double[][] samples,
+            final String[] labels, final ExecutionMonitor progMon)
+            throws Exception {
+        if (samples.length != labels.length) {
+            throw new IllegalArgumentException(
+                    "There must be exactly one label per sample.");
+        }
+        if (samples.length == 0) {
+            return model;
+        }
+
+        IncrementalKNFST state = model.getUpdateState();
+        final ExecutionMonitor addProgMon;
+        if (state == null) {
+            progMon.setMessage("Rebuilding the state of the previous model");
+            state = fromModel(model, labels, progMon.createSubProgress(0.5));
+            addProgMon = progMon.createSubProgress(0.5);
+        } else {
+            state = new IncrementalKNFST(state);
+            addProgMon = progMon;
+        }
+
+        addProgMon.setMessage("Adding new training samples");
+        for (int i = 0; i < samples.length; i++) {
+            addProgMon.checkCanceled();
+            state.add(samples[i], labels[i]);
+            addProgMon.setProgress((double) (i + 1) / samples.length);
+        }
+        return state.createModel();
+    }
+
+    /*
+     * Rebuilds the state of a model from its training samples. One-class
+     * models don't store the name of their class, in this case the new
+     * samples must all belong to the modelled class.
+     */
+    private static IncrementalKNFST fromModel(final KNFST model,
+            final String[] newLabels, final ExecutionMonitor progMon)
+            throws Exception {
+        final KernelCalculator kernel = model.getKernel();
+        if (kernel.getKernelFunction() instanceof RandomFourierFeature) {
+            throw new IllegalArgumentException(
+                    "Models learned with random Fourier features can't be updated.");
+        }
+        final double[][] trainingData = kernel.getTrainingData();
+
+        final String[] labels;
+        if (model instanceof MultiClassKNFST) {
+            labels = ((MultiClassKNFST) model).getLabels();
+            if (labels.length != trainingData.length) {
+                throw new IllegalArgumentException(
+                        "The labels of the model don't match its training samples.");
+            }
+        } else {
+            for (final String label : newLabels) {
+                if (!label.equals(newLabels[0])) {
+                    throw new IllegalArgumentException(
+                            "A one-class model can only be updated with samples of its class.");
+                }
+            }
+            labels = new String[trainingData.length];
+            Arrays.fill(labels, newLabels[0]);
+        }
+
+        final IncrementalKNFST state =
+                new IncrementalKNFST(kernel.getKernelFunction());
+        for (int i = 0; i < trainingData.length; i++) {
+            progMon.checkCanceled();
+            state.add(trainingData[i], labels[i]);
+            progMon.setProgress((double) (i + 1) / trainingData.length);
+        }
+        return state;
+    }
+
+    /*
+     * Adds a sample, i.e. a row and column to the kernel matrix, and extends
+     * the within-class basis by the difference of the sample to the first
+     * sample of its class
+     */
+    private void add(final double[] sample, final String label) {
+        final int n = m_samples.size();
+        final double[] kernelRow = new double[n + 1];
+        for (int j = 0; j < n; j++) {
+            kernelRow[j] = m_kernelFunction.calculate(m_samples.get(j), sample);
+        }
+        kernelRow[n] = m_kernelFunction.calculate(sample, sample);
+        m_samples.add(sample);
+        m_labels.add(label);
+        m_kernelRows.add(kernelRow);
+
+        final Integer representative = m_representatives.get(label);
+        if (representative == null) {
+            // first sample of a new class
+            m_representatives.put(label, n);
+            return;
+        }
+
+        // phi(x) - phi(x_rep)
+        final double[] difference = new double[n + 1];
+        difference[n] = 1;
+        difference[representative] = -1;
+        final double squaredNorm =
+                dot(difference, multiply(difference), n + 1);
+
+        final double[] kernelDifference = orthogonalize(difference);
+        final double residual = dot(difference, kernelDifference, n + 1);
+        if (residual > RESIDUAL_THRESHOLD * squaredNorm) {
+            final double normalizer = 1 / Math.sqrt(residual);
+            for (int i = 0; i <= n; i++) {
+                difference[i] *= normalizer;
+            }
+            m_basis.add(difference);
+        }
+    }
+
+    /*
+     * Removes the within-class part of the vector given by its coefficients
+     * (two passes of classical Gram-Schmidt). Output: K times the
+     * orthogonalized coefficients
+     */
+    private double[] orthogonalize(final double[] coefficients) {
+        final int numBasisVectors = m_basis.size();
+        final double[] weights = new double[numBasisVectors];
+        double[] kernelCoefficients = multiply(coefficients);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int a = 0; a < numBasisVectors; a++) {
+                final double[] basisVector = m_basis.get(a);
+                weights[a] = dot(basisVector, kernelCoefficients,
+                        basisVector.length);
+            }
+            for (int a = 0; a < numBasisVectors; a++) {
+                final double[] basisVector = m_basis.get(a);
+                final double weight = weights[a];
+                for (int i = 0; i < basisVector.length; i++) {
+                    coefficients[i] -= weight * basisVector[i];
+                }
+            }
+            kernelCoefficients = multiply(coefficients);
+        }
+        return kernelCoefficients;
+    }
+
+    /*
+     * Creates the model of the current samples. The samples are ordered by
+     * class and the classes by name, as done by the KNFST Learner if the
+     * table is sorted.
+     */
+    private KNFST createModel() throws KNFSTException {
+        final int n = m_samples.size();
+        final String[] classNames =
+                m_representatives.keySet().toArray(new String[0]);
+        Arrays.sort(classNames);
+        final int numClasses = classNames.length;
+        final boolean oneClass = numClasses == 1;
+        final Map<String, Integer> classIndices =
+                new HashMap<String, Integer>();
+        for (int c = 0; c < numClasses; c++) {
+            classIndices.put(classNames[c], c);
+        }
+        final int[] classOf = new int[n];
+        final int[] counts = new int[numClasses];
+        for (int i = 0; i < n; i++) {
+            classOf[i] = classIndices.get(m_labels.get(i));
+            counts[classOf[i]]++;
+        }
+
+        // classSums[c][i] = sum of k(x_i, x_j) over the samples j of class c
+        final double[][] classSums = new double[numClasses][n];
+        for (int i = 0; i < n; i++) {
+            final double[] row = m_kernelRows.get(i);
+            final double[] sumsOfClassI = classSums[classOf[i]];
+            for (int j = 0; j < i; j++) {
+                classSums[classOf[j]][i] += row[j];
+                sumsOfClassI[j] += row[j];
+            }
+            sumsOfClassI[i] += row[i];
+        }
+
+        // between-class vectors mu_c - mu, the one-class model adds the
+        // origin as a second class (its mean is zero)
+        final int total = oneClass ? n + 1 : n;
+        final int numVectors = oneClass ? 2 : numClasses;
+        final double[][] between = new double[numVectors][n];
+        for (int c = 0; c < numVectors; c++) {
+            for (int i = 0; i < n; i++) {
+                between[c][i] = (c < numClasses && classOf[i] == c)
+                        ? 1.0 / counts[c] - 1.0 / total : -1.0 / total;
+            }
+        }
+
+        // null space directions: orthonormal basis of the between-class
+        // residuals, obtained from the eigen decomposition of their gram
+        // matrix
+        final double[][] kernelResiduals = new double[numVectors][];
+        for (int c = 0; c < numVectors; c++) {
+            kernelResiduals[c] = orthogonalize(between[c]);
+        }
+        final double[] gram = new double[numVectors * numVectors];
+        for (int c1 = 0; c1 < numVectors; c1++) {
+            for (int c2 = 0; c2 <= c1; c2++) {
+                final double value = 0.5
+                        * (dot(between[c1], kernelResiduals[c2], n)
+                                + dot(between[c2], kernelResiduals[c1], n));
+                gram[c1 * numVectors + c2] = value;
+                gram[c2 * numVectors + c1] = value;
+            }
+        }
+        final SymmetricEigenDecomposition eig =
+                new SymmetricEigenDecomposition(gram, numVectors);
+        final double[] eigenvalues = eig.getEigenvalues();
+        final double[] eigenvectors = eig.getEigenvectors();
+        final double maxEigenvalue = eigenvalues[numVectors - 1];
+        final List<Integer> directions = new ArrayList<Integer>();
+        for (int j = numVectors - 1; j >= 0; j--) {
+            if (maxEigenvalue > 0 && eigenvalues[j]
+                    > NULLSPACE_EIGENVALUE_THRESHOLD * maxEigenvalue) {
+                directions.add(j);
+            }
+        }
+        if (directions.isEmpty()) {
+            throw new KNFSTException(
+                    "The updated model has an empty nullspace. Try different parameters or a different kernel.");
+        }
+        final int d = directions.size();
+
+        // projection of the samples in their original order
+        final double[][] projection = new double[n][d];
+        for (int k = 0; k < d; k++) {
+            final int j = directions.get(k);
+            final double normalizer = 1 / Math.sqrt(eigenvalues[j]);
+            for (int c = 0; c < numVectors; c++) {
+                final double weight =
+                        eigenvectors[j * numVectors + c] * normalizer;
+                for (int i = 0; i < n; i++) {
+                    projection[i][k] += weight * between[c][i];
+                }
+            }
+        }
+
+        // target points = projections of the class means
+        final int numTargets = oneClass ? 1 : numClasses;
+        final double[][] targetPoints = new double[numTargets][d];
+        for (int c = 0; c < numTargets; c++) {
+            for (int i = 0; i < n; i++) {
+                final double meanKernel = classSums[c][i] / counts[c];
+                for (int k = 0; k < d; k++) {
+                    targetPoints[c][k] += meanKernel * projection[i][k];
+                }
+            }
+        }
+
+        // order the samples by class
+        final double[][] orderedSamples = new double[n][];
+        final String[] orderedLabels = new String[n];
+        final double[][] orderedProjection = new double[n][];
+        int position = 0;
+        for (int c = 0; c < numClasses; c++) {
+            for (int i = 0; i < n; i++) {
+                if (classOf[i] == c) {
+                    orderedSamples[position] = m_samples.get(i);
+                    orderedLabels[position] = m_labels.get(i);
+                    orderedProjection[position] = projection[i];
+                    position++;
+                }
+            }
+        }
+
+        final KernelCalculator kernel =
+                new KernelCalculator(orderedSamples, m_kernelFunction);
+        final KNFST model;
+        if (oneClass) {
+            model = new OneClassKNFST(kernel,
+                    MatrixUtils.createRealMatrix(orderedProjection),
+                    MatrixUtils.createRealMatrix(targetPoints));
+        } else {
+            model = new MultiClassKNFST(kernel, orderedLabels,
+                    MatrixUtils.createRealMatrix(orderedProjection),
+                    MatrixUtils.createRealMatrix(targetPoints));
+        }
+        model.setUpdateState(this);
+        return model;
+    }
+
+    // K times the coefficients, only the lower triangle of K is stored
+    private double[] multiply(final double[] coefficients) {
+        final int n = coefficients.length;
+        final double[] result = new double[n];
+        for (int i = 0; i < n; i++) {
+            final double[] row = m_kernelRows.get(i);
+            final double coefficientI = coefficients[i];
+            double sum = 0;
+            for (int j = 0; j < i; j++) {
+                sum += row[j] * coefficients[j];
+                result[j] += row[j] * coefficientI;
+            }
+            result[i] += sum + row[i] * coefficientI;
+        }
+        return result;
+    }
+
+    private static double dot(final double[] a, final double[] b,
+            final int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -54,10 +54,12 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.EigenDecomposition;
 import org.apache.commons.math3.linear.MatrixUtils;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.linear.RealVector;
+import org.knime.al.util.noveltydetection.kernel.DoubleArrayIO;
 import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
 import org.knime.core.data.DataRow;
 
@@ -67,6 +69,17 @@ public abstract class KNFST implements Externalizable {
     protected RealMatrix m_targetPoints;
     protected double[] m_betweenClassDistances;
 
+    // primitive copies of m_projection and m_targetPoints used for block
+    // scoring, created lazily because the matrices are only set by the
+    // subclass constructors or readExternal
+    private volatile double[][] m_projectionData;
+    private volatile double[][] m_targetPointsData;
+
+    // state of IncrementalKNFST if the model was created by an update, it
+    // is not part of the external form and therefore only available as long
+    // as the model stays in memory
+    private IncrementalKNFST m_updateState;
+
     public KNFST() {
 
     }
@@ -79,10 +92,185 @@ public KNFST(final KernelCalculator kernel) {
 
     public abstract NoveltyScores scoreTestData(DataRow testInstance);
 
-    // public abstract NoveltyScores scoreTestData(double[][] test);
-
     public abstract NoveltyScores scoreTestData(RealMatrix kernelMatrix);
 
+    /**
+     * Scores a block of test samples at once. The kernel values of the whole
+     * block are calculated in one tiled pass and then projected into the null
+     * space sample by sample, see {@link #scoreKernelBlock(double[][])}.
+     *
+     * @param testData the test samples, one sample per row
+     * @return the novelty scores and null space coordinates of the samples in
+     *         the order of the rows of <code>testData</code>
+     */
+    public NoveltyScores scoreTestData(final double[][] testData) {
+        return scoreKernelBlock(m_kernel.kernelizeBlock(testData));
+    }
+
+    /**
+     * Scores a block of test samples given their kernel values with the
+     * training samples. The null space coordinates of each sample are summed
+     * over the training samples in a plain loop, in the same order as in
+     * {@link #scoreTestData(DataRow)}, so the result is identical to scoring
+     * each sample separately.
+     *
+     * @param kernelBlock b x n array where row i holds the kernel values of
+     *            test sample i with all n training samples
+     * @return the novelty scores and null space coordinates of the b samples
+     */
+    public NoveltyScores scoreKernelBlock(final double[][] kernelBlock) {
+        final double[][] projection = getProjectionData();
+        final int numTrainingSamples = projection.length;
+        final int nullspaceDim = m_projection.getColumnDimension();
+        final double[][] coordinates =
+                new double[kernelBlock.length][nullspaceDim];
+
+        for (int i = 0; i < kernelBlock.length; i++) {
+            final double[] kernelValues = kernelBlock[i];
+            final double[] coordinate = coordinates[i];
+            // row i of K' * projection, summed in the same order as the
+            // matrix product of the single sample case
+            for (int t = 0; t < numTrainingSamples; t++) {
+                final double k = kernelValues[t];
+                final double[] projectionRow = projection[t];
+                for (int d = 0; d < nullspaceDim; d++) {
+                    coordinate[d] += k * projectionRow[d];
+                }
+            }
+        }
+
+        return score(coordinates);
+    }
+
+    /**
+     * Scores test samples given their kernel values as columns of a matrix,
+     * as passed to {@link #scoreTestData(RealMatrix)}. The kernel matrix is
+     * not transposed, the coordinates are summed in the same order as in
+     * {@link #scoreKernelBlock(double[][])}, so both give identical results.
+     *
+     * @param kernelMatrix n x m matrix where column j holds the kernel values
+     *            of test sample j with all n training samples
+     * @return the novelty scores and null space coordinates of the m samples
+     */
+    protected NoveltyScores scoreKernelColumns(final RealMatrix kernelMatrix) {
+        final double[][] projection = getProjectionData();
+        final int numTrainingSamples = projection.length;
+        final int numTestSamples = kernelMatrix.getColumnDimension();
+        final int nullspaceDim = m_projection.getColumnDimension();
+        final double[][] kernelValues =
+                kernelMatrix instanceof Array2DRowRealMatrix
+                        ? ((Array2DRowRealMatrix) kernelMatrix).getDataRef()
+                        : kernelMatrix.getData();
+        final double[][] coordinates =
+                new double[numTestSamples][nullspaceDim];
+
+        for (int t = 0; t < numTrainingSamples; t++) {
+            final double[] kernelRow = kernelValues[t];
+            final double[] projectionRow = projection[t];
+            for (int j = 0; j < numTestSamples; j++) {
+                final double k = kernelRow[j];
+                final double[] coordinate = coordinates[j];
+                for (int d = 0; d < nullspaceDim; d++) {
+                    coordinate[d] += k * projectionRow[d];
+                }
+            }
+        }
+
+        return score(coordinates);
+    }
+
+    private NoveltyScores score(final double[][] coordinates) {
+        final double[] scores = new double[coordinates.length];
+        minSquaredTargetDistances(coordinates, getTargetPointsData(), scores);
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = Math.sqrt(scores[i]);
+        }
+        return new NoveltyScores(scores,
+                new Array2DRowRealMatrix(coordinates, false));
+    }
+
+    /**
+     * Calculates the squared euclidean distance of a projected test sample to
+     * the closest target point.
+     *
+     * @param coordinate null space coordinates of the test sample
+     * @param targetPoints the target points of the model, one point per row
+     * @return the minimal squared distance to a target point
+     */
+    protected abstract double minSquaredTargetDistance(double[] coordinate,
+            double[][] targetPoints);
+
+    /**
+     * Calculates the squared euclidean distances of a block of projected test
+     * samples to their closest target points. Subclasses may override this
+     * to share work between the samples of a block.
+     *
+     * @param coordinates null space coordinates of the test samples
+     * @param targetPoints the target points of the model, one point per row
+     * @param result receives the minimal squared distance of each sample
+     */
+    protected void minSquaredTargetDistances(final double[][] coordinates,
+            final double[][] targetPoints, final double[] result) {
+        for (int i = 0; i < coordinates.length; i++) {
+            result[i] = minSquaredTargetDistance(coordinates[i], targetPoints);
+        }
+    }
+
+    private double[][] getProjectionData() {
+        double[][] data = m_projectionData;
+        if (data == null) {
+            data = m_projection.getData();
+            m_projectionData = data;
+        }
+        return data;
+    }
+
+    private double[][] getTargetPointsData() {
+        double[][] data = m_targetPointsData;
+        if (data == null) {
+            data = m_targetPoints.getData();
+            m_targetPointsData = data;
+        }
+        return data;
+    }
+
+    /**
+     * Calculates the null space projection of the kernel matrix.
+     *
+     * @param kernelMatrix symmetric kernel matrix of the training samples
+     * @param labels labels of the training samples (ordered by class)
+     * @param primitiveBackend if <code>true</code> the projection is
+     *            calculated on primitive arrays with an in place centering
+     *            and a symmetric eigen solver instead of commons-math
+     *            matrices, which is considerably faster and needs less
+     *            memory for large training sets
+     * @return the projection into the null space
+     * @throws KNFSTException if the projection can't be calculated
+     */
+    public static RealMatrix projection(final RealMatrix kernelMatrix,
+            final String[] labels, final boolean primitiveBackend)
+            throws KNFSTException {
+        if (!primitiveBackend) {
+            return projection(kernelMatrix, labels);
+        }
+
+        final ClassWrapper[] classes = ClassWrapper.classes(labels);
+
+        // check labels
+        if (classes.length == 1) {
+            throw new IllegalArgumentException(
+                    "not able to calculate a nullspace from data of a single class using KNFST (input variable \"labels\" only contains a single value)");
+        }
+
+        // check kernel matrix
+        if (!kernelMatrix.isSquare()) {
+            throw new IllegalArgumentException(
+                    "The KernelMatrix must be quadratic!");
+        }
+
+        return PrimitiveProjection.projection(kernelMatrix, classes);
+    }
+
     public static RealMatrix projection(final RealMatrix kernelMatrix,
             final String[] labels) throws KNFSTException {
 
@@ -229,11 +417,7 @@ public void readExternal(final ObjectInput arg0)
             final int colsProj = arg0.readInt();
             // data
             final double[][] projData = new double[rowsProj][colsProj];
-            for (int r = 0; r < rowsProj; r++) {
-                for (int c = 0; c < colsProj; c++) {
-                    projData[r][c] = arg0.readDouble();
-                }
-            }
+            DoubleArrayIO.readMatrix(arg0, projData);
             // Matrix construction
             m_projection = MatrixUtils.createRealMatrix(projData);
 
@@ -244,19 +428,13 @@ public void readExternal(final ObjectInput arg0)
             final int colsTar = arg0.readInt();
             // data
             final double[][] tarData = new double[rowsTar][colsTar];
-            for (int r = 0; r < rowsTar; r++) {
-                for (int c = 0; c < colsTar; c++) {
-                    tarData[r][c] = arg0.readDouble();
-                }
-            }
+            DoubleArrayIO.readMatrix(arg0, tarData);
             // Matrix construction
             m_targetPoints = MatrixUtils.createRealMatrix(tarData);
 
             // read betweenClassDistances
             final double[] betweenClassDistances = new double[arg0.readInt()];
-            for (int i = 0; i < betweenClassDistances.length; i++) {
-                betweenClassDistances[i] = arg0.readDouble();
-            }
+            DoubleArrayIO.readArray(arg0, betweenClassDistances);
             m_betweenClassDistances = betweenClassDistances;
 
         } catch (InstantiationException | IllegalAccessException e) {
@@ -276,12 +454,7 @@ public void writeExternal(final ObjectOutput arg0) throws IOException {
         // columns
         arg0.writeInt(m_projection.getColumnDimension());
         // data
-        final double[][] projData = m_projection.getData();
-        for (final double[] row : projData) {
-            for (final double cell : row) {
-                arg0.writeDouble(cell);
-            }
-        }
+        DoubleArrayIO.writeMatrix(arg0, m_projection.getData());
 
         // write targetPoints
         // rows
@@ -289,20 +462,13 @@ public void writeExternal(final ObjectOutput arg0) throws IOException {
         // columns
         arg0.writeInt(m_targetPoints.getColumnDimension());
         // data
-        final double[][] tarData = m_targetPoints.getData();
-        for (final double[] row : tarData) {
-            for (final double cell : row) {
-                arg0.writeDouble(cell);
-            }
-        }
+        DoubleArrayIO.writeMatrix(arg0, m_targetPoints.getData());
 
         // write betweenClassDistances
         // length
         arg0.writeInt(m_betweenClassDistances.length);
         // data
-        for (final double dist : m_betweenClassDistances) {
-            arg0.writeDouble(dist);
-        }
+        DoubleArrayIO.writeArray(arg0, m_betweenClassDistances);
     }
 
     public double[] getBetweenClassDistances() {
@@ -321,6 +487,14 @@ public double[][] getTargetPoints() {
         return m_targetPoints.getData();
     }
 
+    IncrementalKNFST getUpdateState() {
+        return m_updateState;
+    }
+
+    void setUpdateState(final IncrementalKNFST updateState) {
+        m_updateState = updateState;
+    }
+
     public int getNullspaceDimension() {
         return m_targetPoints.getColumnDimension();
     }
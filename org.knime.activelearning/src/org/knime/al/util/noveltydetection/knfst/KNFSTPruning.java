@@ -0,0 +1,292 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.util.noveltydetection.knfst;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.KernelFunction;
+import org.knime.al.util.noveltydetection.kernel.RandomFourierFeature;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+
+/*
+ * Compacts a KNFST model by removing redundant training samples (greedy
+ * reduced set). Every null space direction w = sum_i p_i * phi(x_i) is
+ * replaced by its orthogonal projection w_S onto the span of a subset S of
+ * the training samples, which is grown by a pivoted Cholesky decomposition
+ * of the kernel matrix that always adds the sample that reduces the
+ * remaining error of all directions the most.
+ *
+ * The null space coordinates of a sample x change by at most
+ * ||w - w_S|| * sqrt(k(x,x)) per direction, and its novelty score by at most
+ * the euclidean norm of these changes. Samples are added until this bound
+ * drops below the tolerance for samples with k(x,x) up to the largest value
+ * of the training samples (for the RBF kernel k(x,x) = 1, so the bound holds
+ * for all samples). The target points are kept. Scoring time and model
+ * size are proportional to the number of remaining samples.
+ *
+ * The null space directions of KNFST depend on the smallest eigenvalues of
+ * the kernel matrix, so w can only be represented by fewer samples if the
+ * removed samples are (almost) linear combinations of the remaining ones in
+ * feature space, e.g. duplicates, which are common in tables with discrete
+ * features, or near duplicates for larger tolerances. If the tolerance
+ * can't be met before the selected samples span all others, the model is
+ * returned unchanged.
+ */
+public final class KNFSTPruning {
+
+    // samples whose residual in kernel space is below this fraction of the
+    // largest k(x,x) are already in the span of the selected samples
+    private static final double PIVOT_THRESHOLD = 1e-10;
+
+    private KNFSTPruning() {
+        // utility class
+    }
+
+    /*
+     * Removes training samples from a model. Parameters: model: the model to
+     * compact (models learned with random Fourier features can't be pruned)
+     * tolerance: maximal change of the novelty scores, relative to the
+     * smallest distance between the target points (the normalizer of the
+     * KNFST Novelty Scorer) progMon: progress monitor Output: model of the
+     * same type that only keeps the selected samples (in their original
+     * order) or the model itself if no sample can be removed
+     */
+    public static KNFST prune(final KNFST model, final double tolerance,
+            final ExecutionMonitor progMon) throws CanceledExecutionException {
+        final KernelCalculator kernel = model.getKernel();
+        final KernelFunction kernelFunction = kernel.getKernelFunction();
+        if (kernelFunction instanceof RandomFourierFeature) {
+            throw new IllegalArgumentException(
+                    "Models learned with random Fourier features can't be pruned.");
+        }
+        if (tolerance < 0) {
+            throw new IllegalArgumentException(
+                    "The tolerance must not be negative.");
+        }
+        final double[][] samples = kernel.getTrainingData();
+        final double[][] projection = model.getProjection().getData();
+        final int n = samples.length;
+        final int d = model.getNullspaceDimension();
+
+        progMon.setMessage("Calculating kernel matrix");
+        final double[][] kernelMatrix = new double[n][n];
+        double maxSelfSimilarity = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                final double k =
+                        kernelFunction.calculate(samples[i], samples[j]);
+                kernelMatrix[i][j] = k;
+                kernelMatrix[j][i] = k;
+            }
+            maxSelfSimilarity =
+                    Math.max(maxSelfSimilarity, kernelMatrix[i][i]);
+            progMon.checkCanceled();
+        }
+        progMon.setProgress(0.3);
+
+        // residuals[i][c] = <phi(x_i) - its projection onto span(S), w_c>
+        final double[][] residuals = new double[n][d];
+        // sum over the directions of ||w_c - w_S,c||^2
+        double squaredError = 0;
+        for (int i = 0; i < n; i++) {
+            final double[] kernelRow = kernelMatrix[i];
+            for (int j = 0; j < n; j++) {
+                final double k = kernelRow[j];
+                final double[] projectionRow = projection[j];
+                for (int c = 0; c < d; c++) {
+                    residuals[i][c] += k * projectionRow[c];
+                }
+            }
+            for (int c = 0; c < d; c++) {
+                squaredError += projection[i][c] * residuals[i][c];
+            }
+        }
+        // squared norms of the sample residuals (diagonal of K - L*L')
+        final double[] diagonal = new double[n];
+        for (int i = 0; i < n; i++) {
+            diagonal[i] = kernelMatrix[i][i];
+        }
+
+        final double allowedError = tolerance
+                * minimum(model.getBetweenClassDistances())
+                / Math.sqrt(maxSelfSimilarity);
+        final double allowedSquaredError = allowedError * allowedError;
+
+        progMon.setMessage("Selecting training samples");
+        final List<Integer> pivots = new ArrayList<Integer>();
+        // columns of the pivoted Cholesky factor L and coefficients of the
+        // directions in the corresponding orthonormal basis of span(S)
+        final List<double[]> choleskyColumns = new ArrayList<double[]>();
+        final List<double[]> coefficients = new ArrayList<double[]>();
+        // at least one sample is kept, otherwise the model can't score
+        while ((squaredError > allowedSquaredError || pivots.isEmpty())
+                && pivots.size() < n) {
+            int pivot = -1;
+            double maxGain = -1;
+            for (int j = 0; j < n; j++) {
+                if (diagonal[j] <= PIVOT_THRESHOLD * maxSelfSimilarity) {
+                    // already in the span of the selected samples
+                    continue;
+                }
+                double gain = 0;
+                for (int c = 0; c < d; c++) {
+                    gain += residuals[j][c] * residuals[j][c];
+                }
+                gain /= diagonal[j];
+                if (gain > maxGain) {
+                    maxGain = gain;
+                    pivot = j;
+                }
+            }
+            if (pivot < 0) {
+                // all samples are in the span of the selected ones
+                break;
+            }
+
+            final double norm = Math.sqrt(diagonal[pivot]);
+            final double[] column = new double[n];
+            for (int i = 0; i < n; i++) {
+                double value = kernelMatrix[i][pivot];
+                for (final double[] previous : choleskyColumns) {
+                    value -= previous[i] * previous[pivot];
+                }
+                column[i] = value / norm;
+            }
+            final double[] coefficient = new double[d];
+            for (int c = 0; c < d; c++) {
+                coefficient[c] = residuals[pivot][c] / norm;
+                squaredError -= coefficient[c] * coefficient[c];
+            }
+            for (int i = 0; i < n; i++) {
+                diagonal[i] -= column[i] * column[i];
+                for (int c = 0; c < d; c++) {
+                    residuals[i][c] -= column[i] * coefficient[c];
+                }
+            }
+            diagonal[pivot] = 0;
+
+            pivots.add(pivot);
+            choleskyColumns.add(column);
+            coefficients.add(coefficient);
+            progMon.checkCanceled();
+            progMon.setProgress(0.3 + 0.7 * pivots.size() / n);
+        }
+
+        if (squaredError > allowedSquaredError || pivots.size() == n) {
+            // the samples that could be removed would change the scores by
+            // more than the tolerance
+            return model;
+        }
+
+        // projection of the selected samples: solve L_S' * P_S = C by back
+        // substitution, where L_S holds the rows of L of the selected samples
+        final int m = pivots.size();
+        final double[][] reducedProjection = new double[m][];
+        for (int a = m - 1; a >= 0; a--) {
+            final double[] row = coefficients.get(a).clone();
+            for (int b = a + 1; b < m; b++) {
+                final double l = choleskyColumns.get(a)[pivots.get(b)];
+                for (int c = 0; c < d; c++) {
+                    row[c] -= l * reducedProjection[b][c];
+                }
+            }
+            final double l = choleskyColumns.get(a)[pivots.get(a)];
+            for (int c = 0; c < d; c++) {
+                row[c] /= l;
+            }
+            reducedProjection[a] = row;
+        }
+
+        // keep the samples in their original order (i.e. ordered by class)
+        final Integer[] order = new Integer[m];
+        for (int a = 0; a < m; a++) {
+            order[a] = a;
+        }
+        Arrays.sort(order, (a, b) -> pivots.get(a).compareTo(pivots.get(b)));
+        final double[][] keptSamples = new double[m][];
+        final double[][] keptProjection = new double[m][];
+        final int[] keptIndices = new int[m];
+        for (int a = 0; a < m; a++) {
+            keptIndices[a] = pivots.get(order[a]);
+            keptSamples[a] = samples[keptIndices[a]];
+            keptProjection[a] = reducedProjection[order[a]];
+        }
+        progMon.setProgress(1.0);
+
+        final KernelCalculator keptKernel =
+                new KernelCalculator(keptSamples, kernelFunction);
+        final RealMatrix targetPoints =
+                MatrixUtils.createRealMatrix(model.getTargetPoints());
+        if (model instanceof MultiClassKNFST) {
+            final String[] labels = ((MultiClassKNFST) model).getLabels();
+            final String[] keptLabels = new String[m];
+            for (int a = 0; a < m; a++) {
+                keptLabels[a] = labels[keptIndices[a]];
+            }
+            return new MultiClassKNFST(keptKernel, keptLabels,
+                    MatrixUtils.createRealMatrix(keptProjection),
+                    targetPoints);
+        }
+        return new OneClassKNFST(keptKernel,
+                MatrixUtils.createRealMatrix(keptProjection), targetPoints);
+    }
+
+    private static double minimum(final double[] values) {
+        double min = Double.POSITIVE_INFINITY;
+        for (final double value : values) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+}
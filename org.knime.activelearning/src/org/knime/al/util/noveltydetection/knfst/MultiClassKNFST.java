@@ -54,7 +54,6 @@
 
 import org.apache.commons.math3.linear.MatrixUtils;
 import org.apache.commons.math3.linear.RealMatrix;
-import org.apache.commons.math3.linear.RealVector;
 import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
 import org.knime.core.data.DataRow;
 import org.knime.core.node.ExecutionMonitor;
@@ -69,6 +68,12 @@ public MultiClassKNFST() {
 
     public MultiClassKNFST(final KernelCalculator kernel, final String[] labels,
             final ExecutionMonitor progMon) throws Exception {
+        this(kernel, labels, progMon, false);
+    }
+
+    public MultiClassKNFST(final KernelCalculator kernel, final String[] labels,
+            final ExecutionMonitor progMon, final boolean primitiveBackend)
+            throws Exception {
         super(kernel);
         m_labels = labels;
 
@@ -82,7 +87,7 @@ public MultiClassKNFST(final KernelCalculator kernel, final String[] labels,
 
         // calculate projection of KNFST
         nullspaceProgMon.setMessage("Calculating nullspace projection");
-        m_projection = projection(kernelMatrix, labels);
+        m_projection = projection(kernelMatrix, labels, primitiveBackend);
 
         nullspaceProgMon.setProgress(1.0,
                 "Finished calculating nullspace projection");
@@ -115,12 +120,17 @@ public MultiClassKNFST(final KernelCalculator kernel, final String[] labels,
 
     public MultiClassKNFST(final RealMatrix kernelMatrix, final String[] labels)
             throws KNFSTException {
+        this(kernelMatrix, labels, false);
+    }
+
+    public MultiClassKNFST(final RealMatrix kernelMatrix, final String[] labels,
+            final boolean primitiveBackend) throws KNFSTException {
         m_labels = labels;
         // obtain unique class labels
         final ClassWrapper[] classes = ClassWrapper.classes(labels);
 
         // calculate projection of KNFST
-        m_projection = projection(kernelMatrix, labels);
+        m_projection = projection(kernelMatrix, labels, primitiveBackend);
 
         // calculate target points ( = projections of training data into the
         // null space)
@@ -147,6 +157,23 @@ public MultiClassKNFST(final RealMatrix kernelMatrix, final String[] labels)
                 MatrixFunctions.calculateRowVectorDistances(m_targetPoints);
     }
 
+    /*
+     * Creates a model from an already calculated projection, e.g. of an
+     * approximation. Parameters: kernel: kernel over the samples the
+     * projection refers to labels: labels of these samples projection:
+     * projection of kernel values into the null space targetPoints: one
+     * target point per class
+     */
+    MultiClassKNFST(final KernelCalculator kernel, final String[] labels,
+            final RealMatrix projection, final RealMatrix targetPoints) {
+        super(kernel);
+        m_labels = labels;
+        m_projection = projection;
+        m_targetPoints = targetPoints;
+        m_betweenClassDistances =
+                MatrixFunctions.calculateRowVectorDistances(m_targetPoints);
+    }
+
     // @Override
     // public NoveltyScores scoreTestData(BufferedDataTable test, ) {
     // // calculate nxm kernel matrix containing similarities between n training
@@ -167,43 +194,63 @@ public MultiClassKNFST(final RealMatrix kernelMatrix, final String[] labels)
 
     @Override
     public NoveltyScores scoreTestData(final RealMatrix kernelMatrix) {
-        return score(kernelMatrix);
+        return scoreKernelColumns(kernelMatrix);
     }
 
     @Override
     public NoveltyScores scoreTestData(final DataRow testInstance) {
         final RealMatrix kernelMatrix = m_kernel.kernelize(testInstance);
-        return score(kernelMatrix);
+        return scoreKernelColumns(kernelMatrix);
     }
 
-    private NoveltyScores score(final RealMatrix kernelMatrix) {
-        final RealMatrix projectionVectors =
-                kernelMatrix.transpose().multiply(m_projection);
-
-        // squared euclidean distances to target points:
-        final RealMatrix squared_distances =
-                squared_euclidean_distances(projectionVectors, m_targetPoints);
-
-        // novelty scores as minimum distance to one of the target points
-        final RealVector scoreVector = MatrixFunctions
-                .sqrt(MatrixFunctions.rowMins(squared_distances));
-        return new NoveltyScores(scoreVector.toArray(), projectionVectors);
+    @Override
+    protected double minSquaredTargetDistance(final double[] coordinate,
+            final double[][] targetPoints) {
+        final double[] result = new double[1];
+        minSquaredTargetDistances(new double[][] { coordinate }, targetPoints,
+                result);
+        return result[0];
     }
 
-    private RealMatrix squared_euclidean_distances(final RealMatrix x,
-            final RealMatrix y) {
-        final RealMatrix distmat = MatrixUtils
-                .createRealMatrix(x.getRowDimension(), y.getRowDimension());
+    /*
+     * Squared distances via ||a||^2 + ||b||^2 - 2ab, the products of all
+     * samples with all target points form a single matrix product and the
+     * norms of the target points are only calculated once per block
+     */
+    @Override
+    protected void minSquaredTargetDistances(final double[][] coordinates,
+            final double[][] targetPoints, final double[] result) {
+        final double[] targetNorms = new double[targetPoints.length];
+        for (int j = 0; j < targetPoints.length; j++) {
+            targetNorms[j] = dot(targetPoints[j], targetPoints[j]);
+        }
 
-        for (int i = 0; i < x.getRowDimension(); i++) {
-            for (int j = 0; j < y.getRowDimension(); j++) {
-                final RealVector buff =
-                        x.getRowVector(i).subtract(y.getRowVector(j));
-                distmat.setEntry(i, j, buff.dotProduct(buff));
+        for (int i = 0; i < coordinates.length; i++) {
+            final double[] coordinate = coordinates[i];
+            double min = Double.POSITIVE_INFINITY;
+            boolean found = false;
+            for (int j = 0; j < targetPoints.length; j++) {
+                final double dist =
+                        targetNorms[j] - 2 * dot(coordinate, targetPoints[j]);
+                if (dist <= min) {
+                    min = dist;
+                    found = true;
+                }
             }
+            // same semantics as RealVector.getMinValue(), rounding must not
+            // produce negative distances
+            result[i] = found
+                    ? Math.max(0, min + dot(coordinate, coordinate))
+                    : Double.NaN;
         }
+    }
 
-        return distmat;
+    private static double dot(final double[] a, final double[] b) {
+        double sum = 0;
+        for (int d = 0; d < a.length; d++) {
+            sum += a[d] * b[d];
+        }
+        return sum;
     }
 
     @Override
@@ -233,6 +280,13 @@ public void writeExternal(final ObjectOutput arg0) throws IOException {
 
     }
 
+    /*
+     * Returns the labels of the training samples (ordered by class)
+     */
+    public String[] getLabels() {
+        return m_labels;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -0,0 +1,366 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.util.noveltydetection.knfst;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.KernelFunction;
+import org.knime.core.node.ExecutionMonitor;
+
+/*
+ * Learns an approximate KNFST model from a Nystroem low-rank approximation of
+ * the kernel matrix. Only the kernel values of all n training samples with m
+ * landmark samples are calculated (O(n*m) memory), the samples are mapped
+ * into the explicit r <= m dimensional Nystroem feature space and the null
+ * Foley-Sammon transform is calculated there by FeatureSpaceNullspace
+ * (O(n*m^2) time).
+ *
+ * The resulting projection is expressed in terms of kernel values with the
+ * landmarks, so the returned model is a regular MultiClassKNFST or
+ * OneClassKNFST whose kernel only holds the landmarks and that can be used
+ * by the KNFST Novelty Scorer as is. If all training samples are used as
+ * landmarks the model is equivalent to the exact KNFST.
+ */
+public final class NystroemKNFST {
+
+    public enum LandmarkSelection {
+        Random("Random"), KMeansPlusPlus("KMeansPlusPlus");
+
+        private final String m_name;
+
+        private LandmarkSelection(final String name) {
+            m_name = name;
+        }
+
+        @Override
+        public String toString() {
+            return m_name;
+        }
+    }
+
+    // eigenvalues of the landmark kernel matrix below this fraction of the
+    // largest eigenvalue are discarded when building the feature map
+    private static final double LANDMARK_EIGENVALUE_THRESHOLD = 1e-10;
+
+    private NystroemKNFST() {
+        // utility class
+    }
+
+    /*
+     * Learns an approximate KNFST model. Parameters: kernel: kernel over all
+     * training samples labels: labels of the training samples (ordered by
+     * class), ignored if oneClass is true oneClass: whether a one-class model
+     * should be learned numLandmarks: number of landmark samples m selection:
+     * how the landmarks are chosen seed: seed of the random landmark selection
+     * progMon: progress monitor Output: MultiClassKNFST or OneClassKNFST that
+     * only uses the landmarks as training samples
+     */
+    public static KNFST learn(final KernelCalculator kernel,
+            final String[] labels, final boolean oneClass,
+            final int numLandmarks, final LandmarkSelection selection,
+            final long seed, final ExecutionMonitor progMon)
+            throws Exception {
+        final double[][] trainingData = kernel.getTrainingData();
+        final KernelFunction kernelFunction = kernel.getKernelFunction();
+        final int n = trainingData.length;
+        final int m = Math.min(numLandmarks, n);
+        if (m < 1) {
+            throw new IllegalArgumentException(
+                    "The number of landmarks must be positive.");
+        }
+
+        final ClassWrapper[] classes =
+                FeatureSpaceNullspace.classes(labels, oneClass, n);
+
+        // kernel values of all samples with the landmarks
+        progMon.setMessage("Selecting landmarks");
+        final int[] landmarks = new int[m];
+        final double[][] knm = new double[n][m];
+        final Random random = new Random(seed);
+        if (selection == LandmarkSelection.KMeansPlusPlus) {
+            selectKMeansPlusPlus(trainingData, kernelFunction, landmarks, knm,
+                    random, progMon.createSubProgress(0.4));
+        } else {
+            selectRandom(trainingData, kernelFunction, landmarks, knm, random,
+                    progMon.createSubProgress(0.4));
+        }
+
+        // Nystroem feature map: phi(x) = k_m(x) * U * Lambda^(-1/2)
+        progMon.setMessage("Calculating Nystroem feature space");
+        final double[][] featureMap = featureMap(knm, landmarks);
+        final int r = featureMap[0].length;
+        final double[][] features = new double[n][r];
+        for (int i = 0; i < n; i++) {
+            multiply(knm[i], featureMap, features[i]);
+        }
+        progMon.checkCanceled();
+
+        // null Foley-Sammon transform in feature space
+        progMon.setMessage("Calculating nullspace projection");
+        final FeatureSpaceNullspace nullspace =
+                new FeatureSpaceNullspace(features, classes, oneClass);
+        final double[][] directions = nullspace.getDirections();
+        final int d = directions.length;
+        progMon.setProgress(0.9);
+
+        // projection of the landmark kernel values: U * Lambda^(-1/2) * W
+        final double[][] projection = new double[m][d];
+        for (int j = 0; j < m; j++) {
+            for (int c = 0; c < d; c++) {
+                projection[j][c] = FeatureSpaceNullspace.dot(featureMap[j],
+                        directions[c]);
+            }
+        }
+
+        final double[][] landmarkData = new double[m][];
+        for (int j = 0; j < m; j++) {
+            landmarkData[j] = trainingData[landmarks[j]];
+        }
+        final KernelCalculator landmarkKernel =
+                new KernelCalculator(landmarkData, kernelFunction);
+        progMon.setProgress(1.0);
+
+        final RealMatrix targetPoints =
+                MatrixUtils.createRealMatrix(nullspace.getTargetPoints());
+        if (oneClass) {
+            return new OneClassKNFST(landmarkKernel,
+                    MatrixUtils.createRealMatrix(projection), targetPoints);
+        }
+        final String[] landmarkLabels = new String[m];
+        for (int j = 0; j < m; j++) {
+            landmarkLabels[j] = labels[landmarks[j]];
+        }
+        return new MultiClassKNFST(landmarkKernel, landmarkLabels,
+                MatrixUtils.createRealMatrix(projection), targetPoints);
+    }
+
+    /*
+     * Chooses m distinct landmarks uniformly at random and fills knm with
+     * their kernel values. The landmarks are kept in table order.
+     */
+    private static void selectRandom(final double[][] data,
+            final KernelFunction kernelFunction, final int[] landmarks,
+            final double[][] knm, final Random random,
+            final ExecutionMonitor progMon) throws Exception {
+        final int n = data.length;
+        final int m = landmarks.length;
+        final int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        // partial Fisher-Yates shuffle
+        for (int j = 0; j < m; j++) {
+            final int swap = j + random.nextInt(n - j);
+            final int tmp = indices[j];
+            indices[j] = indices[swap];
+            indices[swap] = tmp;
+        }
+        System.arraycopy(indices, 0, landmarks, 0, m);
+        Arrays.sort(landmarks);
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                knm[i][j] =
+                        kernelFunction.calculate(data[i], data[landmarks[j]]);
+            }
+            if (i % 1000 == 0) {
+                progMon.checkCanceled();
+                progMon.setProgress((double) i / n);
+            }
+        }
+    }
+
+    /*
+     * Chooses the landmarks with k-means++ seeding in kernel feature space,
+     * where the squared distance of two samples is k(x,x) + k(y,y) - 2k(x,y).
+     * The kernel values of each chosen landmark are needed for the distance
+     * update anyway and are stored in knm.
+     */
+    private static void selectKMeansPlusPlus(final double[][] data,
+            final KernelFunction kernelFunction, final int[] landmarks,
+            final double[][] knm, final Random random,
+            final ExecutionMonitor progMon) throws Exception {
+        final int n = data.length;
+        final int m = landmarks.length;
+        final double[] selfSimilarities = new double[n];
+        for (int i = 0; i < n; i++) {
+            selfSimilarities[i] = kernelFunction.calculate(data[i], data[i]);
+        }
+        final double[] minDistances = new double[n];
+        Arrays.fill(minDistances, Double.POSITIVE_INFINITY);
+        final boolean[] chosen = new boolean[n];
+
+        int next = random.nextInt(n);
+        for (int j = 0; j < m; j++) {
+            landmarks[j] = next;
+            chosen[next] = true;
+            final double[] landmark = data[next];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                final double k = kernelFunction.calculate(data[i], landmark);
+                knm[i][j] = k;
+                if (chosen[i]) {
+                    minDistances[i] = 0;
+                } else {
+                    final double dist = Math.max(0, selfSimilarities[i]
+                            + selfSimilarities[next] - 2 * k);
+                    if (dist < minDistances[i]) {
+                        minDistances[i] = dist;
+                    }
+                }
+                sum += minDistances[i];
+            }
+            progMon.checkCanceled();
+            progMon.setProgress((double) (j + 1) / m);
+
+            if (j + 1 < m) {
+                next = sampleNext(minDistances, sum, chosen, random);
+            }
+        }
+    }
+
+    /*
+     * Draws an index with probability proportional to its distance. If all
+     * remaining samples coincide with a landmark, an unchosen index is drawn
+     * uniformly.
+     */
+    private static int sampleNext(final double[] distances, final double sum,
+            final boolean[] chosen, final Random random) {
+        if (sum > 0) {
+            final double target = random.nextDouble() * sum;
+            double cumulative = 0;
+            int last = -1;
+            for (int i = 0; i < distances.length; i++) {
+                if (distances[i] > 0) {
+                    cumulative += distances[i];
+                    last = i;
+                    if (cumulative > target) {
+                        return i;
+                    }
+                }
+            }
+            // rounding in the cumulative sum
+            return last;
+        }
+        int remaining = 0;
+        for (final boolean c : chosen) {
+            if (!c) {
+                remaining++;
+            }
+        }
+        int skip = random.nextInt(remaining);
+        for (int i = 0; i < chosen.length; i++) {
+            if (!chosen[i] && skip-- == 0) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("No unchosen sample left.");
+    }
+
+    /*
+     * Returns the m x r matrix U * Lambda^(-1/2) of the eigen decomposition
+     * of the landmark kernel matrix, discarding (numerically) zero
+     * eigenvalues.
+     */
+    private static double[][] featureMap(final double[][] knm,
+            final int[] landmarks) throws KNFSTException {
+        final int m = landmarks.length;
+        final double[] kmm = new double[m * m];
+        for (int a = 0; a < m; a++) {
+            final double[] row = knm[landmarks[a]];
+            for (int b = 0; b <= a; b++) {
+                final double value =
+                        0.5 * (row[b] + knm[landmarks[b]][a]);
+                kmm[a * m + b] = value;
+                kmm[b * m + a] = value;
+            }
+        }
+        final SymmetricEigenDecomposition eig =
+                new SymmetricEigenDecomposition(kmm, m);
+        final double[] eigVals = eig.getEigenvalues();
+        final double[] eigVecs = eig.getEigenvectors();
+
+        final double threshold =
+                eigVals[m - 1] * LANDMARK_EIGENVALUE_THRESHOLD;
+        int first = m;
+        while (first > 0 && eigVals[first - 1] > threshold) {
+            first--;
+        }
+        if (first == m || !(eigVals[m - 1] > 0)) {
+            throw new KNFSTException(
+                    "The kernel matrix of the landmarks is zero. Try different parameters or a different kernel.");
+        }
+
+        final int r = m - first;
+        final double[][] map = new double[m][r];
+        for (int q = 0; q < r; q++) {
+            final int offset = (first + q) * m;
+            final double normalizer = 1 / Math.sqrt(eigVals[first + q]);
+            for (int j = 0; j < m; j++) {
+                map[j][q] = eigVecs[offset + j] * normalizer;
+            }
+        }
+        return map;
+    }
+
+    // result = v * matrix, with v of length m and matrix of size m x r
+    private static void multiply(final double[] v, final double[][] matrix,
+            final double[] result) {
+        for (int j = 0; j < v.length; j++) {
+            final double vj = v[j];
+            final double[] row = matrix[j];
+            for (int q = 0; q < result.length; q++) {
+                result[q] += vj * row[q];
+            }
+        }
+    }
+}
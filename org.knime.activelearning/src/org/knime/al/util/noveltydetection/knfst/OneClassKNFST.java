@@ -64,90 +64,67 @@ public OneClassKNFST() {
 
     public OneClassKNFST(final KernelCalculator kernel,
             final ExecutionMonitor progMon) throws Exception {
+        this(kernel, progMon, false);
+    }
+
+    public OneClassKNFST(final KernelCalculator kernel,
+            final ExecutionMonitor progMon, final boolean primitiveBackend)
+            throws Exception {
         super(kernel);
 
         final ExecutionMonitor kernelProgMon = progMon.createSubProgress(0.3);
         final ExecutionMonitor nullspaceProgMon =
                 progMon.createSubProgress(0.7);
 
-        // get number of training samples
-        final RealMatrix kernelMatrix = m_kernel.kernelize(kernelProgMon);
-        final int n = kernelMatrix.getRowDimension();
-
-        // include dot products of training samples and the origin in feature
-        // space (these dot products are always zero!)
-        final RealMatrix k = MatrixFunctions.concatVertically(
-                MatrixFunctions.concatHorizontally(kernelMatrix,
-                        MatrixUtils.createRealMatrix(
-                                kernelMatrix.getRowDimension(), 1)),
-                MatrixUtils.createRealMatrix(1,
-                        kernelMatrix.getColumnDimension() + 1));
-
-        // create one-class labels + a different label for the origin
-        final String[] labels = new String[n + 1];
-        for (int l = 0; l <= n; l++) {
-            labels[l] = (l == n) ? "0" : "1";
-        }
+        // the kernel matrix is not copied, the null space calculation works
+        // in place on its values
+        final RealMatrix kernelMatrix =
+                m_kernel.kernelizeUncopied(kernelProgMon);
 
         // get model parameters
         nullspaceProgMon.setMessage("Calculating nullspace projection");
-        final RealMatrix projection = projection(k, labels);
+        learn(kernelMatrix);
         nullspaceProgMon.setProgress(1.0,
                 "Finished calculating nullspace projection");
-        final int[] indices = new int[n];
-        for (int i = 0; i < n; i++) {
-            indices[i] = i;
-        }
-        m_targetPoints =
-                MatrixUtils
-                        .createRowRealMatrix(
-                                MatrixFunctions
-                                        .columnMeans(k
-                                                .getSubMatrix(0, n - 1, 0,
-                                                        k.getColumnDimension()
-                                                                - 1)
-                                        .multiply(projection)).toArray());
-        m_projection = projection.getSubMatrix(0, n - 1, 0,
-                projection.getColumnDimension() - 1);
-        m_betweenClassDistances =
-                new double[] { Math.abs(m_targetPoints.getEntry(0, 0)) };
     }
 
     public OneClassKNFST(final RealMatrix kernelMatrix) throws KNFSTException {
-        final int n = kernelMatrix.getRowDimension();
-
-        // include dot products of training samples and the origin in feature
-        // space (these dot products are always zero!)
-        final RealMatrix k = MatrixFunctions.concatVertically(
-                MatrixFunctions.concatHorizontally(kernelMatrix,
-                        MatrixUtils.createRealMatrix(
-                                kernelMatrix.getRowDimension(), 1)),
-                MatrixUtils.createRealMatrix(1,
-                        kernelMatrix.getColumnDimension() + 1));
-
-        // create one-class labels + a different label for the origin
-        final String[] labels = new String[n + 1];
-        for (int l = 0; l <= n; l++) {
-            labels[l] = (l == n) ? "0" : "1";
-        }
+        this(kernelMatrix, false);
+    }
 
-        // get model parameters
-        final RealMatrix projection = projection(k, labels);
-        final int[] indices = new int[n];
-        for (int i = 0; i < n; i++) {
-            indices[i] = i;
-        }
-        m_targetPoints =
-                MatrixUtils
-                        .createRowRealMatrix(
-                                MatrixFunctions
-                                        .columnMeans(k
-                                                .getSubMatrix(0, n - 1, 0,
-                                                        k.getColumnDimension()
-                                                                - 1)
-                                        .multiply(projection)).toArray());
-        m_projection = projection.getSubMatrix(0, n - 1, 0,
-                projection.getColumnDimension() - 1);
+    /*
+     * The null space of a single class against the origin is calculated
+     * analytically (see OneClassNullspace), primitiveBackend has no effect
+     * and is only kept for symmetry with MultiClassKNFST.
+     */
+    public OneClassKNFST(final RealMatrix kernelMatrix,
+            final boolean primitiveBackend) throws KNFSTException {
+        learn(kernelMatrix);
+    }
+
+    private void learn(final RealMatrix kernelMatrix) throws KNFSTException {
+        // the origin of the feature space is separated from the training
+        // class without appending its (zero) kernel values to the matrix
+        final RealMatrix projection =
+                OneClassNullspace.projection(kernelMatrix);
+        m_targetPoints = MatrixUtils.createRowRealMatrix(MatrixFunctions
+                .columnMeans(kernelMatrix.multiply(projection)).toArray());
+        m_projection = projection;
+        m_betweenClassDistances =
+                new double[] { Math.abs(m_targetPoints.getEntry(0, 0)) };
+    }
+
+    /*
+     * Creates a model from an already calculated projection, e.g. of an
+     * approximation. Parameters: kernel: kernel over the samples the
+     * projection refers to projection: projection of kernel values into the
+     * null space targetPoints: the target point of the training class
+     */
+    OneClassKNFST(final KernelCalculator kernel, final RealMatrix projection,
+            final RealMatrix targetPoints) {
+        super(kernel);
+        m_projection = projection;
+        m_targetPoints = targetPoints;
         m_betweenClassDistances =
                 new double[] { Math.abs(m_targetPoints.getEntry(0, 0)) };
     }
@@ -180,6 +157,19 @@ private NoveltyScores score(final RealMatrix kernelMatrix) {
         return new NoveltyScores(scoresVector.toArray(), projectionVectors);
     }
 
+    @Override
+    protected double minSquaredTargetDistance(final double[] coordinate,
+            final double[][] targetPoints) {
+        // there is only a single target value
+        final double target = targetPoints[0][0];
+        double dist = 0;
+        for (final double coord : coordinate) {
+            final double diff = coord - target;
+            dist += diff * diff;
+        }
+        return dist;
+    }
+
     @Override
     public String toString() {
         final int maxLen = 10;
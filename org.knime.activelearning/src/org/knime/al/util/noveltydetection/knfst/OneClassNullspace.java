@@ -0,0 +1,278 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.util.noveltydetection.knfst;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/*
+ * Calculates the one-class KNFST null space projection without appending
+ * the origin to the kernel matrix. KNFST separates the training class from
+ * the origin, whose kernel values are all zero, so the null space direction
+ * w = sum_i alpha_i phi(x_i) has to satisfy K * alpha = c * 1 and w'w = 1:
+ *
+ * - the kernel matrix is decomposed into K = L*L' by an in-place Cholesky
+ *   decomposition, L is stored in the strictly lower triangle of the
+ *   kernel matrix, which is restored from the upper triangle afterwards
+ * - if K has full rank, alpha = L'^-1 * v / ||v|| with v = L^-1 * 1
+ * - otherwise samples that are linear combinations of the previous samples
+ *   are skipped and the null space of the within-class scatter is
+ *   calculated on the coordinates of the remaining samples
+ *
+ * Apart from the kernel matrix only O(n) memory is used in the full rank
+ * case and O(r^2) for a kernel matrix of rank r otherwise.
+ */
+final class OneClassNullspace {
+
+    // relative residual below which a sample is linearly dependent on the
+    // previous samples, same threshold as KNFST.projection for the basis
+    private static final double RANK_THRESHOLD = 1e-12;
+
+    private static final String FAILURE_MESSAGE = "Something went wrong. "
+            + "Try different parameters or a different kernel.";
+
+    private OneClassNullspace() {
+        // utility class
+    }
+
+    /*
+     * Calculates the projection of kernel values into the one-class null
+     * space. The kernel matrix is modified during the calculation, but
+     * restored before the method returns. Parameters: kernelMatrix:
+     * symmetric nxn kernel matrix of the training samples Output: nx1
+     * projection
+     */
+    static RealMatrix projection(final RealMatrix kernelMatrix)
+            throws KNFSTException {
+        final double[][] k = kernelMatrix instanceof Array2DRowRealMatrix
+                ? ((Array2DRowRealMatrix) kernelMatrix).getDataRef()
+                : kernelMatrix.getData();
+        final int n = k.length;
+        if (n == 0) {
+            throw new KNFSTException(FAILURE_MESSAGE);
+        }
+
+        try {
+            final double[] diagonal = new double[n];
+            final int[] pivots = new int[n];
+            final int r = decompose(k, diagonal, pivots);
+
+            final double[] alpha = r == n ? fullRankAlpha(k, diagonal)
+                    : rankDeficientAlpha(k, diagonal, pivots, r);
+            return new Array2DRowRealMatrix(alpha);
+        } finally {
+            for (int i = 1; i < n; i++) {
+                for (int j = 0; j < i; j++) {
+                    k[i][j] = k[j][i];
+                }
+            }
+        }
+    }
+
+    /*
+     * Row-wise Cholesky decomposition that skips linearly dependent samples.
+     * L(i,j) is written to k[i][j] for all i > j and pivot columns j, the
+     * original kernel value is still available in k[j][i]. Parameters: k:
+     * kernel matrix diagonal: receives the diagonal of L pivots: receives
+     * the indices of the linearly independent samples Output: rank r
+     */
+    private static int decompose(final double[][] k, final double[] diagonal,
+            final int[] pivots) {
+        final int n = k.length;
+        double maxDiagonal = 0;
+        for (int i = 0; i < n; i++) {
+            maxDiagonal = Math.max(maxDiagonal, k[i][i]);
+        }
+        final double threshold = RANK_THRESHOLD * maxDiagonal;
+
+        int r = 0;
+        for (int i = 0; i < n; i++) {
+            final double[] li = k[i];
+            double residual = li[i];
+            for (int p = 0; p < r; p++) {
+                final int j = pivots[p];
+                final double[] lj = k[j];
+                double sum = lj[i];
+                for (int q = 0; q < p; q++) {
+                    final int c = pivots[q];
+                    sum -= li[c] * lj[c];
+                }
+                final double lij = sum / diagonal[j];
+                li[j] = lij;
+                residual -= lij * lij;
+            }
+            if (residual > threshold) {
+                diagonal[i] = Math.sqrt(residual);
+                pivots[r++] = i;
+            }
+        }
+        return r;
+    }
+
+    private static double[] fullRankAlpha(final double[][] k,
+            final double[] diagonal) throws KNFSTException {
+        final int n = k.length;
+
+        // v = L^-1 * 1
+        final double[] v = new double[n];
+        double norm = 0;
+        for (int i = 0; i < n; i++) {
+            final double[] li = k[i];
+            double sum = 1;
+            for (int j = 0; j < i; j++) {
+                sum -= li[j] * v[j];
+            }
+            v[i] = sum / diagonal[i];
+            norm += v[i] * v[i];
+        }
+        norm = Math.sqrt(norm);
+        if (!(norm > 0) || Double.isInfinite(norm)) {
+            throw new KNFSTException(FAILURE_MESSAGE);
+        }
+        for (int i = 0; i < n; i++) {
+            v[i] /= norm;
+        }
+
+        // alpha = L'^-1 * v, solved along the rows of L
+        for (int i = n - 1; i >= 0; i--) {
+            final double[] li = k[i];
+            final double ai = v[i] / diagonal[i];
+            v[i] = ai;
+            for (int j = 0; j < i; j++) {
+                v[j] -= li[j] * ai;
+            }
+        }
+        return v;
+    }
+
+    private static double[] rankDeficientAlpha(final double[][] k,
+            final double[] diagonal, final int[] pivots, final int r)
+            throws KNFSTException {
+        final int n = k.length;
+        if (r == 0) {
+            throw new KNFSTException(FAILURE_MESSAGE);
+        }
+
+        // within-class scatter of the coordinates of all samples with
+        // respect to the linearly independent samples. Dependent samples
+        // have no components along later pivots.
+        final double[] scatter = new double[r * r];
+        final double[] mean = new double[r];
+        final double[] coordinates = new double[r];
+        int next = 0;
+        for (int i = 0; i < n; i++) {
+            final double[] li = k[i];
+            final boolean isPivot = next < r && pivots[next] == i;
+            final int dim = isPivot ? next + 1 : next;
+            for (int p = 0; p < next; p++) {
+                coordinates[p] = li[pivots[p]];
+            }
+            if (isPivot) {
+                coordinates[next] = diagonal[i];
+                next++;
+            }
+            for (int a = 0; a < dim; a++) {
+                final double ca = coordinates[a];
+                mean[a] += ca;
+                final int offset = a * r;
+                for (int b = 0; b <= a; b++) {
+                    scatter[offset + b] += ca * coordinates[b];
+                }
+            }
+        }
+        for (int a = 0; a < r; a++) {
+            mean[a] /= n;
+        }
+        for (int a = 0; a < r; a++) {
+            for (int b = 0; b <= a; b++) {
+                final double value = scatter[a * r + b] - n * mean[a] * mean[b];
+                scatter[a * r + b] = value;
+                scatter[b * r + a] = value;
+            }
+        }
+
+        // direction within the null space of the scatter that is closest to
+        // the mean, i.e. the one with the largest distance to the origin
+        final double[][] nullspace =
+                PrimitiveProjection.nullspace(scatter, r, 1);
+        final double[] u = new double[r];
+        for (final double[] vector : nullspace) {
+            double dot = 0;
+            for (int a = 0; a < r; a++) {
+                dot += vector[a] * mean[a];
+            }
+            for (int a = 0; a < r; a++) {
+                u[a] += dot * vector[a];
+            }
+        }
+        double norm = 0;
+        for (int a = 0; a < r; a++) {
+            norm += u[a] * u[a];
+        }
+        norm = Math.sqrt(norm);
+        if (!(norm > 0) || Double.isInfinite(norm)) {
+            throw new KNFSTException(FAILURE_MESSAGE);
+        }
+
+        // alpha_B = L_B'^-1 * u / ||u||, alpha is zero for dependent samples
+        final double[] alpha = new double[n];
+        for (int a = 0; a < r; a++) {
+            u[a] /= norm;
+        }
+        for (int a = r - 1; a >= 0; a--) {
+            final int i = pivots[a];
+            final double[] li = k[i];
+            final double ai = u[a] / diagonal[i];
+            alpha[i] = ai;
+            for (int b = 0; b < a; b++) {
+                u[b] -= li[pivots[b]] * ai;
+            }
+        }
+        return alpha;
+    }
+}
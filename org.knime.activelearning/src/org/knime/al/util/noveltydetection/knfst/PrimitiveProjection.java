@@ -0,0 +1,298 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.util.noveltydetection.knfst;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/*
+ * Calculates the KNFST null space projection on primitive arrays. The result
+ * spans the same null space as KNFST.projection(RealMatrix, String[]), but
+ * the helper matrices of that implementation (ones, L, M, identity) are never
+ * materialized:
+ *
+ * - the kernel matrix is centered in a single flat array from its column
+ *   means (K is symmetric, so row and column means coincide)
+ * - the eigen decomposition of the centered kernel matrix is done in place
+ *   on that array by SymmetricEigenDecomposition
+ * - (I-M)*B is the column centered basis, K*(I-L) subtracts class means
+ * - T = H*H' is symmetric positive semi-definite, so its null space is
+ *   obtained from its eigen decomposition instead of a full SVD
+ *
+ * The null space basis may differ from the commons-math backend by signs
+ * and rotations within degenerate eigenspaces. Novelty scores only depend
+ * on distances in the null space and are therefore not affected.
+ */
+final class PrimitiveProjection {
+
+    // same threshold as KNFST.projection for the kernel space basis
+    private static final double BASIS_EIGENVALUE_THRESHOLD = 1e-12;
+
+    // relative tolerance of commons-math SingularValueDecomposition.getRank()
+    private static final double RANK_EPS = Math.pow(2.0, -52.0);
+
+    private PrimitiveProjection() {
+        // utility class
+    }
+
+    /*
+     * Returns the null space projection of the kernel matrix. Parameters:
+     * kernelMatrix: symmetric n x n kernel matrix of the training samples
+     * classes: class sizes in the order of the rows of kernelMatrix Output:
+     * n x d projection into the d dimensional null space
+     */
+    static RealMatrix projection(final RealMatrix kernelMatrix,
+            final ClassWrapper[] classes) throws KNFSTException {
+        final int n = kernelMatrix.getRowDimension();
+        if ((long) n * n > Integer.MAX_VALUE) {
+            throw new KNFSTException("The kernel matrix of " + n
+                    + " samples is too large for the primitive backend.");
+        }
+        final double[][] k = kernelMatrix instanceof Array2DRowRealMatrix
+                ? ((Array2DRowRealMatrix) kernelMatrix).getDataRef()
+                : kernelMatrix.getData();
+
+        // basis of the kernel space, stored transposed (row a is basis vector
+        // a) and already multiplied with (I-M)
+        final double[][] basis = centeredBasis(k);
+        final int r = basis.length;
+
+        // H = ((I-M)*B)' * K * (I-L)
+        final double[][] h = new double[r][n];
+        for (int a = 0; a < r; a++) {
+            final double[] basisVec = basis[a];
+            final double[] hRow = h[a];
+            for (int i = 0; i < n; i++) {
+                final double b = basisVec[i];
+                if (b == 0.0) {
+                    continue;
+                }
+                final double[] kRow = k[i];
+                for (int j = 0; j < n; j++) {
+                    hRow[j] += b * kRow[j];
+                }
+            }
+            // multiplication with (I-L) subtracts the mean of each class
+            // block
+            int start = 0;
+            for (final ClassWrapper cl : classes) {
+                final int end = start + cl.getCount();
+                double sum = 0;
+                for (int j = start; j < end; j++) {
+                    sum += hRow[j];
+                }
+                final double mean = sum / cl.getCount();
+                for (int j = start; j < end; j++) {
+                    hRow[j] -= mean;
+                }
+                start = end;
+            }
+        }
+
+        // T = H*H'
+        final double[] t = new double[r * r];
+        for (int a = 0; a < r; a++) {
+            final double[] hA = h[a];
+            for (int b = a; b < r; b++) {
+                final double[] hB = h[b];
+                double sum = 0;
+                for (int j = 0; j < n; j++) {
+                    sum += hA[j] * hB[j];
+                }
+                t[a * r + b] = sum;
+                t[b * r + a] = sum;
+            }
+        }
+
+        // null space of T
+        final double[][] nullspace = nullspace(t, r, 1);
+
+        // proj = (I-M)*B * nullspace
+        final int d = nullspace.length;
+        final double[][] proj = new double[n][d];
+        for (int c = 0; c < d; c++) {
+            final double[] weights = nullspace[c];
+            for (int a = 0; a < r; a++) {
+                final double weight = weights[a];
+                final double[] basisVec = basis[a];
+                for (int i = 0; i < n; i++) {
+                    proj[i][c] += weight * basisVec[i];
+                }
+            }
+        }
+
+        return MatrixUtils.createRealMatrix(proj);
+    }
+
+    /*
+     * Returns the eigenvectors of the centered kernel matrix with eigenvalue
+     * lambda > 1e-12, scaled by 1/sqrt(lambda) and centered (i.e. multiplied
+     * with I-M). Row a of the result is basis vector a.
+     */
+    private static double[][] centeredBasis(final double[][] k)
+            throws KNFSTException {
+        final int n = k.length;
+
+        final double[] columnMeans = new double[n];
+        double matrixMean = 0;
+        for (int i = 0; i < n; i++) {
+            final double[] kRow = k[i];
+            for (int j = 0; j < n; j++) {
+                columnMeans[j] += kRow[j];
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            matrixMean += columnMeans[j];
+            columnMeans[j] /= n;
+        }
+        matrixMean /= (double) n * n;
+
+        final double[] centered = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            final double[] kRow = k[i];
+            final double rowOffset = matrixMean - columnMeans[i];
+            final int row = i * n;
+            for (int j = 0; j < n; j++) {
+                centered[row + j] = kRow[j] - columnMeans[j] + rowOffset;
+            }
+        }
+
+        final SymmetricEigenDecomposition eig =
+                new SymmetricEigenDecomposition(centered, n);
+        final double[] eigVals = eig.getEigenvalues();
+        final double[] eigVecs = eig.getEigenvectors();
+
+        // eigenvalues are sorted ascending, so the relevant ones are at the
+        // end
+        int first = n;
+        while (first > 0 && eigVals[first - 1] > BASIS_EIGENVALUE_THRESHOLD) {
+            first--;
+        }
+        if (first == n) {
+            throw new KNFSTException(
+                    "Something went wrong. Try different parameters or a different kernel.");
+        }
+
+        final double[][] basis = new double[n - first][n];
+        for (int a = 0; a < basis.length; a++) {
+            final int offset = (first + a) * n;
+            final double normalizer = 1 / Math.sqrt(eigVals[first + a]);
+            final double[] basisVec = basis[a];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                basisVec[i] = eigVecs[offset + i] * normalizer;
+                sum += basisVec[i];
+            }
+            final double mean = sum / n;
+            for (int i = 0; i < n; i++) {
+                basisVec[i] -= mean;
+            }
+        }
+        return basis;
+    }
+
+    /*
+     * Returns the null space of the symmetric positive semi-definite r x r
+     * matrix t. The rank is determined with the tolerance commons-math uses
+     * for singular values. If the null space has less than minDimension
+     * dimensions, the eigenvectors of the minDimension eigenvalues with the
+     * smallest magnitude are returned instead (for minDimension = 1 this is
+     * the fallback of KNFST.projection for a matrix with full rank). Row c of
+     * the result is null space vector c.
+     */
+    static double[][] nullspace(final double[] t, final int r,
+            final int minDimension) throws KNFSTException {
+        final SymmetricEigenDecomposition eig =
+                new SymmetricEigenDecomposition(t, r);
+        final double[] eigVals = eig.getEigenvalues();
+        final double[] eigVecs = eig.getEigenvectors();
+
+        double maxAbs = 0;
+        for (int i = 0; i < r; i++) {
+            maxAbs = Math.max(maxAbs, Math.abs(eigVals[i]));
+        }
+        final double tolerance = r * maxAbs * RANK_EPS;
+
+        int nullity = 0;
+        for (int i = 0; i < r; i++) {
+            if (Math.abs(eigVals[i]) <= tolerance) {
+                nullity++;
+            }
+        }
+
+        final double[][] nullspace;
+        if (nullity < minDimension) {
+            // selection of the eigenvalues with the smallest magnitude, ties
+            // are resolved by the smaller index
+            final int dim = Math.min(minDimension, r);
+            final boolean[] used = new boolean[r];
+            nullspace = new double[dim][r];
+            for (int c = 0; c < dim; c++) {
+                int minAbsIdx = -1;
+                for (int i = 0; i < r; i++) {
+                    if (!used[i] && (minAbsIdx < 0 || Math
+                            .abs(eigVals[i]) < Math.abs(eigVals[minAbsIdx]))) {
+                        minAbsIdx = i;
+                    }
+                }
+                used[minAbsIdx] = true;
+                System.arraycopy(eigVecs, minAbsIdx * r, nullspace[c], 0, r);
+            }
+        } else {
+            nullspace = new double[nullity][r];
+            int c = 0;
+            for (int i = 0; i < r; i++) {
+                if (Math.abs(eigVals[i]) <= tolerance) {
+                    System.arraycopy(eigVecs, i * r, nullspace[c++], 0, r);
+                }
+            }
+        }
+        return nullspace;
+    }
+}
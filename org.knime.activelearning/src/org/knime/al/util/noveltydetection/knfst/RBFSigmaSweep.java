@@ -0,0 +1,238 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+
+package org.knime.al.util.noveltydetection.knfst;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+
+/*
+ * Evaluates the RBF kernel k(x,y) = exp(-||x-y||^2 / (2 * sigma^2)) for
+ * several values of sigma. The squared distances between all training
+ * samples and between the validation and the training samples only depend on
+ * the data, so they are calculated once. The kernel matrices of each sigma
+ * are derived from them elementwise into buffers that are reused for all
+ * values of sigma.
+ *
+ * For each sigma a KNFST model is learned from the training samples and the
+ * validation samples are scored. The quality of sigma is the area under the
+ * ROC curve of the novelty scores, where the validation samples of classes
+ * that are not part of the training samples are the positive (novel) ones.
+ *
+ * Memory: two n x n and two m x n double matrices for n training and m
+ * validation samples.
+ */
+public final class RBFSigmaSweep {
+
+    private final String[] m_labels;
+    private final boolean m_oneClass;
+    private final boolean[] m_novel;
+
+    private final double[][] m_trainingDistances;
+    private final double[][] m_validationDistances;
+    private final double[][] m_trainingKernel;
+    private final double[][] m_validationKernel;
+
+    /*
+     * Parameters: training: the training samples, one sample per row
+     * labels: the labels of the training samples (ordered by class)
+     * validation: the validation samples, one sample per row novel:
+     * whether the validation sample belongs to a class that is not part of
+     * the training samples progMon: progress monitor of the distance
+     * calculation
+     */
+    public RBFSigmaSweep(final double[][] training, final String[] labels,
+            final double[][] validation, final boolean[] novel,
+            final ExecutionMonitor progMon) throws CanceledExecutionException {
+        if (training.length != labels.length) {
+            throw new IllegalArgumentException(
+                    "There must be one label per training sample.");
+        }
+        if (validation.length != novel.length) {
+            throw new IllegalArgumentException(
+                    "The novelty of each validation sample must be known.");
+        }
+        boolean hasNovel = false;
+        boolean hasKnown = false;
+        for (final boolean n : novel) {
+            hasNovel |= n;
+            hasKnown |= !n;
+        }
+        if (!hasNovel || !hasKnown) {
+            throw new IllegalArgumentException(
+                    "The validation samples must contain novel and known samples.");
+        }
+
+        m_labels = labels;
+        m_oneClass = ClassWrapper.classes(labels).length == 1;
+        m_novel = novel;
+
+        final int n = training.length;
+        final int m = validation.length;
+        m_trainingDistances = new double[n][n];
+        m_validationDistances = new double[m][n];
+        m_trainingKernel = new double[n][n];
+        m_validationKernel = new double[m][n];
+
+        // the training distances are symmetric, only the upper triangle is
+        // calculated
+        final double total = 0.5 * n * (n + 1) + (double) m * n;
+        double done = 0;
+        for (int i = 0; i < n; i++) {
+            progMon.checkCanceled();
+            final double[] row = m_trainingDistances[i];
+            for (int j = i + 1; j < n; j++) {
+                final double d = squaredDistance(training[i], training[j]);
+                row[j] = d;
+                m_trainingDistances[j][i] = d;
+            }
+            done += n - i;
+            progMon.setProgress(done / total);
+        }
+        for (int i = 0; i < m; i++) {
+            progMon.checkCanceled();
+            final double[] row = m_validationDistances[i];
+            for (int j = 0; j < n; j++) {
+                row[j] = squaredDistance(validation[i], training[j]);
+            }
+            done += n;
+            progMon.setProgress(done / total);
+        }
+    }
+
+    /*
+     * Learns a model with the given sigma and calculates the AUC of its
+     * novelty scores on the validation samples. Parameters: sigma: the
+     * kernel parameter primitiveBackend: use the primitive linear algebra
+     * backend to calculate the null space Output: the area under the ROC
+     * curve, 1 if all novel samples have higher scores than all known ones
+     */
+    public double auc(final double sigma, final boolean primitiveBackend)
+            throws KNFSTException {
+        if (!(sigma > 0)) {
+            throw new IllegalArgumentException("Sigma must be positive.");
+        }
+        final double factor = -1.0 / (2 * sigma * sigma);
+        rbf(m_trainingDistances, m_trainingKernel, factor);
+        rbf(m_validationDistances, m_validationKernel, factor);
+
+        final Array2DRowRealMatrix kernelMatrix =
+                new Array2DRowRealMatrix(m_trainingKernel, false);
+        final KNFST model = m_oneClass
+                ? new OneClassKNFST(kernelMatrix, primitiveBackend)
+                : new MultiClassKNFST(kernelMatrix, m_labels,
+                        primitiveBackend);
+        return auc(model.scoreKernelBlock(m_validationKernel).getScores(),
+                m_novel);
+    }
+
+    /*
+     * Area under the ROC curve of scores, where higher scores should belong
+     * to the positive samples (Mann-Whitney U statistic, ties count half)
+     */
+    static double auc(final double[] scores, final boolean[] positive) {
+        final Integer[] order = new Integer[scores.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer i1, final Integer i2) {
+                return Double.compare(scores[i1], scores[i2]);
+            }
+        });
+
+        // sum of the (average) ranks of the positive samples
+        double rankSum = 0;
+        long numPositive = 0;
+        for (int start = 0; start < order.length;) {
+            int end = start + 1;
+            while (end < order.length
+                    && scores[order[end]] == scores[order[start]]) {
+                end++;
+            }
+            final double rank = 0.5 * (start + 1 + end);
+            for (int i = start; i < end; i++) {
+                if (positive[order[i]]) {
+                    rankSum += rank;
+                    numPositive++;
+                }
+            }
+            start = end;
+        }
+        final long numNegative = scores.length - numPositive;
+        return (rankSum - 0.5 * numPositive * (numPositive + 1))
+                / ((double) numPositive * numNegative);
+    }
+
+    // exp(factor * d) of all distances, written into result
+    private static void rbf(final double[][] distances,
+            final double[][] result, final double factor) {
+        for (int i = 0; i < distances.length; i++) {
+            final double[] d = distances[i];
+            final double[] k = result[i];
+            for (int j = 0; j < d.length; j++) {
+                k[j] = Math.exp(factor * d[j]);
+            }
+        }
+    }
+
+    private static double squaredDistance(final double[] x,
+            final double[] y) {
+        double result = 0;
+        for (int i = 0; i < x.length; ++i) {
+            final double dif = x[i] - y[i];
+            result = result + dif * dif;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.util.noveltydetection.knfst;
+
+import java.util.Random;
+
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.knime.al.util.noveltydetection.kernel.KernelCalculator;
+import org.knime.al.util.noveltydetection.kernel.RBFKernel;
+import org.knime.al.util.noveltydetection.kernel.RandomFourierFeature;
+import org.knime.core.node.ExecutionMonitor;
+
+/*
+ * Learns an approximate KNFST model for the RBF kernel in an explicit random
+ * Fourier feature space. Each of the D features is z(x) = sqrt(2/D) *
+ * cos(w'x + b) with w drawn from N(0, I/sigma^2) and b uniform in [0, 2pi),
+ * so that z(x)'z(y) approximates exp(-|x-y|^2 / (2 sigma^2)).
+ *
+ * The null Foley-Sammon transform is calculated in feature space by
+ * FeatureSpaceNullspace. The returned model uses the feature parameters as
+ * its "training samples" together with the RandomFourierFeature function, so
+ * scoring a sample costs O(D*f + D*d) independent of the size of the
+ * training set and works with the KNFST Novelty Scorer as is.
+ */
+public final class RandomFourierKNFST {
+
+    private RandomFourierKNFST() {
+        // utility class
+    }
+
+    /*
+     * Learns an approximate KNFST model. Parameters: kernel: RBF kernel over
+     * all training samples labels: labels of the training samples (ordered
+     * by class), ignored if oneClass is true oneClass: whether a one-class
+     * model should be learned numFeatures: dimension D of the random feature
+     * space seed: seed of the random features progMon: progress monitor
+     * Output: MultiClassKNFST or OneClassKNFST over the random features
+     */
+    public static KNFST learn(final KernelCalculator kernel,
+            final String[] labels, final boolean oneClass,
+            final int numFeatures, final long seed,
+            final ExecutionMonitor progMon) throws Exception {
+        if (!(kernel.getKernelFunction() instanceof RBFKernel)) {
+            throw new IllegalArgumentException(
+                    "Random Fourier features are only available for the RBF kernel.");
+        }
+        if (numFeatures < 1) {
+            throw new IllegalArgumentException(
+                    "The number of features must be positive.");
+        }
+        final double sigma = kernel.getKernelFunction().getParameter(0);
+        final double[][] trainingData = kernel.getTrainingData();
+        final int n = trainingData.length;
+        final int f = trainingData[0].length;
+
+        final ClassWrapper[] classes =
+                FeatureSpaceNullspace.classes(labels, oneClass, n);
+
+        // draw frequencies and phases, feature j is [w_1, ..., w_f, b]
+        final Random random = new Random(seed);
+        final double[][] featureParameters = new double[numFeatures][f + 1];
+        for (final double[] parameters : featureParameters) {
+            for (int k = 0; k < f; k++) {
+                parameters[k] = random.nextGaussian() / sigma;
+            }
+            parameters[f] = random.nextDouble() * 2 * Math.PI;
+        }
+        final KernelCalculator featureMap = new KernelCalculator(
+                featureParameters,
+                new RandomFourierFeature(Math.sqrt(2.0 / numFeatures)));
+
+        // explicit features of the training samples
+        progMon.setMessage("Calculating random Fourier features");
+        final double[][] features = featureMap.kernelizeBlock(trainingData);
+        progMon.checkCanceled();
+        progMon.setProgress(0.4);
+
+        // null Foley-Sammon transform in feature space
+        progMon.setMessage("Calculating nullspace projection");
+        final FeatureSpaceNullspace nullspace =
+                new FeatureSpaceNullspace(features, classes, oneClass);
+        final double[][] directions = nullspace.getDirections();
+        final double[][] projection =
+                new double[numFeatures][directions.length];
+        for (int c = 0; c < directions.length; c++) {
+            for (int j = 0; j < numFeatures; j++) {
+                projection[j][c] = directions[c][j];
+            }
+        }
+        progMon.setProgress(1.0);
+
+        final RealMatrix targetPoints =
+                MatrixUtils.createRealMatrix(nullspace.getTargetPoints());
+        if (oneClass) {
+            return new OneClassKNFST(featureMap,
+                    MatrixUtils.createRealMatrix(projection), targetPoints);
+        }
+        // the features don't belong to a class
+        return new MultiClassKNFST(featureMap, new String[0],
+                MatrixUtils.createRealMatrix(projection), targetPoints);
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+
+package org.knime.al.util.noveltydetection.knfst;
+
+/*
+ * Eigen decomposition of a real symmetric matrix that works directly on a
+ * flat row-major double array. The matrix is reduced to tridiagonal form
+ * with Householder transformations and then diagonalized with the implicit
+ * QL algorithm (both adapted from the public domain JAMA package).
+ *
+ * In contrast to the JAMA and commons-math implementations the
+ * transformations are accumulated in transposed form, so that the inner
+ * loops run over contiguous memory and eigenvector j ends up in row j of
+ * the array. The passed array is used as workspace and overwritten with the
+ * eigenvectors, no further n x n buffer is allocated.
+ */
+final class SymmetricEigenDecomposition {
+
+    private static final double EPS = Math.pow(2.0, -52.0);
+
+    private static final int MAX_ITERATIONS_PER_EIGENVALUE = 64;
+
+    private final int m_n;
+
+    private final double[] m_eigenvalues;
+
+    private final double[] m_eigenvectors;
+
+    /*
+     * Decomposes the symmetric matrix stored in matrix. Parameters: matrix:
+     * n*n array holding the symmetric matrix in row-major order, the array
+     * is overwritten with the eigenvectors n: dimension of the matrix
+     */
+    SymmetricEigenDecomposition(final double[] matrix, final int n)
+            throws KNFSTException {
+        if (matrix.length != (long) n * n) {
+            throw new IllegalArgumentException(
+                    "The matrix must contain n*n entries.");
+        }
+        m_n = n;
+        m_eigenvectors = matrix;
+        m_eigenvalues = new double[n];
+        if (n == 0) {
+            return;
+        }
+        final double[] offDiagonal = new double[n];
+        tridiagonalize(offDiagonal);
+        diagonalize(offDiagonal);
+    }
+
+    /*
+     * Returns the eigenvalues in ascending order
+     */
+    double[] getEigenvalues() {
+        return m_eigenvalues;
+    }
+
+    /*
+     * Returns the eigenvectors as flat array, eigenvector j is stored in row
+     * j (entries j*n to j*n+n-1) and belongs to eigenvalue j
+     */
+    double[] getEigenvectors() {
+        return m_eigenvectors;
+    }
+
+    // Householder reduction to tridiagonal form. w holds the transposed
+    // accumulated transformation, i.e. V[r][c] is stored at w[c * n + r].
+    private void tridiagonalize(final double[] e) {
+        final int n = m_n;
+        final double[] w = m_eigenvectors;
+        final double[] d = m_eigenvalues;
+
+        // w currently holds the symmetric input, so the transposed view
+        // equals the matrix itself; V[n-1][j] = w[j * n + n - 1]
+        for (int j = 0; j < n; j++) {
+            d[j] = w[j * n + n - 1];
+        }
+
+        for (int i = n - 1; i > 0; i--) {
+            final int rowI = i * n;
+            // scale to avoid under/overflow
+            double scale = 0.0;
+            double h = 0.0;
+            for (int k = 0; k < i; k++) {
+                scale += Math.abs(d[k]);
+            }
+            if (scale == 0.0) {
+                e[i] = d[i - 1];
+                for (int j = 0; j < i; j++) {
+                    d[j] = w[j * n + i - 1];
+                    w[j * n + i] = 0.0;
+                    w[rowI + j] = 0.0;
+                }
+            } else {
+                // generate Householder vector
+                for (int k = 0; k < i; k++) {
+                    d[k] /= scale;
+                    h += d[k] * d[k];
+                }
+                double f = d[i - 1];
+                double g = Math.sqrt(h);
+                if (f > 0) {
+                    g = -g;
+                }
+                e[i] = scale * g;
+                h = h - f * g;
+                d[i - 1] = f - g;
+                for (int j = 0; j < i; j++) {
+                    e[j] = 0.0;
+                }
+
+                // apply similarity transformation to remaining columns
+                for (int j = 0; j < i; j++) {
+                    final int rowJ = j * n;
+                    f = d[j];
+                    w[rowI + j] = f;
+                    g = e[j] + w[rowJ + j] * f;
+                    for (int k = j + 1; k <= i - 1; k++) {
+                        final double vkj = w[rowJ + k];
+                        g += vkj * d[k];
+                        e[k] += vkj * f;
+                    }
+                    e[j] = g;
+                }
+                f = 0.0;
+                for (int j = 0; j < i; j++) {
+                    e[j] /= h;
+                    f += e[j] * d[j];
+                }
+                final double hh = f / (h + h);
+                for (int j = 0; j < i; j++) {
+                    e[j] -= hh * d[j];
+                }
+                for (int j = 0; j < i; j++) {
+                    final int rowJ = j * n;
+                    f = d[j];
+                    g = e[j];
+                    for (int k = j; k <= i - 1; k++) {
+                        w[rowJ + k] -= (f * e[k] + g * d[k]);
+                    }
+                    d[j] = w[rowJ + i - 1];
+                    w[rowJ + i] = 0.0;
+                }
+            }
+            d[i] = h;
+        }
+
+        // accumulate transformations
+        for (int i = 0; i < n - 1; i++) {
+            final int rowI = i * n;
+            final int rowNext = (i + 1) * n;
+            w[rowI + n - 1] = w[rowI + i];
+            w[rowI + i] = 1.0;
+            final double h = d[i + 1];
+            if (h != 0.0) {
+                for (int k = 0; k <= i; k++) {
+                    d[k] = w[rowNext + k] / h;
+                }
+                for (int j = 0; j <= i; j++) {
+                    final int rowJ = j * n;
+                    double g = 0.0;
+                    for (int k = 0; k <= i; k++) {
+                        g += w[rowNext + k] * w[rowJ + k];
+                    }
+                    for (int k = 0; k <= i; k++) {
+                        w[rowJ + k] -= g * d[k];
+                    }
+                }
+            }
+            for (int k = 0; k <= i; k++) {
+                w[rowNext + k] = 0.0;
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            d[j] = w[j * n + n - 1];
+            w[j * n + n - 1] = 0.0;
+        }
+        w[(n - 1) * n + n - 1] = 1.0;
+        e[0] = 0.0;
+    }
+
+    // Symmetric tridiagonal QL algorithm with implicit shifts. Rotations of
+    // the columns of V are rotations of the rows of w.
+    private void diagonalize(final double[] e) throws KNFSTException {
+        final int n = m_n;
+        final double[] w = m_eigenvectors;
+        final double[] d = m_eigenvalues;
+
+        for (int i = 1; i < n; i++) {
+            e[i - 1] = e[i];
+        }
+        e[n - 1] = 0.0;
+
+        double f = 0.0;
+        double tst1 = 0.0;
+        for (int l = 0; l < n; l++) {
+            // find small subdiagonal element
+            tst1 = Math.max(tst1, Math.abs(d[l]) + Math.abs(e[l]));
+            int m = l;
+            while (m < n - 1) {
+                if (Math.abs(e[m]) <= EPS * tst1) {
+                    break;
+                }
+                m++;
+            }
+
+            // if m == l, d[l] is already an eigenvalue, otherwise iterate
+            if (m > l) {
+                int iter = 0;
+                do {
+                    if (++iter > MAX_ITERATIONS_PER_EIGENVALUE) {
+                        throw new KNFSTException(
+                                "The eigen decomposition did not converge.");
+                    }
+
+                    // compute implicit shift
+                    double g = d[l];
+                    double p = (d[l + 1] - g) / (2.0 * e[l]);
+                    double r = Math.hypot(p, 1.0);
+                    if (p < 0) {
+                        r = -r;
+                    }
+                    d[l] = e[l] / (p + r);
+                    d[l + 1] = e[l] * (p + r);
+                    final double dl1 = d[l + 1];
+                    double h = g - d[l];
+                    for (int i = l + 2; i < n; i++) {
+                        d[i] -= h;
+                    }
+                    f = f + h;
+
+                    // implicit QL transformation
+                    p = d[m];
+                    double c = 1.0;
+                    double c2 = c;
+                    double c3 = c;
+                    final double el1 = e[l + 1];
+                    double s = 0.0;
+                    double s2 = 0.0;
+                    for (int i = m - 1; i >= l; i--) {
+                        c3 = c2;
+                        c2 = c;
+                        s2 = s;
+                        g = c * e[i];
+                        h = c * p;
+                        r = Math.hypot(p, e[i]);
+                        e[i + 1] = s * r;
+                        s = e[i] / r;
+                        c = p / r;
+                        p = c * d[i] - s * g;
+                        d[i + 1] = h + s * (c * g + s * d[i]);
+
+                        // accumulate transformation
+                        final int rowI = i * n;
+                        final int rowNext = rowI + n;
+                        for (int k = 0; k < n; k++) {
+                            h = w[rowNext + k];
+                            w[rowNext + k] = s * w[rowI + k] + c * h;
+                            w[rowI + k] = c * w[rowI + k] - s * h;
+                        }
+                    }
+                    p = -s * s2 * c3 * el1 * e[l] / dl1;
+                    e[l] = s * p;
+                    d[l] = c * p;
+
+                    // check for convergence
+                } while (Math.abs(e[l]) > EPS * tst1);
+            }
+            d[l] = d[l] + f;
+            e[l] = 0.0;
+        }
+
+        // sort eigenvalues and corresponding vectors in ascending order
+        final double[] tmp = new double[n];
+        for (int i = 0; i < n - 1; i++) {
+            int k = i;
+            double p = d[i];
+            for (int j = i + 1; j < n; j++) {
+                if (d[j] < p) {
+                    k = j;
+                    p = d[j];
+                }
+            }
+            if (k != i) {
+                d[k] = d[i];
+                d[i] = p;
+                System.arraycopy(w, i * n, tmp, 0, n);
+                System.arraycopy(w, k * n, w, i * n, n);
+                System.arraycopy(tmp, 0, w, k * n, n);
+            }
+        }
+    }
+}